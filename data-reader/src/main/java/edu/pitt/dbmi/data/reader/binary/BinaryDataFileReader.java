@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2018 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.binary;
+
+import static edu.pitt.dbmi.data.reader.binary.BinaryDataFormat.*;
+import edu.pitt.dbmi.data.reader.Data;
+import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.DataReaderException;
+import edu.pitt.dbmi.data.reader.DatasetReader;
+import edu.pitt.dbmi.data.reader.DiscreteDataColumn;
+import edu.pitt.dbmi.data.reader.tabular.DiscreteTabularDataColumn;
+import edu.pitt.dbmi.data.reader.tabular.MixedTabularData;
+import edu.pitt.dbmi.data.reader.tabular.MixedTabularDataColumn;
+import edu.pitt.dbmi.data.reader.tabular.TabularDataColumn;
+import edu.pitt.dbmi.data.reader.tabular.VerticalContinuousTabularData;
+import edu.pitt.dbmi.data.reader.tabular.VerticalDiscreteTabularData;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads data written by BinaryDataFileWriter. Continuous data is returned as
+ * VerticalContinuousTabularData, discrete data as VerticalDiscreteTabularData
+ * and mixed data as MixedTabularData.
+ *
+ * @author Joseph Ramsey
+ */
+public class BinaryDataFileReader implements BinaryDataReader {
+
+    public BinaryDataFileReader() {
+    }
+
+    @Override
+    public Data read(Path dataFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dataFile), BLOCK_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new DataReaderException("Not a binary data file: " + dataFile);
+            }
+
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new DataReaderException(String.format("Unsupported binary data file version %d: %s", version, dataFile));
+            }
+
+            byte compression = in.readByte();
+            if (compression != NO_COMPRESSION && compression != DEFLATE_COMPRESSION) {
+                throw new DataReaderException(String.format("Unknown compression %d: %s", compression, dataFile));
+            }
+
+            int numOfRows = in.readInt();
+            int numOfCols = in.readInt();
+            if (numOfRows < 0 || numOfCols < 0) {
+                throw new DataReaderException("Corrupt binary data file: " + dataFile);
+            }
+
+            String[] names = new String[numOfCols];
+            byte[] types = new byte[numOfCols];
+            List<String>[] categories = new List[numOfCols];
+            boolean isDiscrete = false;
+            boolean isContinuous = false;
+
+            for (int i = 0; i < numOfCols; i++) {
+                names[i] = in.readUTF();
+                types[i] = in.readByte();
+
+                if (types[i] == CONTINUOUS) {
+                    isContinuous = true;
+                } else if (types[i] == DISCRETE_BYTE || types[i] == DISCRETE_INT) {
+                    isDiscrete = true;
+
+                    int numOfCategories = in.readInt();
+                    categories[i] = new ArrayList<>(numOfCategories);
+                    for (int j = 0; j < numOfCategories; j++) {
+                        categories[i].add(in.readUTF());
+                    }
+                } else {
+                    throw new DataReaderException(String.format("Unknown column type %d: %s", types[i], dataFile));
+                }
+            }
+
+            InputStream body = (compression == DEFLATE_COMPRESSION) ? new InflaterInputStream(in) : in;
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            double[][] continuousData = new double[numOfCols][];
+            int[][] discreteData = new int[numOfCols][];
+
+            for (int i = 0; i < numOfCols; i++) {
+                switch (types[i]) {
+                    case CONTINUOUS:
+                        continuousData[i] = readDoubles(body, numOfRows, block);
+                        break;
+                    case DISCRETE_BYTE:
+                        discreteData[i] = readBytes(body, numOfRows, block);
+                        break;
+                    default:
+                        discreteData[i] = readInts(body, numOfRows, block);
+                }
+            }
+
+            if (isDiscrete && isContinuous) {
+                DiscreteDataColumn[] dataColumns = new DiscreteDataColumn[numOfCols];
+                for (int i = 0; i < numOfCols; i++) {
+                    MixedTabularDataColumn dataColumn = new MixedTabularDataColumn(new TabularDataColumn(names[i], i + 1, false, types[i] != CONTINUOUS));
+                    if (categories[i] != null) {
+                        dataColumn.setCategories(categories[i]);
+                    }
+                    dataColumns[i] = dataColumn;
+                }
+
+                return new MixedTabularData(numOfRows, dataColumns, continuousData, discreteData);
+            } else if (isDiscrete) {
+                DiscreteDataColumn[] dataColumns = new DiscreteDataColumn[numOfCols];
+                for (int i = 0; i < numOfCols; i++) {
+                    DiscreteTabularDataColumn dataColumn = new DiscreteTabularDataColumn(new TabularDataColumn(names[i], i + 1, false, true));
+                    dataColumn.setCategories(categories[i]);
+                    dataColumns[i] = dataColumn;
+                }
+
+                return new VerticalDiscreteTabularData(dataColumns, discreteData);
+            } else {
+                DataColumn[] dataColumns = new DataColumn[numOfCols];
+                for (int i = 0; i < numOfCols; i++) {
+                    dataColumns[i] = new TabularDataColumn(names[i], i + 1, false, false);
+                }
+
+                return new VerticalContinuousTabularData(dataColumns, continuousData);
+            }
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] bytes, int length) throws IOException {
+        int done = 0;
+
+        while (done < length) {
+            int n = in.read(bytes, done, length - done);
+            if (n < 0) {
+                throw new DataReaderException("Unexpected end of binary data file.");
+            }
+
+            done += n;
+        }
+    }
+
+    private static double[] readDoubles(InputStream in, int length, ByteBuffer block) throws IOException {
+        double[] values = new double[length];
+        int perBlock = BLOCK_SIZE / Double.BYTES;
+
+        for (int from = 0; from < length; from += perBlock) {
+            int n = Math.min(perBlock, length - from);
+            readFully(in, block.array(), n * Double.BYTES);
+            block.clear();
+            block.asDoubleBuffer().get(values, from, n);
+        }
+
+        return values;
+    }
+
+    private static int[] readInts(InputStream in, int length, ByteBuffer block) throws IOException {
+        int[] values = new int[length];
+        int perBlock = BLOCK_SIZE / Integer.BYTES;
+
+        for (int from = 0; from < length; from += perBlock) {
+            int n = Math.min(perBlock, length - from);
+            readFully(in, block.array(), n * Integer.BYTES);
+            block.clear();
+            block.asIntBuffer().get(values, from, n);
+        }
+
+        return values;
+    }
+
+    private static int[] readBytes(InputStream in, int length, ByteBuffer block) throws IOException {
+        int[] values = new int[length];
+        byte[] bytes = block.array();
+
+        for (int from = 0; from < length; from += BLOCK_SIZE) {
+            int n = Math.min(BLOCK_SIZE, length - from);
+            readFully(in, bytes, n);
+
+            for (int i = 0; i < n; i++) {
+                values[from + i] = (bytes[i] == BYTE_MISSING_VALUE) ? DatasetReader.DISCRETE_MISSING_VALUE : bytes[i];
+            }
+        }
+
+        return values;
+    }
+
+}
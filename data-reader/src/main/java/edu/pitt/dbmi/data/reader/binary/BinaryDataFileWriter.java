@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2018 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.binary;
+
+import static edu.pitt.dbmi.data.reader.binary.BinaryDataFormat.*;
+import edu.pitt.dbmi.data.reader.ContinuousData;
+import edu.pitt.dbmi.data.reader.Data;
+import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.DatasetReader;
+import edu.pitt.dbmi.data.reader.DiscreteDataColumn;
+import edu.pitt.dbmi.data.reader.tabular.MixedTabularData;
+import edu.pitt.dbmi.data.reader.tabular.VerticalContinuousTabularData;
+import edu.pitt.dbmi.data.reader.tabular.VerticalDiscreteTabularData;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes tabular data in the format described in BinaryDataFormat. Discrete
+ * columns with fewer than 128 categories are stored one byte per value.
+ *
+ * @author Joseph Ramsey
+ */
+public class BinaryDataFileWriter implements BinaryDataWriter {
+
+    private boolean compressed;
+
+    public BinaryDataFileWriter() {
+        this.compressed = false;
+    }
+
+    /**
+     * If true, the column values are deflated. Compressed files are smaller
+     * but slower to write and read; the default is false.
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    @Override
+    public void write(Data data, Path outputFile) throws IOException {
+        int numOfRows;
+        String[] names;
+        List<String>[] categories;
+        double[][] continuousData;
+        int[][] discreteData;
+
+        if (data instanceof ContinuousData) {
+            DataColumn[] dataColumns = ((ContinuousData) data).getDataColumns();
+            names = new String[dataColumns.length];
+            categories = new List[dataColumns.length];
+            discreteData = new int[dataColumns.length][];
+
+            for (int i = 0; i < dataColumns.length; i++) {
+                names[i] = dataColumns[i].getName();
+            }
+
+            if (data instanceof VerticalContinuousTabularData) {
+                continuousData = ((VerticalContinuousTabularData) data).getColumnData();
+            } else {
+                continuousData = transpose(((ContinuousData) data).getData(), dataColumns.length);
+            }
+
+            numOfRows = (continuousData.length == 0) ? 0 : continuousData[0].length;
+        } else if (data instanceof VerticalDiscreteTabularData) {
+            DiscreteDataColumn[] dataColumns = ((VerticalDiscreteTabularData) data).getDataColumns();
+            names = new String[dataColumns.length];
+            categories = new List[dataColumns.length];
+            continuousData = new double[dataColumns.length][];
+            discreteData = ((VerticalDiscreteTabularData) data).getData();
+
+            for (int i = 0; i < dataColumns.length; i++) {
+                names[i] = dataColumns[i].getDataColumn().getName();
+                categories[i] = dataColumns[i].getCategories();
+            }
+
+            numOfRows = (discreteData.length == 0) ? 0 : discreteData[0].length;
+        } else if (data instanceof MixedTabularData) {
+            MixedTabularData mixedData = (MixedTabularData) data;
+            DiscreteDataColumn[] dataColumns = mixedData.getDataColumns();
+            names = new String[dataColumns.length];
+            categories = new List[dataColumns.length];
+            continuousData = mixedData.getContinuousData();
+            discreteData = mixedData.getDiscreteData();
+
+            for (int i = 0; i < dataColumns.length; i++) {
+                names[i] = dataColumns[i].getDataColumn().getName();
+                if (discreteData[i] != null) {
+                    categories[i] = dataColumns[i].getCategories();
+                }
+            }
+
+            numOfRows = mixedData.getNumOfRows();
+        } else {
+            throw new IllegalArgumentException("Expecting continuous, discrete or mixed tabular data: " + data);
+        }
+
+        int numOfCols = names.length;
+        byte[] types = new byte[numOfCols];
+
+        for (int i = 0; i < numOfCols; i++) {
+            if (discreteData[i] == null) {
+                types[i] = CONTINUOUS;
+            } else {
+                types[i] = fitsInBytes(discreteData[i], categories[i].size()) ? DISCRETE_BYTE : DISCRETE_INT;
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputFile), BLOCK_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(compressed ? DEFLATE_COMPRESSION : NO_COMPRESSION);
+            out.writeInt(numOfRows);
+            out.writeInt(numOfCols);
+
+            for (int i = 0; i < numOfCols; i++) {
+                out.writeUTF(names[i]);
+                out.writeByte(types[i]);
+
+                if (types[i] != CONTINUOUS) {
+                    out.writeInt(categories[i].size());
+                    for (String category : categories[i]) {
+                        out.writeUTF(category);
+                    }
+                }
+            }
+
+            out.flush();
+
+            OutputStream body = compressed ? new DeflaterOutputStream(out, true) : out;
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+
+            for (int i = 0; i < numOfCols; i++) {
+                switch (types[i]) {
+                    case CONTINUOUS:
+                        writeDoubles(continuousData[i], numOfRows, block, body);
+                        break;
+                    case DISCRETE_BYTE:
+                        writeBytes(discreteData[i], numOfRows, block, body);
+                        break;
+                    default:
+                        writeInts(discreteData[i], numOfRows, block, body);
+                }
+            }
+
+            if (body instanceof DeflaterOutputStream) {
+                ((DeflaterOutputStream) body).finish();
+            }
+        }
+    }
+
+    private static boolean fitsInBytes(int[] values, int numOfCategories) {
+        if (numOfCategories > Byte.MAX_VALUE) {
+            return false;
+        }
+
+        for (int value : values) {
+            if ((value < 0 || value >= numOfCategories) && value != DatasetReader.DISCRETE_MISSING_VALUE) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void writeDoubles(double[] values, int length, ByteBuffer block, OutputStream out) throws IOException {
+        int perBlock = BLOCK_SIZE / Double.BYTES;
+
+        for (int from = 0; from < length; from += perBlock) {
+            int n = Math.min(perBlock, length - from);
+            block.clear();
+            block.asDoubleBuffer().put(values, from, n);
+            out.write(block.array(), 0, n * Double.BYTES);
+        }
+    }
+
+    private static void writeInts(int[] values, int length, ByteBuffer block, OutputStream out) throws IOException {
+        int perBlock = BLOCK_SIZE / Integer.BYTES;
+
+        for (int from = 0; from < length; from += perBlock) {
+            int n = Math.min(perBlock, length - from);
+            block.clear();
+            block.asIntBuffer().put(values, from, n);
+            out.write(block.array(), 0, n * Integer.BYTES);
+        }
+    }
+
+    private static void writeBytes(int[] values, int length, ByteBuffer block, OutputStream out) throws IOException {
+        byte[] bytes = block.array();
+
+        for (int from = 0; from < length; from += BLOCK_SIZE) {
+            int n = Math.min(BLOCK_SIZE, length - from);
+            for (int i = 0; i < n; i++) {
+                int value = values[from + i];
+                bytes[i] = (value == DatasetReader.DISCRETE_MISSING_VALUE) ? BYTE_MISSING_VALUE : (byte) value;
+            }
+
+            out.write(bytes, 0, n);
+        }
+    }
+
+    private static double[][] transpose(double[][] rows, int numOfCols) {
+        double[][] columns = new double[numOfCols][rows.length];
+
+        for (int row = 0; row < rows.length; row++) {
+            for (int col = 0; col < numOfCols; col++) {
+                columns[col][row] = rows[row][col];
+            }
+        }
+
+        return columns;
+    }
+
+}
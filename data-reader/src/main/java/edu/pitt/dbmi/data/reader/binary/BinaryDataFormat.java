@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2018 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.binary;
+
+/**
+ * Constants and helpers shared by BinaryDataFileReader and
+ * BinaryDataFileWriter. A file is laid out as follows; all numbers are
+ * big-endian, and strings are written with DataOutput.writeUTF.
+ * <pre>
+ * header:
+ *     int magic ('TDSF'), int version, byte compression (0 = none, 1 = deflate),
+ *     int numOfRows, int numOfCols,
+ *     for each column: UTF name, byte type,
+ *         and for discrete columns: int numOfCategories, UTF category...
+ * body (deflated if compression is 1):
+ *     for each column, numOfRows values:
+ *         CONTINUOUS: 8-byte doubles, NaN for missing;
+ *         DISCRETE_BYTE: 1-byte category indices, -1 for missing;
+ *         DISCRETE_INT: 4-byte category indices, -99 for missing.
+ * </pre>
+ *
+ * @author Joseph Ramsey
+ */
+final class BinaryDataFormat {
+
+    static final int MAGIC = 0x54445346;
+
+    static final int VERSION = 1;
+
+    static final byte NO_COMPRESSION = 0;
+    static final byte DEFLATE_COMPRESSION = 1;
+
+    static final byte CONTINUOUS = 0;
+    static final byte DISCRETE_BYTE = 1;
+    static final byte DISCRETE_INT = 2;
+
+    static final byte BYTE_MISSING_VALUE = -1;
+
+    // Column values are moved through a buffer of this many bytes at a time.
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private BinaryDataFormat() {
+    }
+
+}
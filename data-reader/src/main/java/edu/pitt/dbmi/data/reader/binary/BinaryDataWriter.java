@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2018 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.binary;
+
+import edu.pitt.dbmi.data.reader.Data;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes continuous, discrete or mixed tabular data in a compact binary
+ * columnar format that can be read back without parsing.
+ *
+ * @author Joseph Ramsey
+ */
+public interface BinaryDataWriter {
+
+    public void write(Data data, Path outputFile) throws IOException;
+
+}
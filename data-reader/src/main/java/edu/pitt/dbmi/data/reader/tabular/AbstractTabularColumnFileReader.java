@@ -22,6 +22,7 @@ import edu.pitt.dbmi.data.reader.DataFileReader;
 import edu.pitt.dbmi.data.reader.Delimiter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -87,7 +88,8 @@ public abstract class AbstractTabularColumnFileReader extends DataFileReader {
                         cmntIndex = 0;
                         checkForComment = comment.length > 0;
                     } else if (!skip) {
-                        if (currChar > SPACE_CHAR) {
+                        // bytes of multibyte UTF-8 characters are negative
+                        if (currChar > SPACE_CHAR || currChar < 0) {
                             hasSeenNonblankChar = true;
                         }
 
@@ -119,7 +121,7 @@ public abstract class AbstractTabularColumnFileReader extends DataFileReader {
                                 boolean isDelimiter;
                                 switch (delimiter) {
                                     case WHITESPACE:
-                                        isDelimiter = (currChar <= SPACE_CHAR) && (prevChar > SPACE_CHAR);
+                                        isDelimiter = (currChar >= 0 && currChar <= SPACE_CHAR) && (prevChar > SPACE_CHAR || prevChar < 0);
                                         break;
                                     default:
                                         isDelimiter = (currChar == delimChar);
@@ -161,7 +163,7 @@ public abstract class AbstractTabularColumnFileReader extends DataFileReader {
 
     protected String stripCharacter(String word, byte character) {
         StringBuilder dataBuilder = new StringBuilder();
-        for (byte currChar : word.getBytes()) {
+        for (byte currChar : word.getBytes(StandardCharsets.UTF_8)) {
             if (currChar != character) {
                 dataBuilder.append((char) currChar);
             }
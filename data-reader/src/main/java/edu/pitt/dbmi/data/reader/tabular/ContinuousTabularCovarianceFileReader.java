@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.tabular;
+
+import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.DataReaderException;
+import edu.pitt.dbmi.data.reader.DatasetFileReader;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import edu.pitt.dbmi.data.reader.covariance.CovarianceData;
+import edu.pitt.dbmi.data.reader.covariance.CovarianceDataReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Reads a continuous tabular data file in a single pass and returns its
+ * covariance matrix, without keeping the rows. Rows are parsed into blocks;
+ * the means and centered cross products of each block are computed on a pool
+ * of threads and merged, in file order, into running totals using the
+ * pairwise update of Chan, Golub and LeVeque. Memory use is therefore
+ * independent of the number of rows. The result does not depend on the number
+ * of threads.
+ * <p>
+ * Missing values are read as NaN, as by ContinuousTabularDatasetFileReader,
+ * and make the covariances of their columns NaN.
+ *
+ * @author Joseph Ramsey
+ */
+public class ContinuousTabularCovarianceFileReader extends DatasetFileReader implements CovarianceDataReader {
+
+    private boolean hasHeader;
+    private char quoteChar;
+    private boolean biasCorrected;
+    private int numberOfThreads;
+    private int blockSize;
+
+    public ContinuousTabularCovarianceFileReader(Path dataFile, Delimiter delimiter) {
+        super(dataFile, delimiter);
+        this.hasHeader = true;
+        this.quoteChar = '"';
+        this.biasCorrected = true;
+        this.numberOfThreads = Runtime.getRuntime().availableProcessors();
+        this.blockSize = 1024;
+    }
+
+    @Override
+    public CovarianceData readInData() throws IOException {
+        return readInData(Collections.EMPTY_SET);
+    }
+
+    public CovarianceData readInData(Set<String> namesOfColumnsToExclude) throws IOException {
+        TabularColumnReader columnReader = new TabularColumnFileReader(dataFile, delimiter);
+        columnReader.setCommentMarker(commentMarker);
+        columnReader.setQuoteCharacter(quoteChar);
+
+        DataColumn[] dataColumns = hasHeader
+                ? columnReader.readInDataColumns(namesOfColumnsToExclude, false)
+                : columnReader.generateColumns(new int[0], false);
+
+        return readInData(dataColumns);
+    }
+
+    public CovarianceData readInData(int[] columnsToExclude) throws IOException {
+        TabularColumnReader columnReader = new TabularColumnFileReader(dataFile, delimiter);
+        columnReader.setCommentMarker(commentMarker);
+        columnReader.setQuoteCharacter(quoteChar);
+
+        DataColumn[] dataColumns = hasHeader
+                ? columnReader.readInDataColumns(columnsToExclude, false)
+                : columnReader.generateColumns(columnsToExclude, false);
+
+        return readInData(dataColumns);
+    }
+
+    private CovarianceData readInData(DataColumn[] dataColumns) throws IOException {
+        TabularDataFileReader dataReader = new TabularDataFileReader(dataFile, delimiter);
+        dataReader.setCommentMarker(commentMarker);
+        dataReader.setQuoteCharacter(quoteChar);
+        dataReader.setMissingDataMarker(missingDataMarker);
+
+        int numOfCols = dataColumns.length;
+        Moments total = new Moments(numOfCols);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        Deque<Future<Moments>> pending = new ArrayDeque<>();
+        double[][][] block = {new double[blockSize][]};
+        int[] blockRows = {0};
+
+        try {
+            dataReader.readInContinuousRows(dataColumns, hasHeader, numOfCols, (values, row) -> {
+                block[0][blockRows[0]++] = values.clone();
+
+                if (blockRows[0] == blockSize) {
+                    submit(executor, pending, block[0], blockSize, numOfCols);
+                    block[0] = new double[blockSize][];
+                    blockRows[0] = 0;
+
+                    // Bound the number of blocks held in memory.
+                    while (pending.size() > 2 * numberOfThreads) {
+                        total.merge(take(pending));
+                    }
+                }
+            });
+
+            if (blockRows[0] > 0) {
+                submit(executor, pending, block[0], blockRows[0], numOfCols);
+            }
+
+            while (!pending.isEmpty()) {
+                total.merge(take(pending));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted while reading " + dataFile);
+        }
+
+        List<String> variables = Arrays.stream(dataColumns)
+                .map(DataColumn::getName)
+                .collect(Collectors.toList());
+
+        return new TabularCovarianceData(total.numberOfCases, variables, total.covariance(biasCorrected));
+    }
+
+    private static void submit(ExecutorService executor, Deque<Future<Moments>> pending, double[][] rows, int numOfRows, int numOfCols) {
+        pending.addLast(executor.submit(() -> {
+            Moments moments = new Moments(numOfCols);
+            moments.add(rows, numOfRows);
+            return moments;
+        }));
+    }
+
+    private static Moments take(Deque<Future<Moments>> pending) {
+        try {
+            return pending.removeFirst().get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new DataReaderException("Interrupted while computing covariances.", exception);
+        } catch (ExecutionException exception) {
+            throw new DataReaderException("Unable to compute covariances.", exception.getCause());
+        }
+    }
+
+    public void setHasHeader(boolean hasHeader) {
+        this.hasHeader = hasHeader;
+    }
+
+    @Override
+    public void setQuoteCharacter(char quoteCharacter) {
+        this.quoteChar = quoteCharacter;
+    }
+
+    /**
+     * If true (the default), covariances are divided by n - 1; otherwise by n.
+     */
+    public void setBiasCorrected(boolean biasCorrected) {
+        this.biasCorrected = biasCorrected;
+    }
+
+    /**
+     * Sets the number of threads used to process blocks of rows; the default
+     * is the number of available processors.
+     */
+    public void setNumberOfThreads(int numberOfThreads) {
+        if (numberOfThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1: " + numberOfThreads);
+        }
+
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Sets the number of rows per block; the default is 1024.
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1: " + blockSize);
+        }
+
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * The number of cases, means and the lower triangle of the sums of
+     * centered cross products of a set of rows.
+     */
+    private static final class Moments {
+
+        private long numberOfCases;
+        private final double[] means;
+        private final double[][] crossProducts;
+
+        private Moments(int numOfCols) {
+            this.means = new double[numOfCols];
+            this.crossProducts = new double[numOfCols][];
+
+            for (int i = 0; i < numOfCols; i++) {
+                crossProducts[i] = new double[i + 1];
+            }
+        }
+
+        private void add(double[][] rows, int numOfRows) {
+            int numOfCols = means.length;
+
+            for (int r = 0; r < numOfRows; r++) {
+                double[] row = rows[r];
+
+                for (int j = 0; j < numOfCols; j++) {
+                    means[j] += row[j];
+                }
+            }
+
+            for (int j = 0; j < numOfCols; j++) {
+                means[j] /= numOfRows;
+            }
+
+            double[] centered = new double[numOfCols];
+
+            for (int r = 0; r < numOfRows; r++) {
+                double[] row = rows[r];
+
+                for (int j = 0; j < numOfCols; j++) {
+                    centered[j] = row[j] - means[j];
+                }
+
+                for (int i = 0; i < numOfCols; i++) {
+                    double[] cp = crossProducts[i];
+                    double ci = centered[i];
+
+                    for (int j = 0; j <= i; j++) {
+                        cp[j] += ci * centered[j];
+                    }
+                }
+            }
+
+            numberOfCases = numOfRows;
+        }
+
+        private void merge(Moments other) {
+            if (other.numberOfCases == 0) {
+                return;
+            }
+
+            int numOfCols = means.length;
+            double n1 = numberOfCases;
+            double n2 = other.numberOfCases;
+            double n = n1 + n2;
+            double[] delta = new double[numOfCols];
+
+            for (int j = 0; j < numOfCols; j++) {
+                delta[j] = other.means[j] - means[j];
+            }
+
+            double f = n1 * n2 / n;
+
+            for (int i = 0; i < numOfCols; i++) {
+                double[] cp = crossProducts[i];
+                double[] otherCp = other.crossProducts[i];
+
+                for (int j = 0; j <= i; j++) {
+                    cp[j] += otherCp[j] + f * delta[i] * delta[j];
+                }
+            }
+
+            for (int j = 0; j < numOfCols; j++) {
+                means[j] += delta[j] * (n2 / n);
+            }
+
+            numberOfCases += other.numberOfCases;
+        }
+
+        private double[][] covariance(boolean biasCorrected) {
+            int numOfCols = means.length;
+            double divisor = biasCorrected ? numberOfCases - 1 : numberOfCases;
+            double[][] covariance = new double[numOfCols][numOfCols];
+
+            for (int i = 0; i < numOfCols; i++) {
+                for (int j = 0; j <= i; j++) {
+                    covariance[i][j] = crossProducts[i][j] / divisor;
+                    covariance[j][i] = covariance[i][j];
+                }
+            }
+
+            return covariance;
+        }
+    }
+
+    private static final class TabularCovarianceData implements CovarianceData {
+
+        private final int numberOfCases;
+        private final List<String> variables;
+        private final double[][] data;
+
+        private TabularCovarianceData(long numberOfCases, List<String> variables, double[][] data) {
+            if (numberOfCases > Integer.MAX_VALUE) {
+                throw new DataReaderException("Too many cases to report: " + numberOfCases);
+            }
+
+            this.numberOfCases = (int) numberOfCases;
+            this.variables = variables;
+            this.data = data;
+        }
+
+        @Override
+        public int getNumberOfCases() {
+            return numberOfCases;
+        }
+
+        @Override
+        public List<String> getVariables() {
+            return variables;
+        }
+
+        @Override
+        public double[][] getData() {
+            return data;
+        }
+
+    }
+
+}
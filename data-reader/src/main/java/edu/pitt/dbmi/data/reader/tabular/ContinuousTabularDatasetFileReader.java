@@ -24,8 +24,10 @@ import edu.pitt.dbmi.data.reader.DatasetFileReader;
 import edu.pitt.dbmi.data.reader.Delimiter;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
 /**
  *
@@ -87,6 +89,58 @@ public class ContinuousTabularDatasetFileReader extends DatasetFileReader implem
         return dataReader.read(dataColumns, hasHeader);
     }
 
+    /**
+     * Reads the data columns from the header, or generates them if the file
+     * has no header, for use with readInRows.
+     *
+     * @param namesOfColumnsToExclude names of columns to leave out.
+     * @return the data columns, all continuous.
+     * @throws IOException if the file cannot be read.
+     */
+    public DataColumn[] readInDataColumns(Set<String> namesOfColumnsToExclude) throws IOException {
+        TabularColumnReader columnReader = new TabularColumnFileReader(dataFile, delimiter);
+        columnReader.setCommentMarker(commentMarker);
+        columnReader.setQuoteCharacter(quoteChar);
+
+        boolean isDiscrete = false;
+        return hasHeader
+                ? columnReader.readInDataColumns(namesOfColumnsToExclude, isDiscrete)
+                : columnReader.generateColumns(new int[0], isDiscrete);
+    }
+
+    /**
+     * Counts the rows of data, not including the header or comment lines.
+     *
+     * @return the number of rows readInRows will hand to its consumer.
+     * @throws IOException if the file cannot be read.
+     */
+    public int countNumberOfRows() throws IOException {
+        return hasHeader ? countNumberOfLines() - 1 : countNumberOfLines();
+    }
+
+    /**
+     * Parses the data one row at a time, without building the whole data
+     * array. The consumer is given the values of each row and the row number;
+     * the values array is reused for the next row, so it must be copied if it
+     * is to be kept.
+     *
+     * @param dataColumns the columns from readInDataColumns.
+     * @param rowConsumer receives each row in file order.
+     * @throws IOException if the file cannot be read.
+     */
+    public void readInRows(DataColumn[] dataColumns, ObjIntConsumer<double[]> rowConsumer) throws IOException {
+        TabularDataFileReader dataReader = new TabularDataFileReader(dataFile, delimiter);
+        dataReader.setCommentMarker(commentMarker);
+        dataReader.setQuoteCharacter(quoteChar);
+        dataReader.setMissingDataMarker(missingDataMarker);
+
+        int numOfColsInDataFile = (int) Arrays.stream(dataColumns)
+                .filter(dataColumn -> !dataColumn.isGenerated())
+                .count();
+
+        dataReader.readInContinuousRows(dataColumns, hasHeader, numOfColsInDataFile, rowConsumer);
+    }
+
     @Override
     public void setHasHeader(boolean hasHeader) {
         this.hasHeader = hasHeader;
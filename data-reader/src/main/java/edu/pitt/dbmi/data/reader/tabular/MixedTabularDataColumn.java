@@ -91,4 +91,8 @@ public class MixedTabularDataColumn implements DiscreteDataColumn {
         return (categories == null) ? Collections.EMPTY_LIST : categories;
     }
 
+    public void setCategories(List<String> categories) {
+        this.categories = categories;
+    }
+
 }
@@ -0,0 +1,642 @@
+/*
+ * Copyright (C) 2018 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.tabular;
+
+import edu.pitt.dbmi.data.reader.Data;
+import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.DataReaderException;
+import edu.pitt.dbmi.data.reader.DatasetFileReader;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads continuous tabular data on several threads. The file is split into
+ * line-aligned chunks, each of which is memory-mapped and parsed separately:
+ * a first pass counts the data lines of each chunk, so that every chunk knows
+ * its first row, and a second pass parses numbers straight from the bytes
+ * into column arrays. Numbers of up to 15 significant digits with small
+ * exponents are converted directly; anything else falls back to
+ * Double.parseDouble, so the values are the same as those read by
+ * ContinuousTabularDatasetFileReader.
+ * <p>
+ * Delimiters, quote characters, comment markers, blank lines and missing
+ * values are handled as in TabularDataFileReader, except that quoting does
+ * not carry over from one line to the next.
+ *
+ * @author Joseph Ramsey
+ */
+public class ParallelContinuousTabularDatasetFileReader extends DatasetFileReader implements ContinuousTabularDatasetReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelContinuousTabularDatasetFileReader.class);
+
+    // Powers of ten that are exact doubles.
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private boolean hasHeader;
+    private char quoteChar;
+    private int numberOfThreads;
+    private int chunkSize;
+
+    public ParallelContinuousTabularDatasetFileReader(Path dataFile, Delimiter delimiter) {
+        super(dataFile, delimiter);
+        this.hasHeader = true;
+        this.quoteChar = '"';
+        this.numberOfThreads = Runtime.getRuntime().availableProcessors();
+        this.chunkSize = 8 * 1024 * 1024;
+    }
+
+    @Override
+    public Data readInData() throws IOException {
+        return readInData(Collections.EMPTY_SET);
+    }
+
+    @Override
+    public Data readInData(Set<String> namesOfColumnsToExclude) throws IOException {
+        TabularColumnReader columnReader = new TabularColumnFileReader(dataFile, delimiter);
+        columnReader.setCommentMarker(commentMarker);
+        columnReader.setQuoteCharacter(quoteChar);
+
+        boolean isDiscrete = false;
+        DataColumn[] dataColumns = hasHeader
+                ? columnReader.readInDataColumns(namesOfColumnsToExclude, isDiscrete)
+                : columnReader.generateColumns(new int[0], isDiscrete);
+
+        return readInData(hasHeader ? decodeNames(dataColumns) : dataColumns);
+    }
+
+    @Override
+    public Data readInData(int[] columnsToExclude) throws IOException {
+        TabularColumnReader columnReader = new TabularColumnFileReader(dataFile, delimiter);
+        columnReader.setCommentMarker(commentMarker);
+        columnReader.setQuoteCharacter(quoteChar);
+
+        boolean isDiscrete = false;
+        DataColumn[] dataColumns = hasHeader
+                ? columnReader.readInDataColumns(columnsToExclude, isDiscrete)
+                : columnReader.generateColumns(columnsToExclude, isDiscrete);
+
+        return readInData(hasHeader ? decodeNames(dataColumns) : dataColumns);
+    }
+
+    @Override
+    public void setHasHeader(boolean hasHeader) {
+        this.hasHeader = hasHeader;
+    }
+
+    @Override
+    public void setQuoteCharacter(char quoteCharacter) {
+        this.quoteChar = quoteCharacter;
+    }
+
+    /**
+     * Sets the number of threads to parse with; the default is the number of
+     * available processors.
+     */
+    public void setNumberOfThreads(int numberOfThreads) {
+        if (numberOfThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1: " + numberOfThreads);
+        }
+
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Sets the approximate number of bytes per chunk; the default is 8 MB.
+     * Chunks are extended to the end of the line.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        }
+
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * TabularColumnFileReader turns each byte of the header into one char (and
+     * encodes the names to exclude the same way to match them), so the names
+     * it returns are decoded here as UTF-8.
+     */
+    private static DataColumn[] decodeNames(DataColumn[] dataColumns) {
+        DataColumn[] decoded = new DataColumn[dataColumns.length];
+        for (int i = 0; i < dataColumns.length; i++) {
+            DataColumn column = dataColumns[i];
+            String name = column.getName();
+            byte[] bytes = new byte[name.length()];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) name.charAt(j);
+            }
+
+            decoded[i] = new TabularDataColumn(new String(bytes, StandardCharsets.UTF_8),
+                    column.getColumnNumber(), column.isGenerated(), column.isDiscrete());
+        }
+
+        return decoded;
+    }
+
+    private Data readInData(DataColumn[] dataColumns) throws IOException {
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            List<Chunk> chunks = new ArrayList<>();
+            long start = 0;
+
+            while (start < channel.size()) {
+                long end = nextLineStart(channel, Math.max(start + 1, Math.min(start + chunkSize, channel.size())));
+                chunks.add(new Chunk(channel, start, end, dataColumns));
+                start = end;
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+
+            try {
+                run(executor, chunks, chunk -> chunk::count);
+
+                // Work out the first line number and row of each chunk; the
+                // header is the first data line in the file.
+                boolean headerFound = !hasHeader;
+                long lineNum = 1;
+                long numOfRows = 0;
+
+                for (Chunk chunk : chunks) {
+                    chunk.firstLineNum = lineNum;
+                    chunk.firstRow = (int) numOfRows;
+                    lineNum += chunk.numOfLines;
+
+                    if (!headerFound && chunk.numOfDataLines > 0) {
+                        chunk.skipFirstDataLine = true;
+                        headerFound = true;
+                    }
+
+                    numOfRows += chunk.skipFirstDataLine ? chunk.numOfDataLines - 1 : chunk.numOfDataLines;
+
+                    if (numOfRows > Integer.MAX_VALUE) {
+                        throw new DataReaderException("Too many rows to read into arrays: " + numOfRows);
+                    }
+                }
+
+                double[][] data = new double[dataColumns.length][(int) numOfRows];
+
+                run(executor, chunks, chunk -> () -> chunk.parse(data));
+
+                return new VerticalContinuousTabularData(dataColumns, data);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private interface ChunkTask {
+
+        Callable<Void> of(Chunk chunk);
+    }
+
+    // Runs the task on every chunk and rethrows the failure of the earliest
+    // failing chunk, so that errors are reported as the sequential reader would.
+    private static void run(ExecutorService executor, List<Chunk> chunks, ChunkTask task) throws IOException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            tasks.add(task.of(chunk));
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading data.");
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new DataReaderException("Unable to read data.", cause);
+            }
+        }
+    }
+
+    /**
+     * @return the position just after the first line terminator at or after
+     * the given position (CR LF counts as one), or the size of the file.
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long size = channel.size();
+        boolean seenCarriageReturn = false;
+
+        while (position < size) {
+            buffer.clear();
+            int len = channel.read(buffer, position);
+
+            if (len <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < len; i++) {
+                byte currChar = buffer.get(i);
+
+                if (seenCarriageReturn) {
+                    return (currChar == LINE_FEED) ? position + i + 1 : position + i;
+                } else if (currChar == LINE_FEED) {
+                    return position + i + 1;
+                } else if (currChar == CARRIAGE_RETURN) {
+                    seenCarriageReturn = true;
+                }
+            }
+
+            position += len;
+        }
+
+        return size;
+    }
+
+    /**
+     * A line-aligned region of the file.
+     */
+    private final class Chunk {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final DataColumn[] dataColumns;
+
+        private final byte delimChar = delimiter.getByteValue();
+        private final byte quote = Character.isDefined(quoteChar) ? (byte) quoteChar : (byte) -1;
+        private final byte[] comment = commentMarker.getBytes(StandardCharsets.UTF_8);
+        private final byte[] missing = missingDataMarker.getBytes(StandardCharsets.UTF_8);
+
+        // Set by count().
+        private long numOfLines;
+        private long numOfDataLines;
+
+        // Set before parse().
+        private long firstLineNum;
+        private int firstRow;
+        private boolean skipFirstDataLine;
+
+        private byte[] token = new byte[64];
+        private int tokenLength;
+
+        private Chunk(FileChannel channel, long start, long end, DataColumn[] dataColumns) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.dataColumns = dataColumns;
+        }
+
+        // The chunk is parsed from the mapping itself; nothing is copied.
+        private ByteBuffer load() throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        }
+
+        private Void count() throws IOException {
+            ByteBuffer bytes = load();
+            int lineStart = 0;
+
+            while (lineStart < bytes.limit()) {
+                int lineEnd = lineEnd(bytes, lineStart);
+
+                if (firstValue(bytes, lineStart, lineEnd) >= 0) {
+                    numOfDataLines++;
+                }
+
+                if (lineEnd < bytes.limit()) {
+                    numOfLines++;
+                }
+
+                lineStart = nextLine(bytes, lineEnd);
+            }
+
+            return null;
+        }
+
+        private Void parse(double[][] data) throws IOException {
+            ByteBuffer bytes = load();
+            int lineStart = 0;
+            long lineNum = firstLineNum;
+            int row = firstRow;
+            boolean skip = skipFirstDataLine;
+
+            while (lineStart < bytes.limit()) {
+                int lineEnd = lineEnd(bytes, lineStart);
+                int first = firstValue(bytes, lineStart, lineEnd);
+
+                if (first >= 0) {
+                    if (skip) {
+                        skip = false;
+                    } else {
+                        parseLine(bytes, first, lineEnd, lineNum, row++, data);
+                    }
+                }
+
+                lineNum++;
+                lineStart = nextLine(bytes, lineEnd);
+            }
+
+            return null;
+        }
+
+        private int lineEnd(ByteBuffer bytes, int position) {
+            while (position < bytes.limit() && bytes.get(position) != LINE_FEED && bytes.get(position) != CARRIAGE_RETURN) {
+                position++;
+            }
+
+            return position;
+        }
+
+        private int nextLine(ByteBuffer bytes, int lineEnd) {
+            if (lineEnd + 1 < bytes.limit() && bytes.get(lineEnd) == CARRIAGE_RETURN && bytes.get(lineEnd + 1) == LINE_FEED) {
+                return lineEnd + 2;
+            }
+
+            return lineEnd + 1;
+        }
+
+        /**
+         * @return the index of the first non-blank character of the line, or
+         * -1 if the line is blank or a comment.
+         */
+        private int firstValue(ByteBuffer bytes, int lineStart, int lineEnd) {
+            int first = lineStart;
+            while (first < lineEnd && bytes.get(first) >= 0 && bytes.get(first) <= SPACE_CHAR) {
+                first++;
+            }
+
+            if (first == lineEnd) {
+                return -1;
+            }
+
+            if (comment.length > 0 && lineEnd - first >= comment.length) {
+                boolean isComment = true;
+                for (int i = 0; i < comment.length && isComment; i++) {
+                    isComment = bytes.get(first + i) == comment[i];
+                }
+
+                if (isComment) {
+                    return -1;
+                }
+            }
+
+            return first;
+        }
+
+        private void parseLine(ByteBuffer bytes, int first, int lineEnd, long lineNum, int row, double[][] data) {
+            int numOfCols = dataColumns.length;
+            int colNum = 0;
+            int columnIndex = 0;
+            boolean hasQuoteChar = false;
+            byte prevChar = LINE_FEED;
+            tokenLength = 0;
+
+            for (int i = first; i < lineEnd; i++) {
+                byte currChar = bytes.get(i);
+
+                if (currChar == quote) {
+                    hasQuoteChar = !hasQuoteChar;
+                } else if (hasQuoteChar) {
+                    append(currChar);
+                } else {
+                    boolean isDelimiter;
+                    switch (delimiter) {
+                        case WHITESPACE:
+                            isDelimiter = (currChar >= 0 && currChar <= SPACE_CHAR) && (prevChar > SPACE_CHAR || prevChar < 0);
+                            break;
+                        default:
+                            isDelimiter = (currChar == delimChar);
+                    }
+
+                    if (isDelimiter) {
+                        colNum++;
+
+                        if (columnIndex < numOfCols && dataColumns[columnIndex].getColumnNumber() == colNum) {
+                            data[columnIndex++][row] = value(lineNum, colNum);
+
+                            if (columnIndex == numOfCols) {
+                                return;
+                            }
+                        }
+
+                        tokenLength = 0;
+                    } else {
+                        append(currChar);
+                    }
+                }
+
+                prevChar = currChar;
+            }
+
+            colNum++;
+
+            if (columnIndex < numOfCols && dataColumns[columnIndex].getColumnNumber() == colNum) {
+                data[columnIndex++][row] = value(lineNum, colNum);
+            }
+
+            // ensure we have enough data
+            if (columnIndex < numOfCols) {
+                String errMsg = String.format("Insufficient data on line %d.  Extracted %d value(s) but expected %d.", lineNum, columnIndex, numOfCols);
+                LOGGER.error(errMsg);
+                throw new DataReaderException(errMsg);
+            }
+        }
+
+        private void append(byte currChar) {
+            if (tokenLength == token.length) {
+                token = Arrays.copyOf(token, 2 * token.length);
+            }
+
+            token[tokenLength++] = currChar;
+        }
+
+        // Converts the current token, trimmed as String.trim() would trim it.
+        private double value(long lineNum, int colNum) {
+            int from = 0;
+            int to = tokenLength;
+
+            while (from < to && token[from] >= 0 && token[from] <= SPACE_CHAR) {
+                from++;
+            }
+
+            while (to > from && token[to - 1] >= 0 && token[to - 1] <= SPACE_CHAR) {
+                to--;
+            }
+
+            if (from == to || isMissing(from, to)) {
+                return CONTINUOUS_MISSING_VALUE;
+            }
+
+            double value = parseDouble(token, from, to);
+
+            if (Double.isNaN(value)) {
+                String s = toString(from, to);
+
+                try {
+                    value = Double.parseDouble(s);
+                } catch (NumberFormatException exception) {
+                    String errMsg = String.format("Non-continuous number %s on line %d at column %d.", s, lineNum, colNum);
+                    LOGGER.error(errMsg, exception);
+                    throw new DataReaderException(errMsg);
+                }
+            }
+
+            return value;
+        }
+
+        private boolean isMissing(int from, int to) {
+            if (to - from != missing.length) {
+                return false;
+            }
+
+            for (int i = 0; i < missing.length; i++) {
+                if (token[from + i] != missing[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private String toString(int from, int to) {
+            return new String(token, from, to - from, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Parses a plain decimal number, [sign] digits [. digits] [(e|E) [sign]
+     * digits], with at most 15 significant digits and a decimal exponent of at
+     * most 22 in magnitude. Such numbers are exact as doubles before the
+     * final multiplication or division, so the result is correctly rounded
+     * and equal to Double.parseDouble's.
+     *
+     * @return the value, or NaN if the text is not of this form.
+     */
+    static double parseDouble(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numOfDigits = 0;
+        int numOfSignificantDigits = 0;
+        int exponent = 0;
+
+        for (; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+            numOfDigits++;
+            if (mantissa != 0 || bytes[i] != '0') {
+                if (++numOfSignificantDigits > 15) {
+                    return Double.NaN;
+                }
+
+                mantissa = 10 * mantissa + (bytes[i] - '0');
+            }
+        }
+
+        if (i < to && bytes[i] == '.') {
+            i++;
+
+            for (; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                numOfDigits++;
+                exponent--;
+                if (mantissa != 0 || bytes[i] != '0') {
+                    if (++numOfSignificantDigits > 15) {
+                        return Double.NaN;
+                    }
+
+                    mantissa = 10 * mantissa + (bytes[i] - '0');
+                }
+            }
+        }
+
+        if (numOfDigits == 0) {
+            return Double.NaN;
+        }
+
+        if (i < to && (bytes[i] == 'e' || bytes[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+
+            if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+                negativeExponent = bytes[i] == '-';
+                i++;
+            }
+
+            int explicitExponent = 0;
+            int numOfExponentDigits = 0;
+
+            for (; i < to && bytes[i] >= '0' && bytes[i] <= '9'; i++) {
+                if (++numOfExponentDigits > 4) {
+                    return Double.NaN;
+                }
+
+                explicitExponent = 10 * explicitExponent + (bytes[i] - '0');
+            }
+
+            if (numOfExponentDigits == 0) {
+                return Double.NaN;
+            }
+
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (i != to) {
+            return Double.NaN;
+        }
+
+        double value;
+
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return Double.NaN;
+        }
+
+        return negative ? -value : value;
+    }
+
+}
@@ -170,7 +170,8 @@ public final class TabularColumnFileReader extends AbstractTabularColumnFileRead
                         cmntIndex = 0;
                         checkForComment = comment.length > 0;
                     } else if (!skip) {
-                        if (currChar > SPACE_CHAR) {
+                        // bytes of multibyte UTF-8 characters are negative
+                        if (currChar > SPACE_CHAR || currChar < 0) {
                             hasSeenNonblankChar = true;
                         }
 
@@ -202,7 +203,7 @@ public final class TabularColumnFileReader extends AbstractTabularColumnFileRead
                                 boolean isDelimiter;
                                 switch (delimiter) {
                                     case WHITESPACE:
-                                        isDelimiter = (currChar <= SPACE_CHAR) && (prevChar > SPACE_CHAR);
+                                        isDelimiter = (currChar >= 0 && currChar <= SPACE_CHAR) && (prevChar > SPACE_CHAR || prevChar < 0);
                                         break;
                                     default:
                                         isDelimiter = (currChar == delimChar);
@@ -36,6 +36,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.function.ObjIntConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -732,6 +733,21 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
         int numOfRows = hasHeader ? countNumberOfLines() - 1 : countNumberOfLines();
         double[][] data = new double[numOfRows][numOfCols];
 
+        readInContinuousRows(dataColumns, hasHeader, numOfColsInDataFile, (values, row) -> System.arraycopy(values, 0, data[row], 0, numOfCols));
+
+        return new ContinuousTabularData(dataColumns, data);
+    }
+
+    /**
+     * Parses the continuous data one row at a time. The consumer is given the
+     * values of each row and the row number; the values array is reused for
+     * the next row, so it must be copied if it is to be kept. Values of
+     * generated columns are left at 0.
+     */
+    void readInContinuousRows(DataColumn[] dataColumns, boolean hasHeader, int numOfColsInDataFile, ObjIntConsumer<double[]> rowConsumer) throws IOException {
+        int numOfCols = dataColumns.length;
+        double[] data = new double[numOfCols];
+
         try (InputStream in = Files.newInputStream(dataFile, StandardOpenOption.READ)) {
             boolean skipHeader = hasHeader;
             boolean skip = false;
@@ -828,10 +844,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                             if (dataColumn.getColumnNumber() == colNum) {
                                 String value = dataBuilder.toString().trim();
                                 if (value.isEmpty() || value.equals(missingDataMarker)) {
-                                    data[row][col++] = CONTINUOUS_MISSING_VALUE;
+                                    data[col++] = CONTINUOUS_MISSING_VALUE;
                                 } else {
                                     try {
-                                        data[row][col++] = Double.parseDouble(value);
+                                        data[col++] = Double.parseDouble(value);
                                     } catch (NumberFormatException exception) {
                                         String errMsg = String.format("Non-continuous number %s on line %d at column %d.", value, lineNum, colNum);
                                         LOGGER.error(errMsg, exception);
@@ -849,7 +865,7 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                                 throw new DataReaderException(errMsg);
                             }
 
-                            row++;
+                            rowConsumer.accept(data, row++);
                         }
 
                         lineNum++;
@@ -911,10 +927,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                                     if (dataColumn.getColumnNumber() == colNum) {
                                         String value = dataBuilder.toString().trim();
                                         if (value.isEmpty() || value.equals(missingDataMarker)) {
-                                            data[row][col++] = CONTINUOUS_MISSING_VALUE;
+                                            data[col++] = CONTINUOUS_MISSING_VALUE;
                                         } else {
                                             try {
-                                                data[row][col++] = Double.parseDouble(value);
+                                                data[col++] = Double.parseDouble(value);
                                             } catch (NumberFormatException exception) {
                                                 String errMsg = String.format("Non-continuous number %s on line %d at column %d.", value, lineNum, colNum);
                                                 LOGGER.error(errMsg, exception);
@@ -924,7 +940,7 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
 
                                         columnIndex++;
                                         if (columnIndex == numOfCols) {
-                                            row++;
+                                            rowConsumer.accept(data, row++);
                                             skip = true;
                                         }
                                     }
@@ -949,10 +965,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                 if (dataColumn.getColumnNumber() == colNum) {
                     String value = dataBuilder.toString().trim();
                     if (value.isEmpty() || value.equals(missingDataMarker)) {
-                        data[row][col++] = CONTINUOUS_MISSING_VALUE;
+                        data[col++] = CONTINUOUS_MISSING_VALUE;
                     } else {
                         try {
-                            data[row][col++] = Double.parseDouble(value);
+                            data[col++] = Double.parseDouble(value);
                         } catch (NumberFormatException exception) {
                             String errMsg = String.format("Non-continuous number %s on line %d at column %d.", value, lineNum, colNum);
                             LOGGER.error(errMsg, exception);
@@ -969,10 +985,10 @@ public final class TabularDataFileReader extends DatasetFileReader implements Ta
                     LOGGER.error(errMsg);
                     throw new DataReaderException(errMsg);
                 }
+
+                rowConsumer.accept(data, row);
             }
         }
-
-        return new ContinuousTabularData(dataColumns, data);
     }
 
     private Data readInDiscreteData(DataColumn[] dataColumns, boolean hasHeader, int numOfColsInDataFile) throws IOException {
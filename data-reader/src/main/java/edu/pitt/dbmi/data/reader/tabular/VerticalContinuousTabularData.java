@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2018 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.tabular;
+
+import edu.pitt.dbmi.data.reader.ContinuousData;
+import edu.pitt.dbmi.data.reader.DataColumn;
+
+/**
+ * Continuous tabular data stored column by column, data[column][row], as
+ * produced by ParallelContinuousTabularDatasetFileReader. getData() returns
+ * the usual row-major array, which is made from the columns the first time it
+ * is asked for.
+ *
+ * @author Joseph Ramsey
+ */
+public class VerticalContinuousTabularData implements ContinuousData {
+
+    private final DataColumn[] dataColumns;
+    private final double[][] data;
+    private double[][] rowData;
+
+    public VerticalContinuousTabularData(DataColumn[] dataColumns, double[][] data) {
+        this.dataColumns = dataColumns;
+        this.data = data;
+    }
+
+    @Override
+    public DataColumn[] getDataColumns() {
+        return dataColumns;
+    }
+
+    /**
+     * @return the data, data[column][row].
+     */
+    public double[][] getColumnData() {
+        return data;
+    }
+
+    /**
+     * @return the data, data[row][column]; a copy of the columns.
+     */
+    @Override
+    public synchronized double[][] getData() {
+        if (rowData == null) {
+            int numOfRows = (data.length == 0) ? 0 : data[0].length;
+            rowData = new double[numOfRows][data.length];
+
+            for (int col = 0; col < data.length; col++) {
+                double[] column = data[col];
+                for (int row = 0; row < numOfRows; row++) {
+                    rowData[row][col] = column[row];
+                }
+            }
+        }
+
+        return rowData;
+    }
+
+}
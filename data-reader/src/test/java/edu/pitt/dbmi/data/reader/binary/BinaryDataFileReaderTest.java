@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.binary;
+
+import edu.pitt.dbmi.data.reader.ContinuousData;
+import edu.pitt.dbmi.data.reader.Data;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import edu.pitt.dbmi.data.reader.DiscreteDataColumn;
+import edu.pitt.dbmi.data.reader.tabular.ContinuousTabularDatasetFileReader;
+import edu.pitt.dbmi.data.reader.tabular.ContinuousTabularDatasetReader;
+import edu.pitt.dbmi.data.reader.tabular.MixedTabularData;
+import edu.pitt.dbmi.data.reader.tabular.MixedTabularDatasetFileReader;
+import edu.pitt.dbmi.data.reader.tabular.MixedTabularDatasetReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Joseph Ramsey
+ */
+public class BinaryDataFileReaderTest {
+
+    private final Delimiter delimiter = Delimiter.COMMA;
+    private final char quoteCharacter = '"';
+    private final String commentMarker = "//";
+    private final String missingValueMarker = "*";
+
+    public BinaryDataFileReaderTest() {
+    }
+
+    /**
+     * Continuous data should read back exactly as written, with or without
+     * compression.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testContinuous() throws IOException {
+        Path dataFile = Paths.get(getClass().getResource("/data/tabular/continuous/sim_test_data.csv").getFile());
+        ContinuousTabularDatasetReader dataReader = new ContinuousTabularDatasetFileReader(dataFile, delimiter);
+        dataReader.setCommentMarker(commentMarker);
+        dataReader.setQuoteCharacter(quoteCharacter);
+        dataReader.setMissingDataMarker(missingValueMarker);
+
+        ContinuousData expected = (ContinuousData) dataReader.readInData();
+
+        for (boolean compressed : new boolean[]{false, true}) {
+            Path binaryFile = Files.createTempFile("sim_test_data", ".tdsf");
+            binaryFile.toFile().deleteOnExit();
+
+            BinaryDataFileWriter writer = new BinaryDataFileWriter();
+            writer.setCompressed(compressed);
+            writer.write(expected, binaryFile);
+
+            Data data = new BinaryDataFileReader().read(binaryFile);
+            Assert.assertTrue(data instanceof ContinuousData);
+
+            ContinuousData actual = (ContinuousData) data;
+            Assert.assertEquals(expected.getDataColumns().length, actual.getDataColumns().length);
+
+            for (int i = 0; i < expected.getDataColumns().length; i++) {
+                Assert.assertEquals(expected.getDataColumns()[i].getName(), actual.getDataColumns()[i].getName());
+            }
+
+            for (int i = 0; i < expected.getData().length; i++) {
+                Assert.assertArrayEquals(expected.getData()[i], actual.getData()[i], 0.0);
+            }
+        }
+    }
+
+    /**
+     * Mixed data should keep its column types, categories and values.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMixed() throws IOException {
+        Path dataFile = Paths.get(getClass().getResource("/data/tabular/mixed/dos_sim_test_data.csv").getFile());
+        MixedTabularDatasetReader dataReader = new MixedTabularDatasetFileReader(dataFile, delimiter, 4);
+        dataReader.setCommentMarker(commentMarker);
+        dataReader.setQuoteCharacter(quoteCharacter);
+        dataReader.setMissingDataMarker(missingValueMarker);
+
+        MixedTabularData expected = (MixedTabularData) dataReader.readInData();
+
+        Path binaryFile = Files.createTempFile("dos_sim_test_data", ".tdsf");
+        binaryFile.toFile().deleteOnExit();
+        new BinaryDataFileWriter().write(expected, binaryFile);
+
+        Data data = new BinaryDataFileReader().read(binaryFile);
+        Assert.assertTrue(data instanceof MixedTabularData);
+
+        MixedTabularData actual = (MixedTabularData) data;
+        Assert.assertEquals(expected.getNumOfRows(), actual.getNumOfRows());
+
+        DiscreteDataColumn[] expectedColumns = expected.getDataColumns();
+        DiscreteDataColumn[] actualColumns = actual.getDataColumns();
+
+        for (int i = 0; i < expectedColumns.length; i++) {
+            Assert.assertEquals(expectedColumns[i].getDataColumn().getName(), actualColumns[i].getDataColumn().getName());
+            Assert.assertEquals(expectedColumns[i].getDataColumn().isDiscrete(), actualColumns[i].getDataColumn().isDiscrete());
+
+            if (expectedColumns[i].getDataColumn().isDiscrete()) {
+                Assert.assertEquals(expectedColumns[i].getCategories(), actualColumns[i].getCategories());
+                Assert.assertArrayEquals(expected.getDiscreteData()[i], actual.getDiscreteData()[i]);
+            } else {
+                Assert.assertArrayEquals(expected.getContinuousData()[i], actual.getContinuousData()[i], 0.0);
+            }
+        }
+    }
+
+}
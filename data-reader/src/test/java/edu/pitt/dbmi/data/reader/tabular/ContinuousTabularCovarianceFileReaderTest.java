@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.tabular;
+
+import edu.pitt.dbmi.data.reader.ContinuousData;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import edu.pitt.dbmi.data.reader.covariance.CovarianceData;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Joseph Ramsey
+ */
+public class ContinuousTabularCovarianceFileReaderTest {
+
+    private final Delimiter delimiter = Delimiter.COMMA;
+    private final char quoteCharacter = '"';
+    private final String commentMarker = "//";
+    private final String missingValueMarker = "*";
+
+    private final Path[] dataFiles = {
+        Paths.get(getClass().getResource("/data/tabular/continuous/dos_sim_test_data.csv").getFile()),
+        Paths.get(getClass().getResource("/data/tabular/continuous/mac_sim_test_data.csv").getFile()),
+        Paths.get(getClass().getResource("/data/tabular/continuous/sim_test_data.csv").getFile()),
+        Paths.get(getClass().getResource("/data/tabular/continuous/quotes_sim_test_data.csv").getFile())
+    };
+
+    public ContinuousTabularCovarianceFileReaderTest() {
+    }
+
+    /**
+     * The single-pass covariance should match the covariance of the data read
+     * in full, for any number of threads and block size.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReadInData() throws IOException {
+        for (Path dataFile : dataFiles) {
+            ContinuousTabularDatasetReader dataReader = new ContinuousTabularDatasetFileReader(dataFile, delimiter);
+            dataReader.setCommentMarker(commentMarker);
+            dataReader.setQuoteCharacter(quoteCharacter);
+            dataReader.setMissingDataMarker(missingValueMarker);
+
+            double[][] data = ((ContinuousData) dataReader.readInData()).getData();
+            double[][] expected = covariance(data);
+
+            for (int numberOfThreads = 1; numberOfThreads <= 3; numberOfThreads += 2) {
+                ContinuousTabularCovarianceFileReader covarianceReader = new ContinuousTabularCovarianceFileReader(dataFile, delimiter);
+                covarianceReader.setCommentMarker(commentMarker);
+                covarianceReader.setQuoteCharacter(quoteCharacter);
+                covarianceReader.setMissingDataMarker(missingValueMarker);
+                covarianceReader.setNumberOfThreads(numberOfThreads);
+                covarianceReader.setBlockSize(4);
+
+                CovarianceData covarianceData = covarianceReader.readInData();
+                double[][] actual = covarianceData.getData();
+
+                Assert.assertEquals(data.length, covarianceData.getNumberOfCases());
+                Assert.assertEquals(10, covarianceData.getVariables().size());
+
+                for (int i = 0; i < expected.length; i++) {
+                    Assert.assertArrayEquals(expected[i], actual[i], 1e-10);
+                }
+            }
+        }
+    }
+
+    private static double[][] covariance(double[][] data) {
+        int numOfRows = data.length;
+        int numOfCols = data[0].length;
+        double[] means = new double[numOfCols];
+        double[][] covariance = new double[numOfCols][numOfCols];
+
+        for (double[] row : data) {
+            for (int j = 0; j < numOfCols; j++) {
+                means[j] += row[j] / numOfRows;
+            }
+        }
+
+        for (double[] row : data) {
+            for (int i = 0; i < numOfCols; i++) {
+                for (int j = 0; j < numOfCols; j++) {
+                    covariance[i][j] += (row[i] - means[i]) * (row[j] - means[j]) / (numOfRows - 1);
+                }
+            }
+        }
+
+        return covariance;
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2019 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.pitt.dbmi.data.reader.tabular;
+
+import edu.pitt.dbmi.data.reader.ContinuousData;
+import edu.pitt.dbmi.data.reader.DataColumn;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Joseph Ramsey
+ */
+public class ParallelContinuousTabularDatasetFileReaderTest {
+
+    private final Delimiter delimiter = Delimiter.COMMA;
+    private final char quoteCharacter = '"';
+    private final String commentMarker = "//";
+    private final String missingValueMarker = "*";
+
+    private final Path[] dataFiles = {
+        Paths.get(getClass().getResource("/data/tabular/continuous/dos_sim_test_data.csv").getFile()),
+        Paths.get(getClass().getResource("/data/tabular/continuous/mac_sim_test_data.csv").getFile()),
+        Paths.get(getClass().getResource("/data/tabular/continuous/sim_test_data.csv").getFile()),
+        Paths.get(getClass().getResource("/data/tabular/continuous/quotes_sim_test_data.csv").getFile())
+    };
+
+    public ParallelContinuousTabularDatasetFileReaderTest() {
+    }
+
+    /**
+     * The parallel reader should read exactly the values the sequential reader
+     * does, however the file is split into chunks.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReadInData() throws IOException {
+        for (Path dataFile : dataFiles) {
+            ContinuousTabularDatasetReader dataReader = new ContinuousTabularDatasetFileReader(dataFile, delimiter);
+            dataReader.setCommentMarker(commentMarker);
+            dataReader.setQuoteCharacter(quoteCharacter);
+            dataReader.setMissingDataMarker(missingValueMarker);
+
+            double[][] expected = ((ContinuousData) dataReader.readInData()).getData();
+
+            for (int chunkSize : new int[]{1, 50, 1024 * 1024}) {
+                ParallelContinuousTabularDatasetFileReader parallelReader = new ParallelContinuousTabularDatasetFileReader(dataFile, delimiter);
+                parallelReader.setCommentMarker(commentMarker);
+                parallelReader.setQuoteCharacter(quoteCharacter);
+                parallelReader.setMissingDataMarker(missingValueMarker);
+                parallelReader.setChunkSize(chunkSize);
+                parallelReader.setNumberOfThreads(3);
+
+                double[][] actual = ((ContinuousData) parallelReader.readInData()).getData();
+
+                Assert.assertEquals(expected.length, actual.length);
+
+                for (int i = 0; i < expected.length; i++) {
+                    Assert.assertArrayEquals(expected[i], actual[i], 0.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of readInData method, excluding columns, with no header.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReadInDataWithNoHeaderExcludingVariableByColumnNumbers() throws IOException {
+        Path dataFile = Paths.get(getClass().getResource("/data/tabular/continuous/no_header_sim_test_data.csv").getFile());
+        ParallelContinuousTabularDatasetFileReader dataReader = new ParallelContinuousTabularDatasetFileReader(dataFile, delimiter);
+        dataReader.setCommentMarker(commentMarker);
+        dataReader.setQuoteCharacter(quoteCharacter);
+        dataReader.setMissingDataMarker(missingValueMarker);
+        dataReader.setHasHeader(false);
+        dataReader.setChunkSize(64);
+
+        int[] columnsToExclude = {5, 3, 1, 8, 10, 11};
+        VerticalContinuousTabularData data = (VerticalContinuousTabularData) dataReader.readInData(columnsToExclude);
+        double[][] columns = data.getColumnData();
+
+        Assert.assertEquals(5, data.getDataColumns().length);
+        Assert.assertEquals(5, columns.length);
+        Assert.assertEquals(18, columns[0].length);
+    }
+
+    /**
+     * Names and the missing value marker are read as UTF-8.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReadInDataUtf8() throws IOException {
+        Path dataFile = Files.createTempFile("utf8", ".csv");
+        try {
+            Files.write(dataFile, "\u00e9t\u00e9,x,\u03b1\u03b2\n1.0,2.0,\u2205\n\u2205,5.0,6.0\n".getBytes(StandardCharsets.UTF_8));
+
+            ParallelContinuousTabularDatasetFileReader dataReader = new ParallelContinuousTabularDatasetFileReader(dataFile, delimiter);
+            dataReader.setMissingDataMarker("\u2205");
+            dataReader.setChunkSize(4);
+
+            VerticalContinuousTabularData data = (VerticalContinuousTabularData) dataReader.readInData(
+                    Collections.singleton("x"));
+            DataColumn[] dataColumns = data.getDataColumns();
+            double[][] columns = data.getColumnData();
+
+            Assert.assertEquals(2, dataColumns.length);
+            Assert.assertEquals("\u00e9t\u00e9", dataColumns[0].getName());
+            Assert.assertEquals("\u03b1\u03b2", dataColumns[1].getName());
+            Assert.assertArrayEquals(new double[]{1.0, Double.NaN}, columns[0], 0.0);
+            Assert.assertArrayEquals(new double[]{Double.NaN, 6.0}, columns[1], 0.0);
+
+            data = (VerticalContinuousTabularData) dataReader.readInData(Collections.singleton("\u03b1\u03b2"));
+            Assert.assertEquals(2, data.getDataColumns().length);
+            Assert.assertEquals("x", data.getDataColumns()[1].getName());
+        } finally {
+            Files.delete(dataFile);
+        }
+    }
+
+    /**
+     * The byte parser should agree exactly with Double.parseDouble when it
+     * accepts a number.
+     */
+    @Test
+    public void testParseDouble() {
+        String[] numbers = {"0", "-0", "1.5", "-2.25e-3", "+7E+10", ".5", "5.", "123456789012345",
+            "0.000001234", "1e22", "3.14159265358979", "1e-22"};
+
+        for (String number : numbers) {
+            byte[] bytes = number.getBytes(StandardCharsets.US_ASCII);
+            double value = ParallelContinuousTabularDatasetFileReader.parseDouble(bytes, 0, bytes.length);
+            Assert.assertEquals(Double.doubleToLongBits(Double.parseDouble(number)), Double.doubleToLongBits(value));
+        }
+
+        // Left to Double.parseDouble.
+        String[] others = {"1234567890123456789", "1e400", "NaN", "0x1p3", "1d", "e5", "-", "1e"};
+
+        for (String other : others) {
+            byte[] bytes = other.getBytes(StandardCharsets.US_ASCII);
+            Assert.assertTrue(Double.isNaN(ParallelContinuousTabularDatasetFileReader.parseDouble(bytes, 0, bytes.length)));
+        }
+    }
+
+}
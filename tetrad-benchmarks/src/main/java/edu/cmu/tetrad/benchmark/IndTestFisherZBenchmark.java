@@ -0,0 +1,89 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.benchmark;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times IndTestFisherZ.isIndependent for random pairs of variables and conditioning sets of a given size.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndTestFisherZBenchmark {
+
+    @Param({"1000", "10000"})
+    public int sampleSize;
+
+    @Param({"0", "2", "5"})
+    public int numConditioning;
+
+    private static final int NUM_VARS = 20;
+
+    private IndTestFisherZ test;
+    private Node[] xs;
+    private Node[] ys;
+    private List<List<Node>> zs;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Graph dag = Simulations.randomDag(NUM_VARS, 2, 2000L);
+        DataSet data = Simulations.continuousData(dag, sampleSize, 2001L);
+        test = new IndTestFisherZ(data, 0.01);
+
+        List<Node> variables = test.getVariables();
+        int[][] queries = Simulations.randomIndices(NUM_VARS, numConditioning + 1, 2002L);
+        xs = new Node[queries.length];
+        ys = new Node[queries.length];
+        zs = new ArrayList<>();
+
+        for (int q = 0; q < queries.length; q++) {
+            xs[q] = variables.get(queries[q][0]);
+            ys[q] = variables.get(queries[q][1]);
+            List<Node> z = new ArrayList<>();
+            for (int i = 2; i < queries[q].length; i++) z.add(variables.get(queries[q][i]));
+            zs.add(z);
+        }
+    }
+
+    @Benchmark
+    public boolean isIndependent() {
+        int q = next;
+        next = (next + 1) % xs.length;
+        return test.isIndependent(xs[q], ys[q], zs.get(q));
+    }
+}
@@ -0,0 +1,72 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.benchmark;
+
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.MeekRules;
+import edu.cmu.tetrad.search.SearchGraphUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times MeekRules.orientImplied on the basic pattern (adjacencies and unshielded colliders) of a random DAG. The
+ * basic pattern is copied before each call, outside the timing.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeekRulesBenchmark {
+
+    @Param({"100", "1000"})
+    public int numNodes;
+
+    @Param({"2", "6"})
+    public double avgDegree;
+
+    private Graph basicPattern;
+    private Graph graph;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        basicPattern = new EdgeListGraph(Simulations.randomDag(numNodes, avgDegree, 5000L));
+        SearchGraphUtils.basicPattern(basicPattern, false);
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        graph = new EdgeListGraph(basicPattern);
+    }
+
+    @Benchmark
+    public Graph orientImplied() {
+        new MeekRules().orientImplied(graph);
+        return graph;
+    }
+}
@@ -0,0 +1,90 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.benchmark;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.BDeuScore;
+import edu.cmu.tetrad.search.SemBicScore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times SemBicScore.localScore and BDeuScore.localScore for random children and parent sets of a given size. The
+ * benchmarks cycle through a fixed set of queries, so (as in a search) the scores' own caches are warm.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreBenchmark {
+
+    @Param({"1000", "10000"})
+    public int sampleSize;
+
+    @Param({"0", "2", "5"})
+    public int numParents;
+
+    private static final int NUM_VARS = 20;
+
+    private SemBicScore semBicScore;
+    private BDeuScore bdeuScore;
+
+    // Each row is a child followed by its parents.
+    private int[][] queries;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Graph dag = Simulations.randomDag(NUM_VARS, 2, 1000L);
+        DataSet continuous = Simulations.continuousData(dag, sampleSize, 1001L);
+        DataSet discrete = Simulations.discreteData(dag, sampleSize, 1002L);
+        semBicScore = new SemBicScore(continuous);
+        bdeuScore = new BDeuScore(discrete);
+        queries = Simulations.randomIndices(NUM_VARS, numParents, 1003L);
+    }
+
+    @Benchmark
+    public double semBicLocalScore() {
+        int[] query = nextQuery();
+        return semBicScore.localScore(query[0], Arrays.copyOfRange(query, 1, query.length));
+    }
+
+    @Benchmark
+    public double bdeuLocalScore() {
+        int[] query = nextQuery();
+        return bdeuScore.localScore(query[0], Arrays.copyOfRange(query, 1, query.length));
+    }
+
+    private int[] nextQuery() {
+        int[] query = queries[next];
+        next = (next + 1) % queries.length;
+        return query;
+    }
+}
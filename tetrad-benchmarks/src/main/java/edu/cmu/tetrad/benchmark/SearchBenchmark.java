@@ -0,0 +1,88 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.benchmark;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times whole searches (FGES, PC-Stable and GFCI) on data simulated from linear Gaussian SEMs over random DAGs of
+ * several sizes. The covariance matrix is computed once; each search makes its own score and test, so that no
+ * cached work carries over from one search to the next.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"20", "50", "100"})
+    public int numVars;
+
+    @Param({"2", "4"})
+    public double avgDegree;
+
+    @Param({"1000"})
+    public int sampleSize;
+
+    private static final double ALPHA = 0.01;
+
+    private ICovarianceMatrix cov;
+
+    @Setup
+    public void setup() {
+        Graph dag = Simulations.randomDag(numVars, avgDegree, 6000L);
+        cov = new CovarianceMatrix(Simulations.continuousData(dag, sampleSize, 6001L));
+    }
+
+    @Benchmark
+    public Graph fges() {
+        // With an explicit parallelism the search makes its own pool and shuts it down when it is done.
+        Fges fges = new Fges(new SemBicScore(cov), Runtime.getRuntime().availableProcessors());
+        fges.setVerbose(false);
+        return fges.search();
+    }
+
+    @Benchmark
+    public Graph pcStable() {
+        PcStable pc = new PcStable(new IndTestFisherZ(cov, ALPHA));
+        pc.setVerbose(false);
+        return pc.search();
+    }
+
+    @Benchmark
+    public Graph gfci() {
+        GFci gfci = new GFci(new IndTestFisherZ(cov, ALPHA), new SemBicScore(cov));
+        gfci.setVerbose(false);
+        return gfci.search();
+    }
+}
@@ -0,0 +1,106 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.benchmark;
+
+import edu.cmu.tetrad.bayes.BayesPm;
+import edu.cmu.tetrad.bayes.MlBayesIm;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.util.Random;
+
+/**
+ * Random graphs, data and queries for the benchmarks. Everything is made from a seed, so that each run of a
+ * benchmark measures the same work.
+ *
+ * @author Joseph Ramsey
+ */
+final class Simulations {
+
+    // The number of distinct queries a benchmark cycles through.
+    static final int NUM_QUERIES = 1000;
+
+    private Simulations() {
+    }
+
+    /**
+     * @return a random DAG over numVars variables with about avgDegree * numVars / 2 edges.
+     */
+    static Graph randomDag(int numVars, double avgDegree, long seed) {
+        RandomUtil.getInstance().setSeed(seed);
+        return GraphUtils.randomGraph(numVars, 0, (int) (avgDegree * numVars / 2), 30, 15, 15, false);
+    }
+
+    /**
+     * @return data simulated from a linear Gaussian SEM with random parameters over the given DAG.
+     */
+    static DataSet continuousData(Graph dag, int sampleSize, long seed) {
+        RandomUtil.getInstance().setSeed(seed);
+        SemIm im = new SemIm(new SemPm(dag));
+        return im.simulateData(sampleSize, seed, false);
+    }
+
+    /**
+     * @return data simulated from a Bayes net with random parameters over the given DAG, with 2 to 3 categories
+     * per variable.
+     */
+    static DataSet discreteData(Graph dag, int sampleSize, long seed) {
+        RandomUtil.getInstance().setSeed(seed);
+        MlBayesIm im = new MlBayesIm(new BayesPm(dag, 2, 3), MlBayesIm.RANDOM);
+        return im.simulateData(sampleSize, seed, false);
+    }
+
+    /**
+     * @return NUM_QUERIES rows, each of numOthers + 1 distinct variable indices below numVars.
+     */
+    static int[][] randomIndices(int numVars, int numOthers, long seed) {
+        if (numOthers + 1 > numVars) {
+            throw new IllegalArgumentException("Need at least " + (numOthers + 1) + " variables.");
+        }
+
+        Random random = new Random(seed);
+        int[][] queries = new int[NUM_QUERIES][];
+        int[] perm = new int[numVars];
+
+        for (int i = 0; i < numVars; i++) perm[i] = i;
+
+        for (int q = 0; q < NUM_QUERIES; q++) {
+            for (int i = 0; i <= numOthers; i++) {
+                int j = i + random.nextInt(numVars - i);
+                int tmp = perm[i];
+                perm[i] = perm[j];
+                perm[j] = tmp;
+            }
+
+            int[] query = new int[numOthers + 1];
+            System.arraycopy(perm, 0, query, 0, numOthers + 1);
+            queries[q] = query;
+        }
+
+        return queries;
+    }
+}
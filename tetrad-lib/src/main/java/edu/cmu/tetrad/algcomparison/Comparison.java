@@ -34,9 +34,11 @@ import edu.cmu.tetrad.algcomparison.statistic.ElapsedTime;
 import edu.cmu.tetrad.algcomparison.statistic.ParameterColumn;
 import edu.cmu.tetrad.algcomparison.statistic.Statistic;
 import edu.cmu.tetrad.algcomparison.statistic.Statistics;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparison;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
 import edu.cmu.tetrad.algcomparison.utils.HasParameterValues;
 import edu.cmu.tetrad.algcomparison.utils.HasParameters;
+import edu.cmu.tetrad.algcomparison.utils.HasResources;
 import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.data.ContinuousVariable;
 import edu.cmu.tetrad.data.DataModel;
@@ -54,7 +56,6 @@ import edu.cmu.tetrad.search.DagToPag2;
 import edu.cmu.tetrad.search.SearchGraphUtils;
 import edu.cmu.tetrad.util.CombinationGenerator;
 import edu.cmu.tetrad.util.Experimental;
-import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.ParamDescription;
 import edu.cmu.tetrad.util.ParamDescriptions;
 import edu.cmu.tetrad.util.Parameters;
@@ -62,9 +63,11 @@ import edu.cmu.tetrad.util.Params;
 import edu.cmu.tetrad.util.StatUtils;
 import edu.cmu.tetrad.util.TextTable;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
@@ -72,7 +75,6 @@ import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -80,9 +82,8 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.RecursiveTask;
+import java.util.TreeSet;
 
 import org.reflections.Reflections;
 
@@ -116,6 +117,12 @@ public class Comparison {
     //    private boolean saveTrueDags = false;
     private ArrayList<String> dirs = null;
     private ComparisonGraph comparisonGraph = ComparisonGraph.true_DAG;
+    private int maxThreads = Runtime.getRuntime().availableProcessors();
+    private long maxMemory = -1;
+    private boolean checkpointing = false;
+
+    // The jobs of the last comparison, for the timing report.
+    private List<ComparisonScheduler.Job> jobs = new ArrayList<>();
 
     public void compareFromFiles(String filePath, Algorithms algorithms,
                                  Statistics statistics, Parameters parameters) {
@@ -510,6 +517,8 @@ public class Comparison {
             }
         }
 
+        printTimings(out);
+
         for (int i = 0; i < simulations.getSimulations().size(); i++) {
             saveToFiles(resultsPath + "/simulation" + (i + 1), simulations.getSimulations().get(i), parameters);
         }
@@ -988,66 +997,44 @@ public class Comparison {
 
         double[][][][] allStats = new double[4][algorithmSimulationWrappers.size()][statistics.size() + 1][numRuns];
 
-        List<AlgorithmTask> tasks = new ArrayList<>();
+        List<ComparisonScheduler.Job> jobs = new ArrayList<>();
         int index = 0;
 
         for (int algSimIndex = 0; algSimIndex < algorithmSimulationWrappers.size(); algSimIndex++) {
             for (int runIndex = 0; runIndex < numRuns; runIndex++) {
                 AlgorithmSimulationWrapper algorithmSimulationWrapper = algorithmSimulationWrappers.get(algSimIndex);
                 Run run = new Run(algSimIndex, runIndex, index++, algorithmSimulationWrapper);
-                AlgorithmTask task = new AlgorithmTask(algorithmSimulationWrappers,
-                        algorithmWrappers, simulationWrappers,
-                        statistics, numGraphTypes, allStats, run, stdout);
-//                task.compute();
-                tasks.add(task);
-            }
-        }
-
-        if (!isParallelized()) {
-            for (AlgorithmTask task : tasks) {
-                task.compute();
-            }
-        } else {
-            class Task extends RecursiveTask<Boolean> {
-
-                List<AlgorithmTask> tasks;
 
-                public Task(List<AlgorithmTask> tasks) {
-                    this.tasks = tasks;
+                if (checkpointing && loadCheckpoint(run, statistics, allStats)) {
+                    stdout.println("Using checkpoint for run " + (runIndex + 1) + " of "
+                            + (algSimIndex + 1) + ". " + algorithmSimulationWrapper.getAlgorithmWrapper().getDescription());
+                    continue;
                 }
 
-                @Override
-                protected Boolean compute() {
-                    Queue<AlgorithmTask> tasks = new ArrayDeque<>();
-
-                    for (AlgorithmTask task : this.tasks) {
-                        tasks.add(task);
-                        task.fork();
+                AlgorithmTask task = new AlgorithmTask(algorithmSimulationWrappers,
+                        algorithmWrappers, simulationWrappers,
+                        statistics, numGraphTypes, allStats, run, stdout);
 
-                        for (AlgorithmTask _task : new ArrayList<>(tasks)) {
-                            if (_task.isDone()) {
-                                _task.join();
-                                tasks.remove(_task);
-                            }
-                        }
+                AlgorithmWrapper algorithmWrapper = algorithmSimulationWrapper.getAlgorithmWrapper();
+                DataModel data = algorithmSimulationWrapper.getSimulationWrapper().getDataModel(runIndex);
 
-                        while (tasks.size() > Runtime.getRuntime().availableProcessors()) {
-                            AlgorithmTask _task = tasks.poll();
-                            _task.join();
-                        }
-                    }
+                jobs.add(new ComparisonScheduler.Job((algSimIndex + 1) + "." + (runIndex + 1),
+                        getParallelism(algorithmWrapper), getMemoryEstimate(algorithmWrapper, data), task));
+            }
+        }
 
-                    for (AlgorithmTask task : tasks) {
-                        task.join();
-                    }
+        long maxMemory = this.maxMemory;
 
-                    return true;
-                }
-            }
+        if (maxMemory < 0) {
+            Runtime runtime = Runtime.getRuntime();
+            maxMemory = (runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) / 4 * 3;
+        }
 
-            Task task = new Task(tasks);
+        new ComparisonScheduler(isParallelized() ? maxThreads : 1, Math.max(maxMemory, 0)).run(jobs);
+        this.jobs = jobs;
 
-            ForkJoinPoolInstance.getInstance().getPool().invoke(task);
+        if (checkpointing) {
+            clearCheckpoints(algorithmSimulationWrappers, numRuns);
         }
 
         return allStats;
@@ -1103,9 +1090,59 @@ public class Comparison {
         return parallelized;
     }
 
-//    public void setParallelized(boolean parallelized) {
-//        this.parallelized = parallelized;
-//    }
+    /**
+     * @param parallelized True if several runs may be done at once, within the limits
+     *                     set by setMaxThreads and setMaxMemory.
+     */
+    public void setParallelized(boolean parallelized) {
+        this.parallelized = parallelized;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * @param maxThreads The number of threads the runs may keep busy at once, if
+     *                   parallelized. Each run counts for the parallelism its algorithm
+     *                   declares (see HasResources), or 1. The default is the number of
+     *                   processors.
+     */
+    public void setMaxThreads(int maxThreads) {
+        if (maxThreads < 1) throw new IllegalArgumentException("Max threads must be >= 1: " + maxThreads);
+        this.maxThreads = maxThreads;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * @param maxMemory The number of bytes of heap the runs may need at once, by the
+     *                  estimates of their algorithms (see HasResources), or -1 for three
+     *                  quarters of the heap that is free when the runs start (the default).
+     */
+    public void setMaxMemory(long maxMemory) {
+        if (maxMemory < -1) throw new IllegalArgumentException("Max memory must be >= -1: " + maxMemory);
+        this.maxMemory = maxMemory;
+    }
+
+    public boolean isCheckpointing() {
+        return checkpointing;
+    }
+
+    /**
+     * @param checkpointing True if the statistics of each run (simulation, algorithm and
+     *                      run index) should be saved under resultsPath/checkpoints as the
+     *                      run finishes, and runs already saved there for the same algorithm,
+     *                      simulation, parameter values and statistics should not be done
+     *                      again, so that an interrupted comparison picks up where it left
+     *                      off. The checkpoints are deleted once every run has one. Simulations
+     *                      are not checkpointed; simulated data are made again.
+     */
+    public void setCheckpointing(boolean checkpointing) {
+        this.checkpointing = checkpointing;
+    }
 
     /**
      * @return True if patterns should be saved out.
@@ -1210,7 +1247,7 @@ public class Comparison {
         this.comparisonGraph = comparisonGraph;
     }
 
-    private class AlgorithmTask extends RecursiveTask<Boolean> {
+    private class AlgorithmTask implements Runnable {
 
         private List<AlgorithmSimulationWrapper> algorithmSimulationWrappers;
         private List<AlgorithmWrapper> algorithmWrappers;
@@ -1235,10 +1272,9 @@ public class Comparison {
         }
 
         @Override
-        protected Boolean compute() {
+        public void run() {
             doRun(algorithmSimulationWrappers, algorithmWrappers,
                     simulationWrappers, statistics, numGraphTypes, allStats, run, stdout);
-            return true;
         }
     }
 
@@ -1372,12 +1408,11 @@ public class Comparison {
             elapsed = extAlg.getElapsedTime(data, simulationWrapper.getSimulationSpecificParameters());
         }
 
-        synchronized (this) {
-
-            Graph[] est = new Graph[numGraphTypes];
-
-            Graph comparisonGraph;
+        Graph[] est = new Graph[numGraphTypes];
+        Graph[] truth = new Graph[numGraphTypes];
+        Graph comparisonGraph;
 
+        synchronized (this) {
             if (this.comparisonGraph == ComparisonGraph.true_DAG) {
                 comparisonGraph = new EdgeListGraph(trueGraph);
             } else if (this.comparisonGraph == ComparisonGraph.Pattern_of_the_true_DAG) {
@@ -1402,8 +1437,6 @@ public class Comparison {
                 graphTypeUsed[3] = true;
             }
 
-            Graph[] truth = new Graph[numGraphTypes];
-
             truth[0] = new EdgeListGraph(comparisonGraph);
 
             if (data.isMixed() && comparisonGraph != null) {
@@ -1411,38 +1444,269 @@ public class Comparison {
                 truth[2] = getSubgraph(comparisonGraph, true, false, simulationWrapper.getDataModel(run.getRunIndex()));
                 truth[3] = getSubgraph(comparisonGraph, false, false, simulationWrapper.getDataModel(run.getRunIndex()));
             }
+        }
+
+        // The statistics are calculated outside of the lock, so that runs calculate them in
+        // parallel. For each graph type, the statistics share one GraphComparison, so that
+        // each confusion matrix and score is calculated once.
+        double[][] stats = new double[numGraphTypes][];
+
+        if (comparisonGraph != null) {
+            for (int u = 0; u < numGraphTypes; u++) {
+                if (est[u] == null || truth[u] == null) {
+                    continue;
+                }
 
-            if (comparisonGraph != null) {
-                for (int u = 0; u < numGraphTypes; u++) {
-                    if (!graphTypeUsed[u]) {
+                GraphComparison comparison = new GraphComparison(truth[u], est[u]);
+                stats[u] = new double[statistics.size()];
+                int statIndex = -1;
+
+                for (Statistic _stat : statistics.getStatistics()) {
+                    statIndex++;
+
+                    if (_stat instanceof ParameterColumn) {
                         continue;
                     }
 
-                    int statIndex = -1;
-
-                    for (Statistic _stat : statistics.getStatistics()) {
-                        statIndex++;
+                    if (_stat instanceof ElapsedTime) {
+                        stats[u][statIndex] = elapsed / 1000.0;
+                    } else {
+                        stats[u][statIndex] = _stat.getValue(comparison, data);
+                    }
+                }
+            }
+        }
 
-                        if (_stat instanceof ParameterColumn) {
-                            continue;
-                        }
+        synchronized (this) {
+            for (int u = 0; u < numGraphTypes; u++) {
+                if (stats[u] == null) {
+                    continue;
+                }
 
-                        double stat;
+                int statIndex = -1;
 
-                        if (_stat instanceof ElapsedTime) {
-                            stat = elapsed / 1000.0;
-                        } else {
-                            stat = _stat.getValue(truth[u], est[u], data);
-                        }
+                for (Statistic _stat : statistics.getStatistics()) {
+                    statIndex++;
 
-                        allStats[u][run.getAlgSimIndex()][statIndex][run.getRunIndex()] = stat;
+                    if (_stat instanceof ParameterColumn) {
+                        continue;
                     }
+
+                    allStats[u][run.getAlgSimIndex()][statIndex][run.getRunIndex()] = stats[u][statIndex];
                 }
             }
 
+            if (checkpointing) {
+                saveCheckpoint(run, statistics, allStats, stdout);
+            }
         }
     }
 
+    private int getParallelism(AlgorithmWrapper algorithmWrapper) {
+        Algorithm algorithm = algorithmWrapper.getAlgorithm();
+
+        if (algorithm instanceof HasResources) {
+            return ((HasResources) algorithm).getParallelism(algorithmWrapper.getAlgorithmSpecificParameters());
+        }
+
+        return 1;
+    }
+
+    // Without an estimate, the data and a copy of it.
+    private long getMemoryEstimate(AlgorithmWrapper algorithmWrapper, DataModel data) {
+        Algorithm algorithm = algorithmWrapper.getAlgorithm();
+
+        if (algorithm instanceof HasResources) {
+            return ((HasResources) algorithm).getMemoryEstimate(data, algorithmWrapper.getAlgorithmSpecificParameters());
+        }
+
+        if (data instanceof DataSet) {
+            return 16L * ((DataSet) data).getNumRows() * ((DataSet) data).getNumColumns();
+        }
+
+        return 0;
+    }
+
+    private File getCheckpointFile(Run run) {
+        return new File(resultsPath, "checkpoints/" + (run.getAlgSimIndex() + 1) + "_"
+                + (run.getRunIndex() + 1) + ".txt");
+    }
+
+    // Identifies what a checkpoint is for, so that a checkpoint from a different setup is not used. The
+    // descriptions name only the parameters that are varied, so the values of all parameters set for the
+    // algorithm and for the simulation are included.
+    private String getCheckpointKey(Run run, Statistics statistics) {
+        AlgorithmWrapper algorithmWrapper = run.getWrapper().getAlgorithmWrapper();
+        SimulationWrapper simulationWrapper = run.getWrapper().getSimulationWrapper();
+
+        StringBuilder key = new StringBuilder(algorithmWrapper.getDescription()
+                + " / " + simulationWrapper.getDescription());
+
+        appendParameterValues(key.append("\talgorithm:"), algorithmWrapper.getAlgorithmSpecificParameters());
+        appendParameterValues(key.append("\tsimulation:"), simulationWrapper.getSimulationSpecificParameters());
+
+        for (Statistic statistic : statistics.getStatistics()) {
+            key.append("\t").append(statistic.getAbbreviation());
+        }
+
+        return key.toString().replace("\n", " ");
+    }
+
+    // In name order. Values other than numbers, booleans and strings (print streams, say) are given by class,
+    // since they print differently from one run of the comparison to the next.
+    private static void appendParameterValues(StringBuilder key, Parameters parameters) {
+        for (String name : new TreeSet<>(parameters.getParametersNames())) {
+            key.append(" ").append(name).append("=");
+            Object[] values = parameters.getValues(name);
+
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+
+                if (i > 0) key.append(",");
+
+                if (value == null || value instanceof Number || value instanceof Boolean || value instanceof String) {
+                    key.append(value);
+                } else {
+                    key.append(value.getClass().getName());
+                }
+            }
+        }
+    }
+
+    // Once every run has a checkpoint, the comparison is done, and they are deleted. Otherwise they are kept,
+    // so that the runs that failed are done again when the comparison is.
+    private void clearCheckpoints(List<AlgorithmSimulationWrapper> algorithmSimulationWrappers, int numRuns) {
+        List<File> files = new ArrayList<>();
+
+        for (int algSimIndex = 0; algSimIndex < algorithmSimulationWrappers.size(); algSimIndex++) {
+            for (int runIndex = 0; runIndex < numRuns; runIndex++) {
+                File file = getCheckpointFile(new Run(algSimIndex, runIndex, -1,
+                        algorithmSimulationWrappers.get(algSimIndex)));
+
+                if (!file.exists()) {
+                    return;
+                }
+
+                files.add(file);
+            }
+        }
+
+        for (File file : files) {
+            file.delete();
+        }
+
+        new File(resultsPath, "checkpoints").delete();
+    }
+
+    // Called with the lock on this held.
+    private void saveCheckpoint(Run run, Statistics statistics, double[][][][] allStats, PrintStream stdout) {
+        File file = getCheckpointFile(run);
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        file.getParentFile().mkdirs();
+
+        try (PrintStream out = new PrintStream(new FileOutputStream(temp))) {
+            out.println(getCheckpointKey(run, statistics));
+
+            for (int u = 0; u < allStats.length; u++) {
+                if (!graphTypeUsed[u]) {
+                    continue;
+                }
+
+                out.print(u);
+
+                for (int statIndex = 0; statIndex < statistics.size(); statIndex++) {
+                    out.print("\t" + allStats[u][run.getAlgSimIndex()][statIndex][run.getRunIndex()]);
+                }
+
+                out.println();
+            }
+        } catch (IOException e) {
+            stdout.println("Could not save checkpoint " + file);
+            return;
+        }
+
+        if (!(temp.renameTo(file) || (file.delete() && temp.renameTo(file)))) {
+            stdout.println("Could not save checkpoint " + file);
+        }
+    }
+
+    // Returns true if a checkpoint was found for the run and its statistics put into allStats.
+    private boolean loadCheckpoint(Run run, Statistics statistics, double[][][][] allStats) {
+        File file = getCheckpointFile(run);
+
+        if (!file.exists()) {
+            return false;
+        }
+
+        List<String[]> rows = new ArrayList<>();
+
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            if (!getCheckpointKey(run, statistics).equals(in.readLine())) {
+                return false;
+            }
+
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                String[] tokens = line.split("\t");
+
+                if (tokens.length != statistics.size() + 1) {
+                    return false;
+                }
+
+                rows.add(tokens);
+            }
+
+            for (String[] tokens : rows) {
+                int u = Integer.parseInt(tokens[0]);
+
+                for (int statIndex = 0; statIndex < statistics.size(); statIndex++) {
+                    allStats[u][run.getAlgSimIndex()][statIndex][run.getRunIndex()]
+                            = Double.parseDouble(tokens[statIndex + 1]);
+                }
+
+                graphTypeUsed[u] = true;
+            }
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+
+        return !rows.isEmpty();
+    }
+
+    private void printTimings(PrintStream out) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+
+        out.println();
+        out.println("Timing of runs (algorithm-simulation.run; runs loaded from checkpoints not shown):");
+        out.println();
+
+        TextTable table = new TextTable(jobs.size() + 1, 6);
+        table.setToken(0, 0, "Run");
+        table.setToken(0, 1, "Threads");
+        table.setToken(0, 2, "Memory (MB)");
+        table.setToken(0, 3, "Wait (s)");
+        table.setToken(0, 4, "Elapsed (s)");
+        table.setToken(0, 5, "Status");
+
+        NumberFormat nf = new DecimalFormat("0.00");
+
+        for (int i = 0; i < jobs.size(); i++) {
+            ComparisonScheduler.Job job = jobs.get(i);
+            table.setToken(i + 1, 0, job.getName());
+            table.setToken(i + 1, 1, Integer.toString(job.getThreads()));
+            table.setToken(i + 1, 2, Long.toString(job.getBytes() / (1024 * 1024)));
+            table.setToken(i + 1, 3, nf.format(job.getWaitMillis() / 1000.0));
+            table.setToken(i + 1, 4, nf.format(job.getRunMillis() / 1000.0));
+            table.setToken(i + 1, 5, job.getFailure() == null ? "Done" : "Failed");
+        }
+
+        table.setTabDelimited(isTabDelimitedTables());
+        out.println(table);
+    }
+
     private void saveGraph(String resultsPath, Graph graph, int i, int simIndex, int algIndex,
                            AlgorithmWrapper algorithmWrapper, long elapsed, PrintStream stdout) {
         if (!saveGraphs) {
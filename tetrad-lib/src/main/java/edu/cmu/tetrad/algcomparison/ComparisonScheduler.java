@@ -0,0 +1,205 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+package edu.cmu.tetrad.algcomparison;
+
+import edu.cmu.tetrad.util.TetradLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs jobs that each declare how many threads they keep busy and roughly how
+ * many bytes of heap they need, as many at a time as fit in a fixed budget of
+ * threads and bytes. Jobs are started first fit, in the order given: a job
+ * starts as soon as it fits, ahead of earlier jobs that do not yet fit. A job
+ * that would never fit is run once nothing else is running. The time each job
+ * waited and ran is recorded.
+ *
+ * @author jdramsey
+ */
+final class ComparisonScheduler {
+
+    private final int maxThreads;
+    private final long maxBytes;
+
+    private int freeThreads;
+    private long freeBytes;
+    private int running = 0;
+
+    /**
+     * @param maxThreads The number of threads the running jobs may keep busy at once.
+     * @param maxBytes   The number of bytes the running jobs may need at once.
+     */
+    ComparisonScheduler(int maxThreads, long maxBytes) {
+        if (maxThreads < 1) throw new IllegalArgumentException("Max threads must be >= 1: " + maxThreads);
+        if (maxBytes < 0) throw new IllegalArgumentException("Max bytes must be >= 0: " + maxBytes);
+        this.maxThreads = maxThreads;
+        this.maxBytes = maxBytes;
+        this.freeThreads = maxThreads;
+        this.freeBytes = maxBytes;
+    }
+
+    /**
+     * Runs the given jobs, returning when all have finished.
+     */
+    void run(List<Job> jobs) {
+        List<Job> pending = new ArrayList<>(jobs);
+        ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
+        long queued = System.currentTimeMillis();
+
+        for (Job job : pending) {
+            job.queued = queued;
+        }
+
+        try {
+            synchronized (this) {
+                while (!pending.isEmpty() || running > 0) {
+                    Job job = next(pending);
+
+                    if (job == null) {
+                        wait();
+                        continue;
+                    }
+
+                    pending.remove(job);
+                    reserve(job);
+                    executor.execute(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for jobs.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //==============================PRIVATE METHODS===========================//
+
+    // The first pending job that fits, or, if nothing is running, the first pending job.
+    private Job next(List<Job> pending) {
+        for (Job job : pending) {
+            if (Math.min(job.threads, maxThreads) <= freeThreads && Math.min(job.bytes, maxBytes) <= freeBytes) {
+                return job;
+            }
+        }
+
+        return running == 0 && !pending.isEmpty() ? pending.get(0) : null;
+    }
+
+    private void reserve(Job job) {
+        job.reservedThreads = Math.min(job.threads, freeThreads);
+        job.reservedBytes = Math.min(job.bytes, freeBytes);
+        freeThreads -= job.reservedThreads;
+        freeBytes -= job.reservedBytes;
+        job.scheduler = this;
+        running++;
+    }
+
+    private synchronized void release(Job job) {
+        freeThreads += job.reservedThreads;
+        freeBytes += job.reservedBytes;
+        running--;
+        notifyAll();
+    }
+
+    /**
+     * A unit of work with its declared resources and, once run, its timing.
+     */
+    static final class Job implements Runnable {
+        private final String name;
+        private final int threads;
+        private final long bytes;
+        private final Runnable runnable;
+
+        private ComparisonScheduler scheduler;
+        private int reservedThreads;
+        private long reservedBytes;
+        private volatile long queued;
+        private volatile long started;
+        private volatile long stopped;
+        private volatile Throwable failure;
+
+        /**
+         * @param name     A name for the job, for reports.
+         * @param threads  The number of threads the job keeps busy, at least 1.
+         * @param bytes    A rough estimate of the bytes of heap the job needs.
+         * @param runnable The work.
+         */
+        Job(String name, int threads, long bytes, Runnable runnable) {
+            if (runnable == null) throw new NullPointerException("Runnable was null.");
+            this.name = name;
+            this.threads = Math.max(threads, 1);
+            this.bytes = Math.max(bytes, 0);
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            started = System.currentTimeMillis();
+
+            try {
+                runnable.run();
+            } catch (Throwable e) {
+                failure = e;
+                TetradLogger.getInstance().error("Job " + name + " failed: " + e);
+            } finally {
+                stopped = System.currentTimeMillis();
+                scheduler.release(this);
+            }
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int getThreads() {
+            return threads;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the milliseconds between the start of the schedule and the start of this job.
+         */
+        long getWaitMillis() {
+            return started == 0 ? 0 : started - queued;
+        }
+
+        /**
+         * @return the milliseconds this job ran.
+         */
+        long getRunMillis() {
+            return stopped == 0 ? 0 : stopped - started;
+        }
+
+        /**
+         * @return what the job threw, or null if it finished normally.
+         */
+        Throwable getFailure() {
+            return failure;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import edu.cmu.tetrad.algcomparison.statistic.ElapsedTime;
 import edu.cmu.tetrad.algcomparison.statistic.ParameterColumn;
 import edu.cmu.tetrad.algcomparison.statistic.Statistic;
 import edu.cmu.tetrad.algcomparison.statistic.Statistics;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparison;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
 import edu.cmu.tetrad.algcomparison.utils.HasParameterValues;
 import edu.cmu.tetrad.algcomparison.utils.HasParameters;
@@ -1243,6 +1244,7 @@ public class TimeoutComparison {
                     continue;
                 }
 
+                GraphComparison comparison = new GraphComparison(truth[u], est[u]);
                 int statIndex = -1;
 
                 for (Statistic _stat : statistics.getStatistics()) {
@@ -1257,7 +1259,7 @@ public class TimeoutComparison {
                     if (_stat instanceof ElapsedTime) {
                         stat = elapsed / 1000.0;
                     } else {
-                        stat = _stat.getValue(truth[u], est[u], null);
+                        stat = _stat.getValue(comparison, null);
                     }
 
                     allStats[u][run.getAlgSimIndex()][statIndex][run.getRunIndex()] = stat;
@@ -1,5 +1,6 @@
 package edu.cmu.tetrad.algcomparison.algorithm;
 
+import edu.cmu.tetrad.algcomparison.utils.HasResources;
 import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.data.BootstrapSampler;
 import edu.cmu.tetrad.data.DataModel;
@@ -21,7 +22,7 @@ import java.util.concurrent.RecursiveAction;
  *
  * @author jdramsey
  */
-public class StabilitySelection implements Algorithm, TakesInitialGraph {
+public class StabilitySelection implements Algorithm, TakesInitialGraph, HasResources {
 
     static final long serialVersionUID = 23L;
     private Algorithm algorithm;
@@ -154,5 +155,40 @@ public class StabilitySelection implements Algorithm, TakesInitialGraph {
     public void setInitialGraph(Algorithm algorithm) {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
+
+    // The subsamples are searched in the shared pool, so the wrapped algorithm's threads
+    // are counted against the same bound.
+    @Override
+    public int getParallelism(Parameters parameters) {
+        int parallelism = ForkJoinPoolInstance.getInstance().getPool().getParallelism();
+
+        if (algorithm instanceof HasResources) {
+            return Math.max(parallelism, ((HasResources) algorithm).getParallelism(parameters));
+        }
+
+        return parallelism;
+    }
+
+    // What the wrapped algorithm needs for the data, or the data and a copy if it does not
+    // say, for each subsample searched at a time; at most, since the subsamples are smaller.
+    @Override
+    public long getMemoryEstimate(DataModel dataModel, Parameters parameters) {
+        if (!(dataModel instanceof DataSet)) {
+            return 0;
+        }
+
+        long bytes;
+
+        if (algorithm instanceof HasResources) {
+            bytes = ((HasResources) algorithm).getMemoryEstimate(dataModel, parameters);
+        } else {
+            bytes = 16L * ((DataSet) dataModel).getNumRows() * ((DataSet) dataModel).getNumColumns();
+        }
+
+        int numSubsamples = parameters.getInt("numSubsamples");
+        int parallelism = ForkJoinPoolInstance.getInstance().getPool().getParallelism();
+
+        return bytes * Math.max(1, Math.min(numSubsamples, parallelism));
+    }
     
 }
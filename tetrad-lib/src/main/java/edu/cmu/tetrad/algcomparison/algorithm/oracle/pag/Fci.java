@@ -3,6 +3,7 @@ package edu.cmu.tetrad.algcomparison.algorithm.oracle.pag;
 import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.algcomparison.independence.IndependenceWrapper;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
+import edu.cmu.tetrad.algcomparison.utils.HasResources;
 import edu.cmu.tetrad.algcomparison.utils.TakesIndependenceWrapper;
 import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.annotation.AlgType;
@@ -29,7 +30,7 @@ import java.util.List;
         algoType = AlgType.allow_latent_common_causes
 )
 @Bootstrapping
-public class Fci implements Algorithm, TakesInitialGraph, HasKnowledge, TakesIndependenceWrapper {
+public class Fci implements Algorithm, TakesInitialGraph, HasKnowledge, TakesIndependenceWrapper, HasResources {
 
     static final long serialVersionUID = 23L;
     private IndependenceWrapper test;
@@ -169,4 +170,36 @@ public class Fci implements Algorithm, TakesInitialGraph, HasKnowledge, TakesInd
         return test;
     }
 
+    @Override
+    public int getParallelism(Parameters parameters) {
+
+        // The search is run with the sequential Possible-D-Sep step.
+        if (parameters.getInt(Params.NUMBER_RESAMPLING) > 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return 1;
+    }
+
+    // The data and a copy, plus the correlations, the sepsets and the Possible-D-Sep sets,
+    // which grow about as the square of the number of variables; once for each resample run at a time.
+    @Override
+    public long getMemoryEstimate(DataModel dataModel, Parameters parameters) {
+        if (!(dataModel instanceof DataSet)) {
+            return 0;
+        }
+
+        long n = ((DataSet) dataModel).getNumRows();
+        long p = ((DataSet) dataModel).getNumColumns();
+        long bytes = 16 * n * p + 24 * p * p;
+
+        int numResamples = parameters.getInt(Params.NUMBER_RESAMPLING);
+
+        if (numResamples > 0) {
+            bytes *= Math.min(numResamples, Runtime.getRuntime().availableProcessors());
+        }
+
+        return bytes;
+    }
+
 }
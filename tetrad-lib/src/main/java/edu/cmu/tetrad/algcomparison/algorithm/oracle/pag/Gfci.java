@@ -4,6 +4,7 @@ import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.algcomparison.independence.IndependenceWrapper;
 import edu.cmu.tetrad.algcomparison.score.ScoreWrapper;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
+import edu.cmu.tetrad.algcomparison.utils.HasResources;
 import edu.cmu.tetrad.algcomparison.utils.TakesIndependenceWrapper;
 import edu.cmu.tetrad.algcomparison.utils.UsesScoreWrapper;
 import edu.cmu.tetrad.annotation.AlgType;
@@ -12,6 +13,7 @@ import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.DagToPag2;
 import edu.cmu.tetrad.search.GFci;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.algo.resampling.GeneralResamplingTest;
@@ -32,7 +34,7 @@ import java.util.List;
         algoType = AlgType.allow_latent_common_causes
 )
 @Bootstrapping
-public class Gfci implements Algorithm, HasKnowledge, UsesScoreWrapper, TakesIndependenceWrapper {
+public class Gfci implements Algorithm, HasKnowledge, UsesScoreWrapper, TakesIndependenceWrapper, HasResources {
 
     static final long serialVersionUID = 23L;
     private IndependenceWrapper test;
@@ -159,4 +161,36 @@ public class Gfci implements Algorithm, HasKnowledge, UsesScoreWrapper, TakesInd
         return score;
     }
 
+    @Override
+    public int getParallelism(Parameters parameters) {
+        int parallelism = ForkJoinPoolInstance.getInstance().getPool().getParallelism();
+
+        if (parameters.getInt(Params.NUMBER_RESAMPLING) > 0) {
+            return Math.max(parallelism, Runtime.getRuntime().availableProcessors());
+        }
+
+        return parallelism;
+    }
+
+    // As for FGES, plus the sepsets looked up for the FGES graph; once for each resample
+    // run at a time.
+    @Override
+    public long getMemoryEstimate(DataModel dataModel, Parameters parameters) {
+        if (!(dataModel instanceof DataSet)) {
+            return 0;
+        }
+
+        long n = ((DataSet) dataModel).getNumRows();
+        long p = ((DataSet) dataModel).getNumColumns();
+        long bytes = 16 * n * p + 80 * p * p;
+
+        int numResamples = parameters.getInt(Params.NUMBER_RESAMPLING);
+
+        if (numResamples > 0) {
+            bytes *= Math.min(numResamples, Runtime.getRuntime().availableProcessors());
+        }
+
+        return bytes;
+    }
+
 }
@@ -3,6 +3,7 @@ package edu.cmu.tetrad.algcomparison.algorithm.oracle.pattern;
 import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.algcomparison.score.ScoreWrapper;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
+import edu.cmu.tetrad.algcomparison.utils.HasResources;
 import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.algcomparison.utils.UsesScoreWrapper;
 import edu.cmu.tetrad.annotation.AlgType;
@@ -34,7 +35,7 @@ import java.util.List;
         algoType = AlgType.forbid_latent_common_causes
 )
 @Bootstrapping
-public class Fges implements Algorithm, TakesInitialGraph, HasKnowledge, UsesScoreWrapper {
+public class Fges implements Algorithm, TakesInitialGraph, HasKnowledge, UsesScoreWrapper, HasResources {
 
     static final long serialVersionUID = 23L;
 
@@ -191,4 +192,30 @@ public class Fges implements Algorithm, TakesInitialGraph, HasKnowledge, UsesSco
         return score;
     }
 
+    @Override
+    public int getParallelism(Parameters parameters) {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    // The data and a copy, plus a covariance matrix and FGES's arrows and caches, which grow
+    // about as the square of the number of variables; once for each resample run at a time.
+    @Override
+    public long getMemoryEstimate(DataModel dataModel, Parameters parameters) {
+        if (!(dataModel instanceof DataSet)) {
+            return 0;
+        }
+
+        long n = ((DataSet) dataModel).getNumRows();
+        long p = ((DataSet) dataModel).getNumColumns();
+        long bytes = 16 * n * p + 72 * p * p;
+
+        int numResamples = parameters.getInt(Params.NUMBER_RESAMPLING);
+
+        if (numResamples > 0) {
+            bytes *= Math.min(numResamples, Runtime.getRuntime().availableProcessors());
+        }
+
+        return bytes;
+    }
+
 }
@@ -3,6 +3,7 @@ package edu.cmu.tetrad.algcomparison.algorithm.oracle.pattern;
 import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.algcomparison.independence.IndependenceWrapper;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
+import edu.cmu.tetrad.algcomparison.utils.HasResources;
 import edu.cmu.tetrad.algcomparison.utils.TakesIndependenceWrapper;
 import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.annotation.Bootstrapping;
@@ -28,7 +29,7 @@ import java.util.List;
  * @author jdramsey
  */
 @Bootstrapping
-public class Pc implements Algorithm, TakesInitialGraph, HasKnowledge, TakesIndependenceWrapper {
+public class Pc implements Algorithm, TakesInitialGraph, HasKnowledge, TakesIndependenceWrapper, HasResources {
 
     static final long serialVersionUID = 23L;
     private IndependenceWrapper test;
@@ -154,4 +155,35 @@ public class Pc implements Algorithm, TakesInitialGraph, HasKnowledge, TakesInde
     public IndependenceWrapper getIndependenceWrapper() {
         return test;
     }
-}
\ No newline at end of file
+
+    @Override
+    public int getParallelism(Parameters parameters) {
+        if (parameters.getInt(Params.NUMBER_RESAMPLING) > 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return 1;
+    }
+
+    // The data and a copy, plus the correlations and the sepsets, which grow about as the
+    // square of the number of variables; once for each resample run at a time.
+    @Override
+    public long getMemoryEstimate(DataModel dataModel, Parameters parameters) {
+        if (!(dataModel instanceof DataSet)) {
+            return 0;
+        }
+
+        long n = ((DataSet) dataModel).getNumRows();
+        long p = ((DataSet) dataModel).getNumColumns();
+        long bytes = 16 * n * p + 16 * p * p;
+
+        int numResamples = parameters.getInt(Params.NUMBER_RESAMPLING);
+
+        if (numResamples > 0) {
+            bytes *= Math.min(numResamples, Runtime.getRuntime().availableProcessors());
+        }
+
+        return bytes;
+    }
+
+}
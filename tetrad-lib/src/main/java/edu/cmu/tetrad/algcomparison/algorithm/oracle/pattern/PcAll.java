@@ -3,6 +3,7 @@ package edu.cmu.tetrad.algcomparison.algorithm.oracle.pattern;
 import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.algcomparison.independence.IndependenceWrapper;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
+import edu.cmu.tetrad.algcomparison.utils.HasResources;
 import edu.cmu.tetrad.algcomparison.utils.TakesIndependenceWrapper;
 import edu.cmu.tetrad.algcomparison.utils.TakesInitialGraph;
 import edu.cmu.tetrad.annotation.AlgType;
@@ -15,6 +16,7 @@ import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.graph.EdgeListGraph;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.algo.resampling.GeneralResamplingTest;
@@ -33,7 +35,7 @@ import java.util.List;
         algoType = AlgType.forbid_latent_common_causes
 )
 @Bootstrapping
-public class PcAll implements Algorithm, TakesInitialGraph, HasKnowledge, TakesIndependenceWrapper {
+public class PcAll implements Algorithm, TakesInitialGraph, HasKnowledge, TakesIndependenceWrapper, HasResources {
 
     static final long serialVersionUID = 23L;
     private IndependenceWrapper test;
@@ -211,4 +213,38 @@ public class PcAll implements Algorithm, TakesInitialGraph, HasKnowledge, TakesI
         return test;
     }
 
-}
\ No newline at end of file
+    @Override
+    public int getParallelism(Parameters parameters) {
+        if (parameters.getInt(Params.NUMBER_RESAMPLING) > 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        if (parameters.getBoolean(Params.CONCURRENT_FAS)) {
+            return ForkJoinPoolInstance.getInstance().getPool().getParallelism();
+        }
+
+        return 1;
+    }
+
+    // The data and a copy, plus the correlations, the sepsets and, for the conservative
+    // rules, the triples; once for each resample run at a time.
+    @Override
+    public long getMemoryEstimate(DataModel dataModel, Parameters parameters) {
+        if (!(dataModel instanceof DataSet)) {
+            return 0;
+        }
+
+        long n = ((DataSet) dataModel).getNumRows();
+        long p = ((DataSet) dataModel).getNumColumns();
+        long bytes = 16 * n * p + 24 * p * p;
+
+        int numResamples = parameters.getInt(Params.NUMBER_RESAMPLING);
+
+        if (numResamples > 0) {
+            bytes *= Math.min(numResamples, Runtime.getRuntime().availableProcessors());
+        }
+
+        return bytes;
+    }
+
+}
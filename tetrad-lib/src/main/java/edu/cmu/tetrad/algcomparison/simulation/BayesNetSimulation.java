@@ -5,6 +5,7 @@ import edu.cmu.tetrad.algcomparison.graph.SingleGraph;
 import edu.cmu.tetrad.bayes.BayesIm;
 import edu.cmu.tetrad.bayes.BayesPm;
 import edu.cmu.tetrad.bayes.MlBayesIm;
+import edu.cmu.tetrad.bayes.ParallelBayesSimulator;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DataType;
@@ -143,16 +144,16 @@ public class BayesNetSimulation implements Simulation {
                     pm = new BayesPm(graph, minCategories, maxCategories);
                     im = new MlBayesIm(pm, MlBayesIm.RANDOM);
                     ims.add(im);
-                    return im.simulateData(parameters.getInt(Params.SAMPLE_SIZE), saveLatentVars);
+                    return simulate(im, parameters.getInt(Params.SAMPLE_SIZE), saveLatentVars);
                 } else {
                     im = new MlBayesIm(pm, MlBayesIm.RANDOM);
                     this.im = im;
                     ims.add(im);
-                    return im.simulateData(parameters.getInt(Params.SAMPLE_SIZE), saveLatentVars);
+                    return simulate(im, parameters.getInt(Params.SAMPLE_SIZE), saveLatentVars);
                 }
             } else {
                 ims.add(im);
-                return im.simulateData(parameters.getInt(Params.SAMPLE_SIZE), saveLatentVars);
+                return simulate(im, parameters.getInt(Params.SAMPLE_SIZE), saveLatentVars);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -161,6 +162,15 @@ public class BayesNetSimulation implements Simulation {
         }
     }
 
+    // Time lag models still go through the IM; everything else is sampled in parallel.
+    private DataSet simulate(BayesIm im, int sampleSize, boolean saveLatentVars) {
+        if (im.getBayesPm().getDag().isTimeLagModel()) {
+            return im.simulateData(sampleSize, saveLatentVars);
+        }
+
+        return new ParallelBayesSimulator(im).simulateData(sampleSize, saveLatentVars);
+    }
+
     public List<BayesIm> getBayesIms() {
         return ims;
     }
@@ -1,6 +1,7 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.AdjacencyConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparison;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.graph.Graph;
 
@@ -25,7 +26,12 @@ public class AdjacencyRecall implements Statistic {
 
     @Override
     public double getValue(Graph trueGraph, Graph estGraph, DataModel dataModel) {
-        AdjacencyConfusion adjConfusion = new AdjacencyConfusion(trueGraph, estGraph);
+        return getValue(new GraphComparison(trueGraph, estGraph), dataModel);
+    }
+
+    @Override
+    public double getValue(GraphComparison comparison, DataModel dataModel) {
+        AdjacencyConfusion adjConfusion = comparison.getAdjacencyConfusion();
         int adjTp = adjConfusion.getAdjTp();
 //        int adjFp = adjConfusion.getAdjFp();
         int adjFn = adjConfusion.getAdjFn();
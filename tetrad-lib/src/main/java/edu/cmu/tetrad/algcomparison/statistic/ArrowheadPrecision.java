@@ -1,6 +1,7 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.ArrowConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparison;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.graph.Graph;
 
@@ -28,7 +29,12 @@ public class ArrowheadPrecision implements Statistic {
 
     @Override
     public double getValue(Graph trueGraph, Graph estGraph, DataModel dataModel) {
-        ArrowConfusion confusion = new ArrowConfusion(trueGraph, estGraph);
+        return getValue(new GraphComparison(trueGraph, estGraph), dataModel);
+    }
+
+    @Override
+    public double getValue(GraphComparison comparison, DataModel dataModel) {
+        ArrowConfusion confusion = comparison.getArrowConfusion();
         double arrowsTp = confusion.getArrowsTp();
         double arrowsFp = confusion.getArrowsFp();
         return arrowsTp / (arrowsTp + arrowsFp);
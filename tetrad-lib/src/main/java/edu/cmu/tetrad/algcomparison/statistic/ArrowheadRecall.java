@@ -1,6 +1,7 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.ArrowConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparison;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.graph.Graph;
 
@@ -28,7 +29,12 @@ public class ArrowheadRecall implements Statistic {
 
     @Override
     public double getValue(Graph trueGraph, Graph estGraph, DataModel dataModel) {
-        ArrowConfusion adjConfusion = new ArrowConfusion(trueGraph, estGraph);
+        return getValue(new GraphComparison(trueGraph, estGraph), dataModel);
+    }
+
+    @Override
+    public double getValue(GraphComparison comparison, DataModel dataModel) {
+        ArrowConfusion adjConfusion = comparison.getArrowConfusion();
         double arrowsTp = adjConfusion.getArrowsTp();
         double arrowsFn = adjConfusion.getArrowsFn();
         double den = arrowsTp + arrowsFn;
@@ -1,5 +1,6 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparison;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.graph.Graph;
 
@@ -39,6 +40,20 @@ public interface Statistic extends Serializable {
      */
     double getValue(Graph trueGraph, Graph estGraph, DataModel dataModel);
 
+    /**
+     * Returns the value of this statistic for the given comparison of an estimated graph
+     * to a true graph. Statistics built on confusion counts or BIC scores read them from
+     * the comparison, which computes each once for all of the statistics that use it.
+     * By default, returns getValue(trueGraph, estGraph, dataModel).
+     *
+     * @param comparison The true and estimated graphs.
+     * @param dataModel
+     * @return The value of the statistic.
+     */
+    default double getValue(GraphComparison comparison, DataModel dataModel) {
+        return getValue(comparison.getTrueGraph(), comparison.getEstGraph(), dataModel);
+    }
+
     /**
      * Returns a mapping of the statistic to the interval [0, 1], with higher being better.
      * This is used for a calculation of a utility for an algorithm.If the statistic is
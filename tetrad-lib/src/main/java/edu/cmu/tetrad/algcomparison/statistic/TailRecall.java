@@ -1,5 +1,6 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparison;
 import edu.cmu.tetrad.algcomparison.statistic.utils.TailConfusion;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.graph.Graph;
@@ -28,7 +29,12 @@ public class TailRecall implements Statistic {
 
     @Override
     public double getValue(Graph trueGraph, Graph estGraph, DataModel dataModel) {
-        TailConfusion confusion = new TailConfusion(trueGraph, estGraph);
+        return getValue(new GraphComparison(trueGraph, estGraph), dataModel);
+    }
+
+    @Override
+    public double getValue(GraphComparison comparison, DataModel dataModel) {
+        TailConfusion confusion = comparison.getTailConfusion();
         double arrowsTp = confusion.getArrowsTp();
         double arrowsFn = confusion.getArrowsFn();
         double den = arrowsTp + arrowsFn;
@@ -1,60 +1,57 @@
 package edu.cmu.tetrad.algcomparison.statistic.utils;
 
 import edu.cmu.tetrad.graph.Edge;
-import edu.cmu.tetrad.graph.Edges;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A confusion matrix for adjacencies--i.e. TP, FP, TN, FN for counts of adjacencies.
+ * The adjacencies of the two graphs are indexed by node once, as bit sets, and
+ * compared pair by pair. Nodes of the two graphs are matched by equals(), so the
+ * estimated graph should share the nodes of the true graph (see GraphUtils.replaceNodes).
  *
  * @author jdramsey
  */
 public class AdjacencyConfusion {
-    private Graph truth;
-    private Graph est;
     private int adjTp;
     private int adjFp;
     private int adjFn;
     private int adjTn;
 
     public AdjacencyConfusion(Graph truth, Graph est) {
-        this.truth = truth;
-        this.est = est;
-        adjTp = 0;
-        adjFp = 0;
-        adjFn = 0;
+        Map<Node, Integer> indices = new HashMap<>();
 
-        Set<Edge> allUnoriented = new HashSet<>();
-        for (Edge edge : this.truth.getEdges()) {
-            allUnoriented.add(Edges.undirectedEdge(edge.getNode1(), edge.getNode2()));
+        for (Node node : truth.getNodes()) {
+            indices.put(node, indices.size());
         }
 
-        for (Edge edge : this.est.getEdges()) {
-            allUnoriented.add(Edges.undirectedEdge(edge.getNode1(), edge.getNode2()));
+        for (Node node : est.getNodes()) {
+            if (!indices.containsKey(node)) {
+                indices.put(node, indices.size());
+            }
         }
 
-        for (Edge edge : allUnoriented) {
-            if (this.est.isAdjacentTo(edge.getNode1(), edge.getNode2()) &&
-                    !this.truth.isAdjacentTo(edge.getNode1(), edge.getNode2())) {
-                adjFp++;
-            }
+        BitSet[] trueAdj = adjacencies(truth, indices);
+        BitSet[] estAdj = adjacencies(est, indices);
 
-            if (this.truth.isAdjacentTo(edge.getNode1(), edge.getNode2()) &&
-                    !this.est.isAdjacentTo(edge.getNode1(), edge.getNode2())) {
-                adjFn++;
-            }
+        adjTp = 0;
+        adjFp = 0;
+        adjFn = 0;
 
-            if (this.truth.isAdjacentTo(edge.getNode1(), edge.getNode2()) &&
-                    this.est.isAdjacentTo(edge.getNode1(), edge.getNode2())) {
-                adjTp++;
-            }
-        }
+        for (int i = 0; i < indices.size(); i++) {
+            BitSet both = (BitSet) trueAdj[i].clone();
+            both.and(estAdj[i]);
 
-        int allEdges = this.truth.getNumNodes() * (this.truth.getNumNodes() - 1) / 2;
+            adjTp += count(both, i);
+            adjFn += count(trueAdj[i], i) - count(both, i);
+            adjFp += count(estAdj[i], i) - count(both, i);
+        }
 
+        int allEdges = truth.getNumNodes() * (truth.getNumNodes() - 1) / 2;
         adjTn = allEdges - adjFn;
     }
 
@@ -74,4 +71,32 @@ public class AdjacencyConfusion {
         return adjTn;
     }
 
+    // For each node, the nodes adjacent to it, by index.
+    private static BitSet[] adjacencies(Graph graph, Map<Node, Integer> indices) {
+        BitSet[] adj = new BitSet[indices.size()];
+
+        for (int i = 0; i < adj.length; i++) {
+            adj[i] = new BitSet(adj.length);
+        }
+
+        for (Edge edge : graph.getEdges()) {
+            int i = indices.get(edge.getNode1());
+            int j = indices.get(edge.getNode2());
+            adj[i].set(j);
+            adj[j].set(i);
+        }
+
+        return adj;
+    }
+
+    // The number of pairs (i, j) with j >= i in the given row.
+    private static int count(BitSet row, int i) {
+        int count = 0;
+
+        for (int j = row.nextSetBit(i); j >= 0; j = row.nextSetBit(j + 1)) {
+            count++;
+        }
+
+        return count;
+    }
 }
@@ -0,0 +1,100 @@
+package edu.cmu.tetrad.algcomparison.statistic.utils;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.search.SemBicScorer;
+
+/**
+ * A comparison of an estimated graph to a true graph, shared by the statistics
+ * calculated for them. Confusion matrices and BIC scores are computed the first
+ * time a statistic asks for them and then kept, so that each is computed once
+ * however many statistics use it. The graphs should not be changed while the
+ * comparison is in use.
+ *
+ * @author jdramsey
+ */
+public class GraphComparison {
+    private final Graph trueGraph;
+    private final Graph estGraph;
+
+    private AdjacencyConfusion adjacencyConfusion;
+    private ArrowConfusion arrowConfusion;
+    private TailConfusion tailConfusion;
+
+    private DataModel bicDataModel;
+    private double trueBic = Double.NaN;
+    private double estBic = Double.NaN;
+
+    public GraphComparison(Graph trueGraph, Graph estGraph) {
+        this.trueGraph = trueGraph;
+        this.estGraph = estGraph;
+    }
+
+    public Graph getTrueGraph() {
+        return trueGraph;
+    }
+
+    public Graph getEstGraph() {
+        return estGraph;
+    }
+
+    public synchronized AdjacencyConfusion getAdjacencyConfusion() {
+        if (adjacencyConfusion == null) {
+            adjacencyConfusion = new AdjacencyConfusion(trueGraph, estGraph);
+        }
+
+        return adjacencyConfusion;
+    }
+
+    public synchronized ArrowConfusion getArrowConfusion() {
+        if (arrowConfusion == null) {
+            arrowConfusion = new ArrowConfusion(trueGraph, estGraph);
+        }
+
+        return arrowConfusion;
+    }
+
+    public synchronized TailConfusion getTailConfusion() {
+        if (tailConfusion == null) {
+            tailConfusion = new TailConfusion(trueGraph, estGraph);
+        }
+
+        return tailConfusion;
+    }
+
+    /**
+     * @return the SEM BIC score of a DAG in the pattern of the true graph for the given data.
+     */
+    public synchronized double getTrueBic(DataModel dataModel) {
+        setBicDataModel(dataModel);
+
+        if (Double.isNaN(trueBic)) {
+            trueBic = SemBicScorer.scoreDag(SearchGraphUtils.dagFromPattern(trueGraph), dataModel);
+        }
+
+        return trueBic;
+    }
+
+    /**
+     * @return the SEM BIC score of a DAG in the pattern of the estimated graph for the given data.
+     */
+    public synchronized double getEstBic(DataModel dataModel) {
+        setBicDataModel(dataModel);
+
+        if (Double.isNaN(estBic)) {
+            estBic = SemBicScorer.scoreDag(SearchGraphUtils.dagFromPattern(estGraph), dataModel);
+        }
+
+        return estBic;
+    }
+
+    // BIC scores are kept for one data model at a time.
+    private void setBicDataModel(DataModel dataModel) {
+        if (dataModel != bicDataModel) {
+            bicDataModel = dataModel;
+            trueBic = Double.NaN;
+            estBic = Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package edu.cmu.tetrad.algcomparison.utils;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.util.Parameters;
+
+/**
+ * Tags an algorithm that can say how many threads and roughly how much memory
+ * a search will use, so that a Comparison can run several searches at once
+ * without oversubscribing the machine. Algorithms without this tag are taken
+ * to be single-threaded and to need about two copies of their data.
+ *
+ * @author jdramsey
+ */
+public interface HasResources {
+
+    /**
+     * @return the number of threads a search with the given parameters keeps busy.
+     */
+    int getParallelism(Parameters parameters);
+
+    /**
+     * @return a rough estimate, in bytes, of the heap a search of the given data
+     * with the given parameters needs, data included.
+     */
+    long getMemoryEstimate(DataModel dataModel, Parameters parameters);
+}
@@ -1015,12 +1015,13 @@ public final class MlBayesIm implements BayesIm {
 
         // Construct the sample.
         int[] combination = new int[tierOrdering.size()];
+        RandomUtil random = RandomUtil.getInstance().split();
 
         for (int i = 0; i < sampleSize; i++) {
             int[] point = new int[nodes.length];
 
             for (int nodeIndex : tiers) {
-                double cutoff = RandomUtil.getInstance().nextDouble();
+                double cutoff = random.nextDouble();
 
                 for (int k = 0; k < getNumParents(nodeIndex); k++) {
                     combination[k] = point[getParent(nodeIndex, k)];
@@ -1250,7 +1251,9 @@ public final class MlBayesIm implements BayesIm {
 //        ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
 //        SimulationTask task = new SimulationTask(chunk, 0, sampleSize, tiers, dataSet, map);
 //        pool.invoke(task);
-        // Construct the sample.
+        // Construct the sample from one stream, rather than locking the shared generator for every draw.
+        RandomUtil random = RandomUtil.getInstance().split();
+
         for (int i = 0; i < sampleSize; i++) {
             for (int t : tiers) {
                 int[] parentValues = new int[parents[t].length];
@@ -1262,7 +1265,7 @@ public final class MlBayesIm implements BayesIm {
                 int rowIndex = getRowIndex(t, parentValues);
                 double sum = 0.0;
 
-                double r = RandomUtil.getInstance().nextDouble();
+                double r = random.nextDouble();
 
                 for (int k = 0; k < getNumColumns(t); k++) {
                     double probability = getProbability(t, rowIndex, k);
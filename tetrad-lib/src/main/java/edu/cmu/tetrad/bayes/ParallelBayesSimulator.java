@@ -0,0 +1,249 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.bayes;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.VerticalIntDataBox;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.NodeType;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Forward-samples data from a discrete Bayes net, in blocks of rows, in parallel. The conditional
+ * probability tables are flattened once into arrays of cumulative probabilities, one row of the
+ * table after another, and the strides that map parent values to table rows are precomputed. Each
+ * block of rows is then sampled node by node in causal order, into column-major arrays that become
+ * a VerticalIntDataBox.
+ * <p>
+ * Each block draws from its own random stream (see RandomUtil.getStream), so for a given seed the
+ * data are the same whatever the number of threads. They are not the same as the data
+ * MlBayesIm.simulateData gives for that seed.
+ *
+ * @author Joseph Ramsey
+ */
+public final class ParallelBayesSimulator {
+
+    // Rows per block; the data depend on this, so it is fixed.
+    private static final int BLOCK_SIZE = 4096;
+
+    // One variable per node, with the categories of the Bayes PM.
+    private final List<Node> variables;
+
+    // A causal order of the nodes, parents before children.
+    private final int[] order;
+
+    // For each node, its parents and the stride of each parent in the row index of its table.
+    private final int[][] parents;
+    private final int[][] strides;
+
+    // For each node, its number of categories and its table of cumulative probabilities, with
+    // the entry for row j and category k at j * numCategories[node] + k.
+    private final int[] numCategories;
+    private final double[][] cumulative;
+
+    /**
+     * Constructs a sampler for the given Bayes IM. The IM is read once; later changes to it are
+     * not seen.
+     *
+     * @throws IllegalArgumentException if the graph is cyclic.
+     * @throws IllegalStateException    if some probability is not filled in.
+     */
+    public ParallelBayesSimulator(BayesIm im) {
+        Graph graph = im.getBayesPm().getDag();
+
+        if (graph.existsDirectedCycle()) {
+            throw new IllegalArgumentException("Graph must be acyclic to simulate from discrete Bayes net.");
+        }
+
+        int numNodes = im.getNumNodes();
+
+        this.variables = new ArrayList<>();
+        this.order = new int[numNodes];
+        this.parents = new int[numNodes][];
+        this.strides = new int[numNodes][];
+        this.numCategories = new int[numNodes];
+        this.cumulative = new double[numNodes][];
+
+        for (int j = 0; j < numNodes; j++) {
+            Node node = im.getNode(j);
+            BayesPm pm = im.getBayesPm();
+            List<String> categories = new ArrayList<>();
+
+            for (int k = 0; k < pm.getNumCategories(node); k++) {
+                categories.add(pm.getCategory(node, k));
+            }
+
+            DiscreteVariable var = new DiscreteVariable(node.getName(), categories);
+            var.setNodeType(node.getNodeType());
+            variables.add(var);
+
+            parents[j] = im.getParents(j);
+            int[] dims = im.getParentDims(j);
+            strides[j] = new int[dims.length];
+            int stride = 1;
+
+            for (int p = dims.length - 1; p >= 0; p--) {
+                strides[j][p] = stride;
+                stride *= dims[p];
+            }
+
+            int numRows = im.getNumRows(j);
+            int numCols = im.getNumColumns(j);
+            numCategories[j] = numCols;
+            cumulative[j] = new double[numRows * numCols];
+
+            for (int row = 0; row < numRows; row++) {
+                double sum = 0.0;
+
+                for (int k = 0; k < numCols; k++) {
+                    double probability = im.getProbability(j, row, k);
+
+                    if (Double.isNaN(probability)) {
+                        throw new IllegalStateException("Some probability "
+                                + "values in the BayesIm are not filled in; "
+                                + "cannot simulate data.");
+                    }
+
+                    sum += probability;
+                    cumulative[j][row * numCols + k] = sum;
+                }
+
+                // Rounding should not leave the last category unreachable.
+                cumulative[j][row * numCols + numCols - 1] = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        List<Node> ordering = graph.getCausalOrdering();
+
+        for (int i = 0; i < ordering.size(); i++) {
+            order[i] = im.getNodeIndex(ordering.get(i));
+        }
+    }
+
+    /**
+     * Simulates data.
+     *
+     * @param sampleSize      The number of rows.
+     * @param latentDataSaved True if columns for the latent variables should be included.
+     * @return A data set backed by a VerticalIntDataBox.
+     */
+    public DataSet simulateData(final int sampleSize, boolean latentDataSaved) {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("Sample size must be >= 1: " + sampleSize);
+        }
+
+        final int[][] data = new int[variables.size()][sampleSize];
+        final int numBlocks = (sampleSize + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final long root = RandomUtil.getInstance().nextLong();
+        final int parallelism = ForkJoinPoolInstance.getInstance().getPool().getParallelism();
+        final int leaf = Math.max(1, numBlocks / (4 * parallelism));
+
+        class SimulateTask extends RecursiveAction {
+            private final int from;
+            private final int to;
+
+            private SimulateTask(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > leaf) {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new SimulateTask(from, mid), new SimulateTask(mid, to));
+                } else {
+                    int[] rows = new int[BLOCK_SIZE];
+
+                    for (int b = from; b < to; b++) {
+                        int first = b * BLOCK_SIZE;
+                        int length = Math.min(BLOCK_SIZE, sampleSize - first);
+                        simulateBlock(RandomUtil.getStream(root, b), data, first, length, rows);
+                    }
+                }
+            }
+        }
+
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new SimulateTask(0, numBlocks));
+
+        List<Node> outputs = new ArrayList<>();
+        List<int[]> columns = new ArrayList<>();
+
+        for (int j = 0; j < variables.size(); j++) {
+            if (latentDataSaved || variables.get(j).getNodeType() != NodeType.LATENT) {
+                outputs.add(variables.get(j));
+                columns.add(data[j]);
+            }
+        }
+
+        return new BoxDataSet(new VerticalIntDataBox(columns.toArray(new int[columns.size()][])), outputs);
+    }
+
+    //==============================PRIVATE METHODS===========================//
+
+    private void simulateBlock(RandomUtil random, int[][] data, int first, int length, int[] rows) {
+        int end = first + length;
+
+        for (int node : order) {
+            int[] x = data[node];
+            int[] _parents = parents[node];
+            int[] _strides = strides[node];
+            int numCols = numCategories[node];
+            double[] cum = cumulative[node];
+
+            // Rows of the table, as offsets into the cumulative probabilities.
+            for (int r = first; r < end; r++) {
+                rows[r - first] = 0;
+            }
+
+            for (int p = 0; p < _parents.length; p++) {
+                int[] y = data[_parents[p]];
+                int stride = _strides[p];
+
+                for (int r = first; r < end; r++) {
+                    rows[r - first] += stride * y[r];
+                }
+            }
+
+            for (int r = first; r < end; r++) {
+                double u = random.nextDouble();
+                int offset = rows[r - first] * numCols;
+                int k = 0;
+
+                while (cum[offset + k] < u) {
+                    k++;
+                }
+
+                x[r] = k;
+            }
+        }
+    }
+}
@@ -0,0 +1,496 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.calculator.expression;
+
+import edu.cmu.tetrad.util.RandomUtil;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import java.util.*;
+
+/**
+ * An expression compiled for evaluation over many rows of data at once. Names in the
+ * expression are resolved once, at compile time, either to constants (e.g. parameter
+ * values) or to slots--columns of a double[][] of data, one column per slot. The
+ * expression is flattened into a postfix program for a small stack machine that works
+ * on blocks of rows, so evaluation does no boxing, no map lookups and no allocation
+ * per row.
+ * </p>
+ * Arithmetic, the elementary functions and Normal/N are compiled; any other
+ * sub-expression (the other distributions, if, comparisons and so on) is evaluated
+ * row by row with the original Expression, through a Context that reads the slots.
+ * Results are the same as for Expression.evaluate, except that random draws are
+ * taken a block at a time, so they come in a different order than they would row
+ * by row.
+ * </p>
+ * A compiled expression is immutable; evaluate may be called from several threads
+ * at once on disjoint ranges of rows.
+ *
+ * @author Joseph Ramsey
+ */
+public final class CompiledExpression {
+
+    // Number of rows evaluated at a time.
+    private static final int BLOCK = 256;
+
+    // Instructions.
+    private static final int CONST = 0;
+    private static final int LOAD = 1;
+    private static final int ADD = 2;
+    private static final int SUB = 3;
+    private static final int MUL = 4;
+    private static final int DIV = 5;
+    private static final int POW = 6;
+    private static final int MAX = 7;
+    private static final int MIN = 8;
+    private static final int NEG = 9;
+    private static final int FUNCTION = 10;
+    private static final int NORMAL = 11;
+    private static final int FALLBACK = 12;
+
+    // Unary functions, by token, in the order of the FUNCTION argument.
+    private static final List<String> FUNCTIONS = Arrays.asList("exp", "ln", "log10", "sqrt", "abs",
+            "sin", "cos", "tan", "asin", "acos", "atan", "sinh", "cosh", "tanh", "logistic", "ceil",
+            "floor", "round", "signum");
+
+    // The expression that was compiled.
+    private final Expression expression;
+
+    // The program: ops[i] is the instruction; args[i] the constant index, slot, function or
+    // fallback index it uses; lenient[i] whether an exception for a row counts as 0 (as it
+    // does for the terms of a sum).
+    private final int[] ops;
+    private final int[] args;
+    private final boolean[] lenient;
+
+    private final double[] constants;
+    private final Expression[] fallbacks;
+
+    // Maximum depth of the stack.
+    private final int depth;
+
+    // Slots of names, for the fallbacks.
+    private final Map<String, Integer> slots;
+
+    // Values of names that are not slots, for the fallbacks.
+    private final Context parameters;
+
+    private CompiledExpression(Expression expression, Compiler compiler, Map<String, Integer> slots,
+                               Context parameters) {
+        this.expression = expression;
+        this.ops = compiler.ops.stream().mapToInt(Integer::intValue).toArray();
+        this.args = compiler.args.stream().mapToInt(Integer::intValue).toArray();
+        this.lenient = new boolean[ops.length];
+        for (int i = 0; i < ops.length; i++) this.lenient[i] = compiler.lenient.get(i);
+        this.constants = compiler.constants.stream().mapToDouble(Double::doubleValue).toArray();
+        this.fallbacks = compiler.fallbacks.toArray(new Expression[0]);
+        this.depth = compiler.maxDepth;
+        this.slots = new HashMap<>(slots);
+        this.parameters = parameters;
+    }
+
+    /**
+     * Compiles the given expression.
+     *
+     * @param expression The expression.
+     * @param slots      The slot (column) of each variable the expression may refer to.
+     * @param parameters Gives the values of names that are to be taken as constants; names
+     *                   for which it returns null are looked up in slots. As in the contexts
+     *                   in GeneralizedSemIm, constants come first.
+     * @return The compiled expression.
+     */
+    public static CompiledExpression compile(Expression expression, Map<String, Integer> slots,
+                                             Context parameters) {
+        if (expression == null) throw new NullPointerException("Expression was null.");
+        if (slots == null) throw new NullPointerException("Slots were null.");
+        if (parameters == null) throw new NullPointerException("Parameters were null.");
+
+        Compiler compiler = new Compiler(slots, parameters);
+        compiler.compile(expression, false);
+        return new CompiledExpression(expression, compiler, slots, parameters);
+    }
+
+    /**
+     * @return the expression that was compiled.
+     */
+    public Expression getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return true if the expression was compiled completely and makes no random draws,
+     * so that disjoint ranges of rows may be evaluated in any order, or in parallel,
+     * with the same result.
+     */
+    public boolean isDeterministic() {
+        for (int op : ops) {
+            if (op == NORMAL || op == FALLBACK) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Evaluates the expression for rows from (inclusive) to to (exclusive).
+     *
+     * @param columns The data, one column for each slot; columns[slot][row] is the value of
+     *                the variable in that slot for that row. Columns for slots the expression
+     *                does not use may be null.
+     * @param from    The first row.
+     * @param to      One past the last row.
+     * @param out     The values of the expression are put in out[from] to out[to - 1].
+     */
+    public void evaluate(double[][] columns, int from, int to, double[] out) {
+        double[][] stack = new double[depth][Math.min(BLOCK, Math.max(to - from, 0))];
+        SlotContext context = null;
+
+        for (int start = from; start < to; start += BLOCK) {
+            int n = Math.min(BLOCK, to - start);
+            int sp = 0;
+
+            for (int pc = 0; pc < ops.length; pc++) {
+                int arg = args[pc];
+
+                switch (ops[pc]) {
+                    case CONST:
+                        Arrays.fill(stack[sp++], 0, n, constants[arg]);
+                        break;
+                    case LOAD:
+                        System.arraycopy(columns[arg], start, stack[sp++], 0, n);
+                        break;
+                    case ADD: {
+                        double[] a = stack[sp - 2], b = stack[--sp];
+                        for (int i = 0; i < n; i++) a[i] += b[i];
+                        break;
+                    }
+                    case SUB: {
+                        double[] a = stack[sp - 2], b = stack[--sp];
+                        for (int i = 0; i < n; i++) a[i] -= b[i];
+                        break;
+                    }
+                    case MUL: {
+                        double[] a = stack[sp - 2], b = stack[--sp];
+                        for (int i = 0; i < n; i++) a[i] *= b[i];
+                        break;
+                    }
+                    case DIV: {
+                        double[] a = stack[sp - 2], b = stack[--sp];
+                        for (int i = 0; i < n; i++) a[i] /= b[i];
+                        break;
+                    }
+                    case POW: {
+                        double[] a = stack[sp - 2], b = stack[--sp];
+                        for (int i = 0; i < n; i++) a[i] = Math.pow(a[i], b[i]);
+                        break;
+                    }
+                    case MAX: {
+                        double[] a = stack[sp - 2], b = stack[--sp];
+                        for (int i = 0; i < n; i++) if (a[i] < b[i]) a[i] = b[i];
+                        break;
+                    }
+                    case MIN: {
+                        double[] a = stack[sp - 2], b = stack[--sp];
+                        for (int i = 0; i < n; i++) if (b[i] < a[i]) a[i] = b[i];
+                        break;
+                    }
+                    case NEG: {
+                        double[] a = stack[sp - 1];
+                        for (int i = 0; i < n; i++) a[i] = -a[i];
+                        break;
+                    }
+                    case FUNCTION:
+                        function(arg, stack[sp - 1], n);
+                        break;
+                    case NORMAL: {
+                        double[] mean = stack[sp - 2], sd = stack[--sp];
+                        RandomGenerator randomGenerator = RandomUtil.getInstance().getRandomGenerator();
+
+                        for (int i = 0; i < n; i++) {
+                            if (sd[i] <= 0) {
+                                if (lenient[pc]) {
+                                    mean[i] = 0;
+                                    continue;
+                                }
+
+                                throw new NotStrictlyPositiveException(sd[i]);
+                            }
+
+                            mean[i] = sd[i] * randomGenerator.nextGaussian() + mean[i];
+                        }
+
+                        break;
+                    }
+                    case FALLBACK: {
+                        if (context == null) context = new SlotContext(columns);
+                        double[] a = stack[sp++];
+
+                        for (int i = 0; i < n; i++) {
+                            context.row = start + i;
+
+                            try {
+                                a[i] = fallbacks[arg].evaluate(context);
+                            } catch (RuntimeException e) {
+                                if (!lenient[pc]) throw e;
+                                a[i] = 0;
+                            }
+                        }
+
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException("Unknown instruction: " + ops[pc]);
+                }
+            }
+
+            System.arraycopy(stack[0], 0, out, start, n);
+        }
+    }
+
+    /**
+     * Evaluates the expression for rows 0 to numRows - 1.
+     *
+     * @see #evaluate(double[][], int, int, double[])
+     */
+    public double[] evaluate(double[][] columns, int numRows) {
+        double[] out = new double[numRows];
+        evaluate(columns, 0, numRows, out);
+        return out;
+    }
+
+    public String toString() {
+        return expression.toString();
+    }
+
+    //=============================PRIVATE METHODS=========================//
+
+    private static void function(int f, double[] a, int n) {
+        switch (f) {
+            case 0:
+                for (int i = 0; i < n; i++) a[i] = Math.exp(a[i]);
+                break;
+            case 1:
+                for (int i = 0; i < n; i++) a[i] = Math.log(a[i]);
+                break;
+            case 2:
+                for (int i = 0; i < n; i++) a[i] = Math.log10(a[i]);
+                break;
+            case 3:
+                for (int i = 0; i < n; i++) a[i] = Math.sqrt(a[i]);
+                break;
+            case 4:
+                for (int i = 0; i < n; i++) a[i] = Math.abs(a[i]);
+                break;
+            case 5:
+                for (int i = 0; i < n; i++) a[i] = Math.sin(a[i]);
+                break;
+            case 6:
+                for (int i = 0; i < n; i++) a[i] = Math.cos(a[i]);
+                break;
+            case 7:
+                for (int i = 0; i < n; i++) a[i] = Math.tan(a[i]);
+                break;
+            case 8:
+                for (int i = 0; i < n; i++) a[i] = Math.asin(a[i]);
+                break;
+            case 9:
+                for (int i = 0; i < n; i++) a[i] = Math.acos(a[i]);
+                break;
+            case 10:
+                for (int i = 0; i < n; i++) a[i] = Math.atan(a[i]);
+                break;
+            case 11:
+                for (int i = 0; i < n; i++) a[i] = Math.sinh(a[i]);
+                break;
+            case 12:
+                for (int i = 0; i < n; i++) a[i] = Math.cosh(a[i]);
+                break;
+            case 13:
+                for (int i = 0; i < n; i++) a[i] = Math.tanh(a[i]);
+                break;
+            case 14:
+                for (int i = 0; i < n; i++) a[i] = 1.0 / (1.0 + Math.exp(-a[i]));
+                break;
+            case 15:
+                for (int i = 0; i < n; i++) a[i] = Math.ceil(a[i]);
+                break;
+            case 16:
+                for (int i = 0; i < n; i++) a[i] = Math.floor(a[i]);
+                break;
+            case 17:
+                for (int i = 0; i < n; i++) a[i] = Math.round(a[i]);
+                break;
+            case 18:
+                for (int i = 0; i < n; i++) a[i] = Math.signum(a[i]);
+                break;
+            default:
+                throw new IllegalStateException("Unknown function: " + f);
+        }
+    }
+
+    // Gives the fallbacks the values of names for the current row.
+    private class SlotContext implements Context {
+        private final double[][] columns;
+        private int row;
+
+        SlotContext(double[][] columns) {
+            this.columns = columns;
+        }
+
+        public Double getValue(String var) {
+            Double value = parameters.getValue(var);
+
+            if (value != null) {
+                return value;
+            }
+
+            Integer slot = slots.get(var);
+            return slot == null ? null : columns[slot][row];
+        }
+    }
+
+    // Flattens an expression into a postfix program.
+    private static class Compiler {
+        private final Map<String, Integer> slots;
+        private final Context parameters;
+
+        private final List<Integer> ops = new ArrayList<>();
+        private final List<Integer> args = new ArrayList<>();
+        private final List<Boolean> lenient = new ArrayList<>();
+        private final List<Double> constants = new ArrayList<>();
+        private final List<Expression> fallbacks = new ArrayList<>();
+        private int depth = 0;
+        private int maxDepth = 0;
+
+        Compiler(Map<String, Integer> slots, Context parameters) {
+            this.slots = slots;
+            this.parameters = parameters;
+        }
+
+        void compile(Expression expression, boolean lenient) {
+            List<Expression> expressions = expression.getExpressions();
+            String token = expression.getToken();
+            int n = expressions.size();
+
+            if (expression instanceof ConstantExpression) {
+                constant(expression.evaluate(null));
+            } else if (expression instanceof VariableExpression) {
+                String name = ((VariableExpression) expression).getVariable();
+                Double value = parameters.getValue(name);
+
+                if (value != null) {
+                    constant(value);
+                } else if (slots.containsKey(name)) {
+                    emit(LOAD, slots.get(name), false, 1);
+                } else {
+                    fallback(expression, lenient);
+                }
+            } else if ("+".equals(token) && n >= 1) {
+                for (int i = 0; i < n; i++) {
+                    Expression term = expressions.get(i);
+
+                    // A term that may throw inside a nested expression counts as 0 as a whole.
+                    if (isSafe(term)) {
+                        compile(term, true);
+                    } else {
+                        fallback(term, true);
+                    }
+
+                    if (i > 0) emit(ADD, 0, false, -1);
+                }
+            } else if ("-".equals(token) && n == 1) {
+                compile(expressions.get(0), false);
+                emit(NEG, 0, false, 0);
+            } else if (isBinary(token) && n == 2) {
+                compile(expressions.get(0), false);
+                compile(expressions.get(1), false);
+                emit(binary(token), 0, false, -1);
+            } else if (("*".equals(token) || "max".equals(token) || "min".equals(token)) && n >= 1) {
+                int op = "*".equals(token) ? MUL : "max".equals(token) ? MAX : MIN;
+                compile(expressions.get(0), false);
+
+                for (int i = 1; i < n; i++) {
+                    compile(expressions.get(i), false);
+                    emit(op, 0, false, -1);
+                }
+            } else if (FUNCTIONS.contains(token) && n == 1) {
+                compile(expressions.get(0), false);
+                emit(FUNCTION, FUNCTIONS.indexOf(token), false, 0);
+            } else if (("Normal".equals(token) || "N".equals(token)) && n == 2) {
+                compile(expressions.get(0), false);
+                compile(expressions.get(1), false);
+                emit(NORMAL, 0, lenient, -1);
+            } else {
+                fallback(expression, lenient);
+            }
+        }
+
+        private void constant(double value) {
+            emit(CONST, constants.size(), false, 1);
+            constants.add(value);
+        }
+
+        private void fallback(Expression expression, boolean lenient) {
+            emit(FALLBACK, fallbacks.size(), lenient, 1);
+            fallbacks.add(expression);
+        }
+
+        private void emit(int op, int arg, boolean lenient, int push) {
+            ops.add(op);
+            args.add(arg);
+            this.lenient.add(lenient);
+            depth += push;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        // True if the expression compiles to instructions none of which can throw, except
+        // perhaps the last, its own, which is then made lenient.
+        private boolean isSafe(Expression expression) {
+            Compiler compiler = new Compiler(slots, parameters);
+            compiler.compile(expression, false);
+
+            for (int i = 0; i < compiler.ops.size() - 1; i++) {
+                int op = compiler.ops.get(i);
+
+                if ((op == NORMAL || op == FALLBACK) && !compiler.lenient.get(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static boolean isBinary(String token) {
+            return "-".equals(token) || "/".equals(token) || "pow".equals(token) || "^".equals(token);
+        }
+
+        private static int binary(String token) {
+            switch (token) {
+                case "-":
+                    return SUB;
+                case "/":
+                    return DIV;
+                default:
+                    return POW;
+            }
+        }
+    }
+}
@@ -89,6 +89,28 @@ public final class CellTable {
         }
     }
 
+    /**
+     * Resets the table to the joint counts of the given columns, taken from the given
+     * counts rather than by a pass over the data.
+     */
+    public synchronized final void addToTable(DiscreteCounts counts, int[] indices) {
+        int[] dims = new int[indices.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            dims[i] = counts.getNumCategories(indices[i]);
+        }
+
+        table.reset(dims);
+
+        int[] cells = counts.getCounts(indices);
+
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != 0) {
+                table.setValue(table.getCoordinates(i), cells[i]);
+            }
+        }
+    }
+
     /**
      * @param varIndex the index of the variable in question.
      * @return the number of dimensions of the variable.
@@ -21,6 +21,8 @@
 package edu.cmu.tetrad.data;
 
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.stat.correlation.RealCovarianceMatrixForkJoin;
+import edu.cmu.tetrad.stat.correlation.RealVerticalCovarianceMatrixForkJoin;
 import edu.cmu.tetrad.util.NumberFormatUtil;
 import edu.cmu.tetrad.util.TetradAlgebra;
 import edu.cmu.tetrad.util.TetradMatrix;
@@ -30,6 +32,7 @@ import java.io.ObjectInputStream;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Stores a covariance matrix together with variable names and sample size,
@@ -102,10 +105,97 @@ public class CovarianceMatrix implements ICovarianceMatrix {
             throw new IllegalArgumentException("Not a continuous data set.");
         }
 
-        CovariancesDoubleForkJoin covariances = new CovariancesDoubleForkJoin(dataSet.getDoubleData().toArray(), biasCorrected);
         this.variables = Collections.unmodifiableList(dataSet.getVariables());
         this.sampleSize = dataSet.getNumRows();
-        this._covariancesMatrix = new TetradMatrix(covariances.getMatrix());
+        this._covariancesMatrix = new TetradMatrix(covariances(dataSet, biasCorrected));
+    }
+
+    // Reads the columns of a column-major box in place and the rows of a row-major box in place;
+    // anything else is copied out through getDoubleData() as before.
+    private static double[][] covariances(DataSet dataSet, boolean biasCorrected) {
+        int numThreads = 10 * Runtime.getRuntime().availableProcessors();
+
+        if (dataSet instanceof BoxDataSet && dataSet.getNumRows() > 0 && dataSet.getNumColumns() > 0) {
+            DataBox box = ((BoxDataSet) dataSet).getDataBox();
+
+            if (box instanceof VerticalDoubleDataBox) {
+                double[][] columns = ((VerticalDoubleDataBox) box).getVariableVectors();
+                return new RealVerticalCovarianceMatrixForkJoin(columns, numThreads).compute(biasCorrected);
+            } else if (box instanceof DoubleDataBox) {
+                double[][] rows = ((DoubleDataBox) box).getData();
+                return new RealCovarianceMatrixForkJoin(rows, numThreads).compute(biasCorrected);
+            } else if (box instanceof MappedDoubleDataBox) {
+                return covariances((MappedDoubleDataBox) box, biasCorrected);
+            }
+        }
+
+        return new CovariancesDoubleForkJoin(dataSet.getDoubleData().toArray(), biasCorrected).getMatrix();
+    }
+
+    // Reads a mapped box through its columns a block of rows at a time, so only one block
+    // is on the heap: one pass for the means and one for the centered cross products.
+    private static double[][] covariances(MappedDoubleDataBox box, boolean biasCorrected) {
+        int numRows = box.numRows();
+        int numCols = box.numCols();
+        int blockSize = Math.max(1, Math.min(numRows, (1 << 20) / numCols));
+        double[][] block = new double[numCols][blockSize];
+        double[] means = new double[numCols];
+
+        for (int from = 0; from < numRows; from += blockSize) {
+            int length = Math.min(blockSize, numRows - from);
+
+            for (int j = 0; j < numCols; j++) {
+                box.readColumn(j, from, block[j], length);
+
+                for (int i = 0; i < length; i++) {
+                    means[j] += block[j][i];
+                }
+            }
+        }
+
+        for (int j = 0; j < numCols; j++) {
+            means[j] /= numRows;
+        }
+
+        double[][] covariances = new double[numCols][numCols];
+
+        for (int from = 0; from < numRows; from += blockSize) {
+            int length = Math.min(blockSize, numRows - from);
+
+            for (int j = 0; j < numCols; j++) {
+                box.readColumn(j, from, block[j], length);
+
+                for (int i = 0; i < length; i++) {
+                    block[j][i] -= means[j];
+                }
+            }
+
+            IntStream.range(0, numCols).parallel().forEach(j -> {
+                double[] x = block[j];
+
+                for (int k = 0; k <= j; k++) {
+                    double[] y = block[k];
+                    double sum = 0.0;
+
+                    for (int i = 0; i < length; i++) {
+                        sum += x[i] * y[i];
+                    }
+
+                    covariances[j][k] += sum;
+                }
+            });
+        }
+
+        double n = biasCorrected ? numRows - 1 : numRows;
+
+        for (int j = 0; j < numCols; j++) {
+            for (int k = 0; k <= j; k++) {
+                covariances[j][k] /= n;
+                covariances[k][j] = covariances[j][k];
+            }
+        }
+
+        return covariances;
     }
 
     /**
@@ -451,6 +451,35 @@ public final class DataUtils {
         }
     }
 
+    /**
+     * Returns the values of continuous column j of the given data set. If the data set is
+     * stored column by column (a VerticalDoubleDataBox, or the continuous part of a
+     * MixedDataBox), the backing array is returned without copying, so it must not be
+     * modified; otherwise a copy is made.
+     */
+    public static double[] getContinuousColumn(DataSet dataSet, int j) {
+        if (dataSet instanceof BoxDataSet) {
+            DataBox box = ((BoxDataSet) dataSet).getDataBox();
+
+            if (box instanceof VerticalDoubleDataBox && box.numRows() > 0) {
+                return ((VerticalDoubleDataBox) box).getVariableVectors()[j];
+            } else if (box instanceof MixedDataBox) {
+                double[] column = ((MixedDataBox) box).getContinuousData()[j];
+                if (column != null) return column;
+            } else if (box instanceof MappedDoubleDataBox) {
+                return ((MappedDoubleDataBox) box).getColumn(j);
+            }
+        }
+
+        double[] column = new double[dataSet.getNumRows()];
+
+        for (int i = 0; i < dataSet.getNumRows(); i++) {
+            column[i] = dataSet.getDouble(i, j);
+        }
+
+        return column;
+    }
+
     public static double[] center(double[] d) {
         double sum = 0.0;
 
@@ -1414,8 +1443,12 @@ public final class DataUtils {
 
         int[] rows = new int[sampleSize];
 
+        // One draw from the shared generator; the rest come from an unsynchronized stream,
+        // so that bootstraps taken in parallel do not contend for its lock.
+        RandomUtil random = RandomUtil.getInstance().split();
+
         for (int i = 0; i < rows.length; i++) {
-            rows[i] = RandomUtil.getInstance().nextInt(actualSampleSize);
+            rows[i] = random.nextInt(actualSampleSize);
         }
 
         int[] cols = new int[data.columns()];
@@ -1471,8 +1504,12 @@ public final class DataUtils {
 
         int[] rows = new int[sampleSize];
 
+        // One draw from the shared generator; the rest come from an unsynchronized stream,
+        // so that bootstraps taken in parallel do not contend for its lock.
+        RandomUtil random = RandomUtil.getInstance().split();
+
         for (int i = 0; i < rows.length; i++) {
-            rows[i] = RandomUtil.getInstance().nextInt(actualSampleSize);
+            rows[i] = random.nextInt(actualSampleSize);
         }
 
         int[] cols = new int[data.getNumColumns()];
@@ -1482,6 +1519,59 @@ public final class DataUtils {
                 data.getVariables());
     }
 
+    /**
+     * @return a sample with replacement with the given sample size from the
+     * given dataset, drawn from the given stream. For a BoxDataSet the sample is
+     * a view of the rows drawn (see IndexedDataBox), so no data are copied.
+     */
+    public static DataSet getBootstrapView(DataSet data, int sampleSize, RandomUtil random) {
+        int actualSampleSize = data.getNumRows();
+
+        int[] rows = new int[sampleSize];
+
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = random.nextInt(actualSampleSize);
+        }
+
+        return getRowView(data, rows);
+    }
+
+    /**
+     * @return a sample without replacement with the given sample size (or the
+     * size of the data, if that is smaller) from the given dataset, drawn from
+     * the given stream. For a BoxDataSet the sample is a view of the rows drawn
+     * (see IndexedDataBox), so no data are copied.
+     */
+    public static DataSet getResamplingView(DataSet data, int sampleSize, RandomUtil random) {
+        int actualSampleSize = data.getNumRows();
+        int _size = Math.min(sampleSize, actualSampleSize);
+
+        int[] all = new int[actualSampleSize];
+        for (int i = 0; i < actualSampleSize; i++) all[i] = i;
+
+        // Partial Fisher-Yates; the first _size entries are the sample.
+        for (int i = 0; i < _size; i++) {
+            int j = i + random.nextInt(actualSampleSize - i);
+            int t = all[i];
+            all[i] = all[j];
+            all[j] = t;
+        }
+
+        int[] rows = new int[_size];
+        System.arraycopy(all, 0, rows, 0, _size);
+
+        return getRowView(data, rows);
+    }
+
+    private static DataSet getRowView(DataSet data, int[] rows) {
+        if (data instanceof BoxDataSet) {
+            DataBox dataBox = ((BoxDataSet) data).getDataBox();
+            return new BoxDataSet(new IndexedDataBox(dataBox, rows), data.getVariables());
+        } else {
+            return data.subsetRows(rows);
+        }
+    }
+
     /**
      * @return a sample without replacement with the given sample size from the
      * given dataset. May return a sample of less than the given size; makes
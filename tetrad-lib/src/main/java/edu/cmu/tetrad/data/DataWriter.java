@@ -22,11 +22,14 @@
 package edu.cmu.tetrad.data;
 
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.DataConvertUtils;
 import edu.cmu.tetrad.util.NumberFormatUtil;
+import edu.pitt.dbmi.data.reader.binary.BinaryDataFileWriter;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.file.Path;
 import java.text.NumberFormat;
 import java.util.Iterator;
 import java.util.List;
@@ -115,6 +118,23 @@ public final class DataWriter {
         out.close();
     }
 
+    /**
+     * Writes a dataset to file in the binary columnar format of
+     * BinaryDataFileWriter. The dataset may have continuous and/or discrete
+     * columns. It can be read back with
+     * <code>DataConvertUtils.toDataModel(new BinaryDataFileReader().read(file))</code>.
+     *
+     * @param dataSet    The data set to save.
+     * @param file       The file to write; overwritten if it exists.
+     * @param compressed True if the column values should be deflated.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeBinaryData(DataSet dataSet, Path file, boolean compressed) throws IOException {
+        BinaryDataFileWriter writer = new BinaryDataFileWriter();
+        writer.setCompressed(compressed);
+        writer.write(DataConvertUtils.toData(dataSet), file);
+    }
+
 //    /**
 //     * Writes a dataset to file. The dataset may have continuous and/or discrete
 //     * columns. Note that <code>out</code> is not closed by this method, so
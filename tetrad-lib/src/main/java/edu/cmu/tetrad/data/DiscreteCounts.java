@@ -0,0 +1,532 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computes contingency counts over the discrete columns of a data set, for use by
+ * the discrete scores and independence tests. Each discrete column is indexed lazily
+ * as one bitmap per category; a count table is then built by intersecting bitmaps
+ * depth first, skipping any combination of values that is empty in the data, so that
+ * the work depends on the number of nonempty cells rather than on the number of rows.
+ * When a table has too many cells for this to pay off the rows are scanned instead.
+ * </p>
+ * Bitmap indexes and finished count tables are kept in a least-recently-used cache,
+ * so that the repeated queries made by a search are answered without recounting. The
+ * caches of all instances share one budget, set with <code>setMaxTotalBytes</code>;
+ * when it is exceeded, an instance evicts its own least recently used entries first
+ * and then those of the other instances. <code>setMaxBytes</code> further bounds a
+ * single instance. Rows with a missing value in any of the queried columns are not
+ * counted. This class is thread safe; the shared budget is kept as a running total, so
+ * caching an entry takes only the lock of the instance that caches it unless entries
+ * have to be evicted from the others.
+ *
+ * @author Joseph Ramsey
+ */
+public final class DiscreteCounts {
+
+    // Discrete columns of the data, null for columns that are not discrete.
+    private final int[][] data;
+
+    // Numbers of categories of the columns, 0 for columns that are not discrete.
+    private final int[] dims;
+
+    // Number of rows in the data.
+    private final int sampleSize;
+
+    // Number of 64 bit words in a bitmap over the rows.
+    private final int numWords;
+
+    // Whether each column contains a missing value.
+    private final boolean[] missing;
+
+    // Registrations of the live instances, to evict from when the shared budget is exceeded.
+    // An instance that has been garbage collected shows up on the queue, and the bytes it
+    // held are then taken off the total.
+    private static final Set<Registration> instances = ConcurrentHashMap.newKeySet();
+    private static final ReferenceQueue<DiscreteCounts> collected = new ReferenceQueue<>();
+
+    // Approximate number of bytes cached by all instances together.
+    private static final AtomicLong totalBytes = new AtomicLong();
+
+    // Upper bound on totalBytes.
+    private static volatile long maxTotalBytes = Runtime.getRuntime().maxMemory() / 4;
+
+    // Bitmap indexes (keyed by Integer column) and count tables (keyed by Key), in LRU order;
+    // guarded by this.
+    private final Map<Object, Object> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Approximate number of bytes held in the cache; guarded by this.
+    private long cachedBytes = 0;
+
+    // Upper bound on cachedBytes.
+    private volatile long maxBytes = Long.MAX_VALUE;
+
+    // Entry of this instance in instances.
+    private final Registration registration = new Registration(this);
+
+    /**
+     * Constructs counts over the discrete columns of the given data set. Continuous
+     * columns are ignored.
+     */
+    public DiscreteCounts(DataSet dataSet) {
+        if (dataSet == null) {
+            throw new NullPointerException("Data was not provided.");
+        }
+
+        List<Node> variables = dataSet.getVariables();
+        int[][] columns = null;
+
+        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof VerticalIntDataBox) {
+            columns = ((VerticalIntDataBox) ((BoxDataSet) dataSet).getDataBox()).getVariableVectors();
+        }
+
+        this.data = new int[variables.size()][];
+        this.dims = new int[variables.size()];
+
+        for (int j = 0; j < variables.size(); j++) {
+            if (!(variables.get(j) instanceof DiscreteVariable)) continue;
+
+            dims[j] = ((DiscreteVariable) variables.get(j)).getNumCategories();
+
+            if (columns != null) {
+                data[j] = columns[j];
+            } else {
+                data[j] = new int[dataSet.getNumRows()];
+
+                for (int i = 0; i < dataSet.getNumRows(); i++) {
+                    data[j][i] = dataSet.getInt(i, j);
+                }
+            }
+        }
+
+        this.sampleSize = dataSet.getNumRows();
+        this.numWords = (sampleSize + 63) >>> 6;
+        this.missing = findMissing(data);
+        instances.add(registration);
+    }
+
+    /**
+     * Constructs counts over the given columns.
+     *
+     * @param data Column-major discrete data, data[column][row]; missing values are
+     *             DiscreteVariable.MISSING_VALUE. The array is not copied.
+     * @param dims The number of categories of each column.
+     */
+    public DiscreteCounts(int[][] data, int[] dims) {
+        if (data.length != dims.length) {
+            throw new IllegalArgumentException("Expecting one dimension per column.");
+        }
+
+        this.data = data;
+        this.dims = Arrays.copyOf(dims, dims.length);
+        this.sampleSize = data.length == 0 ? 0 : data[0].length;
+        this.numWords = (sampleSize + 63) >>> 6;
+        this.missing = findMissing(data);
+        instances.add(registration);
+    }
+
+    /**
+     * Returns the joint counts of the given columns, flattened so that the last column
+     * varies fastest: the cell for values (v0, v1, ..., vk) is at
+     * ((v0 * dims[1] + v1) * dims[2] + ...) * dims[k] + vk. The returned array may be
+     * shared with other callers and must not be modified.
+     */
+    public int[] getCounts(int[] vars) {
+        Key key = new Key(vars);
+
+        synchronized (this) {
+            int[] counts = (int[]) cache.get(key);
+            if (counts != null) return counts;
+        }
+
+        int[] counts = count(vars);
+        put(key, counts);
+        return counts;
+    }
+
+    /**
+     * Returns the counts n_jk of the given child by the given parents, where j indexes
+     * the parent values (the first parent varying slowest) and k the child values; the
+     * count n_jk is at j * dims[child] + k. The returned array may be shared with other
+     * callers and must not be modified.
+     */
+    public int[] getCounts(int child, int[] parents) {
+        int[] vars = Arrays.copyOf(parents, parents.length + 1);
+        vars[parents.length] = child;
+        return getCounts(vars);
+    }
+
+    /**
+     * @return The number of categories of the given column.
+     */
+    public int getNumCategories(int var) {
+        return dims[var];
+    }
+
+    /**
+     * @return True if the given column contains a missing value.
+     */
+    public boolean hasMissingValues(int var) {
+        return missing[var];
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the approximate number of bytes of bitmap indexes and count tables that this
+     * instance may keep for reuse, within the shared budget. The default is no bound
+     * beyond the shared budget; 0 disables reuse.
+     */
+    public void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Max bytes must be >= 0: " + maxBytes);
+        }
+
+        synchronized (this) {
+            this.maxBytes = maxBytes;
+            evict(0);
+        }
+    }
+
+    public static long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    /**
+     * Sets the approximate number of bytes of bitmap indexes and count tables that all
+     * instances together may keep for reuse. The default is a quarter of the maximum heap
+     * size; 0 disables reuse.
+     */
+    public static void setMaxTotalBytes(long maxTotalBytes) {
+        if (maxTotalBytes < 0) {
+            throw new IllegalArgumentException("Max bytes must be >= 0: " + maxTotalBytes);
+        }
+
+        DiscreteCounts.maxTotalBytes = maxTotalBytes;
+        evictShared(null);
+    }
+
+    /**
+     * @return The approximate number of bytes cached by all instances together.
+     */
+    public static long getTotalBytes() {
+        expunge();
+        return totalBytes.get();
+    }
+
+    //===============================PRIVATE METHODS==============================//
+
+    private int[] count(int[] vars) {
+        long numCells = 1;
+
+        for (int var : vars) {
+            if (dims[var] < 1) {
+                throw new IllegalArgumentException("Not a discrete column: " + var);
+            }
+
+            numCells *= dims[var];
+
+            if (numCells > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many cells in the count table.");
+            }
+        }
+
+        int[] counts = new int[(int) numCells];
+
+        if (vars.length == 0) {
+            counts[0] = sampleSize;
+        } else if (useBitmaps(vars)) {
+            long[][][] index = new long[vars.length][][];
+
+            for (int d = 0; d < vars.length; d++) {
+                index[d] = getBitmaps(vars[d]);
+            }
+
+            countBitmaps(vars, index, 0, null, 0, numWords, 0, counts, new long[vars.length][]);
+        } else {
+            countRows(vars, counts);
+        }
+
+        return counts;
+    }
+
+    // Intersecting bitmaps costs a pass over the words of the bitmaps for each nonempty
+    // combination of values of all but the last column; scanning costs a pass over the
+    // rows for each column. The bitmaps for all of the columns also have to fit in the cache.
+    private boolean useBitmaps(int[] vars) {
+        long bytes = 0;
+        long cost = 0;
+        long prefixes = 1;
+
+        for (int var : vars) {
+            bytes += 8L * dims[var] * numWords;
+            cost += Math.min(prefixes, sampleSize) * dims[var] * numWords;
+            prefixes *= dims[var];
+        }
+
+        if (bytes > Math.min(maxBytes, maxTotalBytes) / 2) return false;
+
+        return cost < (long) sampleSize * vars.length;
+    }
+
+    private void countBitmaps(int[] vars, long[][][] index, int depth, long[] mask, int from, int to,
+                              int cell, int[] counts, long[][] buffers) {
+        long[][] bitmaps = index[depth];
+        int dim = dims[vars[depth]];
+
+        if (depth == vars.length - 1) {
+            for (int c = 0; c < dim; c++) {
+                long[] bitmap = bitmaps[c];
+                int n = 0;
+
+                if (mask == null) {
+                    for (int w = from; w < to; w++) n += Long.bitCount(bitmap[w]);
+                } else {
+                    for (int w = from; w < to; w++) n += Long.bitCount(mask[w] & bitmap[w]);
+                }
+
+                counts[cell * dim + c] = n;
+            }
+
+            return;
+        }
+
+        if (buffers[depth] == null) buffers[depth] = new long[numWords];
+        long[] buffer = buffers[depth];
+
+        for (int c = 0; c < dim; c++) {
+            long[] bitmap = bitmaps[c];
+            int first = -1;
+            int last = -1;
+
+            for (int w = from; w < to; w++) {
+                long x = mask == null ? bitmap[w] : mask[w] & bitmap[w];
+                buffer[w] = x;
+
+                if (x != 0) {
+                    if (first == -1) first = w;
+                    last = w;
+                }
+            }
+
+            if (first == -1) continue;
+
+            countBitmaps(vars, index, depth + 1, buffer, first, last + 1, cell * dim + c, counts, buffers);
+        }
+    }
+
+    private void countRows(int[] vars, int[] counts) {
+        int[][] columns = new int[vars.length][];
+        int[] _dims = new int[vars.length];
+
+        for (int d = 0; d < vars.length; d++) {
+            columns[d] = data[vars[d]];
+            _dims[d] = dims[vars[d]];
+        }
+
+        ROW:
+        for (int i = 0; i < sampleSize; i++) {
+            int cell = 0;
+
+            for (int d = 0; d < columns.length; d++) {
+                int value = columns[d][i];
+                if (value == DiscreteVariable.MISSING_VALUE) continue ROW;
+                cell = cell * _dims[d] + value;
+            }
+
+            counts[cell]++;
+        }
+    }
+
+    private long[][] getBitmaps(int var) {
+        Integer key = var;
+
+        synchronized (this) {
+            long[][] bitmaps = (long[][]) cache.get(key);
+            if (bitmaps != null) return bitmaps;
+        }
+
+        long[][] bitmaps = new long[dims[var]][numWords];
+        int[] column = data[var];
+
+        for (int i = 0; i < sampleSize; i++) {
+            int value = column[i];
+            if (value == DiscreteVariable.MISSING_VALUE) continue;
+            bitmaps[value][i >>> 6] |= 1L << i;
+        }
+
+        put(key, bitmaps);
+        return bitmaps;
+    }
+
+    private void put(Object key, Object value) {
+        long bytes = sizeOf(value);
+
+        synchronized (this) {
+            if (bytes > maxBytes || bytes > maxTotalBytes || cache.containsKey(key)) return;
+            evict(bytes);
+            cache.put(key, value);
+            add(bytes);
+        }
+
+        expunge();
+
+        if (totalBytes.get() > maxTotalBytes) {
+            evictShared(this);
+        }
+    }
+
+    // Removes least recently used entries until the given number of bytes more will fit
+    // under the bound for this instance. Called holding the lock on this.
+    private void evict(long bytes) {
+        Iterator<Map.Entry<Object, Object>> entries = cache.entrySet().iterator();
+
+        while (cachedBytes + bytes > maxBytes && entries.hasNext()) {
+            Map.Entry<Object, Object> entry = entries.next();
+            add(-sizeOf(entry.getValue()));
+            entries.remove();
+        }
+    }
+
+    // Removes entries until the total is back under the shared budget, taking them from
+    // the given instance first (if not null) and then from the others. Called holding no
+    // locks, so that at most one instance is locked at a time.
+    private static void evictShared(DiscreteCounts first) {
+        if (first != null) {
+            first.evictShared();
+        }
+
+        for (Registration registration : instances) {
+            if (totalBytes.get() <= maxTotalBytes) break;
+            DiscreteCounts counts = registration.get();
+            if (counts != null && counts != first) counts.evictShared();
+        }
+    }
+
+    // Removes least recently used entries of this instance until the total is back under
+    // the shared budget.
+    private synchronized void evictShared() {
+        Iterator<Map.Entry<Object, Object>> entries = cache.entrySet().iterator();
+
+        while (totalBytes.get() > maxTotalBytes && entries.hasNext()) {
+            Map.Entry<Object, Object> entry = entries.next();
+            add(-sizeOf(entry.getValue()));
+            entries.remove();
+        }
+    }
+
+    // Called holding the lock on this.
+    private void add(long bytes) {
+        cachedBytes += bytes;
+        registration.bytes = cachedBytes;
+        totalBytes.addAndGet(bytes);
+    }
+
+    // Takes the bytes held by instances that have been garbage collected off the total.
+    private static void expunge() {
+        Reference<? extends DiscreteCounts> reference;
+
+        while ((reference = collected.poll()) != null) {
+            Registration registration = (Registration) reference;
+
+            if (instances.remove(registration)) {
+                totalBytes.addAndGet(-registration.bytes);
+            }
+        }
+    }
+
+    private long sizeOf(Object value) {
+        if (value instanceof int[]) {
+            return 4L * ((int[]) value).length + 64;
+        }
+
+        long[][] bitmaps = (long[][]) value;
+        return 8L * bitmaps.length * numWords + 16L * bitmaps.length + 64;
+    }
+
+    private static boolean[] findMissing(int[][] data) {
+        boolean[] missing = new boolean[data.length];
+
+        for (int j = 0; j < data.length; j++) {
+            if (data[j] == null) continue;
+
+            for (int value : data[j]) {
+                if (value == DiscreteVariable.MISSING_VALUE) {
+                    missing[j] = true;
+                    break;
+                }
+            }
+        }
+
+        return missing;
+    }
+
+    // Outlives its instance, so that the bytes the instance held can be accounted for.
+    private static final class Registration extends WeakReference<DiscreteCounts> {
+        private volatile long bytes = 0;
+
+        Registration(DiscreteCounts counts) {
+            super(counts, collected);
+        }
+    }
+
+    private static final class Key {
+        private final int[] vars;
+        private final int hashCode;
+
+        Key(int[] vars) {
+            this.vars = Arrays.copyOf(vars, vars.length);
+            this.hashCode = Arrays.hashCode(vars);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(vars, ((Key) o).vars);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * A view of the rows of another data box, given as an array of row indices into
+ * it. Indices may repeat, so a bootstrap sample can be represented by the array
+ * of rows drawn, without copying any data; the memory used is one int per row
+ * of the view.
+ * <p>
+ * The underlying box is shared, not copied. The first call to set() therefore
+ * copies the selected rows into a box of their own (of the underlying box's
+ * type), and the view reads from and writes to that copy from then on, so that
+ * the underlying box is never modified through a view. Methods that return new
+ * boxes (copy(), like(), viewSelection()) return boxes of the underlying type.
+ *
+ * @author Joseph Ramsey
+ */
+public class IndexedDataBox implements DataBox {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * The box whose rows are viewed.
+     */
+    private final DataBox dataBox;
+
+    /**
+     * rows[i] is the row of dataBox that is row i of this box.
+     */
+    private final int[] rows;
+
+    /**
+     * The copy of the viewed rows made by the first call to set(), or null.
+     */
+    private volatile DataBox copied = null;
+
+    /**
+     * @param dataBox The box whose rows are viewed. Not copied.
+     * @param rows    The rows of dataBox to view, in order; may contain repeats.
+     */
+    public IndexedDataBox(DataBox dataBox, int[] rows) {
+        if (dataBox == null) throw new NullPointerException("Data box must not be null.");
+        if (rows == null) throw new NullPointerException("Rows must not be null.");
+
+        for (int row : rows) {
+            if (row < 0 || row >= dataBox.numRows()) {
+                throw new IllegalArgumentException("Row out of range: " + row);
+            }
+        }
+
+        // Views of unmodified views index straight into the underlying box.
+        if (dataBox instanceof IndexedDataBox && ((IndexedDataBox) dataBox).copied == null) {
+            IndexedDataBox view = (IndexedDataBox) dataBox;
+            int[] _rows = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) _rows[i] = view.rows[rows[i]];
+            dataBox = view.dataBox;
+            rows = _rows;
+        }
+
+        this.dataBox = dataBox;
+        this.rows = rows;
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static BoxDataSet serializableInstance() {
+        List<Node> vars = new ArrayList<>();
+        for (int i = 0; i < 4; i++) vars.add(new ContinuousVariable("X" + i));
+        return new BoxDataSet(new IndexedDataBox(new VerticalDoubleDataBox(4, 4), new int[]{0, 0, 1, 3}), vars);
+    }
+
+    /**
+     * @return the number of rows in this data box.
+     */
+    public int numRows() {
+        return rows.length;
+    }
+
+    /**
+     * @return the number of columns in this data box.
+     */
+    public int numCols() {
+        return dataBox.numCols();
+    }
+
+    /**
+     * Sets the value at the given row/column to the given Number value. The
+     * first call copies the viewed rows out of the underlying box.
+     */
+    public synchronized void set(int row, int col, Number value) {
+        if (copied == null) {
+            copied = dataBox.viewSelection(rows, allColumns());
+        }
+
+        copied.set(row, col, value);
+    }
+
+    /**
+     * @return the Number value at the given row and column. If the value
+     * is missing, null is returned.
+     */
+    public Number get(int row, int col) {
+        DataBox copied = this.copied;
+        return copied == null ? dataBox.get(rows[row], col) : copied.get(row, col);
+    }
+
+    /**
+     * @return a copy of this data box, of the type of the underlying box.
+     */
+    public DataBox copy() {
+        DataBox copied = this.copied;
+        return copied == null ? dataBox.viewSelection(rows, allColumns()) : copied.copy();
+    }
+
+    /**
+     * @return a copy of this data box, of the type of the underlying box.
+     */
+    public DataBox like() {
+        return copy();
+    }
+
+    /**
+     * @return this data box, restricted to the given rows and columns, copied
+     * into a box of the type of the underlying box.
+     */
+    @Override
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        DataBox copied = this.copied;
+        if (copied != null) return copied.viewSelection(rows, cols);
+
+        int[] _rows = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) _rows[i] = this.rows[rows[i]];
+        return dataBox.viewSelection(_rows, cols);
+    }
+
+    private int[] allColumns() {
+        int[] cols = new int[dataBox.numCols()];
+        for (int j = 0; j < cols.length; j++) cols[j] = j;
+        return cols;
+    }
+}
@@ -0,0 +1,416 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores a 2D array of double data in a memory-mapped file, column by column,
+ * so that data sets larger than the heap can be wrapped by a BoxDataSet. Only
+ * the pages actually touched are brought into memory, and the operating system
+ * may drop them again under memory pressure.
+ * <p>
+ * The file layout is a 32-byte header followed by the columns:
+ * <pre>
+ *     int magic ('TDBX'), int version (1), int numRows, int numCols, 16 bytes reserved,
+ *     column 0 (numRows doubles), column 1 (numRows doubles), ...
+ * </pre>
+ * All values are little-endian. Missing values are stored as NaN. Discrete
+ * columns are stored as the double values of their category indices, as in
+ * DoubleDataBox.
+ * <p>
+ * Values are read and written through the mapping, so changes made with set()
+ * go to the file. Methods that return new boxes (copy(), like(), viewSelection())
+ * return on-heap VerticalDoubleDataBoxes.
+ *
+ * @author Joseph Ramsey
+ */
+public class MappedDoubleDataBox implements DataBox {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * 'TDBX'.
+     */
+    public static final int MAGIC = 0x54444258;
+
+    /**
+     * The version of the file layout written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header in bytes; the first column starts here.
+     */
+    public static final int HEADER_SIZE = 32;
+
+    // A mapping may not exceed Integer.MAX_VALUE bytes, so the data are mapped in
+    // regions of 2^REGION_SHIFT doubles (1 GB) that run on from one column into the
+    // next. The number of mappings depends only on the size of the file, not on the
+    // number of columns, which keeps wide data sets under vm.max_map_count.
+    private static final int REGION_SHIFT = 27;
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+
+    /**
+     * The backing file.
+     *
+     * @serial
+     */
+    private final File file;
+
+    /**
+     * True if the file is mapped read-only.
+     *
+     * @serial
+     */
+    private final boolean readOnly;
+
+    /**
+     * @serial
+     */
+    private int numRows;
+
+    /**
+     * @serial
+     */
+    private int numCols;
+
+    // regions[r] maps doubles r * 2^REGION_SHIFT onward of the data, where the value at
+    // (row, col) is double col * numRows + row.
+    private transient DoubleBuffer[] regions;
+
+    private MappedDoubleDataBox(File file, boolean readOnly) throws IOException {
+        this.file = file;
+        this.readOnly = readOnly;
+        map();
+    }
+
+    /**
+     * Creates a new file of the given dimensions, filled with missing values, and maps it
+     * read-write. An existing file is overwritten.
+     */
+    public static MappedDoubleDataBox create(File file, int numRows, int numCols) throws IOException {
+        if (numRows < 0) throw new IllegalArgumentException("Rows must be >= 0: " + numRows);
+        if (numCols < 0) throw new IllegalArgumentException("Columns must be >= 0: " + numCols);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.setLength(HEADER_SIZE + 8L * numRows * numCols);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(numRows).putInt(numCols);
+            header.rewind();
+            raf.getChannel().write(header, 0);
+        }
+
+        MappedDoubleDataBox box = new MappedDoubleDataBox(file, false);
+
+        double[] missing = new double[4096];
+        Arrays.fill(missing, Double.NaN);
+
+        for (DoubleBuffer region : box.regions) {
+            DoubleBuffer _region = region.duplicate();
+            _region.position(0);
+
+            while (_region.hasRemaining()) {
+                _region.put(missing, 0, Math.min(missing.length, _region.remaining()));
+            }
+        }
+
+        return box;
+    }
+
+    /**
+     * Maps an existing file written by create().
+     *
+     * @param readOnly true if the file should be mapped read-only, in which case set()
+     *                 throws an exception.
+     */
+    public static MappedDoubleDataBox open(File file, boolean readOnly) throws IOException {
+        return new MappedDoubleDataBox(file, readOnly);
+    }
+
+    /**
+     * Writes the given column-major data (data[col][row]) to a new file and maps it.
+     */
+    public static MappedDoubleDataBox create(File file, double[][] data) throws IOException {
+        int numRows = data.length == 0 ? 0 : data[0].length;
+        MappedDoubleDataBox box = create(file, numRows, data.length);
+
+        for (int j = 0; j < data.length; j++) {
+            box.setColumn(j, data[j]);
+        }
+
+        return box;
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static BoxDataSet serializableInstance() {
+        List<Node> vars = new ArrayList<>();
+        for (int i = 0; i < 4; i++) vars.add(new ContinuousVariable("X" + i));
+        return new BoxDataSet(new ShortDataBox(4, 4), vars);
+    }
+
+    /**
+     * @return the number of rows in this data box.
+     */
+    public int numRows() {
+        return numRows;
+    }
+
+    /**
+     * @return the number of columns in this data box.
+     */
+    public int numCols() {
+        return numCols;
+    }
+
+    /**
+     * Sets the value at the given row/column to the given Number value.
+     * The value used is number.doubleValue(); null is stored as NaN.
+     */
+    public void set(int row, int col, Number value) {
+        if (readOnly) {
+            throw new IllegalArgumentException("This data box is mapped read-only: " + file);
+        }
+
+        long index = index(row, col);
+        regions[(int) (index >>> REGION_SHIFT)].put((int) (index & REGION_MASK),
+                value == null ? Double.NaN : value.doubleValue());
+    }
+
+    /**
+     * @return the Number value at the given row and column. If the value
+     * is missing (NaN), null is returned.
+     */
+    public Number get(int row, int col) {
+        double value = getDouble(row, col);
+        return Double.isNaN(value) ? null : value;
+    }
+
+    /**
+     * @return the value at the given row and column, NaN if missing.
+     */
+    public double getDouble(int row, int col) {
+        long index = index(row, col);
+        return regions[(int) (index >>> REGION_SHIFT)].get((int) (index & REGION_MASK));
+    }
+
+    /**
+     * Copies rows from, from + 1, ..., from + length - 1 of the given column into
+     * dest[0], ..., dest[length - 1]. This is the way to stream a column.
+     */
+    public void readColumn(int col, int from, double[] dest, int length) {
+        if (from < 0 || length < 0 || from + length > numRows || length > dest.length) {
+            throw new IllegalArgumentException("Rows " + from + " to " + (from + length)
+                    + " out of range for " + numRows + " rows.");
+        }
+
+        int done = 0;
+
+        while (done < length) {
+            DoubleBuffer region = region(index(from + done, col));
+            int n = Math.min(length - done, region.remaining());
+            region.get(dest, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * @return a new on-heap array with the values of the given column.
+     */
+    public double[] getColumn(int col) {
+        double[] column = new double[numRows];
+        readColumn(col, 0, column, numRows);
+        return column;
+    }
+
+    /**
+     * Writes the given values into the given column, starting at row 0.
+     */
+    public void setColumn(int col, double[] values) {
+        if (readOnly) {
+            throw new IllegalArgumentException("This data box is mapped read-only: " + file);
+        }
+
+        if (values.length != numRows) {
+            throw new IllegalArgumentException("Expecting " + numRows + " values, not " + values.length);
+        }
+
+        writeColumn(col, 0, values, numRows);
+    }
+
+    /**
+     * Copies src[0], ..., src[length - 1] into rows from, from + 1, ..., from + length - 1
+     * of the given column. This is the way to write a column in pieces; different threads
+     * may write disjoint pieces at the same time.
+     */
+    public void writeColumn(int col, int from, double[] src, int length) {
+        if (readOnly) {
+            throw new IllegalArgumentException("This data box is mapped read-only: " + file);
+        }
+
+        if (from < 0 || length < 0 || from + length > numRows || length > src.length) {
+            throw new IllegalArgumentException("Rows " + from + " to " + (from + length)
+                    + " out of range for " + numRows + " rows.");
+        }
+
+        int done = 0;
+
+        while (done < length) {
+            DoubleBuffer region = region(index(from + done, col));
+            int n = Math.min(length - done, region.remaining());
+            region.put(src, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * @return the backing file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return a copy of this data box, on the heap.
+     */
+    public DataBox copy() {
+        double[][] data = new double[numCols][];
+
+        for (int j = 0; j < numCols; j++) {
+            data[j] = getColumn(j);
+        }
+
+        return new VerticalDoubleDataBox(data);
+    }
+
+    /**
+     * @return a DataBox of type VerticalDoubleDataBox, but with the given
+     * dimensions.
+     */
+    public DataBox like() {
+        return new VerticalDoubleDataBox(numRows, numCols);
+    }
+
+    @Override
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        DataBox box = new VerticalDoubleDataBox(rows.length, cols.length);
+
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < cols.length; j++) {
+                box.set(i, j, get(rows[i], cols[j]));
+            }
+        }
+
+        return box;
+    }
+
+    private void map() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, readOnly ? "r" : "rw")) {
+            FileChannel channel = raf.getChannel();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            if (channel.size() < HEADER_SIZE || channel.read(header, 0) < HEADER_SIZE) {
+                throw new IOException("Not a mapped data box file: " + file);
+            }
+
+            header.rewind();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a mapped data box file: " + file);
+            }
+
+            int version = header.getInt();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported mapped data box version " + version + ": " + file);
+            }
+
+            numRows = header.getInt();
+            numCols = header.getInt();
+
+            if (numRows < 0 || numCols < 0 || channel.size() < HEADER_SIZE + 8L * numRows * numCols) {
+                throw new IOException("Truncated mapped data box file: " + file);
+            }
+
+            FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+            long size = (long) numRows * numCols;
+            int numRegions = (int) ((size + REGION_MASK) >>> REGION_SHIFT);
+            regions = new DoubleBuffer[numRegions];
+
+            for (int r = 0; r < numRegions; r++) {
+                long first = (long) r << REGION_SHIFT;
+                long length = Math.min(size - first, REGION_MASK + 1L);
+
+                regions[r] = channel.map(mode, HEADER_SIZE + 8L * first, 8L * length)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+        }
+    }
+
+    private long index(int row, int col) {
+        return (long) col * numRows + row;
+    }
+
+    // A view of the region holding the given index, positioned at that index.
+    private DoubleBuffer region(long index) {
+        DoubleBuffer region = regions[(int) (index >>> REGION_SHIFT)].duplicate();
+        region.position((int) (index & REGION_MASK));
+        return region;
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method
+     * must have the standard signature for a readObject method, and the body of
+     * the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from
+     * version to version. A readObject method of this form may be added to any
+     * class, even if Tetrad sessions were previously saved out using a version
+     * of the class that didn't include it. (That's what the
+     * "s.defaultReadObject();" is for. See J. Bloch, Effective Java, for help.
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        if (file == null) {
+            throw new NullPointerException();
+        }
+
+        map();
+    }
+}
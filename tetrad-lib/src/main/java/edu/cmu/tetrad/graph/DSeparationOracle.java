@@ -0,0 +1,377 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.graph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers d-separation queries for a fixed graph by reachability (in the manner of Shachter's Bayes-ball) over an
+ * integer-indexed copy of its edges, in time linear in the size of the graph per query. The search visits each pair
+ * of (node, whether it was entered through an arrowhead) at most once, passing through a non-collider not in z, and
+ * through a collider only if it is an ancestor of some node in z. The ancestors of each conditioning node are found
+ * once, as a bitset over node ids, and cached, so that the repeated conditioning sets of a search cost little.
+ * <p>
+ * The answers agree with GraphUtils.isDConnectedTo, including for graphs with bidirected or undirected edges. For
+ * graphs with underlined triples the graph's own isDConnectedTo is used instead. The graph is copied when the
+ * oracle is made; isStale() tells whether its nodes or edges (endpoints included) have changed since. Queries may
+ * be made from several threads at once.
+ *
+ * @author Joseph Ramsey
+ */
+public class DSeparationOracle {
+
+    // The cache of ancestor sets is cleared when it would hold more than this many longs.
+    private static final int MAX_CACHED_WORDS = 1 << 23;
+
+    // The graph this oracle answers for.
+    private final Graph graph;
+
+    // The nodes of the graph, by id.
+    private final Node[] nodes;
+
+    // The ids of the nodes.
+    private final Map<Node, Integer> ids;
+
+    // nbrs[i][k] is the id of the k'th neighbor of node i, through an edge with arrowAt[i][k] true if the
+    // endpoint at node i is an arrow, and arrowAway[i][k] true if the endpoint at the neighbor is an arrow.
+    private final int[][] nbrs;
+    private final boolean[][] arrowAt;
+    private final boolean[][] arrowAway;
+
+    // parents[i] are the ids of the nodes with a directed edge into node i.
+    private final int[][] parents;
+
+    // The edges of the graph when the oracle was made.
+    private final Edge[] edges;
+
+    // True if the graph has underlined triples, which this oracle does not handle.
+    private final boolean underlines;
+
+    // Ancestor sets of single nodes, by id.
+    private final Map<Integer, long[]> ancestorSets = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an oracle for the given graph.
+     */
+    public DSeparationOracle(Graph graph) {
+        if (graph == null) {
+            throw new NullPointerException("Graph not specified.");
+        }
+
+        this.graph = graph;
+
+        List<Node> _nodes = graph.getNodes();
+        int p = _nodes.size();
+        this.nodes = _nodes.toArray(new Node[p]);
+        this.ids = new HashMap<>();
+
+        for (int i = 0; i < p; i++) {
+            ids.put(nodes[i], i);
+        }
+
+        int[] degree = new int[p];
+        int[] indegree = new int[p];
+        Set<Edge> edges = graph.getEdges();
+
+        for (Edge edge : edges) {
+            int i = id(edge.getNode1());
+            int j = id(edge.getNode2());
+            if (i == j) continue;
+            degree[i]++;
+            degree[j]++;
+            if (edge.getEndpoint1() == Endpoint.TAIL && edge.getEndpoint2() == Endpoint.ARROW) indegree[j]++;
+            if (edge.getEndpoint2() == Endpoint.TAIL && edge.getEndpoint1() == Endpoint.ARROW) indegree[i]++;
+        }
+
+        this.nbrs = new int[p][];
+        this.arrowAt = new boolean[p][];
+        this.arrowAway = new boolean[p][];
+        this.parents = new int[p][];
+
+        for (int i = 0; i < p; i++) {
+            nbrs[i] = new int[degree[i]];
+            arrowAt[i] = new boolean[degree[i]];
+            arrowAway[i] = new boolean[degree[i]];
+            parents[i] = new int[indegree[i]];
+            degree[i] = 0;
+            indegree[i] = 0;
+        }
+
+        for (Edge edge : edges) {
+            int i = id(edge.getNode1());
+            int j = id(edge.getNode2());
+            if (i == j) continue;
+            Endpoint e1 = edge.getEndpoint1();
+            Endpoint e2 = edge.getEndpoint2();
+
+            nbrs[i][degree[i]] = j;
+            arrowAt[i][degree[i]] = e1 == Endpoint.ARROW;
+            arrowAway[i][degree[i]++] = e2 == Endpoint.ARROW;
+
+            nbrs[j][degree[j]] = i;
+            arrowAt[j][degree[j]] = e2 == Endpoint.ARROW;
+            arrowAway[j][degree[j]++] = e1 == Endpoint.ARROW;
+
+            if (e1 == Endpoint.TAIL && e2 == Endpoint.ARROW) parents[j][indegree[j]++] = i;
+            if (e2 == Endpoint.TAIL && e1 == Endpoint.ARROW) parents[i][indegree[i]++] = j;
+        }
+
+        this.edges = edges.toArray(new Edge[edges.size()]);
+        this.underlines = !graph.getUnderLines().isEmpty();
+    }
+
+    /**
+     * @return true iff x is d-connected to y given z.
+     */
+    public boolean isDConnectedTo(Node x, Node y, List<Node> z) {
+        if (underlines) {
+            return graph.isDConnectedTo(x, y, z);
+        }
+
+        if (x == y) {
+            return true;
+        }
+
+        return reach(id(x), id(y), z) == null;
+    }
+
+    /**
+     * @return true iff x is d-separated from y given z.
+     */
+    public boolean isDSeparatedFrom(Node x, Node y, List<Node> z) {
+        return !isDConnectedTo(x, y, z);
+    }
+
+    /**
+     * @return the nodes, other than x, that are d-connected to x given z, in the order of the graph's nodes. This
+     * takes a single search, however many nodes there are.
+     */
+    public List<Node> getDConnectedNodes(Node x, List<Node> z) {
+        List<Node> dConnected = new ArrayList<>();
+
+        if (underlines) {
+            for (Node y : nodes) {
+                if (y != x && graph.isDConnectedTo(x, y, z)) {
+                    dConnected.add(y);
+                }
+            }
+
+            return dConnected;
+        }
+
+        int _x = id(x);
+        boolean[] reached = reach(_x, -1, z);
+
+        for (int i = 0; i < nodes.length; i++) {
+            if (reached[i] && i != _x) {
+                dConnected.add(nodes[i]);
+            }
+        }
+
+        return dConnected;
+    }
+
+    /**
+     * @return the graph this oracle answers for.
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return true if the graph no longer has the nodes and edges it had when this oracle was made, in which case
+     * the oracle's answers may be out of date. Edges are compared with their endpoints, so reorienting an edge, or
+     * swapping one edge for another, makes the oracle stale. This takes time linear in the size of the graph, as a
+     * query does.
+     */
+    public boolean isStale() {
+        if (graph.getNumNodes() != nodes.length || graph.getNumEdges() != edges.length) {
+            return true;
+        }
+
+        for (Node node : nodes) {
+            if (!graph.containsNode(node)) return true;
+        }
+
+        for (Edge edge : edges) {
+            if (!graph.containsEdge(edge)) return true;
+        }
+
+        return false;
+    }
+
+    //==============================PRIVATE METHODS===========================//
+
+    private int id(Node node) {
+        Integer id = ids.get(node);
+
+        if (id == null) {
+            throw new IllegalArgumentException("Node not in graph: " + node);
+        }
+
+        return id;
+    }
+
+    /**
+     * Searches from x given z, stopping if y is reached. A state is a node together with whether it was entered
+     * through an arrowhead, numbered 2 * node + (1 if so). As in GraphUtils.isDConnectedTo, the search never steps
+     * straight back to the node it came from, so a state entered from one node goes on to all neighbors but that
+     * one; if it is entered again from a different node, it goes on to that one as well, and is then done. Each
+     * state is thus expanded at most twice.
+     *
+     * @return null if y was reached, otherwise the nodes reached.
+     */
+    private boolean[] reach(int x, int y, List<Node> z) {
+        int p = nodes.length;
+        boolean[] inZ = new boolean[p];
+
+        for (Node node : z) {
+            if (node == null) throw new NullPointerException();
+            inZ[id(node)] = true;
+        }
+
+        boolean[] reached = new boolean[p];
+
+        // The node a state was first entered from, or -1 if not yet entered; and whether it has been entered from
+        // a second node.
+        int[] from = new int[2 * p];
+        boolean[] done = new boolean[2 * p];
+        Arrays.fill(from, -1);
+
+        // Each entry is a state and either the one neighbor to skip or, complemented, the one neighbor to go to.
+        int[] queue = new int[8 * p];
+        int head = 0;
+        int tail = 0;
+        long[] zAncestors = null;
+
+        for (int k = 0; k < nbrs[x].length; k++) {
+            int c = nbrs[x][k];
+            if (c == y) return null;
+            int state = 2 * c + (arrowAway[x][k] ? 1 : 0);
+
+            if (from[state] == -1) {
+                from[state] = x;
+                reached[c] = true;
+                queue[tail++] = state;
+                queue[tail++] = x;
+            }
+        }
+
+        while (head < tail) {
+            int state = queue[head++];
+            int a = queue[head++];
+            boolean only = a < 0;
+            if (only) a = ~a;
+            int b = state >> 1;
+            boolean intoB = (state & 1) == 1;
+            int[] _nbrs = nbrs[b];
+            boolean[] _arrowAt = arrowAt[b];
+            boolean[] _arrowAway = arrowAway[b];
+
+            for (int k = 0; k < _nbrs.length; k++) {
+                int c = _nbrs[k];
+
+                if (only ? c != a : c == a) continue;
+
+                if (intoB && _arrowAt[k]) {
+                    if (zAncestors == null) {
+                        zAncestors = ancestorsOf(inZ);
+                    }
+
+                    if ((zAncestors[b >> 6] & (1L << b)) == 0) continue;
+                } else if (inZ[b]) {
+                    continue;
+                }
+
+                if (c == y) return null;
+                int next = 2 * c + (_arrowAway[k] ? 1 : 0);
+
+                if (from[next] == -1) {
+                    from[next] = b;
+                    reached[c] = true;
+                    queue[tail++] = next;
+                    queue[tail++] = b;
+                } else if (!done[next] && from[next] != b) {
+                    done[next] = true;
+                    queue[tail++] = next;
+                    queue[tail++] = ~from[next];
+                }
+            }
+        }
+
+        return reached;
+    }
+
+    /**
+     * @return the ids of the nodes that are ancestors of some node in z (including z itself) as a bitset.
+     */
+    private long[] ancestorsOf(boolean[] inZ) {
+        long[] ancestors = new long[(nodes.length + 63) >> 6];
+
+        for (int i = 0; i < inZ.length; i++) {
+            if (inZ[i]) {
+                long[] _ancestors = ancestorSet(i);
+
+                for (int w = 0; w < ancestors.length; w++) {
+                    ancestors[w] |= _ancestors[w];
+                }
+            }
+        }
+
+        return ancestors;
+    }
+
+    /**
+     * @return the ids of the ancestors of the given node as a bitset.
+     */
+    private long[] ancestorSet(int id) {
+        long[] ancestors = ancestorSets.get(id);
+
+        if (ancestors != null) return ancestors;
+
+        ancestors = new long[(nodes.length + 63) >> 6];
+        int[] stack = new int[16];
+        int top = 0;
+
+        ancestors[id >> 6] |= 1L << id;
+        stack[top++] = id;
+
+        while (top > 0) {
+            for (int parent : parents[stack[--top]]) {
+                if ((ancestors[parent >> 6] & (1L << parent)) == 0) {
+                    ancestors[parent >> 6] |= 1L << parent;
+                    if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+                    stack[top++] = parent;
+                }
+            }
+        }
+
+        if ((long) (ancestorSets.size() + 1) * ancestors.length > MAX_CACHED_WORDS) {
+            ancestorSets.clear();
+        }
+
+        ancestorSets.put(id, ancestors);
+        return ancestors;
+    }
+}
@@ -0,0 +1,715 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.graph;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An EdgeListGraph that also keeps, for each node, arrays of its neighbors (as integer node ids), of the edges to
+ * them, and of the endpoints at both ends of those edges, so that the queries searches make most often
+ * (isAdjacentTo, getAdjacentNodes, getEdge, getEndpoint, getParents, getChildren, isParentOf, isAncestorOf) are
+ * answered by scanning a short primitive array rather than by traversing Edge objects and hashing nodes. Ancestor
+ * sets are computed as bitsets over node ids and cached until a directed edge is added or removed; changes to
+ * other edges (e.g. o-o to o->) keep the cache.
+ * <p>
+ * At most one edge may connect two nodes; adding a second, different edge between adjacent nodes throws an
+ * IllegalArgumentException. The per-node arrays are copy-on-write, as are the edge lists of EdgeListGraph, so a
+ * copy made with the copy constructor shares them with the original and costs time linear in the number of nodes
+ * and edges, with no Edge objects or arrays copied; and readers running alongside a single writer always see a
+ * consistent neighborhood for each node, since neighborhoods are immutable and are published through volatile
+ * fields. (While an edge is being changed, a reader may see the new neighborhood of one of its nodes and the old
+ * one of the other.)
+ *
+ * @author Joseph Ramsey
+ */
+public class IndexedEdgeListGraph extends EdgeListGraph {
+    static final long serialVersionUID = 23L;
+
+    // The cache of ancestor sets is cleared when it would hold more than this many longs.
+    private static final int MAX_CACHED_WORDS = 1 << 23;
+
+    /**
+     * The neighborhood of a node. Never modified once made.
+     */
+    private static final class Row implements java.io.Serializable {
+        static final long serialVersionUID = 23L;
+
+        static final Row EMPTY = new Row(new int[0], new Edge[0], new Endpoint[0], new Endpoint[0]);
+
+        // The ids of the neighbors.
+        final int[] nbrs;
+
+        // edges[k] connects the node to nbrs[k].
+        final Edge[] edges;
+
+        // The endpoint of edges[k] at the node.
+        final Endpoint[] near;
+
+        // The endpoint of edges[k] at nbrs[k].
+        final Endpoint[] far;
+
+        Row(int[] nbrs, Edge[] edges, Endpoint[] near, Endpoint[] far) {
+            this.nbrs = nbrs;
+            this.edges = edges;
+            this.near = near;
+            this.far = far;
+        }
+
+        int indexOf(int nbr) {
+            for (int k = 0; k < nbrs.length; k++) {
+                if (nbrs[k] == nbr) return k;
+            }
+
+            return -1;
+        }
+
+        // The arrays of a new row are filled in before it is constructed, so that the freeze of its final
+        // fields covers their contents.
+        Row plus(int nbr, Edge edge, Endpoint near, Endpoint far) {
+            int n = nbrs.length;
+            int[] _nbrs = Arrays.copyOf(nbrs, n + 1);
+            Edge[] _edges = Arrays.copyOf(edges, n + 1);
+            Endpoint[] _near = Arrays.copyOf(this.near, n + 1);
+            Endpoint[] _far = Arrays.copyOf(this.far, n + 1);
+            _nbrs[n] = nbr;
+            _edges[n] = edge;
+            _near[n] = near;
+            _far[n] = far;
+            return new Row(_nbrs, _edges, _near, _far);
+        }
+
+        Row minus(int k) {
+            int n = nbrs.length;
+            int[] _nbrs = new int[n - 1];
+            Edge[] _edges = new Edge[n - 1];
+            Endpoint[] _near = new Endpoint[n - 1];
+            Endpoint[] _far = new Endpoint[n - 1];
+            System.arraycopy(nbrs, 0, _nbrs, 0, k);
+            System.arraycopy(nbrs, k + 1, _nbrs, k, n - k - 1);
+            System.arraycopy(edges, 0, _edges, 0, k);
+            System.arraycopy(edges, k + 1, _edges, k, n - k - 1);
+            System.arraycopy(near, 0, _near, 0, k);
+            System.arraycopy(near, k + 1, _near, k, n - k - 1);
+            System.arraycopy(far, 0, _far, 0, k);
+            System.arraycopy(far, k + 1, _far, k, n - k - 1);
+            return new Row(_nbrs, _edges, _near, _far);
+        }
+    }
+
+    /**
+     * Node to id.
+     */
+    private volatile Map<Node, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Id to node; null for the ids of removed nodes.
+     */
+    private volatile Node[] nodesById = new Node[0];
+
+    /**
+     * Id to neighborhood; null for the ids of removed nodes. Elements are set only through setRow, which
+     * republishes the array.
+     */
+    private volatile Row[] rows = new Row[0];
+
+    /**
+     * The number of ids handed out.
+     */
+    private int numIds = 0;
+
+    /**
+     * Id to the bitset of the ids of its ancestors (itself included), for the ancestor sets computed since the
+     * last change to a directed edge. Each change replaces the map, so that an ancestor set computed across a
+     * change goes into the discarded map.
+     */
+    private transient volatile Map<Integer, long[]> ancestorSets = new ConcurrentHashMap<>();
+
+    //==============================CONSTUCTORS===========================//
+
+    /**
+     * Constructs a new (empty) graph.
+     */
+    public IndexedEdgeListGraph() {
+        super();
+    }
+
+    /**
+     * Constructs a graph with the nodes and edges of the given graph. If the given graph is an
+     * IndexedEdgeListGraph, the copy shares its (immutable) edge lists and neighbor arrays.
+     *
+     * @throws IllegalArgumentException if two different edges connect some pair of nodes in the given graph.
+     */
+    public IndexedEdgeListGraph(Graph graph) throws IllegalArgumentException {
+        this();
+
+        if (graph == null) {
+            throw new NullPointerException("Graph must not be null.");
+        }
+
+        if (graph instanceof IndexedEdgeListGraph) {
+            IndexedEdgeListGraph _graph = (IndexedEdgeListGraph) graph;
+
+            synchronized (_graph) {
+                nodes = new ArrayList<>(_graph.nodes);
+                edgesSet = new HashSet<>(_graph.edgesSet);
+                edgeLists = new HashMap<>(_graph.edgeLists);
+                namesHash = new HashMap<>(_graph.namesHash);
+                ids = new ConcurrentHashMap<>(_graph.ids);
+                nodesById = Arrays.copyOf(_graph.nodesById, _graph.nodesById.length);
+                rows = Arrays.copyOf(_graph.rows, _graph.rows.length);
+                numIds = _graph.numIds;
+            }
+        } else {
+            transferNodesAndEdges(graph);
+        }
+
+        transferAttributes(graph);
+
+        this.ambiguousTriples = new HashSet<>(graph.getAmbiguousTriples());
+        this.underLineTriples = new HashSet<>(graph.getUnderLines());
+        this.dottedUnderLineTriples = new HashSet<>(graph.getDottedUnderlines());
+
+        for (Edge edge : graph.getEdges()) {
+            if (graph.isHighlighted(edge)) {
+                setHighlighted(edge, true);
+            }
+        }
+
+        setPag(graph.isPag());
+        setPattern(graph.isPattern());
+    }
+
+    /**
+     * Constructs a new graph, with no edges, over the given nodes.
+     */
+    public IndexedEdgeListGraph(List<Node> nodes) {
+        this();
+
+        if (nodes == null) {
+            throw new NullPointerException();
+        }
+
+        for (Node node : nodes) {
+            if (!addNode(node)) {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static IndexedEdgeListGraph serializableInstance() {
+        return new IndexedEdgeListGraph();
+    }
+
+    //===============================PUBLIC METHODS========================//
+
+    @Override
+    public synchronized boolean addNode(Node node) {
+        if (node == null) {
+            throw new NullPointerException();
+        }
+
+        if (ids.containsKey(node)) return true;
+
+        if (edgeLists.containsKey(node)) {
+            return false;
+        }
+
+        edgeLists.put(node, new ArrayList<Edge>(4));
+        nodes.add(node);
+        namesHash.put(node.getName(), node);
+
+        Row[] rows = this.rows;
+        Node[] nodesById = this.nodesById;
+
+        if (numIds == rows.length) {
+            int capacity = Math.max(16, 2 * rows.length);
+            rows = Arrays.copyOf(rows, capacity);
+            nodesById = Arrays.copyOf(nodesById, capacity);
+        }
+
+        int id = numIds++;
+        nodesById[id] = node;
+        rows[id] = Row.EMPTY;
+        this.nodesById = nodesById;
+        this.rows = rows;
+        ids.put(node, id);
+
+        if (node.getNodeType() != NodeType.ERROR) {
+            getPcs().firePropertyChange("nodeAdded", null, node);
+        }
+
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addEdge(Edge edge) {
+        if (edge == null) throw new NullPointerException();
+
+        int id1 = id(edge.getNode1());
+        int id2 = id(edge.getNode2());
+
+        if (id1 == -1 || id2 == -1) {
+            throw new NullPointerException("Can't add an edge unless both " +
+                    "nodes are in the graph: " + edge);
+        }
+
+        int k = rows[id1].indexOf(id2);
+
+        if (k != -1) {
+            if (rows[id1].edges[k].equals(edge)) return true;
+            throw new IllegalArgumentException("Already adjacent: " + edge);
+        }
+
+        super.addEdge(edge);
+
+        setRow(id1, rows[id1].plus(id2, edge, edge.getEndpoint1(), edge.getEndpoint2()));
+
+        if (id1 != id2) {
+            setRow(id2, rows[id2].plus(id1, edge, edge.getEndpoint2(), edge.getEndpoint1()));
+        }
+
+        if (isTailArrow(edge.getEndpoint1(), edge.getEndpoint2())
+                || isTailArrow(edge.getEndpoint2(), edge.getEndpoint1())) {
+            directedEdgesChanged();
+        }
+
+        return true;
+    }
+
+    @Override
+    public synchronized boolean removeEdge(Edge edge) {
+        int id1 = id(edge.getNode1());
+        int id2 = id(edge.getNode2());
+
+        if (id1 == -1 || id2 == -1) return false;
+
+        int k1 = rows[id1].indexOf(id2);
+
+        if (k1 == -1 || !rows[id1].edges[k1].equals(edge)) return false;
+
+        super.removeEdge(edge);
+
+        setRow(id1, rows[id1].minus(k1));
+
+        if (id1 != id2) {
+            setRow(id2, rows[id2].minus(rows[id2].indexOf(id1)));
+        }
+
+        if (isTailArrow(edge.getEndpoint1(), edge.getEndpoint2())
+                || isTailArrow(edge.getEndpoint2(), edge.getEndpoint1())) {
+            directedEdgesChanged();
+        }
+
+        return true;
+    }
+
+    @Override
+    public synchronized boolean removeNode(Node node) {
+        int id = id(node);
+
+        if (id == -1) {
+            return false;
+        }
+
+        boolean changed = false;
+
+        for (Edge edge : rows[id].edges) {
+            changed = removeEdge(edge) || changed;
+        }
+
+        edgeLists = new HashMap<>(edgeLists);
+        edgeLists.remove(node);
+        nodes.remove(node);
+        namesHash.remove(node.getName());
+        stuffRemovedSinceLastTripleAccess = true;
+
+        ids.remove(node);
+        setRow(id, null);
+        Node[] nodesById = this.nodesById;
+        nodesById[id] = null;
+        this.nodesById = nodesById;
+
+        getPcs().firePropertyChange("nodeRemoved", node, null);
+        return changed;
+    }
+
+    @Override
+    public synchronized void fullyConnect(Endpoint endpoint) {
+        for (Edge edge : new ArrayList<>(edgesSet)) {
+            removeEdge(edge);
+        }
+
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j = i + 1; j < nodes.size(); j++) {
+                addEdge(new Edge(nodes.get(i), nodes.get(j), endpoint, endpoint));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        edgesSet.clear();
+        ids = new ConcurrentHashMap<>();
+        nodesById = new Node[0];
+        rows = new Row[0];
+        numIds = 0;
+        directedEdgesChanged();
+    }
+
+    @Override
+    public boolean containsNode(Node node) {
+        return id(node) != -1;
+    }
+
+    @Override
+    public boolean isAdjacentTo(Node node1, Node node2) {
+        int id1 = id(node1);
+        int id2 = id(node2);
+
+        if (id1 == -1 || id2 == -1) return false;
+
+        Row row1 = rows[id1];
+        Row row2 = rows[id2];
+
+        if (row1.nbrs.length <= row2.nbrs.length) {
+            return row1.indexOf(id2) != -1;
+        } else {
+            return row2.indexOf(id1) != -1;
+        }
+    }
+
+    @Override
+    public List<Node> getAdjacentNodes(Node node) {
+        Row row = row(node);
+        List<Node> adj = new ArrayList<>(row.nbrs.length);
+        for (int nbr : row.nbrs) adj.add(nodesById[nbr]);
+        return adj;
+    }
+
+    @Override
+    public Edge getEdge(Node node1, Node node2) {
+        int id1 = id(node1);
+        int id2 = id(node2);
+
+        if (id1 == -1 || id2 == -1) return null;
+
+        Row row = rows[id1];
+        int k = row.indexOf(id2);
+        return k == -1 ? null : row.edges[k];
+    }
+
+    @Override
+    public List<Edge> getEdges(Node node1, Node node2) {
+        List<Edge> edges = new ArrayList<>(1);
+        Edge edge = getEdge(node1, node2);
+        if (edge != null) edges.add(edge);
+        return edges;
+    }
+
+    @Override
+    public Endpoint getEndpoint(Node node1, Node node2) {
+        int id1 = id(node1);
+        int id2 = id(node2);
+
+        if (id1 == -1 || id2 == -1) return null;
+
+        Row row = rows[id1];
+        int k = row.indexOf(id2);
+        return k == -1 ? null : row.far[k];
+    }
+
+    @Override
+    public int getNumEdges(Node node) {
+        int id = id(node);
+        return id == -1 ? 0 : rows[id].nbrs.length;
+    }
+
+    @Override
+    public int getDegree(Node node) {
+        return row(node).nbrs.length;
+    }
+
+    @Override
+    public List<Node> getParents(Node node) {
+        Row row = row(node);
+        List<Node> parents = new ArrayList<>();
+
+        for (int k = 0; k < row.nbrs.length; k++) {
+            if (isTailArrow(row.far[k], row.near[k])) {
+                parents.add(nodesById[row.nbrs[k]]);
+            }
+        }
+
+        return parents;
+    }
+
+    @Override
+    public List<Node> getChildren(Node node) {
+        Row row = row(node);
+        List<Node> children = new ArrayList<>();
+
+        for (int k = 0; k < row.nbrs.length; k++) {
+            if (isTailArrow(row.near[k], row.far[k])) {
+                children.add(nodesById[row.nbrs[k]]);
+            }
+        }
+
+        return children;
+    }
+
+    @Override
+    public int getIndegree(Node node) {
+        return getParents(node).size();
+    }
+
+    @Override
+    public int getOutdegree(Node node) {
+        return getChildren(node).size();
+    }
+
+    @Override
+    public List<Node> getNodesInTo(Node node, Endpoint endpoint) {
+        Row row = row(node);
+        List<Node> nodes = new ArrayList<>(4);
+
+        for (int k = 0; k < row.nbrs.length; k++) {
+            if (row.near[k] == endpoint) nodes.add(nodesById[row.nbrs[k]]);
+        }
+
+        return nodes;
+    }
+
+    @Override
+    public List<Node> getNodesOutTo(Node node, Endpoint endpoint) {
+        Row row = row(node);
+        List<Node> nodes = new ArrayList<>(4);
+
+        for (int k = 0; k < row.nbrs.length; k++) {
+            if (row.far[k] == endpoint) nodes.add(nodesById[row.nbrs[k]]);
+        }
+
+        return nodes;
+    }
+
+    @Override
+    public boolean isParentOf(Node node1, Node node2) {
+        int id1 = id(node1);
+        int id2 = id(node2);
+
+        if (id1 == -1 || id2 == -1) return false;
+
+        Row row = rows[id1];
+        int k = row.indexOf(id2);
+        return k != -1 && isTailArrow(row.near[k], row.far[k]);
+    }
+
+    @Override
+    public boolean isChildOf(Node node1, Node node2) {
+        return isParentOf(node2, node1);
+    }
+
+    @Override
+    public boolean isDirectedFromTo(Node node1, Node node2) {
+        int id1 = id(node1);
+        int id2 = id(node2);
+
+        if (id1 == -1 || id2 == -1) return false;
+
+        Row row = rows[id1];
+        int k = row.indexOf(id2);
+        return k != -1 && row.far[k] == Endpoint.ARROW
+                && (row.near[k] == Endpoint.TAIL || row.near[k] == Endpoint.CIRCLE);
+    }
+
+    @Override
+    public boolean isUndirectedFromTo(Node node1, Node node2) {
+        int id1 = id(node1);
+        int id2 = id(node2);
+
+        if (id1 == -1 || id2 == -1) return false;
+
+        Row row = rows[id1];
+        int k = row.indexOf(id2);
+        return k != -1 && row.near[k] == Endpoint.TAIL && row.far[k] == Endpoint.TAIL;
+    }
+
+    @Override
+    public boolean isDefCollider(Node node1, Node node2, Node node3) {
+        return getEndpoint(node1, node2) == Endpoint.ARROW && getEndpoint(node3, node2) == Endpoint.ARROW;
+    }
+
+    /**
+     * Determines whether one node is an ancestor of another (every node being an ancestor of itself).
+     */
+    @Override
+    public boolean isAncestorOf(Node node1, Node node2) {
+        int id1 = id(node1);
+        int id2 = id(node2);
+
+        if (id1 == -1 || id2 == -1) return false;
+
+        long[] ancestors = ancestorSet(id2);
+        return id1 < ancestors.length * 64 && (ancestors[id1 >> 6] & (1L << id1)) != 0;
+    }
+
+    @Override
+    public List<Node> getAncestors(List<Node> nodes) {
+        long[] union = new long[0];
+
+        for (Node node : nodes) {
+            int id = id(node);
+            if (id == -1) continue;
+
+            long[] ancestors = ancestorSet(id);
+            if (ancestors.length > union.length) union = Arrays.copyOf(union, ancestors.length);
+            for (int w = 0; w < ancestors.length; w++) union[w] |= ancestors[w];
+        }
+
+        List<Node> ancestors = new ArrayList<>();
+
+        for (int w = 0; w < union.length; w++) {
+            long word = union[w];
+
+            while (word != 0) {
+                int id = (w << 6) + Long.numberOfTrailingZeros(word);
+                ancestors.add(nodesById[id]);
+                word &= word - 1;
+            }
+        }
+
+        return ancestors;
+    }
+
+    @Override
+    public boolean isDescendentOf(Node node1, Node node2) {
+        return isAncestorOf(node2, node1);
+    }
+
+    @Override
+    public boolean isProperDescendentOf(Node node1, Node node2) {
+        return node1 != node2 && isAncestorOf(node2, node1);
+    }
+
+    //===============================PRIVATE METHODS======================//
+
+    /**
+     * @return the id of the given node, or -1 if it is not in the graph.
+     */
+    private int id(Node node) {
+        if (node == null) return -1;
+
+        Integer id = ids.get(node);
+
+        if (id == null) {
+
+            // As in EdgeListGraph.addEdge, nodes whose names have changed need rehashing.
+            if (!nodes.contains(node)) return -1;
+
+            synchronized (this) {
+                ids = new ConcurrentHashMap<>(ids);
+                id = ids.get(node);
+            }
+        }
+
+        return id == null ? -1 : id;
+    }
+
+    private Row row(Node node) {
+        int id = id(node);
+
+        if (id == -1) {
+            throw new IllegalArgumentException("Node not in graph: " + node);
+        }
+
+        return rows[id];
+    }
+
+    // The volatile write after the element store publishes the new row to readers.
+    private void setRow(int id, Row row) {
+        Row[] rows = this.rows;
+        rows[id] = row;
+        this.rows = rows;
+    }
+
+    private static boolean isTailArrow(Endpoint at1, Endpoint at2) {
+        return at1 == Endpoint.TAIL && at2 == Endpoint.ARROW;
+    }
+
+    private void directedEdgesChanged() {
+        ancestors = null;
+        ancestorSets = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the ids of the ancestors of the given node as a bitset.
+     */
+    private long[] ancestorSet(int id) {
+        // The cache is read before the rows, so that a set computed from rows changed since goes into the map
+        // the change replaced.
+        Map<Integer, long[]> cache = ancestorSets;
+        long[] ancestors = cache.get(id);
+
+        if (ancestors != null) return ancestors;
+
+        Row[] rows = this.rows;
+        ancestors = new long[(rows.length + 63) >> 6];
+        int[] stack = new int[16];
+        int top = 0;
+
+        ancestors[id >> 6] |= 1L << id;
+        stack[top++] = id;
+
+        while (top > 0) {
+            Row row = rows[stack[--top]];
+
+            for (int k = 0; k < row.nbrs.length; k++) {
+                int nbr = row.nbrs[k];
+
+                if (isTailArrow(row.far[k], row.near[k]) && (ancestors[nbr >> 6] & (1L << nbr)) == 0) {
+                    ancestors[nbr >> 6] |= 1L << nbr;
+                    if (top == stack.length) stack = Arrays.copyOf(stack, 2 * top);
+                    stack[top++] = nbr;
+                }
+            }
+        }
+
+        if ((long) (cache.size() + 1) * ancestors.length > MAX_CACHED_WORDS) {
+            cache.clear();
+        }
+
+        cache.put(id, ancestors);
+
+        return ancestors;
+    }
+
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        ancestorSets = new ConcurrentHashMap<>();
+    }
+}
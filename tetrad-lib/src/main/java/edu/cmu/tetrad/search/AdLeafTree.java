@@ -3,8 +3,6 @@ package edu.cmu.tetrad.search;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.Node;
-import org.apache.commons.collections4.iterators.CollatingIterator;
-import org.apache.commons.collections4.map.HashedMap;
 
 import java.util.*;
 
@@ -13,7 +11,14 @@ import java.util.*;
  * algorithm it's used for much, but it should speed up subsequent algorithm
  * on the same data.
  * </p>
- * Continuous variables in the data set are ignored.
+ * Each node of the tree splits the rows of a cell by the values of one more
+ * variable, keeping the rows of each of its cells in an int array of their
+ * own; these arrays are handed out as they are, not copied. Nodes are made as
+ * they are first needed. When the nodes hold more than
+ * <code>setMaxBytes</code> bytes of row indices the tree is cut back to its
+ * root and grows again from there.
+ * </p>
+ * Continuous variables in the data set are ignored. This class is thread safe.
  *
  * @author Joseph Ramsey
  */
@@ -22,8 +27,8 @@ public class AdLeafTree {
     // The data set the tree is for.
     private DataSet dataSet;
 
-    // Contains the root of the tree.
-    private List<Vary> baseCase;
+    // The root of the tree, a single cell holding all of the rows.
+    private Vary root;
 
     // Indices of variables.
     private Map<Node, Integer> nodesHash;
@@ -34,6 +39,15 @@ public class AdLeafTree {
     // Dimensions of the discrete variables (otherwise 0).
     private int[] dims;
 
+    // Approximate number of bytes of row indices held by the tree.
+    private long treeBytes = 0;
+
+    // Upper bound on treeBytes.
+    private long maxBytes = Runtime.getRuntime().maxMemory() / 8;
+
+    // Incremented each time the tree is cut back to its root.
+    private int generation = 0;
+
     public AdLeafTree(DataSet dataSet) {
         this.dataSet = dataSet;
 
@@ -68,35 +82,16 @@ public class AdLeafTree {
      * Finds the set of indices into the leaves of the tree for the given variables.
      * Counts are the sizes of the index sets.
      *
-     * @param A A list of discrete variables.
+     * @param A A list of discrete variables. It is sorted in place into the order
+     *          of the variables in the data set.
      * @return The list of index sets of the first variable varied by the second variable,
      * and so on, to the last variable.
      */
     public List<List<Integer>> getCellLeaves(List<DiscreteVariable> A) {
-        Collections.sort(A, new Comparator<DiscreteVariable>() {
-
-            @Override
-            public int compare(DiscreteVariable o1, DiscreteVariable o2) {
-                return Integer.compare(nodesHash.get(o1), nodesHash.get(o2));
-            }
-        });
-
-        if (baseCase == null) {
-            Vary vary = new Vary();
-            this.baseCase = new ArrayList<>();
-            baseCase.add(vary);
-        }
-
-        List<Vary> varies = baseCase;
-
-        for (DiscreteVariable v : A) {
-            varies = getVaries(varies, nodesHash.get(v));
-        }
-
         List<List<Integer>> rows = new ArrayList<>();
 
-        for (Vary vary : varies) {
-            rows.addAll(vary.getRows());
+        for (int[] cell : getCellRows(A)) {
+            rows.add(asList(cell));
         }
 
         return rows;
@@ -106,45 +101,117 @@ public class AdLeafTree {
      * Finds the set of indices into the leaves of the tree for the given variables.
      * Counts are the sizes of the index sets.
      *
-     * @param A A list of discrete variables.
+     * @param A A list of discrete variables. It is sorted in place into the order
+     *          of the variables in the data set.
      * @return The list of index sets of the first variable varied by the second variable,
      * and so on, to the last variable.
      */
     public List<List<List<Integer>>> getCellLeaves(List<DiscreteVariable> A, DiscreteVariable B) {
-        Collections.sort(A, new Comparator<DiscreteVariable>() {
+        List<List<List<Integer>>> rows = new ArrayList<>();
 
-            @Override
-            public int compare(DiscreteVariable o1, DiscreteVariable o2) {
-                return Integer.compare(nodesHash.get(o1), nodesHash.get(o2));
+        for (int[][] cells : getCellRows(A, B)) {
+            List<List<Integer>> _cells = new ArrayList<>();
+
+            for (int[] cell : cells) {
+                _cells.add(asList(cell));
             }
-        });
 
-        if (baseCase == null) {
-            Vary vary = new Vary();
-            this.baseCase = new ArrayList<>();
-            baseCase.add(vary);
+            rows.add(_cells);
         }
 
-        List<Vary> varies = baseCase;
+        return rows;
+    }
 
-        for (DiscreteVariable v : A) {
-            varies = getVaries(varies, nodesHash.get(v));
+    /**
+     * As getCellLeaves(A), with the rows of each cell, in increasing order, as an int array.
+     * The arrays are those held by the tree, not copies, and must not be modified.
+     *
+     * @param A A list of discrete variables. It is sorted in place into the order
+     *          of the variables in the data set.
+     * @return The rows of the cells of the first variable varied by the second variable,
+     * and so on, to the last variable.
+     */
+    public synchronized int[][] getCellRows(List<DiscreteVariable> A) {
+        List<int[]> rows = new ArrayList<>();
+
+        for (Vary vary : getVaries(A)) {
+            for (int i = 0; i < vary.getNumCategories(); i++) {
+                rows.add(vary.getRows(i));
+            }
         }
 
-        List<List<List<Integer>>> rows = new ArrayList<>();
+        return rows.toArray(new int[rows.size()][]);
+    }
 
-        for (Vary vary : varies) {
+    /**
+     * As getCellLeaves(A, B), with the rows of each cell, in increasing order, as an int array.
+     * The arrays are those held by the tree, not copies, and must not be modified.
+     *
+     * @param A A list of discrete variables. It is sorted in place into the order
+     *          of the variables in the data set.
+     * @return For each cell of A, and within that each value of B, the rows of the cell.
+     */
+    public synchronized int[][][] getCellRows(List<DiscreteVariable> A, DiscreteVariable B) {
+        List<int[][]> rows = new ArrayList<>();
+
+        for (Vary vary : getVaries(A)) {
             for (int i = 0; i < vary.getNumCategories(); i++) {
                 Vary subvary = vary.getSubvary(nodesHash.get(B), i);
-                rows.add(subvary.getRows());
+                int[][] cells = new int[subvary.getNumCategories()][];
+
+                for (int j = 0; j < cells.length; j++) {
+                    cells[j] = subvary.getRows(j);
+                }
+
+                rows.add(cells);
             }
         }
 
-        return rows;
+        return rows.toArray(new int[rows.size()][][]);
     }
 
-    public void setColumn(DiscreteVariable var, int[] col) {
+    public synchronized void setColumn(DiscreteVariable var, int[] col) {
         discreteData[dataSet.getColumn(var)] = col;
+        clear();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the approximate number of bytes of row indices the tree may hold. The
+     * default is an eighth of the maximum heap size.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Max bytes must be >= 0: " + maxBytes);
+        }
+
+        this.maxBytes = maxBytes;
+        if (treeBytes > maxBytes) clear();
+    }
+
+    private List<Vary> getVaries(List<DiscreteVariable> A) {
+        Collections.sort(A, new Comparator<DiscreteVariable>() {
+
+            @Override
+            public int compare(DiscreteVariable o1, DiscreteVariable o2) {
+                return Integer.compare(nodesHash.get(o1), nodesHash.get(o2));
+            }
+        });
+
+        if (root == null) {
+            clear();
+        }
+
+        List<Vary> varies = Collections.singletonList(root);
+
+        for (DiscreteVariable v : A) {
+            varies = getVaries(varies, nodesHash.get(v));
+        }
+
+        return varies;
     }
 
     private List<Vary> getVaries(List<Vary> varies, int v) {
@@ -159,63 +226,115 @@ public class AdLeafTree {
         return _varies;
     }
 
+    // Cuts the tree back to its root.
+    private void clear() {
+        int n = dataSet.getNumRows();
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) rows[i] = i;
+        generation++;
+        root = new Vary(new int[][]{rows});
+        treeBytes = 4L * n;
+    }
+
+    private static List<Integer> asList(int[] rows) {
+        List<Integer> list = new ArrayList<>(rows.length);
+        for (int row : rows) list.add(row);
+        return list;
+    }
+
     private class Vary {
-        int col;
-        int numCategories;
-        List<List<Integer>> rows = new ArrayList<>();
-        List<Map<Integer, Vary>> subVaries = new ArrayList<>();
 
-        // Base case.
-        public Vary() {
-            List<Integer> _rows = new ArrayList<>();
-            for (int i = 0; i < dataSet.getNumRows(); i++) {
-                _rows.add(i);
-            }
+        // The rows of each cell, in increasing order.
+        private final int[][] rows;
+
+        // For each cell, the splits of that cell by other variables, keyed by variable index.
+        private final List<Map<Integer, Vary>> subVaries = new ArrayList<>();
+
+        // The generation of the tree this node was made for; once the tree has been cut back, the
+        // nodes of the old tree that a query still holds are no longer part of it.
+        private int generation;
 
-            subVaries.add(new HashMap<Integer, Vary>());
-            numCategories = 1;
-            rows.add(_rows);
-            subVaries = new ArrayList<>();
-            subVaries.add(new HashMap<Integer, Vary>());
+        Vary(int[][] rows) {
+            this.rows = rows;
+            this.generation = AdLeafTree.this.generation;
+
+            for (int i = 0; i < getNumCategories(); i++) {
+                subVaries.add(null);
+            }
         }
 
-        public Vary(int col, int numCategories, List<Integer> supRows, int[][] discreteData) {
-            this.col = col;
-            this.numCategories = numCategories;
+        // Splits the given rows by the values of column col, leaving out rows with missing values.
+        Vary(int col, int numCategories, int[] supRows, int[][] discreteData) {
+            int[] data = discreteData[col];
+            int[] counts = new int[numCategories];
 
-            for (int i = 0; i < numCategories; i++) {
-                rows.add(new ArrayList<Integer>());
+            for (int r : supRows) {
+                int index = data[r];
+                if (index != -99) {
+                    counts[index]++;
+                }
             }
 
+            int[][] rows = new int[numCategories][];
+
             for (int i = 0; i < numCategories; i++) {
-                subVaries.add(new HashedMap<Integer, Vary>());
+                rows[i] = new int[counts[i]];
             }
 
-            for (int i : supRows) {
-                int index = discreteData[col][i];
+            int[] next = new int[numCategories];
+
+            for (int r : supRows) {
+                int index = data[r];
                 if (index != -99) {
-                    rows.get(index).add(i);
+                    rows[index][next[index]++] = r;
                 }
             }
+
+            this.rows = rows;
+
+            for (int i = 0; i < numCategories; i++) {
+                subVaries.add(null);
+            }
         }
 
-        public List<List<Integer>> getRows() {
-            return rows;
+        // The rows of the given cell. This is the array held by the tree; it must not be modified.
+        int[] getRows(int cat) {
+            return rows[cat];
         }
 
-        public Vary getSubvary(int w, int cat) {
-            Vary vary = subVaries.get(cat).get(w);
+        Vary getSubvary(int w, int cat) {
+            Map<Integer, Vary> splits = subVaries.get(cat);
+
+            if (splits == null) {
+                splits = new HashMap<>();
+                subVaries.set(cat, splits);
+            }
+
+            Vary vary = splits.get(w);
 
             if (vary == null) {
-                vary = new Vary(w, dims[w], rows.get(cat), discreteData);
-                subVaries.get(cat).put(w, vary);
+                vary = new Vary(w, dims[w], rows[cat], discreteData);
+                vary.generation = generation;
+
+                // Splits of a node that is no longer in the tree are neither kept nor charged to it.
+                if (generation != AdLeafTree.this.generation) return vary;
+
+                long bytes = 0;
+                for (int[] cell : vary.rows) bytes += 4L * cell.length + 16;
+
+                if (treeBytes + bytes > maxBytes) {
+                    clear();
+                } else {
+                    treeBytes += bytes;
+                    splits.put(w, vary);
+                }
             }
 
             return vary;
         }
 
-        public int getNumCategories() {
-            return numCategories;
+        int getNumCategories() {
+            return rows.length;
         }
     }
 }
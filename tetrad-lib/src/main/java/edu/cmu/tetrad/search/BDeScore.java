@@ -22,6 +22,7 @@
 package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteCounts;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.util.ProbUtils;
@@ -34,6 +35,9 @@ import java.util.List;
 public class BDeScore implements LocalDiscreteScore {
     private DataSet dataSet;
 
+    // Contingency counts of the data, reused across calls.
+    private final DiscreteCounts counts;
+
     public BDeScore(DataSet dataSet) {
         if (dataSet == null) {
             throw new NullPointerException();
@@ -44,6 +48,7 @@ public class BDeScore implements LocalDiscreteScore {
         }
 
         this.dataSet = dataSet;
+        this.counts = new DiscreteCounts(dataSet);
     }
 
     public double localScore(int i, int parents[]) {
@@ -64,43 +69,26 @@ public class BDeScore implements LocalDiscreteScore {
             q *= dims[p];
         }
 
-        // Conditional cell coefs of data for i given parents(i).
-        int n_ijk[][] = new int[q][r];
-        int n_ij[] = new int[q];
-
-        int values[] = new int[parents.length];
-
-        for (int n = 0; n < sampleSize(); n++) {
-            for (int p = 0; p < parents.length; p++) {
-                int parentValue = dataSet().getInt(n, parents[p]);
-
-                if (parentValue == -99) {
-                    throw new IllegalStateException("Please remove or impute " +
-                            "missing values.");
-                }
-
-                values[p] = parentValue;
-            }
-
-            int childValue = dataSet().getInt(n, i);
-
-            if (childValue == -99) {
-                throw new IllegalStateException("Please remove or impute missing " +
-                        "values (record " + n + " column " + i + ")");
-
+        for (int p = 0; p < parents.length; p++) {
+            if (counts.hasMissingValues(parents[p])) {
+                throw new IllegalStateException("Please remove or impute " +
+                        "missing values.");
             }
+        }
 
-            int rowIndex = getRowIndex(dims, values);
-
-//            for (int m = 0; m < dataSet().getMultiplier(n); m++) {
-            n_ijk[rowIndex][childValue]++;
-//            }
+        if (counts.hasMissingValues(i)) {
+            throw new IllegalStateException("Please remove or impute missing " +
+                    "values (column " + i + ")");
         }
 
+        // Conditional cell coefs of data for i given parents(i).
+        int n_ijk[] = counts.getCounts(i, parents);
+        int n_ij[] = new int[q];
+
         // Row sums.
         for (int j = 0; j < q; j++) {
             for (int k = 0; k < r; k++) {
-                n_ij[j] += n_ijk[j][k];
+                n_ij[j] += n_ijk[j * r + k];
             }
         }
 
@@ -110,7 +98,7 @@ public class BDeScore implements LocalDiscreteScore {
         for (int j = 0; j < q; j++) {
             for (int k = 0; k < r; k++) {
                 double nPrimeijk = 1. / (r * q);
-                score += ProbUtils.lngamma(n_ijk[j][k] + nPrimeijk);
+                score += ProbUtils.lngamma(n_ijk[j * r + k] + nPrimeijk);
                 score -= ProbUtils.lngamma(nPrimeijk);
             }
 
@@ -133,6 +121,11 @@ public class BDeScore implements LocalDiscreteScore {
         return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return true;
+    }
+
     int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
@@ -154,19 +147,6 @@ public class BDeScore implements LocalDiscreteScore {
         return dataSet;
     }
 
-    private int getRowIndex(int[] dim, int[] values) {
-        int rowIndex = 0;
-        for (int i = 0; i < dim.length; i++) {
-            rowIndex *= dim[i];
-            rowIndex += values[i];
-        }
-        return rowIndex;
-    }
-
-    private int sampleSize() {
-        return dataSet().getNumRows();
-    }
-
     private int numCategories(int i) {
         return ((DiscreteVariable) dataSet().getVariable(i)).getNumCategories();
     }
@@ -42,6 +42,9 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
 
     private int[] numCategories;
 
+    // Contingency counts of the data, reused across calls.
+    private final DiscreteCounts counts;
+
     public BDeuScore(DataSet dataSet) {
         if (dataSet == null) {
             throw new NullPointerException("Data was not provided.");
@@ -80,6 +83,8 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         for (int i = 0; i < variables.size(); i++) {
             numCategories[i] = (getVariable(i)).getNumCategories();
         }
+
+        this.counts = new DiscreteCounts(data, numCategories);
     }
 
     private DiscreteVariable getVariable(int i) {
@@ -107,39 +112,7 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         }
 
         // Conditional cell coefs of data for node given parents(node).
-        int n_jk[][] = new int[r][c];
-        int n_j[] = new int[r];
-
-        int[] parentValues = new int[parents.length];
-
-        int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = data[parents[i]];
-        }
-
-        int[] myChild = data[node];
-
-
-        ROW:
-        for (int i = 0; i < sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                if (myParents[p][i] == -99) continue ROW;
-                parentValues[p] = myParents[p][i];
-            }
-
-            int childValue = myChild[i];
-
-            if (childValue == -99) {
-                continue ROW;
-//                throw new IllegalStateException("Please remove or impute missing " +
-//                        "values (record " + i + " column " + i + ")");
-            }
-
-            int rowIndex = getRowIndex(dims, parentValues);
-
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
-        }
+        int[] n_jk = counts.getCounts(node, parents);
 
         //Finally, compute the score
         double score = 0.0;
@@ -150,10 +123,16 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         final double rowPrior = getSamplePrior() / r;
 
         for (int j = 0; j < r; j++) {
-            score -= Gamma.logGamma(rowPrior + n_j[j]);
+            int n_j = 0;
 
             for (int k = 0; k < c; k++) {
-                score += Gamma.logGamma(cellPrior + n_jk[j][k]);
+                n_j += n_jk[j * c + k];
+            }
+
+            score -= Gamma.logGamma(rowPrior + n_j);
+
+            for (int k = 0; k < c; k++) {
+                score += Gamma.logGamma(cellPrior + n_jk[j * c + k]);
             }
         }
 
@@ -179,6 +158,26 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return true;
+    }
+
+    /**
+     * The score of y given z is computed once for all of the candidates.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        double[] diffs = new double[xs.length];
+        double score = localScore(y, z);
+
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = localScore(y, append(z, xs[i])) - score;
+        }
+
+        return diffs;
+    }
+
     int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
@@ -217,15 +216,6 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         throw new UnsupportedOperationException();
     }
 
-    private static int getRowIndex(int[] dim, int[] values) {
-        int rowIndex = 0;
-        for (int i = 0; i < dim.length; i++) {
-            rowIndex *= dim[i];
-            rowIndex += values[i];
-        }
-        return rowIndex;
-    }
-
     @Override
     public double getStructurePrior() {
         return structurePrior;
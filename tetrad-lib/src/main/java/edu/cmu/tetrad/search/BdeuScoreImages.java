@@ -109,6 +109,11 @@ public class BdeuScoreImages implements IBDeuScore {
         return localScoreDiff(x, y, new int[0]);
     }
 
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return true;
+    }
+
     /**
      * Calculates the sample likelihood and BIC score for i given its parents in a simple SEM model
      */
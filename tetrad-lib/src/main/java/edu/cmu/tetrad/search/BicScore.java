@@ -191,6 +191,11 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
         return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return true;
+    }
+
     int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
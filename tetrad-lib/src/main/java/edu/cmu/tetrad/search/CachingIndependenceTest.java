@@ -0,0 +1,305 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.TetradMatrix;
+
+import java.util.*;
+
+/**
+ * Wraps an independence test and remembers its results, so that a pipeline that asks the same
+ * question more than once (Fas, then SepsetsMaxPValue or FciOrient, say) only runs the test once.
+ * x _||_ y | z is treated as the same question as x _||_ y | z', for any reordering z' of z, and,
+ * if the wrapped test is symmetric (see IndependenceTest.isSymmetric()), as y _||_ x | z. The
+ * decision, p value and score of each test are stored, so getPValue() and getScore() after a
+ * cached answer return what they would have returned after running the test.
+ * <p>
+ * Safe to share among the threads of a concurrent search, provided the wrapped test is. The
+ * wrapped test is asked through checkIndependence, so that the p value stored with a decision is
+ * that decision's, whatever other threads are asking. The results are held in independently locked LRU stripes whose total size is bounded by the
+ * capacity given in the constructor. Hit and miss counts are kept so one can see how much of a
+ * run was redundant.
+ *
+ * @author Joseph Ramsey
+ */
+public class CachingIndependenceTest implements IndependenceTest {
+
+    // The default maximum number of results stored.
+    public static final int DEFAULT_CAPACITY = 1000000;
+
+    // The wrapped test.
+    private final IndependenceTest test;
+
+    // The capacity, passed on to tests for subsets of the variables.
+    private final int capacity;
+
+    // True if x and y may be swapped in a key.
+    private final boolean symmetric;
+
+    // The variables of the wrapped test, and their indices.
+    private final List<Node> variables;
+    private final Map<Node, Integer> indices;
+
+    // The stored results, keyed by (x, y, z).
+    private final StripedLruCache<StripedLruCache.Key, IndependenceResult> cache;
+
+    // The p value and score of the most recent test, per thread.
+    private final ThreadLocal<double[]> last = new ThreadLocal<double[]>() {
+        @Override
+        protected double[] initialValue() {
+            return new double[]{Double.NaN, Double.NaN};
+        }
+    };
+
+    /**
+     * Wraps the given test with a cache of default capacity.
+     */
+    public CachingIndependenceTest(IndependenceTest test) {
+        this(test, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Wraps the given test with a cache holding at most the given number of results.
+     */
+    public CachingIndependenceTest(IndependenceTest test, int capacity) {
+        if (test == null) throw new NullPointerException("Test is null.");
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+
+        this.test = test;
+        this.capacity = capacity;
+        this.symmetric = test.isSymmetric();
+        this.variables = test.getVariables();
+        this.indices = new HashMap<>();
+
+        for (int i = 0; i < variables.size(); i++) {
+            indices.put(variables.get(i), i);
+        }
+
+        this.cache = new StripedLruCache<>(capacity, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public boolean isIndependent(Node x, Node y, List<Node> z) {
+        IndependenceResult result = checkIndependence(x, y, z);
+
+        double[] _last = last.get();
+        _last[0] = result.getPValue();
+        _last[1] = result.getScore();
+
+        return result.isIndependent();
+    }
+
+    /**
+     * @return the stored result of x _||_ y | z, running the wrapped test if there is none.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        StripedLruCache.Key key = key(x, y, z);
+        IndependenceResult result = cache.get(key);
+
+        if (result == null) {
+            result = test.checkIndependence(x, y, z);
+            cache.put(key, result);
+        }
+
+        return result;
+    }
+
+    public boolean isIndependent(Node x, Node y, Node... z) {
+        return isIndependent(x, y, Arrays.asList(z));
+    }
+
+    public boolean isDependent(Node x, Node y, List<Node> z) {
+        return !isIndependent(x, y, z);
+    }
+
+    public boolean isDependent(Node x, Node y, Node... z) {
+        return isDependent(x, y, Arrays.asList(z));
+    }
+
+    /**
+     * @return the p value of the most recent test asked of this wrapper by the calling thread.
+     */
+    public double getPValue() {
+        return last.get()[0];
+    }
+
+    /**
+     * @return the score of the most recent test asked of this wrapper by the calling thread.
+     */
+    public double getScore() {
+        return last.get()[1];
+    }
+
+    /**
+     * Sets the significance level of the wrapped test and clears the cache, since stored decisions
+     * depend on it.
+     */
+    public void setAlpha(double alpha) {
+        test.setAlpha(alpha);
+        clear();
+    }
+
+    public double getAlpha() {
+        return test.getAlpha();
+    }
+
+    /**
+     * Removes all stored results and resets the hit and miss counts.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return the number of results currently stored.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the largest number of results stored.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of tests answered from the cache.
+     */
+    public long getNumHits() {
+        return cache.getNumHits();
+    }
+
+    /**
+     * @return the number of tests passed to the wrapped test.
+     */
+    public long getNumMisses() {
+        return cache.getNumMisses();
+    }
+
+    /**
+     * @return hits / (hits + misses), or NaN if no test has been asked.
+     */
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+
+    /**
+     * @return the wrapped test.
+     */
+    public IndependenceTest getWrappedTest() {
+        return test;
+    }
+
+    public IndependenceTest indTestSubset(List<Node> vars) {
+        return new CachingIndependenceTest(test.indTestSubset(vars), capacity);
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    public List<Node> getVariables() {
+        return variables;
+    }
+
+    public Node getVariable(String name) {
+        return test.getVariable(name);
+    }
+
+    public List<String> getVariableNames() {
+        return test.getVariableNames();
+    }
+
+    public boolean determines(List<Node> z, Node y) {
+        return test.determines(z, y);
+    }
+
+    public DataModel getData() {
+        return test.getData();
+    }
+
+    public ICovarianceMatrix getCov() {
+        return test.getCov();
+    }
+
+    public List<DataSet> getDataSets() {
+        return test.getDataSets();
+    }
+
+    public int getSampleSize() {
+        return test.getSampleSize();
+    }
+
+    public List<TetradMatrix> getCovMatrices() {
+        return test.getCovMatrices();
+    }
+
+    public boolean isVerbose() {
+        return test.isVerbose();
+    }
+
+    public void setVerbose(boolean verbose) {
+        test.setVerbose(verbose);
+    }
+
+    public String toString() {
+        return test.toString();
+    }
+
+    //==========================PRIVATE METHODS============================//
+
+    // (x, y, z) with x < y if the test is symmetric; the key sorts z.
+    private StripedLruCache.Key key(Node x, Node y, List<Node> z) {
+        int _x = index(x);
+        int _y = index(y);
+        int[] _z = new int[z.size()];
+
+        for (int i = 0; i < z.size(); i++) {
+            _z[i] = index(z.get(i));
+        }
+
+        if (symmetric && _x > _y) {
+            return new StripedLruCache.Key().set(_y, _x, _z);
+        }
+
+        return new StripedLruCache.Key().set(_x, _y, _z);
+    }
+
+    // The index of node in the variables, looking it up by name if it is not one of them but has
+    // the name of one of them.
+    private int index(Node node) {
+        Integer i = indices.get(node);
+
+        if (i == null) {
+            Node variable = test.getVariable(node.getName());
+            if (variable != null) i = indices.get(variable);
+        }
+
+        if (i == null) throw new IllegalArgumentException("Not a variable of this test: " + node);
+        return i;
+    }
+}
@@ -0,0 +1,229 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.List;
+
+/**
+ * Wraps a score and remembers its local scores in a LocalScoreCache, so that a search that asks
+ * for the same (node, parents) score more than once, possibly from different threads, only
+ * computes it once. Any Score can be wrapped. For scores whose differences are differences of
+ * local scores (see Score.isLocalScoreDiffDecomposable()), score differences are assembled from
+ * cached local scores; for the others (GraphScore, ScoredIndTest, SemBicScoreDeterministic, ...)
+ * differences are passed through to the wrapped score. Since cached scores are not recomputed,
+ * parameters of the wrapped score (penalty discount, priors) should not be changed after it has
+ * been wrapped.
+ *
+ * @author Joseph Ramsey
+ */
+public class CachingScore implements Score {
+
+    // The wrapped score.
+    private final Score score;
+
+    // The cache of local scores.
+    private final LocalScoreCache cache;
+
+    // True if the wrapped score's differences are differences of its local scores.
+    private final boolean decomposable;
+
+    /**
+     * Wraps the given score with a cache of default capacity.
+     */
+    public CachingScore(Score score) {
+        this(score, LocalScoreCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Wraps the given score with a cache holding at most the given number of local scores.
+     */
+    public CachingScore(Score score, int capacity) {
+        this(score, new LocalScoreCache(capacity));
+    }
+
+    /**
+     * Wraps the given score with the given cache. The cache must not be shared with a different score.
+     */
+    public CachingScore(Score score, LocalScoreCache cache) {
+        if (score == null) throw new NullPointerException("Score is null.");
+        if (cache == null) throw new NullPointerException("Cache is null.");
+        this.score = score;
+        this.cache = cache;
+        this.decomposable = score.isLocalScoreDiffDecomposable();
+    }
+
+    @Override
+    public double localScore(int node, int... parents) {
+        double s = cache.get(node, parents);
+
+        if (Double.isNaN(s)) {
+            s = score.localScore(node, parents);
+
+            if (!Double.isNaN(s)) {
+                cache.add(node, parents, s);
+            }
+        }
+
+        return s;
+    }
+
+    @Override
+    public double localScoreDiff(int x, int y, int[] z) {
+        if (!decomposable) {
+            return score.localScoreDiff(x, y, z);
+        }
+
+        return localScore(y, append(z, x)) - localScore(y, z);
+    }
+
+    @Override
+    public double localScoreDiff(int x, int y) {
+        if (!decomposable) {
+            return score.localScoreDiff(x, y);
+        }
+
+        return localScore(y, x) - localScore(y);
+    }
+
+    /**
+     * Candidates whose local scores are cached are scored from the cache; the rest are passed to the
+     * wrapped score in one batch, so that its own batched implementation is used for them, and their
+     * local scores are then cached.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        if (!decomposable) {
+            return score.localScoreDiffs(xs, y, z);
+        }
+
+        double[] diffs = new double[xs.length];
+        int[] missed = new int[xs.length];
+        int numMissed = 0;
+        double base = localScore(y, z);
+
+        for (int i = 0; i < xs.length; i++) {
+            double s = cache.get(y, append(z, xs[i]));
+
+            if (Double.isNaN(s)) {
+                missed[numMissed++] = i;
+            } else {
+                diffs[i] = s - base;
+            }
+        }
+
+        if (numMissed > 0) {
+            int[] _xs = new int[numMissed];
+
+            for (int j = 0; j < numMissed; j++) {
+                _xs[j] = xs[missed[j]];
+            }
+
+            double[] _diffs = score.localScoreDiffs(_xs, y, z);
+
+            for (int j = 0; j < numMissed; j++) {
+                diffs[missed[j]] = _diffs[j];
+
+                if (!Double.isNaN(_diffs[j]) && !Double.isNaN(base)) {
+                    cache.add(y, append(z, _xs[j]), base + _diffs[j]);
+                }
+            }
+        }
+
+        return diffs;
+    }
+
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return decomposable;
+    }
+
+    @Override
+    public double localScore(int node, int parent) {
+        return localScore(node, new int[]{parent});
+    }
+
+    @Override
+    public double localScore(int node) {
+        return localScore(node, new int[0]);
+    }
+
+    /**
+     * @return the wrapped score.
+     */
+    public Score getScore() {
+        return score;
+    }
+
+    /**
+     * @return the cache, for hit and miss counts.
+     */
+    public LocalScoreCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public List<Node> getVariables() {
+        return score.getVariables();
+    }
+
+    @Override
+    public boolean isEffectEdge(double bump) {
+        return score.isEffectEdge(bump);
+    }
+
+    @Override
+    public int getSampleSize() {
+        return score.getSampleSize();
+    }
+
+    @Override
+    public Node getVariable(String targetName) {
+        return score.getVariable(targetName);
+    }
+
+    @Override
+    public int getMaxDegree() {
+        return score.getMaxDegree();
+    }
+
+    @Override
+    public boolean determines(List<Node> z, Node y) {
+        return score.determines(z, y);
+    }
+
+    @Override
+    public String toString() {
+        return "Caching " + score.toString();
+    }
+
+    private int[] append(int[] parents, int extra) {
+        int[] all = new int[parents.length + 1];
+        System.arraycopy(parents, 0, all, 0, parents.length);
+        all[parents.length] = extra;
+        return all;
+    }
+}
+
+
+
@@ -23,6 +23,7 @@ package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.CellTable;
 import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteCounts;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.util.CombinationIterator;
 import org.apache.commons.math3.distribution.ChiSquaredDistribution;
@@ -52,6 +53,11 @@ public class ChiSquareTest {
      */
     private final CellTable cellTable;
 
+    /**
+     * Contingency counts of the data, reused across tests.
+     */
+    private final DiscreteCounts counts;
+
     /**
      * The significance level of the test.
      */
@@ -83,6 +89,7 @@ public class ChiSquareTest {
         this.alpha = alpha;
         this.cellTable = new CellTable(null);
         this.getCellTable().setMissingValue(DiscreteVariable.MISSING_VALUE);
+        this.counts = new DiscreteCounts(dataSet);
     }
 
     /**
@@ -94,7 +101,7 @@ public class ChiSquareTest {
 
         // Reset the cell table for the columns referred to in
         // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
+        this.getCellTable().addToTable(getCounts(), testIndices);
 
         // Indicator arrays to tell the cell table which margins
         // to calculate. For x _||_ y | z1, z2, ..., we want to
@@ -202,7 +209,7 @@ public class ChiSquareTest {
 
         // Reset the cell table for the columns referred to in
         // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
+        this.getCellTable().addToTable(getCounts(), testIndices);
 
         // Indicator arrays to tell the cell table which margins
         // to calculate. For x _||_ y | z1, z2, ..., we want to
@@ -293,6 +300,10 @@ public class ChiSquareTest {
         return cellTable;
     }
 
+    public DiscreteCounts getCounts() {
+        return counts;
+    }
+
     //===============================CLASSES==============================//
 
     /**
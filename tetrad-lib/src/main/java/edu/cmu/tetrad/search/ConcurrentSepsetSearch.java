@@ -0,0 +1,125 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Looks up sepsets for a list of node pairs in parallel, by default in the shared ForkJoinPoolInstance pool. The sepset for
+ * pair i is stored at index i of the result, so the result is the same however many threads there are, provided
+ * the sepsets of different pairs do not depend on one another--that is, provided nothing the lookups read (the
+ * graph, in particular) is changed until all of them are done. Callers remove edges afterwards, in pair order.
+ * <p>
+ * The independence test is called from several threads at once; its isIndependent() must not depend on state left
+ * by other calls.
+ *
+ * @author Joseph Ramsey
+ */
+final class ConcurrentSepsetSearch {
+
+    /**
+     * Finds a sepset for one pair of nodes, or null if there is none.
+     */
+    interface SepsetFinder {
+        List<Node> getSepset(Node x, Node y);
+    }
+
+    // The largest number of pairs looked up in one task.
+    private static final int CHUNK = 20;
+
+    private ConcurrentSepsetSearch() {
+    }
+
+    /**
+     * @param pairs  The pairs, as arrays {x, y}.
+     * @param finder Finds the sepset for a pair.
+     * @return the sepset for each pair, in the order of the pairs; null where there is none. If the calling thread
+     * is interrupted, pairs not yet looked up get null.
+     */
+    static List<List<Node>> getSepsets(List<Node[]> pairs, SepsetFinder finder) {
+        return getSepsets(pairs, finder, ForkJoinPoolInstance.getInstance().getPool());
+    }
+
+    /**
+     * As getSepsets(pairs, finder), but in the given pool, or, if the pool is null, one pair at a time in the
+     * calling thread, in pair order.
+     */
+    static List<List<Node>> getSepsets(final List<Node[]> pairs, final SepsetFinder finder, ForkJoinPool pool) {
+        final List<Node>[] sepsets = newArray(pairs.size());
+        final Thread caller = Thread.currentThread();
+
+        class Task extends RecursiveAction {
+            private final int from;
+            private final int to;
+
+            private Task(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from <= CHUNK) {
+                    for (int i = from; i < to; i++) {
+                        if (caller.isInterrupted()) {
+                            return;
+                        }
+
+                        Node[] pair = pairs.get(i);
+                        sepsets[i] = finder.getSepset(pair[0], pair[1]);
+                    }
+                } else {
+                    int mid = (to + from) / 2;
+
+                    Task left = new Task(from, mid);
+                    Task right = new Task(mid, to);
+
+                    left.fork();
+                    right.compute();
+                    left.join();
+                }
+            }
+        }
+
+        if (pool == null) {
+            for (int i = 0; i < pairs.size() && !caller.isInterrupted(); i++) {
+                sepsets[i] = finder.getSepset(pairs.get(i)[0], pairs.get(i)[1]);
+            }
+        } else {
+            pool.invoke(new Task(0, pairs.size()));
+        }
+
+        return new ArrayList<>(Arrays.asList(sepsets));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Node>[] newArray(int size) {
+        return (List<Node>[]) new List[size];
+    }
+}
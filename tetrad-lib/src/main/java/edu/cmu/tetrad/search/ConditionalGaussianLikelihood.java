@@ -25,10 +25,10 @@
         import edu.cmu.tetrad.graph.Node;
         import edu.cmu.tetrad.util.TetradMatrix;
         import org.apache.commons.math3.linear.RealMatrix;
-        import org.apache.commons.math3.stat.correlation.Covariance;
         import org.apache.commons.math3.util.FastMath;
 
         import java.util.*;
+        import java.util.concurrent.ConcurrentHashMap;
 
         import static edu.cmu.tetrad.data.Discretizer.*;
         import static java.lang.Math.log;
@@ -57,17 +57,29 @@ public class ConditionalGaussianLikelihood {
     // Indices of mixedVariables.
     private Map<Node, Integer> nodesHash;
 
-    // Continuous data only.
+    // Continuous data only, each column centered at its mean, so that covariances computed from sums and cross
+    // products of the columns lose little precision.
     private double[][] continuousData;
 
+    // Indices of the variables of the data set with continuous variables discretized.
+    private Map<Node, Integer> discreteHash;
+
     // The AD Tree used to count discrete cells.
     private AdLeafTree adTree;
 
     // Multiplier on degrees of freedom for the continuous portion of those degrees.
     private double penaltyDiscount = 1;
 
-    // "Cell" consisting of all rows.
-    private final ArrayList<Integer> all;
+    // The rows and sufficient statistics of the cells of each set of discrete variables seen, keyed by the
+    // sorted column indices of the variables.
+    private final Map<List<Integer>, Cells> cellsCache = new HashMap<>();
+
+    // The approximate number of bytes held in cellsCache, counting both the row indices of the cells and the
+    // sums and cross products kept for them.
+    private long cachedBytes = 0;
+
+    // cellsCache is cleared when it would hold more than this many bytes.
+    private static final long MAX_CACHED_BYTES = 1L << 27;
 
     // Discretize the parents
     private boolean discretize = false;
@@ -118,13 +130,14 @@ public class ConditionalGaussianLikelihood {
             Node v = dataSet.getVariable(j);
 
             if (v instanceof ContinuousVariable) {
-                double[] col = new double[dataSet.getNumRows()];
-
-                for (int i = 0; i < dataSet.getNumRows(); i++) {
-                    col[i] = dataSet.getDouble(i, j);
-                }
-
-                continuousData[j] = col;
+                double[] column = DataUtils.getContinuousColumn(dataSet, j);
+                double mean = 0.0;
+                for (double d : column) mean += d;
+                mean /= column.length;
+
+                double[] centered = new double[column.length];
+                for (int i = 0; i < column.length; i++) centered[i] = column[i] - mean;
+                continuousData[j] = centered;
             }
         }
 
@@ -138,9 +151,11 @@ public class ConditionalGaussianLikelihood {
         this.dataSet = useErsatzVariables();
         this.adTree = new AdLeafTree(this.dataSet);
 
-        all = new ArrayList<>();
-        for (int i = 0; i < dataSet.getNumRows(); i++) all.add(i);
+        discreteHash = new HashMap<>();
 
+        for (int j = 0; j < this.dataSet.getNumColumns(); j++) {
+            discreteHash.put(this.dataSet.getVariable(j), j);
+        }
     }
 
     private DataSet useErsatzVariables() {
@@ -266,10 +281,11 @@ public class ConditionalGaussianLikelihood {
 
         double c1 = 0, c2 = 0;
 
-        List<List<Integer>> cells = adTree.getCellLeaves(A);
+        Cells cells = getCells(A);
+        Cells all = getCells(new ArrayList<DiscreteVariable>());
 
-        for (List<Integer> cell : cells) {
-            int a = cell.size();
+        for (int c = 0; c < cells.rows.length; c++) {
+            int a = cells.rows[c].length;
             if (a == 0) continue;
 
             if (A.size() > 0) {
@@ -281,10 +297,10 @@ public class ConditionalGaussianLikelihood {
 
                     // Determinant will be zero if data are linearly dependent.
                     if (a > continuousCols.length + 5) {
-                        TetradMatrix cov = cov(getSubsample(continuousCols, cell));
+                        TetradMatrix cov = cells.cov(c, continuousCols);
                         c2 += a * gaussianLikelihood(k, cov);
                     } else {
-                        TetradMatrix cov = cov(getSubsample(continuousCols, all));
+                        TetradMatrix cov = all.cov(0, continuousCols);
                         c2 += a * gaussianLikelihood(k, cov);
                     }
                 } catch (Exception e) {
@@ -321,21 +337,143 @@ public class ConditionalGaussianLikelihood {
         return 2.0 * sum;
     }
 
-    private TetradMatrix cov(TetradMatrix x) {
-        return new TetradMatrix(new Covariance(x.getRealMatrix(), true).getCovarianceMatrix());
+    // The cells of the given discrete variables, from the cache if they have been seen before.
+    private synchronized Cells getCells(List<DiscreteVariable> A) {
+        List<Integer> key = new ArrayList<>();
+        for (DiscreteVariable v : A) key.add(discreteHash.get(v));
+        Collections.sort(key);
+
+        Cells cells = cellsCache.get(key);
+
+        if (cells == null) {
+            int[][] rows = adTree.getCellRows(new ArrayList<>(A));
+            long bytes = 0;
+            for (int[] cell : rows) bytes += 4L * cell.length + 16;
+
+            if (cachedBytes + bytes > MAX_CACHED_BYTES) {
+                cellsCache.clear();
+                cachedBytes = 0;
+            }
+
+            cells = new Cells(key, rows);
+            cellsCache.put(key, cells);
+            cachedBytes += bytes;
+        }
+
+        return cells;
     }
 
-    // Subsample of the continuous mixedVariables conditioning on the given cell.
-    private TetradMatrix getSubsample(int[] continuousCols, List<Integer> cell) {
-        TetradMatrix subset = new TetradMatrix(cell.size(), continuousCols.length);
+    // Keeps the given moments of the given cells, charging them against the same bound as the rows. If that
+    // would exceed the bound the cache is cleared and the moments are not kept; nor are they if the cells have
+    // already been cleared from the cache, since their bytes are no longer counted.
+    private synchronized <K> void keep(Cells cells, Map<K, double[]> moments, K key, double[] values) {
+        if (cellsCache.get(cells.key) != cells) return;
+
+        long bytes = 8L * values.length + 16;
+
+        if (cachedBytes + bytes > MAX_CACHED_BYTES) {
+            cellsCache.clear();
+            cachedBytes = 0;
+            return;
+        }
+
+        if (moments.putIfAbsent(key, values) == null) {
+            cachedBytes += bytes;
+        }
+    }
+
+    /**
+     * The rows of each cell of a set of discrete variables, with the counts, sums and cross products of the
+     * continuous columns over each cell, computed as they are first asked for and then kept (within the bound
+     * on cellsCache), so that the covariance matrices of overlapping sets of continuous variables over the same
+     * cells are put together from the same moments without going back to the data.
+     */
+    private final class Cells {
+
+        // The key of these cells in cellsCache.
+        final List<Integer> key;
+
+        // The rows of each cell.
+        final int[][] rows;
+
+        // For each continuous column, its sum over each cell.
+        private final Map<Integer, double[]> sums = new ConcurrentHashMap<>();
+
+        // For each pair of continuous columns, the sum of their products over each cell.
+        private final Map<Long, double[]> crossProducts = new ConcurrentHashMap<>();
 
-        for (int i = 0; i < cell.size(); i++) {
-            for (int j = 0; j < continuousCols.length; j++) {
-                subset.set(i, j, continuousData[continuousCols[j]][cell.get(i)]);
+        Cells(List<Integer> key, int[][] rows) {
+            this.key = key;
+            this.rows = rows;
+        }
+
+        // The covariance matrix of the given continuous columns over the given cell.
+        TetradMatrix cov(int cell, int[] cols) {
+            int n = rows[cell].length;
+
+            if (n < 2) {
+                throw new IllegalArgumentException("Too few rows for a covariance matrix: " + n);
+            }
+
+            int k = cols.length;
+            double[] s = new double[k];
+
+            for (int i = 0; i < k; i++) {
+                s[i] = sums(cols[i])[cell];
+            }
+
+            TetradMatrix cov = new TetradMatrix(k, k);
+
+            for (int i = 0; i < k; i++) {
+                for (int j = 0; j <= i; j++) {
+                    double c = (crossProducts(cols[i], cols[j])[cell] - s[i] * s[j] / n) / (n - 1);
+                    cov.set(i, j, c);
+                    cov.set(j, i, c);
+                }
+            }
+
+            return cov;
+        }
+
+        private double[] sums(int col) {
+            double[] _sums = sums.get(col);
+
+            if (_sums == null) {
+                double[] x = continuousData[col];
+                _sums = new double[rows.length];
+
+                for (int c = 0; c < rows.length; c++) {
+                    double sum = 0.0;
+                    for (int r : rows[c]) sum += x[r];
+                    _sums[c] = sum;
+                }
+
+                keep(this, sums, col, _sums);
             }
+
+            return _sums;
         }
 
-        return subset;
+        private double[] crossProducts(int col1, int col2) {
+            long key = col1 < col2 ? ((long) col1 << 32) | col2 : ((long) col2 << 32) | col1;
+            double[] _crossProducts = crossProducts.get(key);
+
+            if (_crossProducts == null) {
+                double[] x = continuousData[col1];
+                double[] y = continuousData[col2];
+                _crossProducts = new double[rows.length];
+
+                for (int c = 0; c < rows.length; c++) {
+                    double sum = 0.0;
+                    for (int r : rows[c]) sum += x[r] * y[r];
+                    _crossProducts[c] = sum;
+                }
+
+                keep(this, crossProducts, key, _crossProducts);
+            }
+
+            return _crossProducts;
+        }
     }
 
     // Degrees of freedom for a discrete distribution is the product of the number of categories for each
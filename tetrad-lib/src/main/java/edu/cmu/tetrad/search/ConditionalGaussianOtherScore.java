@@ -113,6 +113,11 @@ public class ConditionalGaussianOtherScore implements Score {
         return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return true;
+    }
+
     private int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
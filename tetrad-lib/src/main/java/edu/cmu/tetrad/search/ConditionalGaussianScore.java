@@ -99,6 +99,26 @@ public class ConditionalGaussianScore implements Score {
         return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return true;
+    }
+
+    /**
+     * The score of y given z is computed once for all of the candidates.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        double[] diffs = new double[xs.length];
+        double score = localScore(y, z);
+
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = localScore(y, append(z, xs[i])) - score;
+        }
+
+        return diffs;
+    }
+
     private int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
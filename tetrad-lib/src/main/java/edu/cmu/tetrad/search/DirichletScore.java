@@ -43,6 +43,9 @@ public class DirichletScore implements LocalDiscreteScore, Score {
 
     private double lastBumpThreshold = 0.0;
 
+    // Contingency counts of the data, reused across calls.
+    private final DiscreteCounts counts;
+
     public DirichletScore(DataSet dataSet) {
         if (dataSet == null) {
             throw new NullPointerException();
@@ -81,6 +84,8 @@ public class DirichletScore implements LocalDiscreteScore, Score {
         for (int i = 0; i < variables.size(); i++) {
             numCategories[i] = (getVariable(i)).getNumCategories();
         }
+
+        this.counts = new DiscreteCounts(data, numCategories);
     }
 
     private DiscreteVariable getVariable(int i) {
@@ -107,35 +112,19 @@ public class DirichletScore implements LocalDiscreteScore, Score {
             q *= dims[p];
         }
 
-        // Conditional cell coefs of data for node given parents(node).
-        int n_jk[][] = new int[q][r];
-        int n_j[] = new int[q];
-
-        int[] parentValues = new int[parents.length];
-
-        int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = data[parents[i]];
+        if (counts.hasMissingValues(node)) {
+            throw new IllegalStateException("Please remove or impute missing " +
+                    "values (column " + node + ")");
         }
 
-        int[] myChild = data[node];
-
-        for (int i = 0; i < sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                parentValues[p] = myParents[p][i];
-            }
-
-            int childValue = myChild[i];
+        // Conditional cell coefs of data for node given parents(node).
+        int[] n_jk = counts.getCounts(node, parents);
+        int[] n_j = new int[q];
 
-            if (childValue == -99) {
-                throw new IllegalStateException("Please remove or impute missing " +
-                        "values (record " + i + " column " + i + ")");
+        for (int j = 0; j < q; j++) {
+            for (int k = 0; k < r; k++) {
+                n_j[j] += n_jk[j * r + k];
             }
-
-            int rowIndex = getRowIndex(dims, parentValues);
-
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
         }
 
         //Finally, compute the score
@@ -150,7 +139,7 @@ public class DirichletScore implements LocalDiscreteScore, Score {
             double rowScore = 0;
 
             for (int k = 0; k < r; k++) {
-                double alpha = cellPrior + n_jk[j][k];
+                double alpha = cellPrior + n_jk[j * r + k];
                 double pk = (alpha) / rowSum;
                 if (Double.isInfinite(pk)) continue;
                 double _score = (alpha - 1) * Math.log(pk);
@@ -193,6 +182,11 @@ public class DirichletScore implements LocalDiscreteScore, Score {
         return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return true;
+    }
+
     int[] append(int[] parents, int extra) {
         int[] all = new int[parents.length + 1];
         System.arraycopy(parents, 0, all, 0, parents.length);
@@ -307,15 +301,6 @@ public class DirichletScore implements LocalDiscreteScore, Score {
         throw new UnsupportedOperationException();
     }
 
-    private static int getRowIndex(int[] dim, int[] values) {
-        int rowIndex = 0;
-        for (int i = 0; i < dim.length; i++) {
-            rowIndex *= dim[i];
-            rowIndex += values[i];
-        }
-        return rowIndex;
-    }
-
     public double getStructurePrior() {
         return structurePrior;
     }
@@ -70,7 +70,7 @@ public class DiscreteMixedLikelihood {
     private double penaltyDiscount = 1;
 
     // "Cell" consisting of all rows.
-    private final ArrayList<Integer> all;
+    private final int[] all;
 
     // A constant.
     private static double LOG2PI = log(2.0 * Math.PI);
@@ -156,8 +156,8 @@ public class DiscreteMixedLikelihood {
         this.dataSet = useErsatzVariables();
         this.adTree = new AdLeafTree(this.dataSet);
 
-        all = new ArrayList<>();
-        for (int i = 0; i < dataSet.getNumRows(); i++) all.add(i);
+        all = new int[dataSet.getNumRows()];
+        for (int i = 0; i < all.length; i++) all[i] = i;
 
     }
 
@@ -276,11 +276,11 @@ public class DiscreteMixedLikelihood {
 
         double c1 = 0, c2 = 0;
 
-        List<List<Integer>> cells = adTree.getCellLeaves(A);
+        int[][] cells = adTree.getCellRows(A);
         //List<List<Integer>> cells = partition(A);
 
-        for (List<Integer> cell : cells) {
-            int a = cell.size();
+        for (int[] cell : cells) {
+            int a = cell.length;
             if (a == 0) continue;
 
             if (A.size() > 0) {
@@ -337,12 +337,12 @@ public class DiscreteMixedLikelihood {
     }
 
     // Subsample of the continuous mixedVariables conditioning on the given cell.
-    private TetradMatrix getSubsample(int[] continuousCols, List<Integer> cell) {
-        TetradMatrix subset = new TetradMatrix(cell.size(), continuousCols.length);
+    private TetradMatrix getSubsample(int[] continuousCols, int[] cell) {
+        TetradMatrix subset = new TetradMatrix(cell.length, continuousCols.length);
 
-        for (int i = 0; i < cell.size(); i++) {
+        for (int i = 0; i < cell.length; i++) {
             for (int j = 0; j < continuousCols.length; j++) {
-                subset.set(i, j, continuousData[continuousCols[j]][cell.get(i)]);
+                subset.set(i, j, continuousData[continuousCols[j]][cell[i]]);
             }
         }
 
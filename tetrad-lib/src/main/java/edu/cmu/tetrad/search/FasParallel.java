@@ -0,0 +1,794 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.IKnowledge;
+import edu.cmu.tetrad.data.Knowledge2;
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.ChoiceGenerator;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.TetradLogger;
+
+import java.io.PrintStream;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A parallel version of FasStable that returns exactly the graph and sepsets FasStable returns, whatever the number of
+ * threads. See FasStable for a description of the search.
+ * <p>
+ * At each depth the adjacencies are frozen, as in FasStable, so that the tests for one edge do not depend on the
+ * outcome of the tests for any other. The tests are split into tasks of a few conditioning sets each for a given
+ * ordered pair (x, y), so high degree nodes are spread over all of the threads, and tasks are run in a single
+ * ForkJoinPool that is reused across depths (by default the shared ForkJoinPoolInstance pool). For each (x, y), the
+ * separating set kept is the first one in ChoiceGenerator order, as in FasStable; once one is found, tasks for later
+ * conditioning sets of (x, y) are skipped. Edges are removed and sepsets recorded after all of the tests at a depth are
+ * done, in the order FasStable would record them.
+ * <p>
+ * The tests are asked through IndependenceTest.checkIndependence (or IndexedIndependenceTest.checkIndependence). The
+ * default checkIndependence holds the lock of the test while it asks isIndependent and reads the p value, so a test
+ * that does not override it is asked one question at a time, and the search then gains little from more threads.
+ * IndTestFisherZ overrides it to compute each result without shared state.
+ *
+ * @author Joseph Ramsey.
+ */
+public class FasParallel implements IFas {
+
+    /**
+     * The search graph. It is assumed going in that all of the true adjacencies of x are in this graph for every node
+     * x. It is hoped (i.e. true in the large sample limit) that true adjacencies are never removed.
+     */
+    private Graph graph;
+
+    /**
+     * The independence test. This should be appropriate to the types
+     */
+    private IndependenceTest test;
+
+    /**
+     * Specification of which edges are forbidden or required.
+     */
+    private IKnowledge knowledge = new Knowledge2();
+
+    /**
+     * The maximum number of variables conditioned on in any conditional independence test. If the depth is -1, it will
+     * be taken to be the maximum value, which is 1000. Otherwise, it should be set to a non-negative integer.
+     */
+    private int depth = 1000;
+
+    /**
+     * The number of independence tests.
+     */
+    private final AtomicInteger numIndependenceTests = new AtomicInteger();
+
+    /**
+     * The logger, by default the empty logger.
+     */
+    private TetradLogger logger = TetradLogger.getInstance();
+
+    /**
+     * The number of dependence and independence judgements.
+     */
+    private final AtomicInteger numDependenceJudgement = new AtomicInteger();
+    private final AtomicInteger numIndependenceJudgements = new AtomicInteger();
+
+    /**
+     * The sepsets found during the search.
+     */
+    private SepsetMap sepset = new SepsetMap();
+
+    /**
+     * The depth 0 graph, specified initially.
+     */
+    private Graph initialGraph;
+
+    /**
+     * The pool the tests are run in.
+     */
+    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+
+    /**
+     * The largest number of conditioning sets for one (x, y) tested in a single task.
+     */
+    private int blockSize = 8;
+
+    private NumberFormat nf = new DecimalFormat("0.00E0");
+
+    /**
+     * True iff verbose output should be printed.
+     */
+    private boolean verbose = false;
+
+    private PrintStream out = System.out;
+
+    /**
+     * The test, if it can be asked by variable index and the nodes of the graph are its variables; otherwise null.
+     */
+    private IndexedIndependenceTest indexedTest;
+
+    /**
+     * The index of each node in the test's variables, when indexedTest is not null.
+     */
+    private Map<Node, Integer> indices;
+
+    //==========================CONSTRUCTORS=============================//
+
+    /**
+     * Constructs a new FastAdjacencySearch.
+     */
+    public FasParallel(Graph graph, IndependenceTest test) {
+        this.graph = graph;
+        this.test = test;
+    }
+
+    public FasParallel(IndependenceTest test) {
+        this.test = test;
+    }
+
+    //==========================PUBLIC METHODS===========================//
+
+    /**
+     * Discovers all adjacencies in data, as FasStable does.
+     *
+     * @return a SepSet, which indicates which variables are independent conditional on which other variables
+     */
+    public Graph search() {
+        this.logger.log("info", "Starting Fast Adjacency Search.");
+
+        if (graph == null) graph = new EdgeListGraphSingleConnections(test.getVariables());
+        graph.removeEdges(graph.getEdges());
+
+        sepset = new SepsetMap();
+
+        List<Node> nodes = graph.getNodes();
+        setIndexedTest(nodes);
+
+        int _depth = depth;
+
+        if (_depth == -1) {
+            _depth = 1000;
+        }
+
+        Map<Node, Set<Node>> adjacencies = new HashMap<>();
+
+        for (Node node : nodes) {
+            adjacencies.put(node, new TreeSet<Node>());
+        }
+
+        for (int d = 0; d <= _depth; d++) {
+            boolean more;
+
+            if (d == 0) {
+                more = searchAtDepth0(nodes, adjacencies);
+            } else {
+                more = searchAtDepth(nodes, adjacencies, d);
+            }
+
+            if (!more) {
+                break;
+            }
+        }
+
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j = i + 1; j < nodes.size(); j++) {
+                Node x = nodes.get(i);
+                Node y = nodes.get(j);
+
+                if (adjacencies.get(x).contains(y)) {
+                    graph.addUndirectedEdge(x, y);
+                }
+            }
+        }
+
+        this.logger.log("info", "Finishing Fast Adjacency Search.");
+
+        return graph;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        if (depth < -1) {
+            throw new IllegalArgumentException(
+                    "Depth must be -1 (unlimited) or >= 0.");
+        }
+
+        this.depth = depth;
+    }
+
+    public IKnowledge getKnowledge() {
+        return knowledge;
+    }
+
+    public void setKnowledge(IKnowledge knowledge) {
+        if (knowledge == null) {
+            throw new NullPointerException("Cannot set knowledge to null");
+        }
+        this.knowledge = knowledge;
+    }
+
+    /**
+     * Sets the pool the independence tests are run in. By default this is the shared ForkJoinPoolInstance pool.
+     */
+    public void setPool(ForkJoinPool pool) {
+        if (pool == null) throw new NullPointerException("Pool is null.");
+        this.pool = pool;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the largest number of conditioning sets for one (x, y) tested in a single task; default 8.
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 1) throw new IllegalArgumentException("Block size must be at least 1: " + blockSize);
+        this.blockSize = blockSize;
+    }
+
+    //==============================PRIVATE METHODS======================/
+
+    // Tests are asked by variable index, saving the Node to index lookups and conditioning set lists, if the test
+    // supports that and the nodes searched over are all variables of the test.
+    private void setIndexedTest(List<Node> nodes) {
+        indexedTest = null;
+        indices = null;
+
+        if (!(test instanceof IndexedIndependenceTest)) {
+            return;
+        }
+
+        Map<Node, Integer> indices = new HashMap<>();
+        List<Node> variables = test.getVariables();
+
+        for (int i = 0; i < variables.size(); i++) {
+            indices.put(variables.get(i), i);
+        }
+
+        for (Node node : nodes) {
+            if (!indices.containsKey(node)) {
+                return;
+            }
+        }
+
+        this.indexedTest = (IndexedIndependenceTest) test;
+        this.indices = indices;
+    }
+
+    private boolean searchAtDepth0(List<Node> nodes, Map<Node, Set<Node>> adjacencies) {
+        final List<Node> empty = Collections.emptyList();
+        final List<Node[]> pairs = new ArrayList<>();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            Node x = nodes.get(i);
+
+            for (int j = i + 1; j < nodes.size(); j++) {
+                Node y = nodes.get(j);
+
+                if (initialGraph != null) {
+                    Node x2 = initialGraph.getNode(x.getName());
+                    Node y2 = initialGraph.getNode(y.getName());
+
+                    if (!initialGraph.isAdjacentTo(x2, y2)) {
+                        continue;
+                    }
+                }
+
+                pairs.add(new Node[]{x, y});
+            }
+        }
+
+        final boolean[] independent = new boolean[pairs.size()];
+        final double[] pValues = new double[pairs.size()];
+
+        class Depth0Task extends RecursiveAction {
+            private final int from;
+            private final int to;
+
+            private Depth0Task(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > 100) {
+                    int mid = (from + to) / 2;
+                    invokeAll(new Depth0Task(from, mid), new Depth0Task(mid, to));
+                    return;
+                }
+
+                for (int k = from; k < to; k++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+
+                    Node[] pair = pairs.get(k);
+
+                    try {
+                        numIndependenceTests.incrementAndGet();
+                        IndependenceResult result = indexedTest != null
+                                ? indexedTest.checkIndependence(indices.get(pair[0]), indices.get(pair[1]))
+                                : test.checkIndependence(pair[0], pair[1], empty);
+                        independent[k] = result.isIndependent();
+                        pValues[k] = result.getPValue();
+                    } catch (Exception e) {
+                        logTestFailure(pair[0], pair[1], empty, e);
+                        independent[k] = false;
+                    }
+
+                    if (independent[k]) {
+                        numIndependenceJudgements.incrementAndGet();
+                    } else {
+                        numDependenceJudgement.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        pool.invoke(new Depth0Task(0, pairs.size()));
+
+        for (int k = 0; k < pairs.size(); k++) {
+            Node x = pairs.get(k)[0];
+            Node y = pairs.get(k)[1];
+
+            boolean noEdgeRequired =
+                    knowledge.noEdgeRequired(x.getName(), y.getName());
+
+            if (independent[k] && noEdgeRequired) {
+                getSepsets().set(x, y, empty);
+
+                if (verbose) {
+                    TetradLogger.getInstance().forceLogMessage(SearchLogUtils.independenceFact(x, y, empty) + " p = " +
+                            nf.format(pValues[k]));
+                    out.println(SearchLogUtils.independenceFact(x, y, empty) + " p = " +
+                            nf.format(pValues[k]));
+                }
+            } else if (!forbiddenEdge(x, y)) {
+                adjacencies.get(x).add(y);
+                adjacencies.get(y).add(x);
+            }
+        }
+
+        return freeDegree(nodes, adjacencies) > 0;
+    }
+
+    private boolean searchAtDepth(List<Node> nodes, Map<Node, Set<Node>> adjacencies, final int depth) {
+        final Map<Node, Set<Node>> adjacenciesCopy = new HashMap<>();
+
+        for (Node node : adjacencies.keySet()) {
+            adjacenciesCopy.put(node, new HashSet<>(adjacencies.get(node)));
+        }
+
+        // The ordered pairs in the order FasStable visits them, with the same possible parent lists.
+        final List<EdgeTests> edges = new ArrayList<>();
+
+        for (Node x : nodes) {
+            List<Node> adjx = new ArrayList<>(adjacenciesCopy.get(x));
+
+            for (Node y : adjx) {
+                if (!knowledge.noEdgeRequired(x.getName(), y.getName())) {
+                    continue;
+                }
+
+                List<Node> _adjx = new ArrayList<>(adjx);
+                _adjx.remove(y);
+                List<Node> ppx = possibleParents(x, _adjx, knowledge);
+
+                if (ppx.size() >= depth) {
+                    edges.add(new EdgeTests(x, y, ppx, depth));
+                }
+            }
+        }
+
+        class EdgesTask extends RecursiveAction {
+            private final int from;
+            private final int to;
+
+            private EdgesTask(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > 1) {
+                    int mid = (from + to) / 2;
+                    invokeAll(new EdgesTask(from, mid), new EdgesTask(mid, to));
+                } else if (to - from == 1) {
+                    EdgeTests e = edges.get(from);
+
+                    if (e.numSets < 0) {
+                        e.testSequentially();
+                    } else {
+                        new SetsTask(e, 0, e.numSets).compute();
+                    }
+                }
+            }
+        }
+
+        pool.invoke(new EdgesTask(0, edges.size()));
+
+        for (EdgeTests e : edges) {
+            if (e.sepset == null) continue;
+
+            adjacencies.get(e.x).remove(e.y);
+            adjacencies.get(e.y).remove(e.x);
+
+            getSepsets().set(e.x, e.y, e.sepset);
+
+            if (verbose) {
+                TetradLogger.getInstance().forceLogMessage(SearchLogUtils.independenceFact(e.x, e.y, e.sepset) + " p = " +
+                        nf.format(e.pValue));
+                out.println(SearchLogUtils.independenceFactMsg(e.x, e.y, e.sepset, e.pValue));
+            }
+        }
+
+        return freeDegree(nodes, adjacencies) > depth;
+    }
+
+    // The tests of x _||_ y | S for S a subset of size depth of ppx. Conditioning sets are numbered in ChoiceGenerator
+    // order; sepset is the first one found to separate x and y, or null.
+    private class EdgeTests {
+        private final Node x;
+        private final Node y;
+        private final List<Node> ppx;
+        private final int depth;
+
+        // The indices of x, y and ppx in the test's variables, if it is asked by index.
+        private final int xIndex;
+        private final int yIndex;
+        private final int[] ppxIndices;
+
+        // The number of conditioning sets, or -1 if there are too many to number with a long.
+        private final long numSets;
+
+        // The number of the first separating set found so far, Long.MAX_VALUE if none.
+        private long first = Long.MAX_VALUE;
+        private List<Node> sepset = null;
+        private double pValue = Double.NaN;
+
+        EdgeTests(Node x, Node y, List<Node> ppx, int depth) {
+            this.x = x;
+            this.y = y;
+            this.ppx = ppx;
+            this.depth = depth;
+            this.numSets = choose(ppx.size(), depth);
+
+            if (indexedTest != null) {
+                this.xIndex = indices.get(x);
+                this.yIndex = indices.get(y);
+                this.ppxIndices = new int[ppx.size()];
+
+                for (int i = 0; i < ppxIndices.length; i++) {
+                    ppxIndices[i] = indices.get(ppx.get(i));
+                }
+            } else {
+                this.xIndex = -1;
+                this.yIndex = -1;
+                this.ppxIndices = null;
+            }
+        }
+
+        synchronized long getFirst() {
+            return first;
+        }
+
+        synchronized void found(long index, int[] choice, double pValue) {
+            if (index < first) {
+                this.first = index;
+                this.sepset = GraphUtils.asList(choice, ppx);
+                this.pValue = pValue;
+            }
+        }
+
+        // Tests the conditioning set given by choice, a subset of positions in ppx; returns true if it separates x
+        // and y.
+        boolean test(int[] choice, long index) {
+            boolean independent;
+            double p = Double.NaN;
+
+            try {
+                numIndependenceTests.incrementAndGet();
+                IndependenceResult result;
+
+                if (indexedTest != null) {
+                    int[] z = new int[choice.length];
+                    for (int i = 0; i < choice.length; i++) z[i] = ppxIndices[choice[i]];
+                    result = indexedTest.checkIndependence(xIndex, yIndex, z);
+                } else {
+                    result = test.checkIndependence(x, y, GraphUtils.asList(choice, ppx));
+                }
+
+                independent = result.isIndependent();
+                p = result.getPValue();
+            } catch (Exception e) {
+                logTestFailure(x, y, GraphUtils.asList(choice, ppx), e);
+                independent = false;
+            }
+
+            if (independent) {
+                numIndependenceJudgements.incrementAndGet();
+                found(index, choice, p);
+            } else {
+                numDependenceJudgement.incrementAndGet();
+            }
+
+            return independent;
+        }
+
+        void testSequentially() {
+            ChoiceGenerator cg = new ChoiceGenerator(ppx.size(), depth);
+            int[] choice;
+            long index = 0;
+
+            while ((choice = cg.next()) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                if (test(choice, index++)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // Tests conditioning sets from (inclusive) to to (exclusive) of an edge, skipping those after the first separating
+    // set found.
+    private class SetsTask extends RecursiveAction {
+        private final EdgeTests e;
+        private final long from;
+        private final long to;
+
+        SetsTask(EdgeTests e, long from, long to) {
+            this.e = e;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (from >= e.getFirst()) {
+                return;
+            }
+
+            if (to - from > blockSize) {
+                long mid = (from + to) >>> 1;
+                invokeAll(new SetsTask(e, from, mid), new SetsTask(e, mid, to));
+                return;
+            }
+
+            int n = e.ppx.size();
+            int[] choice = unrank(n, e.depth, from);
+
+            for (long index = from; index < to; index++) {
+                if (index >= e.getFirst() || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                if (e.test(choice, index)) {
+                    return;
+                }
+
+                advance(choice, n);
+            }
+        }
+    }
+
+    // A test that throws is taken to judge dependence, as in FasStable; the failure is logged rather than lost.
+    private void logTestFailure(Node x, Node y, List<Node> z, Exception e) {
+        logger.error("Independence test of " + SearchLogUtils.independenceFact(x, y, z) + " failed, so judged "
+                + "dependent: " + e);
+    }
+
+    // n choose k, or -1 if that does not fit in a long.
+    private static long choose(int n, int k) {
+        long c = 1;
+
+        try {
+            for (int i = 0; i < k; i++) {
+                c = Math.multiplyExact(c, n - i) / (i + 1);
+            }
+        } catch (ArithmeticException e) {
+            return -1;
+        }
+
+        return c;
+    }
+
+    // The index'th k-subset of {0,...,n-1} in lexicographic (ChoiceGenerator) order.
+    private static int[] unrank(int n, int k, long index) {
+        int[] choice = new int[k];
+        int v = 0;
+
+        for (int i = 0; i < k; i++) {
+            while (true) {
+                long count = choose(n - v - 1, k - i - 1);
+
+                if (index < count) {
+                    choice[i] = v++;
+                    break;
+                }
+
+                index -= count;
+                v++;
+            }
+        }
+
+        return choice;
+    }
+
+    // Moves choice to the next k-subset of {0,...,n-1} in lexicographic order.
+    private static void advance(int[] choice, int n) {
+        int k = choice.length;
+        int i = k - 1;
+
+        while (i >= 0 && choice[i] == n - k + i) {
+            i--;
+        }
+
+        if (i < 0) return;
+
+        choice[i]++;
+
+        for (int j = i + 1; j < k; j++) {
+            choice[j] = choice[j - 1] + 1;
+        }
+    }
+
+    private int freeDegree(List<Node> nodes, Map<Node, Set<Node>> adjacencies) {
+        int max = 0;
+
+        for (Node x : nodes) {
+            Set<Node> opposites = adjacencies.get(x);
+
+            for (Node y : opposites) {
+                Set<Node> adjx = new HashSet<>(opposites);
+                adjx.remove(y);
+
+                if (adjx.size() > max) {
+                    max = adjx.size();
+                }
+            }
+        }
+
+        return max;
+    }
+
+    private boolean forbiddenEdge(Node x, Node y) {
+        String name1 = x.getName();
+        String name2 = y.getName();
+
+        if (knowledge.isForbidden(name1, name2) &&
+                knowledge.isForbidden(name2, name1)) {
+            this.logger.log("edgeRemoved", "Removed " + Edges.undirectedEdge(x, y) + " because it was " +
+                    "forbidden by background knowledge.");
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private List<Node> possibleParents(Node x, List<Node> adjx,
+                                       IKnowledge knowledge) {
+        List<Node> possibleParents = new LinkedList<>();
+        String _x = x.getName();
+
+        for (Node z : adjx) {
+            String _z = z.getName();
+
+            if (possibleParentOf(_z, _x, knowledge)) {
+                possibleParents.add(z);
+            }
+        }
+
+        return possibleParents;
+    }
+
+    private boolean possibleParentOf(String z, String x, IKnowledge knowledge) {
+        return !knowledge.isForbidden(z, x) && !knowledge.isRequired(x, z);
+    }
+
+    public int getNumIndependenceTests() {
+        return numIndependenceTests.get();
+    }
+
+    public void setTrueGraph(Graph trueGraph) {
+    }
+
+    public int getNumFalseDependenceJudgments() {
+        return 0;
+    }
+
+    public int getNumDependenceJudgments() {
+        return numDependenceJudgement.get();
+    }
+
+    public SepsetMap getSepsets() {
+        return sepset;
+    }
+
+    public void setInitialGraph(Graph initialGraph) {
+        this.initialGraph = initialGraph;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    @Override
+    public boolean isAggressivelyPreventCycles() {
+        return false;
+    }
+
+    @Override
+    public void setAggressivelyPreventCycles(boolean aggressivelyPreventCycles) {
+
+    }
+
+    @Override
+    public IndependenceTest getIndependenceTest() {
+        return test;
+    }
+
+    @Override
+    public Graph search(List<Node> nodes) {
+        return null;
+    }
+
+    @Override
+    public long getElapsedTime() {
+        return 0;
+    }
+
+    @Override
+    public List<Node> getNodes() {
+        return test.getVariables();
+    }
+
+    @Override
+    public List<Triple> getAmbiguousTriples(Node node) {
+        return null;
+    }
+
+    public int getNumIndependenceJudgements() {
+        return numIndependenceJudgements.get();
+    }
+
+    @Override
+    public void setOut(PrintStream out) {
+        this.out = out;
+    }
+}
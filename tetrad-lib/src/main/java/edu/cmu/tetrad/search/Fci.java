@@ -29,10 +29,12 @@ import edu.cmu.tetrad.graph.Edge;
 import edu.cmu.tetrad.graph.Endpoint;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.TetradLogger;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ConcurrentMap;
 
 
@@ -116,6 +118,16 @@ public final class Fci implements GraphSearch {
     private Graph initialGraph;
     private int possibleDsepDepth = -1;
 
+    /**
+     * True iff the Possible-D-Sep sets are all taken from the graph before any edge is removed in that step.
+     */
+    private boolean possibleDsepStable = false;
+
+    /**
+     * The pool the Possible-D-Sep sepsets are looked up in, in the stable version; null to look them up in the
+     * calling thread.
+     */
+    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
 
     //============================CONSTRUCTORS============================//
 
@@ -211,15 +223,26 @@ public final class Fci implements GraphSearch {
 //            long time1 = System.currentTimeMillis();
             new FciOrient(new SepsetsSet(this.sepsets, independenceTest)).ruleR0(graph);
 
-            for (Edge edge : new ArrayList<>(graph.getEdges())) {
-                if (Thread.currentThread().isInterrupted()) {
+            List<Node[]> pairs = new ArrayList<>();
+
+            for (Edge edge : graph.getEdges()) {
+                pairs.add(new Node[]{edge.getNode1(), edge.getNode2()});
+            }
+
+            // In the stable version, the Possible-D-Sep sets are taken from the graph as it is before any of these
+            // removals, so the sepsets can be looked up in parallel; otherwise each edge sees the removals before it.
+            List<List<Node>> found = possibleDsepStable
+                    ? ConcurrentSepsetSearch.getSepsets(pairs, sp::getSepset, pool) : null;
+
+            for (int i = 0; i < pairs.size(); i++) {
+                if (!possibleDsepStable && Thread.currentThread().isInterrupted()) {
                     break;
                 }
 
-                Node x = edge.getNode1();
-                Node y = edge.getNode2();
+                Node x = pairs.get(i)[0];
+                Node y = pairs.get(i)[1];
 
-                List<Node> sepset = sp.getSepset(x, y);
+                List<Node> sepset = possibleDsepStable ? found.get(i) : sp.getSepset(x, y);
 
                 if (sepset != null) {
                     graph.removeEdge(x, y);
@@ -276,6 +299,14 @@ public final class Fci implements GraphSearch {
         return this.sepsets;
     }
 
+    /**
+     * Sets the pool the Possible-D-Sep sepsets are looked up in when the stable version is used. By default this is
+     * the shared ForkJoinPoolInstance pool; if null, they are looked up one at a time in the calling thread.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
     public IKnowledge getKnowledge() {
         return knowledge;
     }
@@ -312,6 +343,20 @@ public final class Fci implements GraphSearch {
         this.possibleDsepSearchDone = possibleDsepSearchDone;
     }
 
+    public boolean isPossibleDsepStable() {
+        return possibleDsepStable;
+    }
+
+    /**
+     * @param possibleDsepStable True if the Possible-D-Sep sets should all be taken from the graph as it is before
+     *                           any edge is removed in that step, as in FCI-stable. The sepsets are then looked up in
+     *                           parallel, and the result does not depend on the order of the edges. False by default,
+     *                           in which case the edges are visited one at a time and each sees the removals before it.
+     */
+    public void setPossibleDsepStable(boolean possibleDsepStable) {
+        this.possibleDsepStable = possibleDsepStable;
+    }
+
     /**
      * @return the maximum length of any discriminating path, or -1 of unlimited.
      */
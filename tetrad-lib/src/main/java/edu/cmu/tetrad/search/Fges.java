@@ -130,8 +130,11 @@ public final class Fges implements GraphSearch, GraphScorer {
     // Map from variables to their column indices in the data set.
     private ConcurrentMap<Node, Integer> hashIndices;
 
-    // The static ForkJoinPool instance.
-    private final ForkJoinPool pool;
+    // The pool given at construction, or null if each search makes its own pool of maxThreads threads.
+    private final ForkJoinPool sharedPool;
+
+    // The pool the current search runs in.
+    private ForkJoinPool pool;
 
     // A graph where X--Y means that X and Y have non-zero total effect on one another.
     private Graph effectEdgesGraph;
@@ -170,6 +173,9 @@ public final class Fges implements GraphSearch, GraphScorer {
     // The maximum number of threads to use.
     private final int maxThreads;
 
+    // True if local scores should be cached for the length of a search.
+    private boolean cacheScores = false;
+
     //===========================CONSTRUCTORS=============================//
 
     /**
@@ -177,23 +183,46 @@ public final class Fges implements GraphSearch, GraphScorer {
      * positive value in case of conditional dependence and a negative values in
      * case of conditional independence. See Chickering (2002), locally
      * consistent scoring criterion. This by default uses all of the processors on
-     * the machine.
+     * the machine. If constructed in a task of the shared ForkJoinPoolInstance pool,
+     * as the searches of streamed resamples are, the search runs in that pool, so
+     * that the threads of both are bounded together.
      */
     public Fges(Score score) {
-        this(score, Runtime.getRuntime().availableProcessors() * 10);
+        this(score, Runtime.getRuntime().availableProcessors() * 10, callersSharedPool());
     }
 
     /**
      * Lets one construct with a score and a parallelism, that is, the number of threads to effectively use.
+     * Each search makes a pool of this many threads and shuts it down when done.
      */
     public Fges(Score score, int parallelism) {
+        this(score, parallelism, null);
+    }
+
+    /**
+     * Lets one construct with a score and a pool to search in. The pool is not shut down.
+     */
+    public Fges(Score score, ForkJoinPool pool) {
+        this(score, 0, pool);
+
+        if (pool == null) {
+            throw new NullPointerException("Pool is null.");
+        }
+    }
+
+    private Fges(Score score, int parallelism, ForkJoinPool pool) {
         if (score == null) {
             throw new NullPointerException();
         }
         setScore(score);
-        this.maxThreads = parallelism;
-        this.pool = new ForkJoinPool(parallelism);
-        this.graph = new EdgeListGraphSingleConnections(getVariables());
+        this.sharedPool = pool;
+        this.maxThreads = pool != null ? pool.getParallelism() : parallelism;
+        this.graph = new IndexedEdgeListGraph(getVariables());
+    }
+
+    private static ForkJoinPool callersSharedPool() {
+        ForkJoinPool shared = ForkJoinPoolInstance.getInstance().getPool();
+        return ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == shared ? shared : null;
     }
 
     //==========================PUBLIC METHODS==========================//
@@ -222,20 +251,39 @@ public final class Fges implements GraphSearch, GraphScorer {
      * @return the resulting Pattern.
      */
     public Graph search() {
+        pool = sharedPool != null ? sharedPool : new ForkJoinPool(maxThreads);
+        Score score = this.score;
+
+        if (cacheScores && !(score instanceof CachingScore)) {
+            this.score = new CachingScore(score);
+        }
+
+        try {
+            return searchInPool();
+        } finally {
+            if (sharedPool == null) {
+                pool.shutdown();
+            }
+
+            pool = null;
+            this.score = score;
+        }
+    }
+
+    private Graph searchInPool() {
         long start = System.currentTimeMillis();
         topGraphs.clear();
 
         lookupArrows = new ConcurrentHashMap<>();
         final List<Node> nodes = new ArrayList<>(variables);
-        graph = new EdgeListGraphSingleConnections(nodes);
+        graph = new IndexedEdgeListGraph(nodes);
 
         if (adjacencies != null) {
             adjacencies = GraphUtils.replaceNodes(adjacencies, nodes);
         }
 
         if (initialGraph != null) {
-            graph = new EdgeListGraphSingleConnections(initialGraph);
-            graph = GraphUtils.replaceNodes(graph, nodes);
+            graph = new IndexedEdgeListGraph(GraphUtils.replaceNodes(initialGraph, nodes));
         }
 
         addRequiredEdges(graph);
@@ -356,6 +404,15 @@ public final class Fges implements GraphSearch, GraphScorer {
         this.initialGraph = initialGraph;
     }
 
+    /**
+     * Sets whether the local scores computed during a search should be cached, so that a score asked for again
+     * (across the forward and backward phases, say) is not recomputed. The cache is dropped when the search is
+     * done. False by default.
+     */
+    public void setCacheScores(boolean cacheScores) {
+        this.cacheScores = cacheScores;
+    }
+
     /**
      * Sets whether verbose output should be produced.
      */
@@ -543,6 +600,9 @@ public final class Fges implements GraphSearch, GraphScorer {
                 Node y = nodes.get(i);
                 neighbors.put(y, emptySet);
 
+                // The candidate parents of y.
+                List<Node> candidates = new ArrayList<>();
+
                 for (int j = i + 1; j < nodes.size() && !Thread.currentThread().isInterrupted(); j++) {
                     Node x = nodes.get(j);
 
@@ -560,41 +620,42 @@ public final class Fges implements GraphSearch, GraphScorer {
                         continue;
                     }
 
-                    // start: changed by Fattaneh
-                    int child = hashIndices.get(y);
-                    int parent = hashIndices.get(x);
-                    double bump = 0.0, bump2 = 0.0;
+                    if (boundGraph != null && !boundGraph.isAdjacentTo(x, y)) {
+                        continue;
+                    }
 
-                    // if the initial graph graph is empty, proceed as usual
-                    if (initialGraph == null){
-                        bump = score.localScoreDiff(parent, child);
+                    candidates.add(x);
+                }
+
+                // start: changed by Fattaneh
+                int child = hashIndices.get(y);
+
+                // The bump of each x --> y is scored given the parents of y in the initial graph, which are
+                // empty if there is no initial graph or y has no adjacencies in it. These are the same for
+                // every x, so all of the candidates are scored in one call.
+                int[] parentIndicesY = new int[0];
 
+                if (initialGraph != null && !initialGraph.getAdjacentNodes(y).isEmpty()) {
+                    Set<Node> parentsY = new HashSet<>(initialGraph.getParents(y));
+                    parentIndicesY = new int[parentsY.size()];
+                    int	c = 0;
+                    for (Node p : parentsY) {
+                        parentIndicesY[c++] = hashIndices.get(p);
                     }
-                    else{
-                        // if x or y has no adjacency in the initial graph, then proceed as if initial graph is empty
-                        if (initialGraph.getAdjacentNodes(x).isEmpty() && initialGraph.getAdjacentNodes(y).isEmpty()) {
-                            bump = score.localScoreDiff(parent, child);
+                }
 
-                        }
-                        // if x or y has adjacencies in the initial graph, then that should be considered in scoring
-                        else{
-                            int[] parentIndicesY;
-                            Set<Node> parentsY = new HashSet<>(initialGraph.getParents(y));
-                            parentIndicesY = new int[parentsY.size()];
-                            int	c = 0;
-                            for (Node p : parentsY) {
-                                parentIndicesY[c++] = hashIndices.get(p);
-                            }
+                int[] parents = new int[candidates.size()];
 
-                            bump  = score.localScoreDiff(parent, child, parentIndicesY);
+                for (int k = 0; k < candidates.size(); k++) {
+                    parents[k] = hashIndices.get(candidates.get(k));
+                }
 
-//							if (verbose2){
-//								System.out.println("bump: " + bump);
-//								System.out.println("bump w/o parents y: " + score.localScoreDiff(parent, child));
-//							}
-                        }
+                double[] bumps = score.localScoreDiffs(parents, child, parentIndicesY);
 
-                    }
+                for (int k = 0; k < candidates.size(); k++) {
+                    Node x = candidates.get(k);
+                    int parent = parents[k];
+                    double bump = bumps[k], bump2 = 0.0;
 
                     // computing the bump of an edge from y (child) --> x (parent)
                     if (symmetricFirstStep) {
@@ -634,10 +695,6 @@ public final class Fges implements GraphSearch, GraphScorer {
 //                        bump = bump > bump2 ? bump : bump2;
 //                    }
 
-                    if (boundGraph != null && !boundGraph.isAdjacentTo(x, y)) {
-                        continue;
-                    }
-
                     if (bump > 0) {
                         final Edge edge = Edges.undirectedEdge(x, y);
                         effectEdgesGraph.addEdge(edge);
@@ -1965,6 +2022,10 @@ public final class Fges implements GraphSearch, GraphScorer {
     //===========================SCORING METHODS===================//
 
     private double scoreDag(Graph dag, boolean recordScores) {
+
+        // Look through a cache to the kind of score it holds.
+        Score score = this.score instanceof CachingScore ? ((CachingScore) this.score).getScore() : this.score;
+
         if (score instanceof GraphScore) return 0.0;
 
         Score score2 = score;
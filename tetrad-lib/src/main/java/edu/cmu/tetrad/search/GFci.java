@@ -23,10 +23,15 @@ package edu.cmu.tetrad.search;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.util.ChoiceGenerator;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.TetradLogger;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * J.M. Ogarrio and P. Spirtes and J. Ramsey, "A Hybrid Causal Search Algorithm
@@ -80,6 +85,13 @@ public final class GFci implements GraphSearch {
     private SepsetProducer sepsets;
     private long elapsedTime;
 
+    // The sepsets of the edges removed from the FGES graph.
+    private SepsetMap sepsetMap;
+
+    // The pool FGES runs in and the sepsets are looked up in; null to run FGES in one thread and look the sepsets up in
+    // the calling thread.
+    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+
     //============================CONSTRUCTORS============================//
     public GFci(IndependenceTest test, Score score) {
         if (score == null) {
@@ -99,24 +111,24 @@ public final class GFci implements GraphSearch {
         logger.log("info", "Starting FCI algorithm.");
         logger.log("info", "Independence test = " + getIndependenceTest() + ".");
 
-        this.graph = new EdgeListGraphSingleConnections(nodes);
+        this.graph = new IndexedEdgeListGraph(nodes);
 
-        Fges fges = new Fges(score);
+        Fges fges = pool != null ? new Fges(score, pool) : new Fges(score, 1);
         fges.setKnowledge(getKnowledge());
         fges.setVerbose(verbose);
         fges.setFaithfulnessAssumed(faithfulnessAssumed);
         fges.setMaxDegree(maxDegree);
         fges.setOut(out);
         graph = fges.search();
-        Graph fgesGraph = new EdgeListGraphSingleConnections(graph);
+        Graph fgesGraph = new IndexedEdgeListGraph(graph);
 
-        sepsets = new SepsetsGreedy(fgesGraph, independenceTest, null, maxDegree);
+        // The sepsets depend only on fgesGraph, so they are looked up in parallel first, and the edges removed
+        // afterwards. They are kept, so that modifiedR0 and the orientation rules need not look them up again.
+        SepsetProducer greedy = new SepsetsGreedy(fgesGraph, independenceTest, null, maxDegree);
+        List<Node[]> pairs = new ArrayList<>();
+        Set<Edge> seen = new HashSet<>();
 
         for (Node b : nodes) {
-            if (Thread.currentThread().isInterrupted()) {
-                break;
-            }
-
             List<Node> adjacentNodes = fgesGraph.getAdjacentNodes(b);
 
             if (adjacentNodes.size() < 2) {
@@ -127,21 +139,29 @@ public final class GFci implements GraphSearch {
             int[] combination;
 
             while ((combination = cg.next()) != null) {
-                if (Thread.currentThread().isInterrupted()) {
-                    break;
-                }
-
                 Node a = adjacentNodes.get(combination[0]);
                 Node c = adjacentNodes.get(combination[1]);
 
-                if (graph.isAdjacentTo(a, c) && fgesGraph.isAdjacentTo(a, c)) {
-                    if (sepsets.getSepset(a, c) != null) {
-                        graph.removeEdge(a, c);
-                    }
+                if (fgesGraph.isAdjacentTo(a, c) && seen.add(Edges.undirectedEdge(a, c))) {
+                    pairs.add(new Node[]{a, c});
                 }
             }
         }
 
+        List<List<Node>> found = ConcurrentSepsetSearch.getSepsets(pairs, greedy::getSepset, pool);
+        sepsetMap = new SepsetMap();
+
+        for (int i = 0; i < pairs.size(); i++) {
+            if (found.get(i) != null) {
+                Node a = pairs.get(i)[0];
+                Node c = pairs.get(i)[1];
+                graph.removeEdge(a, c);
+                sepsetMap.set(a, c, found.get(i));
+            }
+        }
+
+        sepsets = new SepsetsGreedy(fgesGraph, independenceTest, sepsetMap, maxDegree);
+
         modifiedR0(fgesGraph);
 
         FciOrient fciOrient = new FciOrient(sepsets);
@@ -319,6 +339,22 @@ public final class GFci implements GraphSearch {
         this.faithfulnessAssumed = faithfulnessAssumed;
     }
 
+    /**
+     * @return the sepsets of the edges removed from the FGES graph by the last search.
+     */
+    public SepsetMap getSepsets() {
+        return sepsetMap;
+    }
+
+    /**
+     * Sets the pool FGES runs in and the sepsets of the FGES graph are looked up in. By default this is the shared
+     * ForkJoinPoolInstance pool; if null, FGES runs in one thread and the sepsets are looked up one at a time in the
+     * calling thread.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
     //===========================================PRIVATE METHODS=======================================//
     /**
      * Orients according to background knowledge
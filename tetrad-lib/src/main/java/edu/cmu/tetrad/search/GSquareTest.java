@@ -88,7 +88,7 @@ public final class GSquareTest extends ChiSquareTest {
 
         // Reset the cell table for the columns referred to in
         // 'testIndices.' Do cell coefs for those columns.
-        getCellTable().addToTable(getDataSet(), testIndices);
+        getCellTable().addToTable(getCounts(), testIndices);
 
         // Indicator arrays to tell the cell table which margins
         // to calculate. For x _||_ y | z1, z2, ..., we want to
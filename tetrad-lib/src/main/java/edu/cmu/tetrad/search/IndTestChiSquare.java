@@ -171,6 +171,14 @@ public final class IndTestChiSquare implements IndependenceTest {
         return pValue;
     }
 
+    /**
+     * The chi square statistic and its degrees of freedom do not depend on which of x and y indexes the rows of
+     * the contingency tables.
+     */
+    public boolean isSymmetric() {
+        return true;
+    }
+
     /**
      * Determines whether variable x is independent of variable y given a list of conditioning varNames z.
      *
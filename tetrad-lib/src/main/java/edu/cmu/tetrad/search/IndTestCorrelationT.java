@@ -42,7 +42,7 @@ import static java.lang.Math.sqrt;
  * @author Joseph Ramsey
  * @author Frank Wimberly adapted IndTestCramerT for Fisher's Z
  */
-public final class IndTestCorrelationT implements IndependenceTest {
+public final class IndTestCorrelationT implements IndexedIndependenceTest {
 
     /**
      * The covariance matrix.
@@ -50,9 +50,9 @@ public final class IndTestCorrelationT implements IndependenceTest {
     private final ICovarianceMatrix covMatrix;
 
     /**
-     * The matrix out of the cov matrix.
+     * Computes partial correlations from the cov matrix.
      */
-    private final TetradMatrix _covMatrix;
+    private final PartialCorrelationKernel kernel;
 
     /**
      * The variables of the covariance matrix, in order. (Unmodifiable list.)
@@ -100,7 +100,7 @@ public final class IndTestCorrelationT implements IndependenceTest {
         }
 
         this.covMatrix = new CovarianceMatrix(dataSet);
-        this._covMatrix = covMatrix.getMatrix();
+        this.kernel = new PartialCorrelationKernel(covMatrix.getMatrix().toArray());
         List<Node> nodes = covMatrix.getVariables();
 
         this.variables = Collections.unmodifiableList(nodes);
@@ -124,7 +124,7 @@ public final class IndTestCorrelationT implements IndependenceTest {
         this.dataSet = new BoxDataSet(new DoubleDataBox(data.toArray()), variables);
         this.dataSet = DataUtils.center(dataSet);
         this.covMatrix = new CovarianceMatrix(dataSet);
-        this._covMatrix = covMatrix.getMatrix();
+        this.kernel = new PartialCorrelationKernel(covMatrix.getMatrix().toArray());
         this.variables = Collections.unmodifiableList(variables);
         this.indexMap = indexMap(variables);
         this.nameMap = mapNames(variables);
@@ -137,7 +137,7 @@ public final class IndTestCorrelationT implements IndependenceTest {
      */
     public IndTestCorrelationT(ICovarianceMatrix corrMatrix, double alpha) {
         this.covMatrix = corrMatrix;
-        this._covMatrix = corrMatrix.getMatrix();
+        this.kernel = new PartialCorrelationKernel(corrMatrix.getMatrix().toArray());
         this.variables = Collections.unmodifiableList(corrMatrix.getVariables());
         this.indexMap = indexMap(variables);
         this.nameMap = mapNames(variables);
@@ -183,11 +183,23 @@ public final class IndTestCorrelationT implements IndependenceTest {
      * @throws RuntimeException if a matrix singularity is encountered.
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
+        int[] _z = new int[z.size()];
+        for (int i = 0; i < z.size(); i++) _z[i] = indexMap.get(z.get(i));
+        return isIndependent(indexMap.get(x), indexMap.get(y), _z);
+    }
+
+    /**
+     * Determines whether variable x is independent of variable y given conditioning variables z, all given as indices
+     * into getVariables().
+     *
+     * @return true iff x _||_ y | z.
+     * @throws RuntimeException if a matrix singularity is encountered.
+     */
+    public boolean isIndependent(int _x, int _y, int... _z) {
         double r;
         int n = sampleSize();
 
-        TetradMatrix submatrix = DataUtils.subMatrix(_covMatrix, indexMap, x, y, z);
-        r = StatUtils.partialCorrelation(submatrix);
+        r = kernel.partialCorrelation(_x, _y, _z);
 
         double t = Math.sqrt(n - 2) * (r / Math.sqrt(1. - r * r));
         pValue = 2.0 * (1.0 - gettDistribution().cumulativeProbability(abs(t)));
@@ -195,6 +207,11 @@ public final class IndTestCorrelationT implements IndependenceTest {
         boolean independent = pValue > alpha;
 
         if (verbose) {
+            Node x = variables.get(_x);
+            Node y = variables.get(_y);
+            List<Node> z = new ArrayList<>();
+            for (int i : _z) z.add(variables.get(i));
+
             if (independent) {
                 TetradLogger.getInstance().log("independencies",
                         SearchLogUtils.independenceFactMsg(x, y, z, r)); //getScore()));
@@ -231,6 +248,13 @@ public final class IndTestCorrelationT implements IndependenceTest {
         return pValue;
     }
 
+    /**
+     * Partial correlations are symmetric in x and y.
+     */
+    public boolean isSymmetric() {
+        return true;
+    }
+
     /**
      * Sets the significance level at which independence judgments should be made.  Affects the cutoff for partial
      * correlations to be considered statistically equal to zero.
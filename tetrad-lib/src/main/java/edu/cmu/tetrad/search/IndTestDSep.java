@@ -23,6 +23,7 @@ package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.DSeparationOracle;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.IndependenceFact;
 import edu.cmu.tetrad.graph.Node;
@@ -44,6 +45,11 @@ public class IndTestDSep implements IndependenceTest {
      */
     private Graph graph;
 
+    /**
+     * Answers the d-separation queries for the graph; remade if the graph is replaced or changes size.
+     */
+    private volatile DSeparationOracle oracle;
+
     /**
      * The list of observed variables (i.e. variables for observed nodes).
      */
@@ -152,7 +158,7 @@ public class IndTestDSep implements IndependenceTest {
             }
         }
 
-        boolean dSeparated = !getGraph().isDConnectedTo(x, y, z);
+        boolean dSeparated = getOracle().isDSeparatedFrom(x, y, z);
 
         if (verbose) {
             if (dSeparated) {
@@ -207,7 +213,27 @@ public class IndTestDSep implements IndependenceTest {
             }
         }
 
-        return getGraph().isDSeparatedFrom(x, y, z);
+        return getOracle().isDSeparatedFrom(x, y, z);
+    }
+
+    /**
+     * @return the observed variables other than x that are d-connected to x given z, found in a single pass over
+     * the graph.
+     */
+    public List<Node> getDConnectedVars(Node x, List<Node> z) {
+        if (!observedVars.contains(x)) {
+            throw new IllegalArgumentException("Not an observed variable: " + x);
+        }
+
+        List<Node> dConnected = new ArrayList<>();
+
+        for (Node y : getOracle().getDConnectedNodes(x, z)) {
+            if (observedVars.contains(y)) {
+                dConnected.add(y);
+            }
+        }
+
+        return dConnected;
     }
 
     /**
@@ -217,6 +243,13 @@ public class IndTestDSep implements IndependenceTest {
         return this.pvalue;
     }
 
+    /**
+     * D-separation is symmetric.
+     */
+    public boolean isSymmetric() {
+        return true;
+    }
+
     /**
      * @return the list of TetradNodes over which this independence checker is capable of determinine independence
      * relations-- that is, all the variables in the given graph or the given data set.
@@ -268,6 +301,18 @@ public class IndTestDSep implements IndependenceTest {
     
     public void setGraph(Graph graph) {
         this.graph = graph;
+        this.oracle = null;
+    }
+
+    private DSeparationOracle getOracle() {
+        DSeparationOracle oracle = this.oracle;
+
+        if (oracle == null || oracle.getGraph() != graph || oracle.isStale()) {
+            oracle = new DSeparationOracle(graph);
+            this.oracle = oracle;
+        }
+
+        return oracle;
     }
 
     public String toString() {
@@ -43,13 +43,18 @@ import static java.lang.StrictMath.log;
  * @author Joseph Ramsey
  * @author Frank Wimberly adapted IndTestCramerT for Fisher's Z
  */
-public final class IndTestFisherZ implements IndependenceTest {
+public final class IndTestFisherZ implements IndexedIndependenceTest {
 
     /**
      * The correlation matrix.
      */
     private final ICovarianceMatrix cov;
 
+    /**
+     * Computes partial correlations from the correlation matrix.
+     */
+    private final PartialCorrelationKernel kernel;
+
     /**
      * The variables of the covariance matrix, in order. (Unmodifiable list.)
      */
@@ -91,6 +96,7 @@ public final class IndTestFisherZ implements IndependenceTest {
         }
 
         this.cov = new CorrelationMatrix(dataSet);
+        this.kernel = new PartialCorrelationKernel(cov.getMatrix().toArray());
         List<Node> nodes = this.cov.getVariables();
 
         this.variables = Collections.unmodifiableList(nodes);
@@ -111,6 +117,7 @@ public final class IndTestFisherZ implements IndependenceTest {
     public IndTestFisherZ(TetradMatrix data, List<Node> variables, double alpha) {
         this.dataSet = new BoxDataSet(new VerticalDoubleDataBox(data.transpose().toArray()), variables);
         this.cov = new CorrelationMatrix(dataSet);
+        this.kernel = new PartialCorrelationKernel(cov.getMatrix().toArray());
         this.variables = Collections.unmodifiableList(variables);
         this.indexMap = indexMap(variables);
         this.nameMap = nameMap(variables);
@@ -123,6 +130,7 @@ public final class IndTestFisherZ implements IndependenceTest {
      */
     public IndTestFisherZ(ICovarianceMatrix covMatrix, double alpha) {
         this.cov = new CorrelationMatrix(covMatrix);
+        this.kernel = new PartialCorrelationKernel(cov.getMatrix().toArray());
         this.variables = covMatrix.getVariables();
         this.indexMap = indexMap(variables);
         this.nameMap = nameMap(variables);
@@ -168,33 +176,73 @@ public final class IndTestFisherZ implements IndependenceTest {
      * @throws RuntimeException if a matrix singularity is encountered.
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
+        int[] _z = new int[z.size()];
+        for (int i = 0; i < z.size(); i++) _z[i] = indexMap.get(z.get(i));
+        return isIndependent(indexMap.get(x), indexMap.get(y), _z);
+    }
+
+    /**
+     * Determines whether variable x is independent of variable y given conditioning variables z, all given as indices
+     * into getVariables().
+     *
+     * @return true iff x _||_ y | z.
+     */
+    public boolean isIndependent(int x, int y, int... z) {
+        double fisherZ = fisherZ(x, y, z);
+        this.fisherZ = fisherZ;
+        return fisherZ < cutoff;
+    }
+
+    /**
+     * The judgment, p value and score are computed without reference to the last test, so this may be called from
+     * many threads at once.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        int[] _z = new int[z.size()];
+        for (int i = 0; i < z.size(); i++) _z[i] = indexMap.get(z.get(i));
+        return checkIndependence(indexMap.get(x), indexMap.get(y), _z);
+    }
+
+    /**
+     * The judgment, p value and score are computed without reference to the last test, so this may be called from
+     * many threads at once.
+     */
+    public IndependenceResult checkIndependence(int x, int y, int... z) {
+        double fisherZ = fisherZ(x, y, z);
+        return new IndependenceResult(fisherZ < cutoff, pValue(fisherZ), fisherZ - cutoff);
+    }
+
+    /**
+     * Partial correlations are symmetric in x and y.
+     */
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    // The absolute Fisher Z statistic for x _||_ y | z, infinite if cov(z, z) is singular.
+    private double fisherZ(int x, int y, int[] z) {
         int n = sampleSize();
         double r;
 
         try {
-            r = partialCorrelation(x, y, z);
+            r = kernel.partialCorrelation(x, y, z);
         } catch (SingularMatrixException e) {
-            System.out.println(SearchLogUtils.determinismDetected(z, x));
-            this.fisherZ = Double.POSITIVE_INFINITY;
-            return false;
+            System.out.println(SearchLogUtils.determinismDetected(getVariableList(z), variables.get(x)));
+            return Double.POSITIVE_INFINITY;
         }
 
         double q = 0.5 * (log(1.0 + r) - Math.log(1.0 - r));
-        double fisherZ = sqrt((double)(n - 3 - z.size())) * abs(q);
-        this.fisherZ = fisherZ;
-        return fisherZ < cutoff;
+        return sqrt((double) (n - 3 - z.length)) * abs(q);
     }
 
-    private double partialCorrelation(Node x, Node y, List<Node> z) throws SingularMatrixException {
-        int[] indices = new int[z.size() + 2];
-        indices[0] = indexMap.get(x);
-        indices[1] = indexMap.get(y);
-
-//        if (z.isEmpty()) return cov.getValue(indices[0], indices[1]);
+    private double pValue(double fisherZ) {
+        return 2.0 * (1.0 - normal.cumulativeProbability(abs(fisherZ)));
+    }
 
-        for (int i = 0; i < z.size(); i++) indices[i + 2] = indexMap.get(z.get(i));
-        TetradMatrix submatrix = cov.getSubmatrix(indices).getMatrix();
-        return StatUtils.partialCorrelation(submatrix);
+    private List<Node> getVariableList(int[] indices) {
+        List<Node> nodes = new ArrayList<>();
+        for (int i : indices) nodes.add(variables.get(i));
+        return nodes;
     }
 
     public boolean isIndependent(Node x, Node y, Node... z) {
@@ -214,7 +262,7 @@ public final class IndTestFisherZ implements IndependenceTest {
      * @return the probability associated with the most recently computed independence test.
      */
     public double getPValue() {
-        return 2.0 * (1.0 - normal.cumulativeProbability(abs(fisherZ)));
+        return pValue(fisherZ);
     }
 
     /**
@@ -42,7 +42,7 @@ import static java.lang.Math.abs;
  * @author Joseph Ramsey
  * @author Frank Wimberly adapted IndTestCramerT for Fisher's Z
  */
-public final class IndTestPartialCorrelation implements IndependenceTest {
+public final class IndTestPartialCorrelation implements IndexedIndependenceTest {
 
     /**
      * The variables of the covariance matrix, in order. (Unmodifiable list.)
@@ -73,6 +73,16 @@ public final class IndTestPartialCorrelation implements IndependenceTest {
 
     CovarianceMatrix cov;
 
+    /**
+     * The index of each variable in cov.
+     */
+    private Map<Node, Integer> indexMap;
+
+    /**
+     * The inverse of cov, computed on first use.
+     */
+    private TetradMatrix inverse;
+
     private boolean verbose = false;
 
 
@@ -84,6 +94,7 @@ public final class IndTestPartialCorrelation implements IndependenceTest {
         this.sampleSize = data.getNumRows();
         this.variables = new ArrayList<>(data.getVariables());
         this.cov = new CovarianceMatrix(data);
+        this.indexMap = indexMap(cov.getVariables());
     }
 
     //==========================PUBLIC METHODS=============================//
@@ -96,34 +107,39 @@ public final class IndTestPartialCorrelation implements IndependenceTest {
     }
 
     public boolean isIndependent(Node x, Node y, List<Node> z) {
-        return indepCollection(x, y, alpha);
+        return isIndependent(indexMap.get(x), indexMap.get(y));
     }
 
-    private boolean indepCollection(Node x, Node y, double alpha) {
-        TetradMatrix submatrix = cov.getMatrix();
-
-        TetradMatrix inverse;
-
-        try {
-            inverse = submatrix.inverse();
-        } catch (Exception e) {
-            throw new IllegalArgumentException();
-        }
-
-        int i = variables.indexOf(x);
-        int j = variables.indexOf(y);
+    /**
+     * As for the Node version, x and y are tested conditional on all of the other variables, whatever z is given.
+     */
+    public boolean isIndependent(int x, int y, int... z) {
+        TetradMatrix inverse = getInverse();
 
-        double a = -1.0 * inverse.get(i, j);
-        double v0 = inverse.get(i, i);
-        double v1 = inverse.get(j, j);
+        double a = -1.0 * inverse.get(x, y);
+        double v0 = inverse.get(x, x);
+        double v1 = inverse.get(y, y);
         double b = Math.sqrt(v0 * v1);
 
         double r = a / b;
 
         double fisherZ = Math.sqrt(cov.getSampleSize() - 3 - (variables.size() - 2)) * 0.5 * (Math.log(1.0 + r) - Math.log(1.0 - r));
         double p = 2.0 * (1.0 - RandomUtil.getInstance().normalCdf(0, 1, abs(fisherZ)));
+        this.pValue = p;
         return p > alpha;
+    }
+
+    // The full covariance matrix is inverted once rather than once per test.
+    private synchronized TetradMatrix getInverse() {
+        if (inverse == null) {
+            try {
+                inverse = cov.getMatrix().inverse();
+            } catch (Exception e) {
+                throw new IllegalArgumentException();
+            }
+        }
 
+        return inverse;
     }
 
     private List<Node> listVars(int[] indices, List<Node> vars) {
@@ -186,6 +202,13 @@ public final class IndTestPartialCorrelation implements IndependenceTest {
         return pValue;
     }
 
+    /**
+     * The partial correlation read off the inverse covariance matrix is symmetric in x and y.
+     */
+    public boolean isSymmetric() {
+        return true;
+    }
+
     /**
      * Sets the significance level at which independence judgments should be made.  Affects the cutoff for partial
      * correlations to be considered statistically equal to zero.
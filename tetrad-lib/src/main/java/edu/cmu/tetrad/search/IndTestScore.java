@@ -39,7 +39,7 @@ import java.util.List;
  * @author Don Crimbchin (djc2@andrew.cmu.edu)
  * @author Joseph Ramsey
  */
-public class IndTestScore implements IndependenceTest {
+public class IndTestScore implements IndexedIndependenceTest {
 
     private final Score score;
     private final List<Node> variables;
@@ -82,28 +82,34 @@ public class IndTestScore implements IndependenceTest {
      * @throws RuntimeException if a matrix singularity is encountered.
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
-        List<Node> z1 = new ArrayList<>(z);
+        return isIndependent(variablesHash.get(x), variablesHash.get(y), varIndices(z));
+    }
+
+    /**
+     * Determines whether variable x is independent of variable y given conditioning variables z, all given as indices
+     * into getVariables().
+     *
+     * @return true iff x _||_ y | z.
+     */
+    public boolean isIndependent(int x, int y, int... z) {
+        List<Node> z1 = new ArrayList<>(z.length);
+        for (int i : z) z1.add(variables.get(i));
 
-        if (determines(z1, x)) return false;
-        if (determines(z1, y)) return false;
+        if (determines(z1, variables.get(x))) return false;
+        if (determines(z1, variables.get(y))) return false;
 
-        double v = this.score.localScoreDiff(variables.indexOf(x), variables.indexOf(y), varIndices(z));
+        double v = this.score.localScoreDiff(x, y, z);
         if (Double.isNaN(v)) throw new IllegalArgumentException();
         this.bump = v;
 
-        if (Double.isNaN(v)) {
-            System.out.println("Unmeasured: " + SearchLogUtils.independenceFact(x, y, z));
-            return false;
-        }
-
-        return /*Double.isNaN(v) ||*/ v < 0;
+        return v < 0;
     }
 
     private int[] varIndices(List<Node> z) {
         int[] indices = new int[z.size()];
 
         for (int i = 0; i < z.size(); i++) {
-            indices[i] = variables.indexOf(z.get(i));
+            indices[i] = variablesHash.get(z.get(i));
         }
 
         return indices;
@@ -0,0 +1,67 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.search;
+
+/**
+ * The judgment, p value and score of one independence test, returned together so that a caller
+ * sharing a test among threads does not read the p value or score of another thread's test.
+ *
+ * @author Joseph Ramsey
+ * @see IndependenceTest#checkIndependence
+ */
+public final class IndependenceResult {
+    private final boolean independent;
+    private final double pValue;
+    private final double score;
+
+    public IndependenceResult(boolean independent, double pValue, double score) {
+        this.independent = independent;
+        this.pValue = pValue;
+        this.score = score;
+    }
+
+    /**
+     * @return true if the test judged independence.
+     */
+    public boolean isIndependent() {
+        return independent;
+    }
+
+    /**
+     * @return the p value of the test, or NaN if the test does not give one.
+     */
+    public double getPValue() {
+        return pValue;
+    }
+
+    /**
+     * @return the score of the test, or NaN if the test does not give one.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    public String toString() {
+        return (independent ? "independent" : "dependent") + ", p = " + pValue + ", score = " + score;
+    }
+}
@@ -71,6 +71,43 @@ public interface IndependenceTest {
      */
     boolean isDependent(Node x, Node y, Node... z);
 
+    /**
+     * @return the judgment, p value and score of x _||_ y | z, taken together. The default asks this test for all
+     * three while holding its lock, so that no other thread's question comes between the judgment and the p value;
+     * searches that share a test among threads should use this rather than isIndependent followed by getPValue. A
+     * p value or score the test does not give is NaN.
+     */
+    default IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        synchronized (this) {
+            boolean independent = isIndependent(x, y, z);
+            double pValue = Double.NaN;
+            double score = Double.NaN;
+
+            try {
+                pValue = getPValue();
+            } catch (UnsupportedOperationException e) {
+                // No p value.
+            }
+
+            try {
+                score = getScore();
+            } catch (UnsupportedOperationException e) {
+                // No score.
+            }
+
+            return new IndependenceResult(independent, pValue, score);
+        }
+    }
+
+    /**
+     * @return true if x _||_ y | z and y _||_ x | z always get the same judgment and p value from this test, so that
+     * callers may treat them as the same question. Tests that regress one variable on the other, say, keep the
+     * default, false.
+     */
+    default boolean isSymmetric() {
+        return false;
+    }
+
     /**
      * @return the probability associated with the most recently executed independence test, of Double.NaN if p value is
      * not meaningful for tis test.
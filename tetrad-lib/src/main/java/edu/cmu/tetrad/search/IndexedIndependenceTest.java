@@ -0,0 +1,68 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+/**
+ * An independence test that can also be asked questions by variable index, avoiding the
+ * Node-to-index lookups and list handling of the Node based methods. Indices are positions in
+ * the list returned by getVariables(). After a call, getPValue() and getScore() refer to it as
+ * they would after the equivalent Node based call.
+ *
+ * @author Joseph Ramsey
+ */
+public interface IndexedIndependenceTest extends IndependenceTest {
+
+    /**
+     * @return true if x _||_ y | z is judged true, where x, y and the members of z are indices
+     * into getVariables().
+     */
+    boolean isIndependent(int x, int y, int... z);
+
+    /**
+     * @return the judgment, p value and score of x _||_ y | z, where x, y and the members of z are indices into
+     * getVariables(), taken together, as for checkIndependence(Node, Node, List).
+     */
+    default IndependenceResult checkIndependence(int x, int y, int... z) {
+        synchronized (this) {
+            boolean independent = isIndependent(x, y, z);
+            double pValue = Double.NaN;
+            double score = Double.NaN;
+
+            try {
+                pValue = getPValue();
+            } catch (UnsupportedOperationException e) {
+                // No p value.
+            }
+
+            try {
+                score = getScore();
+            } catch (UnsupportedOperationException e) {
+                // No score.
+            }
+
+            return new IndependenceResult(independent, pValue, score);
+        }
+    }
+}
+
+
+
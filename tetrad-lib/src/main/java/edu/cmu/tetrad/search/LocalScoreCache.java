@@ -21,48 +21,103 @@
 
 package edu.cmu.tetrad.search;
 
-import org.apache.commons.collections4.map.MultiKeyMap;
-
-import java.util.HashSet;
-import java.util.Set;
-
 /**
- * Stores a map from (variable, parents) to score.
+ * Stores a map from (variable, parents) to score. The parent set is treated as a set, so the order
+ * in which parents are given does not matter.
+ * <p>
+ * The cache is safe to share among threads. It is split into a number of independently locked
+ * stripes, each of which is a small LRU map, so that searches running in a ForkJoinPool do not
+ * all contend for a single lock. Lookups reuse a per-thread probe key, so no objects are allocated
+ * unless a new score is added. The total number of stored scores is bounded by the capacity given
+ * in the constructor; once a stripe is full its least recently used score is evicted.
  *
  * @author Joseph Ramsey
  */
 public class LocalScoreCache {
-    private MultiKeyMap map;
+
+    // The default maximum number of scores stored.
+    public static final int DEFAULT_CAPACITY = 1000000;
+
+    // The stored scores, keyed by (variable, 0, parents).
+    private final StripedLruCache<StripedLruCache.Key, Double> cache;
+
+    // A reusable lookup key for each thread.
+    private final ThreadLocal<StripedLruCache.Key> probe = new ThreadLocal<StripedLruCache.Key>() {
+        @Override
+        protected StripedLruCache.Key initialValue() {
+            return new StripedLruCache.Key();
+        }
+    };
 
     public LocalScoreCache() {
-        map = new MultiKeyMap();
+        this(DEFAULT_CAPACITY);
     }
 
-    public void add(int variable, int[] parents, double score) {
-        Set<Integer> _parents = new HashSet<>(parents.length);
+    /**
+     * @param capacity The maximum number of scores to store, at least 1.
+     */
+    public LocalScoreCache(int capacity) {
+        this(capacity, 4 * Runtime.getRuntime().availableProcessors());
+    }
 
-        for (int parent : parents) {
-            _parents.add(parent);
-        }
+    /**
+     * @param capacity   The maximum number of scores to store, at least 1.
+     * @param numStripes The number of independently locked stripes; rounded up to a power of two.
+     */
+    public LocalScoreCache(int capacity, int numStripes) {
+        this.cache = new StripedLruCache<>(capacity, numStripes);
+    }
 
-        map.put(variable, _parents, score);
+    public void add(int variable, int[] parents, double score) {
+        cache.put(new StripedLruCache.Key().set(variable, 0, parents).copy(), score);
     }
 
+    /**
+     * @return the stored score for the variable given the parents, or NaN if it is not stored.
+     */
     public double get(int variable, int[] parents) {
-        Set<Integer> _parents = new HashSet<>(parents.length);
+        Double score = cache.get(probe.get().set(variable, 0, parents));
+        return score == null ? Double.NaN : score;
+    }
 
-        for (int parent : parents) {
-            _parents.add(parent);
-        }
+    public void clear() {
+        cache.clear();
+    }
 
-        Double _score = (Double) map.get(variable, _parents);
-        return _score == null ? Double.NaN : (_score);
+    /**
+     * @return the number of scores currently stored.
+     */
+    public int size() {
+        return cache.size();
     }
 
-    public void clear() {
-        map.clear();
+    public int getCapacity() {
+        return cache.getCapacity();
     }
-}
 
+    /**
+     * @return the number of calls to get() that found a stored score.
+     */
+    public long getNumHits() {
+        return cache.getNumHits();
+    }
 
+    /**
+     * @return the number of calls to get() that did not find a stored score.
+     */
+    public long getNumMisses() {
+        return cache.getNumMisses();
+    }
+
+    /**
+     * @return hits / (hits + misses), or NaN if get() has not been called.
+     */
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
 
+    public String toString() {
+        return "LocalScoreCache: size = " + size() + ", hits = " + getNumHits()
+                + ", misses = " + getNumMisses() + ", hit rate = " + getHitRate();
+    }
+}
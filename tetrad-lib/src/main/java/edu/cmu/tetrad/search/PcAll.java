@@ -70,6 +70,22 @@ public final class PcAll implements GraphSearch {
      */
     private IndependenceTest independenceTest;
 
+    /**
+     * The test the current search asks its questions of: independenceTest, or independenceTest behind a cache when
+     * the collider orientation step asks again questions the adjacency search asked.
+     */
+    private IndependenceTest test;
+
+    /**
+     * True iff the results of the tests should be cached for the CONSERVATIVE and MAX_P collider steps.
+     */
+    private boolean cacheTests = false;
+
+    /**
+     * The largest number of test results cached.
+     */
+    private int cacheCapacity = CachingIndependenceTest.DEFAULT_CAPACITY;
+
     /**
      * Forbidden and required edges for the search.
      */
@@ -174,6 +190,20 @@ public final class PcAll implements GraphSearch {
         this.conflictRule = conflictRule;
     }
 
+    /**
+     * Sets whether the CONSERVATIVE and MAX_P collider steps should be answered from a cache of the results of the
+     * adjacency search, where they ask the same questions again; off by default. The cache holds at most the given
+     * number of results (about 100 bytes each plus the conditioning sets) and is dropped when the search is done.
+     */
+    public void setCacheTests(boolean cacheTests, int cacheCapacity) {
+        if (cacheCapacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + cacheCapacity);
+        }
+
+        this.cacheTests = cacheTests;
+        this.cacheCapacity = cacheCapacity;
+    }
+
     /**
      * Sets the maximum number of variables conditioned on in any conditional independence test. If set to -1, the value
      * of 1000 will be used. May not be set to Integer.MAX_VALUE, due to a Java bug on multi-core systems.
@@ -289,21 +319,28 @@ public final class PcAll implements GraphSearch {
                     "be in the domain of the independence test provided.");
         }
 
+        // CONSERVATIVE and MAX_P test subsets of the adjacents of x and z for each unshielded triple, many of which
+        // the adjacency search has already tested.
+        if (cacheTests && colliderDiscovery != ColliderDiscovery.FAS_SEPSETS) {
+            test = new CachingIndependenceTest(independenceTest, cacheCapacity);
+        } else {
+            test = independenceTest;
+        }
+
         IFas fas;
 
         if (fasType == FasType.REGULAR) {
             if (concurrent == Concurrent.NO) {
-                fas = new Fas(initialGraph, getIndependenceTest());
+                fas = new Fas(initialGraph, test);
             } else {
-                fas = new FasConcurrent(initialGraph, getIndependenceTest());
+                fas = new FasConcurrent(initialGraph, test);
                 ((FasConcurrent) fas).setStable(false);
             }
         } else {
             if (concurrent == Concurrent.NO) {
-                fas = new FasStable(initialGraph, getIndependenceTest());
+                fas = new FasStable(initialGraph, test);
             } else {
-                fas = new FasConcurrent(initialGraph, getIndependenceTest());
-                ((FasConcurrent) fas).setStable(true);
+                fas = new FasParallel(initialGraph, test);
             }
         }
 
@@ -325,7 +362,7 @@ public final class PcAll implements GraphSearch {
                 System.out.println("MaxP orientation...");
             }
 
-            final OrientCollidersMaxP orientCollidersMaxP = new OrientCollidersMaxP(independenceTest);
+            final OrientCollidersMaxP orientCollidersMaxP = new OrientCollidersMaxP(test);
             orientCollidersMaxP.setConflictRule(conflictRule);
             orientCollidersMaxP.setUseHeuristic(useHeuristic);
             orientCollidersMaxP.setMaxPathLength(maxPathLength);
@@ -341,6 +378,9 @@ public final class PcAll implements GraphSearch {
             //            orientUnshieldedTriplesConcurrent(knowledge, getIndependenceTest(), getMaxIndegree());
         }
 
+        // Let go of the cache, if any.
+        test = independenceTest;
+
         graph = GraphUtils.replaceNodes(graph, nodes);
 
         MeekRules meekRules = new MeekRules();
@@ -496,7 +536,7 @@ public final class PcAll implements GraphSearch {
                     }
 
                     List<Node> v = GraphUtils.asList(choice, adji);
-                    if (getIndependenceTest().isIndependent(i, k, v)) sepsets.add(v);
+                    if (test.isIndependent(i, k, v)) sepsets.add(v);
                 }
             }
 
@@ -510,7 +550,7 @@ public final class PcAll implements GraphSearch {
                     }
 
                     List<Node> v = GraphUtils.asList(choice, adjk);
-                    if (getIndependenceTest().isIndependent(i, k, v)) sepsets.add(v);
+                    if (test.isIndependent(i, k, v)) sepsets.add(v);
                 }
             }
         }
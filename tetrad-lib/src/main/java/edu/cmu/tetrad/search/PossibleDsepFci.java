@@ -28,11 +28,13 @@ import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.util.ChoiceGenerator;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class implements the Possible-D-Sep search step of Spirtes, et al's (1993) FCI algorithm (pp 144-145).
@@ -59,6 +61,16 @@ public class PossibleDsepFci {
     private IKnowledge knowledge = new Knowledge2();
     private int maxReachablePathLength = -1;
 
+    /**
+     * True iff the Possible-D-Sep sets are all taken from the graph before any edge is removed.
+     */
+    private boolean stable = false;
+
+    /**
+     * The pool the sepsets are looked up in, in the stable version; null to look them up in the calling thread.
+     */
+    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+
     /**
      * Creates a new SepSet and assumes that none of the variables have yet been checked.
      *
@@ -94,11 +106,21 @@ public class PossibleDsepFci {
      */
     public SepsetMap search() {
 
-        for (Edge edge : new ArrayList<>(graph.getEdges())) {
-            Node x = edge.getNode1();
-            Node y = edge.getNode2();
+        List<Node[]> pairs = new ArrayList<>();
+
+        for (Edge edge : graph.getEdges()) {
+            pairs.add(new Node[]{edge.getNode1(), edge.getNode2()});
+        }
+
+        // In the stable version the Possible-D-Sep sets are taken from the graph as given, before any edge is
+        // removed, so that the sepsets can be looked up in parallel.
+        List<List<Node>> condSets = stable ? ConcurrentSepsetSearch.getSepsets(pairs, this::getSepset, pool) : null;
 
-            List<Node> condSet = getSepset(x, y);
+        for (int i = 0; i < pairs.size(); i++) {
+            Node x = pairs.get(i)[0];
+            Node y = pairs.get(i)[1];
+
+            List<Node> condSet = stable ? condSets.get(i) : getSepset(x, y);
 
             if (condSet != null) {
                 for (Node n : condSet) {
@@ -229,6 +251,23 @@ public class PossibleDsepFci {
 
         this.maxReachablePathLength = maxReachablePathLength == -1 ? Integer.MAX_VALUE : maxReachablePathLength;
     }
+
+    /**
+     * @param stable True if the Possible-D-Sep sets should all be taken from the graph as given, before any edge is
+     *               removed, so that the sepsets can be looked up in parallel and the result does not depend on the
+     *               order of the edges. False by default.
+     */
+    public void setStable(boolean stable) {
+        this.stable = stable;
+    }
+
+    /**
+     * Sets the pool the sepsets are looked up in when the stable version is used. By default this is the shared
+     * ForkJoinPoolInstance pool; if null, they are looked up one at a time in the calling thread.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
 }
 
 
@@ -35,6 +35,31 @@ public interface Score {
 
     double localScoreDiff(int x, int y);
 
+    /**
+     * True if localScoreDiff(x, y, z) is exactly localScore(y, z + x) - localScore(y, z), so that score
+     * differences may be assembled from local scores, as CachingScore does. Scores that compute their
+     * differences some other way (from an independence test, with their own handling of undefined local
+     * scores) keep the default, false.
+     */
+    default boolean isLocalScoreDiffDecomposable() {
+        return false;
+    }
+
+    /**
+     * Scores adding each of several candidate parents to y given the same parents z: entry i of the result is
+     * localScoreDiff(xs[i], y, z). Scores that can share work across the candidates (the score of y given z, a
+     * factorization of the covariance of z) override this to do that work once.
+     */
+    default double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        double[] diffs = new double[xs.length];
+
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = localScoreDiff(xs[i], y, z);
+        }
+
+        return diffs;
+    }
+
     double localScore(int node, int parent);
 
     double localScore(int node);
@@ -26,10 +26,7 @@ import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.ICovarianceMatrix;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.util.DepthChoiceGenerator;
-import edu.cmu.tetrad.util.StatUtils;
 import edu.cmu.tetrad.util.TetradMatrix;
-import edu.cmu.tetrad.util.TetradVector;
-import org.apache.commons.math3.linear.SingularMatrixException;
 
 import java.io.PrintStream;
 import java.text.DecimalFormat;
@@ -75,6 +72,25 @@ public class SemBicScore implements Score {
     // The structure prior, 0 for standard BIC.
     private double structurePrior = 0.0;
 
+    // The number of Cholesky factors of parent covariance matrices each thread keeps for reuse.
+    private static final int NUM_RECENT_FACTORS = 16;
+
+    // Recently computed Cholesky factors, per thread.
+    private final ThreadLocal<CholeskyFactor[]> factors = new ThreadLocal<CholeskyFactor[]>() {
+        @Override
+        protected CholeskyFactor[] initialValue() {
+            return new CholeskyFactor[NUM_RECENT_FACTORS];
+        }
+    };
+
+    // The slot in factors to be overwritten next, per thread.
+    private final ThreadLocal<int[]> nextSlot = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
     /**
      * Constructs the score using a covariance matrix.
      */
@@ -110,21 +126,18 @@ public class SemBicScore implements Score {
 
     @Override
     public double localScoreDiff(int x, int y, int[] z) {
-        double sp1 = getStructurePrior(z.length + 1);
-        double sp2 = getStructurePrior(z.length);
-
-        if (false) {
-            int n = covariances.getSampleSize();
-            Node _x = variables.get(x);
-            Node _y = variables.get(y);
-            List<Node> _z = getVariableList(z);
-            double r = partialCorrelation(_x, _y, _z);
-
-            return -n * Math.log(1.0 - r * r) - log(n)// - getErrorThreshold()
-                    +  signum(getStructurePrior()) * (sp1 - sp2);
-        } else {
-            return (localScore(y, append(z, x)) - localScore(y, z));// - getErrorThreshold();
+        // Both scores are read off a single Cholesky factor of cov(z, z); z + x is handled
+        // by a one-row extension, so this is O(k^2) once the factor for z is cached.
+        CholeskyFactor f = getFactor(z);
+
+        if (f == null) {
+            return Double.NaN;
         }
+
+        double s2 = f.residualVariance(y);
+        double s2x = f.residualVariance(y, x, s2);
+
+        return score(s2x, z.length + 1) - score(s2, z.length);
     }
 
     @Override
@@ -132,42 +145,90 @@ public class SemBicScore implements Score {
         return localScoreDiff(x, y, new int[0]);
     }
 
-    public double localScore(int i, int... parents) {
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return true;
+    }
 
-        try {
-            final int p = parents.length;
-            int k = p + 1;
-            double n = getSampleSize();
+    /**
+     * The factor of cov(z, z), the residual variance of y given z, and the solve for y against the factor are
+     * computed once for all of the candidates.
+     */
+    @Override
+    public double[] localScoreDiffs(int[] xs, int y, int[] z) {
+        double[] diffs = new double[xs.length];
+        CholeskyFactor f = getFactor(z);
 
-            int[] ii = {i};
-            TetradMatrix X = getCovariances().getSelection(parents, parents);
-            TetradMatrix Y = getCovariances().getSelection(parents, ii);
-            double s2 = getCovariances().getValue(i, i);
+        if (f == null) {
+            Arrays.fill(diffs, Double.NaN);
+            return diffs;
+        }
 
-            TetradVector coefs = getCoefs(X, Y).getColumn(0);
+        double[] u = new double[z.length];
+        double s2 = f.residualVariance(y, u);
+        double score = score(s2, z.length);
 
-            for (int q = 0; q < X.rows(); q++) {
-                for (int r = 0; r < X.columns(); r++) {
-                    s2 -= coefs.get(q) * coefs.get(r) * X.get(r, q);
-                }
-            }
+        for (int i = 0; i < xs.length; i++) {
+            diffs[i] = score(f.residualVariance(y, u, xs[i], s2), z.length + 1) - score;
+        }
 
-            if (s2 <= 0) {
-                if (isVerbose()) {
-                    out.println("Nonpositive residual varianceY: resVar / varianceY = " + (s2 / getCovariances().getValue(i, i)));
-                }
-                return Double.NaN;
+        return diffs;
+    }
+
+    public double localScore(int i, int... parents) {
+        CholeskyFactor f = getFactor(parents);
+
+        if (f == null) {
+            return Double.NaN;
+        }
+
+        return score(f.residualVariance(i), parents.length);
+    }
+
+    // The BIC score of a variable with p parents and residual variance s2.
+    private double score(double s2, int p) {
+        if (!(s2 > 0)) {
+            if (isVerbose()) {
+                out.println("Nonpositive residual variance: " + s2);
             }
 
-            return -n * log(s2) - getPenaltyDiscount() * k * log(n)
-                    + signum(getStructurePrior()) * getStructurePrior(parents.length);
-        } catch (Exception e) {
             return Double.NaN;
         }
+
+        int k = p + 1;
+        double n = getSampleSize();
+
+        return -n * log(s2) - getPenaltyDiscount() * k * log(n)
+                + signum(getStructurePrior()) * getStructurePrior(p);
     }
 
-    private TetradMatrix getCoefs(TetradMatrix x, TetradMatrix y) {
-        return (x.inverse()).times(y);
+    // Returns a Cholesky factor of cov(parents, parents), reusing or extending by one variable a
+    // factor recently computed by this thread where possible. Returns null if cov(parents, parents)
+    // is not positive definite.
+    private CholeskyFactor getFactor(int[] parents) {
+        CholeskyFactor[] recent = factors.get();
+        CholeskyFactor prefix = null;
+
+        for (CholeskyFactor f : recent) {
+            if (f == null) continue;
+
+            if (f.isFactorOf(parents, parents.length)) {
+                return f;
+            } else if (prefix == null && parents.length > 0 && f.isFactorOf(parents, parents.length - 1)) {
+                prefix = f;
+            }
+        }
+
+        CholeskyFactor f = prefix != null
+                ? prefix.extend(parents[parents.length - 1])
+                : CholeskyFactor.factor(covariances, parents);
+
+        if (f != null) {
+            int slot = nextSlot.get()[0]++ % recent.length;
+            recent[slot] = f;
+        }
+
+        return f;
     }
 
     /**
@@ -284,23 +345,6 @@ public class SemBicScore implements Score {
         }
     }
 
-    private List<Node> getVariableList(int[] indices) {
-        List<Node> variables = new ArrayList<>();
-        for (int i : indices) {
-            variables.add(this.variables.get(i));
-        }
-        return variables;
-    }
-
-    private double partialCorrelation(Node x, Node y, List<Node> z) throws SingularMatrixException {
-        int[] indices = new int[z.size() + 2];
-        indices[0] = indexMap.get(x.getName());
-        indices[1] = indexMap.get(y.getName());
-        for (int i = 0; i < z.size(); i++) indices[i + 2] = indexMap.get(z.get(i).getName());
-        TetradMatrix submatrix = covariances.getSubmatrix(indices).getMatrix();
-        return StatUtils.partialCorrelationPrecisionMatrix(submatrix);
-    }
-
     private Map<String, Integer> indexMap(List<Node> variables) {
         Map<String, Integer> indexMap = new HashMap<>();
 
@@ -373,7 +417,119 @@ public class SemBicScore implements Score {
 //
 //        return errorThreshold;
 //    }
+
+    /**
+     * A lower triangular L with L L' = cov(vars, vars). Residual variances of other variables given
+     * vars are computed from L by forward substitution in O(k^2), and the factor for vars plus one
+     * more variable is obtained by adding one row, also in O(k^2). Immutable once constructed.
+     */
+    private static final class CholeskyFactor {
+        private final ICovarianceMatrix cov;
+        private final int[] vars;
+
+        // Row r holds L[r][0..r].
+        private final double[][] l;
+
+        private CholeskyFactor(ICovarianceMatrix cov, int[] vars, double[][] l) {
+            this.cov = cov;
+            this.vars = vars;
+            this.l = l;
+        }
+
+        static CholeskyFactor factor(ICovarianceMatrix cov, int[] vars) {
+            CholeskyFactor f = new CholeskyFactor(cov, new int[0], new double[0][]);
+
+            for (int v : vars) {
+                f = f.extend(v);
+                if (f == null) return null;
+            }
+
+            return f;
+        }
+
+        // True if vars equals the first len entries of parents.
+        boolean isFactorOf(int[] parents, int len) {
+            if (vars.length != len) return false;
+
+            for (int i = 0; i < len; i++) {
+                if (vars[i] != parents[i]) return false;
+            }
+
+            return true;
+        }
+
+        // The factor of cov(vars + v, vars + v), or null if that matrix is not positive definite.
+        CholeskyFactor extend(int v) {
+            int k = vars.length;
+            double[] row = new double[k + 1];
+            double d2 = cov.getValue(v, v) - forwardSolve(v, row);
+
+            if (!(d2 > 0)) return null;
+
+            row[k] = Math.sqrt(d2);
+
+            int[] _vars = Arrays.copyOf(vars, k + 1);
+            _vars[k] = v;
+            double[][] _l = Arrays.copyOf(l, k + 1);
+            _l[k] = row;
+
+            return new CholeskyFactor(cov, _vars, _l);
+        }
+
+        // The residual variance of y regressed on vars.
+        double residualVariance(int y) {
+            return residualVariance(y, new double[vars.length]);
+        }
+
+        // The residual variance of y regressed on vars, leaving the solve of L u = cov(vars, y) in u.
+        double residualVariance(int y, double[] u) {
+            return cov.getValue(y, y) - forwardSolve(y, u);
+        }
+
+        // The residual variance of y regressed on vars + x, given s2 = residualVariance(y).
+        double residualVariance(int y, int x, double s2) {
+            double[] u = new double[vars.length];
+            forwardSolve(y, u);
+            return residualVariance(y, u, x, s2);
+        }
+
+        // The residual variance of y regressed on vars + x, given s2 = residualVariance(y, u).
+        double residualVariance(int y, double[] u, int x, double s2) {
+            int k = vars.length;
+            double[] w = new double[k];
+            double ww = forwardSolve(x, w);
+
+            double d2 = cov.getValue(x, x) - ww;
+            if (!(d2 > 0)) return Double.NaN;
+
+            double uw = 0.0;
+            for (int i = 0; i < k; i++) uw += u[i] * w[i];
+
+            double ux = (cov.getValue(x, y) - uw) / Math.sqrt(d2);
+            return s2 - ux * ux;
+        }
+
+        // Solves L u = cov(vars, v) into u (of length at least vars.length); returns u'u.
+        private double forwardSolve(int v, double[] u) {
+            double uu = 0.0;
+
+            for (int r = 0; r < vars.length; r++) {
+                double[] lr = l[r];
+                double sum = cov.getValue(vars[r], v);
+
+                for (int c = 0; c < r; c++) {
+                    sum -= lr[c] * u[c];
+                }
+
+                u[r] = sum / lr[r];
+                uu += u[r] * u[r];
+            }
+
+            return uu;
+        }
+    }
 }
 
 
 
+
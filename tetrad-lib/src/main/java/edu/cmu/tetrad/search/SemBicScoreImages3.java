@@ -89,6 +89,11 @@ public class SemBicScoreImages3 implements ISemBicScore, Score {
         return localScore(y, x) - localScore(y);
     }
 
+    @Override
+    public boolean isLocalScoreDiffDecomposable() {
+        return true;
+    }
+
     /**
      * Calculates the sample likelihood and BIC score for i given its parents in a simple SEM model
      */
@@ -38,7 +38,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * So at the end of the search, a null sepset carries different information from an empty sepset.)</p> <p>We cast the
  * variable-like objects to Node to allow them either to be variables explicitly or else to be graph nodes that in some
  * model could be considered as variables. This allows us to use d-separation as a graphical indicator of what
- * independendence in models ideally should be.</p>
+ * independendence in models ideally should be.</p> <p>A SepsetMap may be read and written from several threads at
+ * once.</p>
  *
  * @author Joseph Ramsey
  */
@@ -50,7 +51,7 @@ public final class SepsetMap implements TetradSerializable {
      */
     private Map<Set<Node>, List<Node>> sepsets = new ConcurrentHashMap<>();
     private Map<Set<Node>, Double> pValues = new ConcurrentHashMap<>();
-    private Map<Node, HashSet<Node>> parents = new HashMap<>();
+    private Map<Node, HashSet<Node>> parents = new ConcurrentHashMap<>();
 //    private Set<Set<Node>> correlations;
 //    private boolean returnEmptyIfNotSet = false;
 
@@ -60,8 +61,8 @@ public final class SepsetMap implements TetradSerializable {
     }
 
     public SepsetMap(SepsetMap map) {
-        this.sepsets = new HashMap<>(map.sepsets);
-        this.pValues = new HashMap<>(map.pValues);
+        this.sepsets = new ConcurrentHashMap<>(map.sepsets);
+        this.pValues = new ConcurrentHashMap<>(map.pValues);
     }
 
     /**
@@ -121,7 +122,7 @@ public final class SepsetMap implements TetradSerializable {
         return pValues.get(pair);
     }
 
-    public void set(Node x, LinkedHashSet<Node> z) {
+    public synchronized void set(Node x, LinkedHashSet<Node> z) {
         if (parents.get(x) != null) {
             parents.get(x).addAll(z);
         } else {
@@ -0,0 +1,243 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.search;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A map of bounded size that is safe to share among threads. It is split into a number of independently locked
+ * stripes, each of which is a small LRU map, so that searches running in a ForkJoinPool do not all contend for a
+ * single lock; once a stripe is full its least recently used entry is evicted. A key is assigned to a stripe by the
+ * low bits of its hash code, so keys should spread their hash codes, as Key does. Hit and miss counts are kept for
+ * reporting.
+ * <p>
+ * Used by LocalScoreCache and CachingIndependenceTest.
+ *
+ * @author Joseph Ramsey
+ */
+final class StripedLruCache<K, V> {
+
+    // The stripes; a key is assigned to stripe (hash & mask).
+    private final Stripe<K, V>[] stripes;
+
+    // stripes.length - 1; stripes.length is a power of two.
+    private final int mask;
+
+    // The maximum number of entries stored.
+    private final int capacity;
+
+    // Hit and miss counts, for reporting.
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param capacity   The maximum number of entries to store, at least 1.
+     * @param numStripes The number of independently locked stripes; rounded up to a power of two.
+     */
+    @SuppressWarnings("unchecked")
+    StripedLruCache(int capacity, int numStripes) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        if (numStripes < 1) throw new IllegalArgumentException("Number of stripes must be at least 1: " + numStripes);
+
+        int n = 1;
+        while (n < numStripes && n < capacity) n <<= 1;
+
+        this.capacity = capacity;
+        this.mask = n - 1;
+        this.stripes = new Stripe[n];
+
+        int perStripe = Math.max(1, capacity / n);
+
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe<>(perStripe);
+        }
+    }
+
+    /**
+     * @return the stored value for the key, or null if there is none, counting a hit or a miss.
+     */
+    V get(K key) {
+        Stripe<K, V> stripe = stripes[key.hashCode() & mask];
+        V value;
+
+        synchronized (stripe) {
+            value = stripe.get(key);
+        }
+
+        if (value == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        return value;
+    }
+
+    /**
+     * Stores the value for the key. The key must not be changed afterward.
+     */
+    void put(K key, V value) {
+        Stripe<K, V> stripe = stripes[key.hashCode() & mask];
+
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    /**
+     * Removes all entries and resets the hit and miss counts.
+     */
+    void clear() {
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+
+        hits.set(0);
+        misses.set(0);
+    }
+
+    int size() {
+        int size = 0;
+
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+
+        return size;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getNumHits() {
+        return hits.get();
+    }
+
+    long getNumMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return hits / (hits + misses), or NaN if get() has not been called.
+     */
+    double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? Double.NaN : h / (double) total;
+    }
+
+    // An LRU map for one stripe.
+    private static class Stripe<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Two ints together with a set of ints, held sorted--(variable, 0, parents) for a local score, (x, y, z) for an
+     * independence fact. A key may be reused as a lookup probe by calling set() again, but a key that has been put
+     * into a cache must not be.
+     */
+    static final class Key {
+        private int a;
+        private int b;
+        private int[] set = new int[8];
+        private int length;
+        private int hash;
+
+        /**
+         * Sets this key to (a, b, set), copying and sorting the set.
+         */
+        Key set(int a, int b, int[] set) {
+            if (this.set.length < set.length) {
+                this.set = new int[Math.max(set.length, 2 * this.set.length)];
+            }
+
+            System.arraycopy(set, 0, this.set, 0, set.length);
+            Arrays.sort(this.set, 0, set.length);
+
+            this.a = a;
+            this.b = b;
+            this.length = set.length;
+
+            int h = 31 * a + b;
+
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + this.set[i];
+            }
+
+            // Spread the bits so that the low bits used to choose a stripe are well mixed.
+            h *= 0x9E3779B9;
+            this.hash = h ^ (h >>> 16);
+            return this;
+        }
+
+        /**
+         * @return a copy of this key, to be stored, with an array just long enough for the set.
+         */
+        Key copy() {
+            Key key = new Key();
+            key.a = a;
+            key.b = b;
+            key.set = Arrays.copyOf(set, length);
+            key.length = length;
+            key.hash = hash;
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            if (hash != k.hash || a != k.a || b != k.b || length != k.length) return false;
+
+            for (int i = 0; i < length; i++) {
+                if (set[i] != k.set[i]) return false;
+            }
+
+            return true;
+        }
+    }
+}
@@ -21,6 +21,7 @@
 
 package edu.cmu.tetrad.sem;
 
+import edu.cmu.tetrad.calculator.expression.CompiledExpression;
 import edu.cmu.tetrad.calculator.expression.Context;
 import edu.cmu.tetrad.calculator.expression.Expression;
 import edu.cmu.tetrad.calculator.parser.ExpressionLexer;
@@ -39,8 +40,8 @@ import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.PowellOptimizer;
 
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.RecursiveAction;
 
-import static edu.cmu.tetrad.util.StatUtils.sd;
 
 /**
  * Represents a generalized SEM instantiated model. The parameteric form of this
@@ -52,6 +53,12 @@ import static edu.cmu.tetrad.util.StatUtils.sd;
 public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
     static final long serialVersionUID = 23L;
 
+    /**
+     * The most rows of a column evaluated in one task by simulateDataRecursive; columns this long or
+     * shorter are evaluated on the calling thread.
+     */
+    private static final int ROWS_PER_TASK = 4096;
+
     /**
      * The wrapped PM, that holds all of the expressions and structure for the model.
      */
@@ -412,116 +419,89 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
      * This simulates data by picking random values for the exogenous terms and
      * percolating this information down through the SEM, assuming it is
      * acyclic. Fast for large simulations but hangs for cyclic models.
+     * </p>
+     * The data are simulated a column at a time. Each node's expression is
+     * compiled once (see CompiledExpression), with parameters as constants and
+     * nodes as columns, and evaluated over all rows; expressions that make no
+     * random draws are evaluated in parallel.
      *
      * @param sampleSize > 0.
      * @return the simulated data set.
      */
-    public DataSet simulateDataRecursive(int sampleSize, boolean latentDataSaved) {
-        List<Node> variables = pm.getNodes();
-        Map<String, Double> std = new HashMap<>();
+    public DataSet simulateDataRecursive(final int sampleSize, boolean latentDataSaved) {
+        List<Node> nodes = pm.getNodes();
+        Map<String, Integer> slots = new HashMap<>();
 
-        final Map<String, Double> variableValues = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            slots.put(nodes.get(i).getName(), i);
+        }
 
-        Context context = new Context() {
+        Context parameters = new Context() {
             public Double getValue(String term) {
-                Double value = parameterValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                value = variableValues.get(term);
-
-                if (value != null) {
-                    return value * 2 / std.get(term);
-                }
-
-                throw new IllegalArgumentException("No value recorded for '" + term + "'");
+                return parameterValues.get(term);
             }
         };
 
-        List<Node> continuousVariables = new LinkedList<>();
-        List<Node> nonErrorVariables = pm.getVariableNodes();
-
-        // Work with a copy of the variables, because their type can be set externally.
-        for (Node node : nonErrorVariables) {
-            ContinuousVariable var = new ContinuousVariable(node.getName());
-            var.setNodeType(node.getNodeType());
+        // Error terms first, in case they are not shown in the graph.
+        List<Node> ordering = pm.getErrorNodes();
 
-            if (var.getNodeType() != NodeType.ERROR) {
-                continuousVariables.add(var);
-            }
-        }
-
-        DataSet fullDataSet = new BoxDataSet(new VerticalDoubleDataBox(sampleSize, continuousVariables.size()), continuousVariables);
-
-        // Create some index arrays to hopefully speed up the simulation.
-        SemGraph graph = pm.getGraph();
-        List<Node> tierOrdering = graph.getFullTierOrdering();
-
-        int[] tierIndices = new int[variables.size()];
-
-        for (int i = 0; i < tierIndices.length; i++) {
-            tierIndices[i] = nonErrorVariables.indexOf(tierOrdering.get(i));
-        }
-
-        int[][] _parents = new int[variables.size()][];
-
-        for (int i = 0; i < variables.size(); i++) {
-            Node node = variables.get(i);
-            List<Node> parents = graph.getParents(node);
-
-            _parents[i] = new int[parents.size()];
-
-            for (int j = 0; j < parents.size(); j++) {
-                Node _parent = parents.get(j);
-                _parents[i][j] = variables.indexOf(_parent);
+        for (Node node : pm.getGraph().getFullTierOrdering()) {
+            if (node.getNodeType() != NodeType.ERROR) {
+                ordering.add(node);
             }
         }
 
+        final double[][] columns = new double[nodes.size()][];
 
         // Do the simulation.
-        for (int tier = 0; tier < variables.size(); tier++) {
-            double[] v = new double[sampleSize];
+        for (Node node : ordering) {
+            final CompiledExpression expression = CompiledExpression.compile(pm.getNodeExpression(node),
+                    slots, parameters);
+            final double[] column = new double[sampleSize];
+
+            if (expression.isDeterministic() && sampleSize > ROWS_PER_TASK) {
+                class EvaluateTask extends RecursiveAction {
+                    private final int from;
+                    private final int to;
+
+                    private EvaluateTask(int from, int to) {
+                        this.from = from;
+                        this.to = to;
+                    }
 
-            int col = tierIndices[tier];
+                    @Override
+                    protected void compute() {
+                        if (to - from > ROWS_PER_TASK) {
+                            int mid = (from + to) >>> 1;
+                            invokeAll(new EvaluateTask(from, mid), new EvaluateTask(mid, to));
+                        } else {
+                            expression.evaluate(columns, from, to, column);
+                        }
+                    }
+                }
 
-            if (col == -1) {
-                continue;
+                ForkJoinPoolInstance.getInstance().getPool().invoke(new EvaluateTask(0, sampleSize));
+            } else {
+                expression.evaluate(columns, 0, sampleSize, column);
             }
 
-            for (int row = 0; row < sampleSize; row++) {
-                variableValues.clear();
-
-                Node node = tierOrdering.get(tier);
-                Expression expression = pm.getNodeExpression(node);
-                double value = expression.evaluate(context);
-                v[row] = value;
-                variableValues.put(node.getName(), value);
-
-
-
-//                if (isSimulatePositiveDataOnly() && value < 0) {
-//                    row--;
-//                    continue ROW;
-//                }
-
-//                if (!Double.isNaN(selfLoopCoef) && row > 0) {
-//                    value += selfLoopCoef * fullDataSet.getDouble(row - 1, col);
-//                }
-
-//                value = min(max(value, -5.), 5.);
-
-                fullDataSet.setDouble(row, col, value);
-            }
+            columns[slots.get(node.getName())] = column;
+        }
 
-            std.put(tierOrdering.get(tier).getName(), sd(v));
+        List<Node> variables = new ArrayList<>();
+        List<double[]> data = new ArrayList<>();
 
-//            for (int row = 0; row < sampleSize; row++) {
-//                fullDataSet.setDouble(row, col, 2v[row] / std);
-//            }
+        // Work with a copy of the variables, because their type can be set externally.
+        for (Node node : pm.getVariableNodes()) {
+            ContinuousVariable var = new ContinuousVariable(node.getName());
+            var.setNodeType(node.getNodeType());
+            variables.add(var);
+            data.add(columns[slots.get(node.getName())]);
         }
 
+        DataSet fullDataSet = new BoxDataSet(new VerticalDoubleDataBox(
+                data.toArray(new double[data.size()][])), variables);
+
         if (latentDataSaved) {
             return fullDataSet;
         } else {
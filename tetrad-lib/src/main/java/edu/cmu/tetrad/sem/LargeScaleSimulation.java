@@ -33,11 +33,8 @@ import static java.lang.Math.abs;
 import static java.lang.Math.sqrt;
 
 import java.util.*;
-import java.util.concurrent.RecursiveTask;
 
 import org.apache.commons.collections4.map.HashedMap;
-import org.apache.commons.math3.distribution.*;
-import org.apache.commons.math3.random.Well1024a;
 
 /**
  * Stores a SEM model, pared down, for purposes of simulating data sets with
@@ -65,7 +62,6 @@ public final class LargeScaleSimulation {
     private PrintStream out = System.out;
     private int[] tierIndices;
     private boolean verbose = false;
-    private long seed = new Date().getTime();
     private boolean alreadySetUp = false;
     private boolean includePositiveCoefs = true;
     private boolean includeNegativeCoefs = true;
@@ -123,78 +119,27 @@ public final class LargeScaleSimulation {
         int size = variableNodes.size();
         setupModel(size);
 
-        class SimulateTask extends RecursiveTask<Boolean> {
-
-            private final int from;
-            private final int to;
-            private double[][] all;
-            private int chunk;
-
-            public SimulateTask(int from, int to, double[][] all, int chunk) {
-                this.from = from;
-                this.to = to;
-                this.all = all;
-                this.chunk = chunk;
-            }
-
-            @Override
-            protected Boolean compute() {
-                if (from - to > chunk) {
-                    int mid = from + to / 2;
-                    SimulateTask left = new SimulateTask(from, mid, all, chunk);
-                    SimulateTask right = new SimulateTask(mid, to, all, chunk);
-                    left.fork();
-                    right.compute();
-                    left.join();
-                    return true;
-                } else {
-                    for (int i = from; i < to; i++) {
-                        NormalDistribution normal = new NormalDistribution(new Well1024a(++seed), 0, 1);//sqrt(errorVars[col]));
-                        normal.sample();
-
-                        if (verbose && (i + 1) % 50 == 0) {
-                            System.out.println("Simulating " + (i + 1));
-                        }
-
-                        for (int col : tierIndices) {
-                            double value = normal.sample() * sqrt(errorVars[col]);
-
-                            for (int j = 0; j < parents[col].length; j++) {
-                                value += all[parents[col][j]][i] * coefs[col][j];
-                            }
-
-                            value += means[col];
-
-                            all[col][i] = value;
-                        }
-                    }
-
-                    return true;
-                }
-            }
-        }
-
         if (graph instanceof TimeLagGraph) {
             sampleSize += 200;
         }
 
-        double[][] all = new double[variableNodes.size()][sampleSize];
-
-        int chunk = sampleSize / ForkJoinPoolInstance.getInstance().getPool().getParallelism() + 1;
-
-        ForkJoinPoolInstance.getInstance().getPool().invoke(new SimulateTask(0, sampleSize, all, chunk));
+        // Rows are simulated in blocks, in parallel, each block from its own random stream, so that
+        // the data depend on the seed of RandomUtil but not on the number of threads.
+        ParallelSemSimulator simulator = new ParallelSemSimulator(variableNodes, tierIndices, parents, coefs,
+                errorVars, means);
+        DataSet data = simulator.simulateData(sampleSize, true);
 
         if (graph instanceof TimeLagGraph) {
             int[] rem = new int[200];
             for (int i = 0; i < 200; ++i) {
                 rem[i] = i;
             }
-            BoxDataSet dat = new BoxDataSet(new VerticalDoubleDataBox(all), variableNodes);
+            BoxDataSet dat = new BoxDataSet(((BoxDataSet) data).getDataBox(), variableNodes);
             dat.removeRows(rem);
             return dat;
         }
 
-        return new BoxDataSet(new VerticalDoubleDataBox(all), variableNodes);
+        return new BoxDataSet(((BoxDataSet) data).getDataBox(), variableNodes);
     }
 
     /**
@@ -212,7 +157,7 @@ public final class LargeScaleSimulation {
         int size = variableNodes.size();
         setupModel(size);
 
-        NormalDistribution normal = new NormalDistribution(new Well1024a(++seed), 0, 1);
+        RandomUtil random = RandomUtil.getInstance().split();
 
         TetradMatrix B = new TetradMatrix(getCoefficientMatrix());
         TetradMatrix iMinusBInv = TetradAlgebra.identity(B.rows()).minus(B).inverse();
@@ -223,7 +168,7 @@ public final class LargeScaleSimulation {
             TetradVector e = new TetradVector(B.rows());
 
             for (int j = 0; j < e.size(); j++) {
-                e.set(j, normal.sample() * sqrt(errorVars[j]));
+                e.set(j, random.nextNormal(0, 1) * sqrt(errorVars[j]));
             }
 
             TetradVector x = iMinusBInv.times(e);
@@ -770,7 +715,7 @@ public final class LargeScaleSimulation {
     }
 
     public double[][] getUncorrelatedGaussianShocks(int sampleSize) {
-        NormalDistribution normal = new NormalDistribution(new Well1024a(++seed), 0, 1);
+        RandomUtil random = RandomUtil.getInstance().split();
 
         int numVars = variableNodes.size();
         setupModel(numVars);
@@ -779,7 +724,7 @@ public final class LargeScaleSimulation {
 
         for (int i = 0; i < sampleSize; i++) {
             for (int j = 0; j < numVars; j++) {
-                shocks[i][j] = normal.sample() * sqrt(errorVars[j]);
+                shocks[i][j] = random.nextNormal(0, 1) * sqrt(errorVars[j]);
             }
         }
 
@@ -787,11 +732,7 @@ public final class LargeScaleSimulation {
     }
 
     public double[][] getUncorrelatedShocks(int sampleSize) {
-        AbstractRealDistribution distribution;
-        AbstractRealDistribution varDist = null;
-
-        distribution = new NormalDistribution(new Well1024a(++seed), 0, 1);
-        varDist = new UniformRealDistribution(varLow, varHigh);
+        RandomUtil random = RandomUtil.getInstance().split();
 
         int numVars = variableNodes.size();
         setupModel(numVars);
@@ -799,10 +740,10 @@ public final class LargeScaleSimulation {
         double[][] shocks = new double[sampleSize][numVars];
 
         for (int j = 0; j < numVars; j++) {
-            double sd = sqrt(varDist.sample());
+            double sd = sqrt(random.nextUniform(varLow, varHigh));
 
             for (int i = 0; i < sampleSize; i++) {
-                double sample = distribution.sample();
+                double sample = random.nextNormal(0, 1);
                 sample *= sd;
 
                 if (!errorsNormal) {
@@ -0,0 +1,431 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.sem;
+
+import edu.cmu.tetrad.data.*;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.NodeType;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.MatrixUtils;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradMatrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulates data from a linear, acyclic SEM with Gaussian errors, in blocks of rows, in parallel.
+ * The variables are put in causal order once and the coefficients are stored sparsely, by child.
+ * Each block of rows is then filled column by column, so that the inner loops run over contiguous
+ * rows. Each block draws from its own random stream (see RandomUtil.getStream), so for a given
+ * seed and block size the data are the same whatever the number of threads.
+ * <p>
+ * The data are written either to a VerticalDoubleDataBox in memory or, for data sets larger than
+ * the heap, block by block to a MappedDoubleDataBox on disk.
+ * <p>
+ * Error distributions other than the Gaussian, connection functions, and positive-only
+ * simulation are not supported; use SemIm.simulateDataRecursive for those.
+ *
+ * @author Joseph Ramsey
+ */
+public final class ParallelSemSimulator {
+
+    // All of the variables of the model, latent and measured.
+    private final List<Node> variables;
+
+    // A causal order of the variables, parents before children.
+    private final int[] order;
+
+    // For each variable, the indices of its parents and their coefficients.
+    private final int[][] parents;
+    private final double[][] coefs;
+
+    // For each variable, the independent standard normal shocks making up its error, and their
+    // coefficients. For uncorrelated errors these are just the variable's own shock and its standard
+    // deviation; otherwise they are the nonzero entries of a row of the Cholesky factor.
+    private final int[][] shocks;
+    private final double[][] shockCoefs;
+
+    // Constant terms, added as each variable is computed.
+    private final double[] intercepts;
+
+    // Rows per block; 0 to choose from the number of variables.
+    private int blockSize = 0;
+
+    // The pool the blocks are simulated in.
+    private ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+
+    /**
+     * Constructs a simulator for the given SEM. The model is read once; later changes to the SemIm
+     * are not seen.
+     */
+    public ParallelSemSimulator(SemIm semIm) {
+        if (semIm.isSimulatedPositiveDataOnly()) {
+            throw new IllegalArgumentException("Positive-only simulation is not supported.");
+        }
+
+        List<Node> nodes = semIm.getVariableNodes();
+        Graph graph = semIm.getSemPm().getGraph();
+        Map<Node, Integer> indices = new HashMap<>();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            indices.put(nodes.get(i), i);
+        }
+
+        for (Node node : nodes) {
+            if (semIm.getDistribution(node) != null || semIm.getConnectionFunction(node) != null) {
+                throw new IllegalArgumentException("Only linear Gaussian models are supported: " + node);
+            }
+        }
+
+        TetradMatrix edgeCoef = semIm.getEdgeCoef();
+        TetradMatrix errCovar = semIm.getErrCovar();
+        double[] means = semIm.getMeans();
+        int numVars = nodes.size();
+
+        this.variables = new ArrayList<>(nodes);
+        this.parents = new int[numVars][];
+        this.coefs = new double[numVars][];
+        this.intercepts = new double[numVars];
+
+        for (int i = 0; i < numVars; i++) {
+            List<Integer> _parents = new ArrayList<>();
+
+            for (Node parent : graph.getParents(nodes.get(i))) {
+                if (parent.getNodeType() == NodeType.ERROR) continue;
+                _parents.add(indices.get(parent));
+            }
+
+            parents[i] = new int[_parents.size()];
+            coefs[i] = new double[_parents.size()];
+
+            // SemIm adds the means after the recursion, so they become intercepts here.
+            intercepts[i] = means[i];
+
+            for (int j = 0; j < _parents.size(); j++) {
+                parents[i][j] = _parents.get(j);
+                coefs[i][j] = edgeCoef.get(parents[i][j], i);
+                intercepts[i] -= coefs[i][j] * means[parents[i][j]];
+            }
+        }
+
+        this.order = causalOrder(parents);
+        this.shocks = new int[numVars][];
+        this.shockCoefs = new double[numVars][];
+
+        if (isDiagonal(errCovar)) {
+            for (int i = 0; i < numVars; i++) {
+                shocks[i] = new int[]{i};
+                shockCoefs[i] = new double[]{Math.sqrt(errCovar.get(i, i))};
+            }
+        } else {
+            TetradMatrix cholesky = MatrixUtils.cholesky(errCovar);
+
+            for (int i = 0; i < numVars; i++) {
+                int count = 0;
+
+                for (int j = 0; j <= i; j++) {
+                    if (cholesky.get(i, j) != 0) count++;
+                }
+
+                shocks[i] = new int[count];
+                shockCoefs[i] = new double[count];
+                count = 0;
+
+                for (int j = 0; j <= i; j++) {
+                    if (cholesky.get(i, j) != 0) {
+                        shocks[i][count] = j;
+                        shockCoefs[i][count++] = cholesky.get(i, j);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructs a simulator from the arrays of a LargeScaleSimulation. The arrays are not copied.
+     *
+     * @param variables  The variables of the model, latent and measured.
+     * @param order      A causal order of the variables.
+     * @param parents    The parents of each variable.
+     * @param coefs      The coefficients of the parents of each variable.
+     * @param errorVars  The error variance of each variable.
+     * @param intercepts The constant term of each variable.
+     */
+    ParallelSemSimulator(List<Node> variables, int[] order, int[][] parents, double[][] coefs,
+                         double[] errorVars, double[] intercepts) {
+        this.variables = new ArrayList<>(variables);
+        this.order = order;
+        this.parents = parents;
+        this.coefs = coefs;
+        this.intercepts = intercepts;
+        this.shocks = new int[variables.size()][];
+        this.shockCoefs = new double[variables.size()][];
+
+        for (int i = 0; i < variables.size(); i++) {
+            shocks[i] = new int[]{i};
+            shockCoefs[i] = new double[]{Math.sqrt(errorVars[i])};
+        }
+    }
+
+    /**
+     * Simulates data into memory.
+     *
+     * @param sampleSize      The number of rows.
+     * @param latentDataSaved True if columns for the latent variables should be included.
+     * @return A data set backed by a VerticalDoubleDataBox.
+     */
+    public DataSet simulateData(int sampleSize, boolean latentDataSaved) {
+        int[] columns = outputColumns(latentDataSaved);
+        final double[][] data = new double[numColumns(columns)][sampleSize];
+
+        simulate(sampleSize, columns, new BlockWriter() {
+            @Override
+            public void write(int col, int from, double[] values, int length) {
+                System.arraycopy(values, 0, data[col], from, length);
+            }
+        });
+
+        return new BoxDataSet(new VerticalDoubleDataBox(data), outputVariables(columns));
+    }
+
+    /**
+     * Simulates data into a memory-mapped file, one block at a time, so that the data need not fit
+     * in the heap.
+     *
+     * @param sampleSize      The number of rows.
+     * @param file            The file to create; see MappedDoubleDataBox for its format.
+     * @param latentDataSaved True if columns for the latent variables should be included.
+     * @return A data set backed by a MappedDoubleDataBox over the file.
+     */
+    public DataSet simulateData(int sampleSize, File file, boolean latentDataSaved) throws IOException {
+        int[] columns = outputColumns(latentDataSaved);
+        final MappedDoubleDataBox box = MappedDoubleDataBox.create(file, sampleSize, numColumns(columns));
+
+        simulate(sampleSize, columns, new BlockWriter() {
+            @Override
+            public void write(int col, int from, double[] values, int length) {
+                box.writeColumn(col, from, values, length);
+            }
+        });
+
+        return new BoxDataSet(box, outputVariables(columns));
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Sets the number of rows simulated together from one random stream. The default, 0, picks a
+     * size from the number of variables so that a block takes about 8 MB. The data depend on the
+     * block size, so fix it if the data must be reproduced on another model size.
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 0) {
+            throw new IllegalArgumentException("Block size must be >= 0: " + blockSize);
+        }
+
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Sets the pool the blocks are simulated in. By default this is the shared ForkJoinPoolInstance pool.
+     */
+    public void setPool(ForkJoinPool pool) {
+        if (pool == null) throw new NullPointerException("Pool is null.");
+        this.pool = pool;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    //==============================PRIVATE METHODS===========================//
+
+    private interface BlockWriter {
+        void write(int col, int from, double[] values, int length);
+    }
+
+    private void simulate(final int sampleSize, final int[] columns, final BlockWriter writer) {
+        if (sampleSize < 1) {
+            throw new IllegalArgumentException("Sample size must be >= 1: " + sampleSize);
+        }
+
+        final int block = blockSize > 0 ? blockSize
+                : Math.max(16, Math.min(4096, (1 << 19) / Math.max(1, variables.size())));
+        final int numBlocks = (int) ((sampleSize + (long) block - 1) / block);
+        final long root = RandomUtil.getInstance().nextLong();
+        final int parallelism = pool.getParallelism();
+        final int leaf = Math.max(1, numBlocks / (4 * parallelism));
+
+        class SimulateTask extends RecursiveAction {
+            private final int from;
+            private final int to;
+
+            private SimulateTask(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > leaf) {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new SimulateTask(from, mid), new SimulateTask(mid, to));
+                } else {
+                    double[][] values = new double[variables.size()][block];
+                    double[][] normals = new double[variables.size()][block];
+
+                    for (int b = from; b < to; b++) {
+                        int first = b * block;
+                        int length = Math.min(block, sampleSize - first);
+                        simulateBlock(RandomUtil.getStream(root, b), length, values, normals);
+
+                        for (int i = 0; i < columns.length; i++) {
+                            if (columns[i] != -1) {
+                                writer.write(columns[i], first, values[i], length);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        pool.invoke(new SimulateTask(0, numBlocks));
+    }
+
+    private void simulateBlock(RandomUtil random, int length, double[][] values, double[][] normals) {
+        for (double[] normal : normals) {
+            for (int r = 0; r < length; r++) {
+                normal[r] = random.nextNormal(0, 1);
+            }
+        }
+
+        for (int col : order) {
+            double[] x = values[col];
+            Arrays.fill(x, 0, length, intercepts[col]);
+
+            for (int k = 0; k < shocks[col].length; k++) {
+                double c = shockCoefs[col][k];
+                double[] z = normals[shocks[col][k]];
+
+                for (int r = 0; r < length; r++) {
+                    x[r] += c * z[r];
+                }
+            }
+
+            for (int p = 0; p < parents[col].length; p++) {
+                double c = coefs[col][p];
+                double[] y = values[parents[col][p]];
+
+                for (int r = 0; r < length; r++) {
+                    x[r] += c * y[r];
+                }
+            }
+        }
+    }
+
+    // Maps each variable to its column in the output, or -1 if it is left out.
+    private int[] outputColumns(boolean latentDataSaved) {
+        int[] columns = new int[variables.size()];
+        int col = 0;
+
+        for (int i = 0; i < variables.size(); i++) {
+            boolean latent = variables.get(i).getNodeType() == NodeType.LATENT;
+            columns[i] = latentDataSaved || !latent ? col++ : -1;
+        }
+
+        return columns;
+    }
+
+    private static int numColumns(int[] columns) {
+        int n = 0;
+        for (int col : columns) if (col != -1) n++;
+        return n;
+    }
+
+    private List<Node> outputVariables(int[] columns) {
+        List<Node> outputs = new ArrayList<>();
+
+        for (int i = 0; i < variables.size(); i++) {
+            if (columns[i] == -1) continue;
+            Node node = variables.get(i);
+            ContinuousVariable var = new ContinuousVariable(node.getName());
+            var.setNodeType(node.getNodeType());
+            outputs.add(var);
+        }
+
+        return outputs;
+    }
+
+    private static int[] causalOrder(int[][] parents) {
+        int[] numParents = new int[parents.length];
+        List<List<Integer>> children = new ArrayList<>();
+
+        for (int i = 0; i < parents.length; i++) {
+            children.add(new ArrayList<Integer>());
+        }
+
+        for (int i = 0; i < parents.length; i++) {
+            numParents[i] = parents[i].length;
+            for (int p : parents[i]) children.get(p).add(i);
+        }
+
+        int[] order = new int[parents.length];
+        int head = 0;
+        int tail = 0;
+
+        for (int i = 0; i < parents.length; i++) {
+            if (numParents[i] == 0) order[tail++] = i;
+        }
+
+        while (head < tail) {
+            int node = order[head++];
+
+            for (int child : children.get(node)) {
+                if (--numParents[child] == 0) order[tail++] = child;
+            }
+        }
+
+        if (tail < parents.length) {
+            throw new IllegalArgumentException("The model must be acyclic.");
+        }
+
+        return order;
+    }
+
+    private static boolean isDiagonal(TetradMatrix m) {
+        for (int i = 0; i < m.rows(); i++) {
+            for (int j = 0; j < m.columns(); j++) {
+                if (i != j && m.get(i, j) != 0) return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -1074,6 +1074,13 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
         distributions.put(node, distribution);
     }
 
+    /**
+     * @return the distribution set for the given node, or null if its error is Gaussian.
+     */
+    public Distribution getDistribution(Node node) {
+        return distributions.get(node);
+    }
+
     /**
      * The value of the maximum likelihood function for the getModel the model
      * (Bollen 107). To optimize, this should be minimized.
@@ -1346,6 +1353,7 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
         Graph contemporaneousDag = timeSeriesGraph.subgraph(timeSeriesGraph.getLag0Nodes());
 
         List<Node> tierOrdering = contemporaneousDag.getCausalOrdering();
+        RandomUtil random = RandomUtil.getInstance().split();
 
         for (int currentStep = 0; currentStep < sampleSize; currentStep++) {
             for (Node to : tierOrdering) {
@@ -1357,7 +1365,7 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
                     if (parent.getNodeType() == NodeType.ERROR) {
                         Node child = semGraph.getChildren(parent).get(0);
                         double paramValue = getParamValue(child, child);
-                        sum += RandomUtil.getInstance().nextNormal(0.0, paramValue);
+                        sum += random.nextNormal(0.0, paramValue);
                     } else {
                         TimeLagGraph.NodeId id = timeSeriesGraph.getNodeId(parent);
                         int fromIndex = nodeIndices.get(timeSeriesGraph.getNode(id.getName(), 0));
@@ -1367,7 +1375,7 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
                             double fromValue = fullData.getDouble(currentStep - lag, fromIndex);
                             sum += coef * fromValue;
                         } else {
-                            sum += RandomUtil.getInstance().nextNormal(0.0, 0.5);
+                            sum += random.nextNormal(0.0, 0.5);
                         }
                     }
                 }
@@ -1433,6 +1441,7 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
 
         DataSet fullDataSet = new BoxDataSet(new VerticalDoubleDataBox(sampleSize, newVariables.size()), newVariables);
         TetradMatrix cholesky = MatrixUtils.cholesky(impliedCovar);
+        RandomUtil random = RandomUtil.getInstance().split();
 
         // Simulate the data by repeatedly calling the Cholesky.exogenousData
         // method. Store only the data for the measured variables.
@@ -1443,7 +1452,7 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
             double exoData[] = new double[cholesky.rows()];
 
             for (int i = 0; i < exoData.length; i++) {
-                exoData[i] = RandomUtil.getInstance().nextNormal(0, 1);
+                exoData[i] = random.nextNormal(0, 1);
                 //            exoData[i] = randomUtil.nextUniform(-1, 1);
             }
 
@@ -1548,6 +1557,7 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
         }
 
         TetradMatrix cholesky = MatrixUtils.cholesky(errCovar());
+        RandomUtil random = RandomUtil.getInstance().split();
 
         // Do the simulation.
         ROW:
@@ -1557,7 +1567,7 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
             double exoData[] = new double[cholesky.rows()];
 
             for (int i = 0; i < exoData.length; i++) {
-                exoData[i] = RandomUtil.getInstance().nextNormal(0, 1);
+                exoData[i] = random.nextNormal(0, 1);
             }
 
             // Step 2. Multiply by cholesky to get correct covariance.
@@ -1668,6 +1678,7 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
 
         // Pick error values e, for each calculate inv * e.
         TetradMatrix sim = new TetradMatrix(sampleSize, numVars);
+        RandomUtil random = RandomUtil.getInstance().split();
 
         ROW:
         for (int row = 0; row < sampleSize; row++) {
@@ -1676,7 +1687,7 @@ public final class SemIm implements IM, ISemIm, TetradSerializable {
             TetradVector e = new TetradVector(edgeCoef.columns());
 
             for (int i = 0; i < e.size(); i++) {
-                e.set(i, RandomUtil.getInstance().nextNormal(0, sqrt(errCovar.get(i, i))));
+                e.set(i, random.nextNormal(0, sqrt(errCovar.get(i, i))));
             }
 
             // Step 3. Calculate the new rows in the data.
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.cmu.tetrad.stat.correlation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the same covariance matrix as RealCovarianceMatrixForkJoin, but from
+ * data stored column by column, data[column][row], as in VerticalDoubleDataBox.
+ * The columns are read in place, so no row-major copy of the data is needed,
+ * and each pair of columns is scanned contiguously.
+ *
+ * @author Joseph Ramsey
+ */
+public class RealVerticalCovarianceMatrixForkJoin implements RealCovariance {
+
+    private final double[][] data;
+
+    private final int numOfRows;
+
+    private final int numOfCols;
+
+    private final int numOfThreads;
+
+    /**
+     * @param data         the data, data[column][row]; not copied or modified.
+     * @param numOfThreads the number of threads to use.
+     */
+    public RealVerticalCovarianceMatrixForkJoin(double[][] data, int numOfThreads) {
+        this.data = data;
+        this.numOfCols = data.length;
+        this.numOfRows = data[0].length;
+        this.numOfThreads = Math.max(1, (numOfThreads > numOfCols) ? numOfCols : numOfThreads);
+    }
+
+    @Override
+    public double[] computeLowerTriangle(boolean biasCorrected) {
+        double[][] covariance = compute(biasCorrected);
+        double[] lowerTriangle = new double[(numOfCols * (numOfCols + 1)) / 2];
+        int index = 0;
+
+        for (int col = 0; col < numOfCols; col++) {
+            for (int col2 = 0; col2 <= col; col2++) {
+                lowerTriangle[index++] = covariance[col][col2];
+            }
+        }
+
+        return lowerTriangle;
+    }
+
+    @Override
+    public double[][] compute(boolean biasCorrected) {
+        double[][] covarianceMatrix = new double[numOfCols][numOfCols];
+        double[] means = new double[numOfCols];
+
+        final ForkJoinPool pool = new ForkJoinPool(this.numOfThreads);
+        pool.invoke(new CovarianceAction(covarianceMatrix, means, 0, numOfCols, biasCorrected, true));
+        pool.invoke(new CovarianceAction(covarianceMatrix, means, 0, numOfCols, biasCorrected, false));
+        pool.shutdown();
+
+        return covarianceMatrix;
+    }
+
+    // Computes means (if meansOnly) or covariances for columns start (inclusive) to end (exclusive).
+    // Row col of the covariance matrix is filled for col2 <= col; columns near the end of the
+    // range have more work, so ranges are split by half until they are small.
+    class CovarianceAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 23L;
+
+        private final double[][] covariance;
+        private final double[] means;
+        private final int start;
+        private final int end;
+        private final boolean biasCorrected;
+        private final boolean meansOnly;
+
+        public CovarianceAction(double[][] covariance, double[] means, int start, int end,
+                                boolean biasCorrected, boolean meansOnly) {
+            this.covariance = covariance;
+            this.means = means;
+            this.start = start;
+            this.end = end;
+            this.biasCorrected = biasCorrected;
+            this.meansOnly = meansOnly;
+        }
+
+        private void computeMeans() {
+            for (int col = start; col < end; col++) {
+                double[] x = data[col];
+                double sum = 0;
+                for (int row = 0; row < numOfRows; row++) {
+                    sum += x[row];
+                }
+                means[col] = sum / numOfRows;
+            }
+        }
+
+        private void computeCovariance() {
+            double correction = (double) numOfRows / (double) (numOfRows - 1);
+
+            for (int col = start; col < end; col++) {
+                double[] x = data[col];
+                double mx = means[col];
+
+                for (int col2 = 0; col2 <= col; col2++) {
+                    double[] y = data[col2];
+                    double my = means[col2];
+                    double variance = 0;
+                    for (int row = 0; row < numOfRows; row++) {
+                        variance += ((x[row] - mx) * (y[row] - my) - variance) / (row + 1);
+                    }
+                    variance = biasCorrected ? variance * correction : variance;
+                    covariance[col][col2] = variance;
+                    covariance[col2][col] = variance;
+                }
+            }
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= Math.max(1, numOfCols / (4 * numOfThreads))) {
+                if (meansOnly) {
+                    computeMeans();
+                } else {
+                    computeCovariance();
+                }
+            } else {
+                int mid = (start + end) / 2;
+                invokeAll(new CovarianceAction(covariance, means, start, mid, biasCorrected, meansOnly),
+                        new CovarianceAction(covariance, means, mid, end, biasCorrected, meansOnly));
+            }
+        }
+    }
+
+}
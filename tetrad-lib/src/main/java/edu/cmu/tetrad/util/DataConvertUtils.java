@@ -23,9 +23,13 @@ import edu.cmu.tetrad.data.ContinuousVariable;
 import edu.cmu.tetrad.data.CovarianceMatrix;
 import edu.cmu.tetrad.data.DataBox;
 import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DataUtils;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.data.DoubleDataBox;
+import edu.cmu.tetrad.data.MappedDoubleDataBox;
 import edu.cmu.tetrad.data.MixedDataBox;
+import edu.cmu.tetrad.data.VerticalDoubleDataBox;
 import edu.cmu.tetrad.data.VerticalIntDataBox;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.graph.NodeVariableType;
@@ -36,9 +40,17 @@ import edu.pitt.dbmi.data.reader.DiscreteDataColumn;
 import edu.pitt.dbmi.data.reader.covariance.CovarianceData;
 import edu.pitt.dbmi.data.reader.metadata.ColumnMetadata;
 import edu.pitt.dbmi.data.reader.metadata.Metadata;
+import edu.pitt.dbmi.data.reader.tabular.ContinuousTabularDatasetFileReader;
+import edu.pitt.dbmi.data.reader.tabular.DiscreteTabularDataColumn;
 import edu.pitt.dbmi.data.reader.tabular.MixedTabularData;
+import edu.pitt.dbmi.data.reader.tabular.MixedTabularDataColumn;
+import edu.pitt.dbmi.data.reader.tabular.TabularDataColumn;
+import edu.pitt.dbmi.data.reader.tabular.VerticalContinuousTabularData;
 import edu.pitt.dbmi.data.reader.tabular.VerticalDiscreteTabularData;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -176,12 +188,222 @@ public class DataConvertUtils {
     }
 
     public static DataModel toContinuousDataModel(ContinuousData dataset) {
-        DataBox dataBox = new DoubleDataBox(dataset.getData());
+        DataBox dataBox = (dataset instanceof VerticalContinuousTabularData && dataset.getDataColumns().length > 0)
+                ? new VerticalDoubleDataBox(((VerticalContinuousTabularData) dataset).getColumnData())
+                : new DoubleDataBox(dataset.getData());
         List<Node> variables = toNodes(dataset.getDataColumns());
 
         return new BoxDataSet(dataBox, variables);
     }
 
+    /**
+     * Reads a continuous tabular file straight into a data set backed by a
+     * MappedDoubleDataBox, written to the given file. Rows are parsed one at a
+     * time and written to the box a block at a time, so the data are never held
+     * on the heap as a whole.
+     *
+     * @param reader a reader for the continuous file, already configured.
+     * @param file   the file to write; overwritten if it exists.
+     * @return a BoxDataSet wrapping the mapped file.
+     * @throws IOException if either file cannot be read, written or mapped.
+     */
+    public static DataSet toMappedDataModel(ContinuousTabularDatasetFileReader reader, File file) throws IOException {
+        DataColumn[] dataColumns = reader.readInDataColumns(Collections.emptySet());
+        int numOfCols = dataColumns.length;
+        MappedDoubleDataBox box = MappedDoubleDataBox.create(file, reader.countNumberOfRows(), numOfCols);
+
+        // Rows are gathered into columns of a block so the box is written column by column.
+        int blockSize = Math.max(1, Math.min(box.numRows(), (1 << 20) / Math.max(1, numOfCols)));
+        double[][] block = new double[numOfCols][blockSize];
+        int[] firstRow = {0};
+
+        reader.readInRows(dataColumns, (values, row) -> {
+            int i = row - firstRow[0];
+
+            for (int j = 0; j < numOfCols; j++) {
+                block[j][i] = values[j];
+            }
+
+            if (i + 1 == blockSize) {
+                for (int j = 0; j < numOfCols; j++) {
+                    box.writeColumn(j, firstRow[0], block[j], blockSize);
+                }
+
+                firstRow[0] += blockSize;
+            }
+        });
+
+        int remaining = box.numRows() - firstRow[0];
+
+        if (remaining > 0) {
+            for (int j = 0; j < numOfCols; j++) {
+                box.writeColumn(j, firstRow[0], block[j], remaining);
+            }
+        }
+
+        return new BoxDataSet(box, toNodes(dataColumns));
+    }
+
+    /**
+     * Converts tabular data that has already been read to a data set backed by a
+     * MappedDoubleDataBox, written to the given file, so that the data no longer need to
+     * be held on the heap once the reader's arrays are released. To convert a continuous
+     * file without reading it all onto the heap first, use
+     * toMappedDataModel(ContinuousTabularDatasetFileReader, File). Covariance data is not
+     * tabular and is not accepted.
+     *
+     * @param data the continuous, discrete or mixed tabular data.
+     * @param file the file to write; overwritten if it exists.
+     * @return a BoxDataSet wrapping the mapped file.
+     * @throws IOException if the file cannot be written or mapped.
+     */
+    public static DataSet toMappedDataModel(Data data, File file) throws IOException {
+        if (data instanceof VerticalContinuousTabularData) {
+            VerticalContinuousTabularData dataset = (VerticalContinuousTabularData) data;
+            double[][] columns = dataset.getColumnData();
+            List<Node> variables = toNodes(dataset.getDataColumns());
+
+            return new BoxDataSet(MappedDoubleDataBox.create(file, columns), variables);
+        } else if (data instanceof ContinuousData) {
+            ContinuousData dataset = (ContinuousData) data;
+            double[][] rows = dataset.getData();
+            List<Node> variables = toNodes(dataset.getDataColumns());
+            MappedDoubleDataBox box = MappedDoubleDataBox.create(file, rows.length, variables.size());
+            double[] column = new double[rows.length];
+
+            for (int j = 0; j < variables.size(); j++) {
+                for (int i = 0; i < rows.length; i++) {
+                    column[i] = rows[i][j];
+                }
+
+                box.setColumn(j, column);
+            }
+
+            return new BoxDataSet(box, variables);
+        } else if (data instanceof VerticalDiscreteTabularData) {
+            VerticalDiscreteTabularData dataset = (VerticalDiscreteTabularData) data;
+            int[][] columns = dataset.getData();
+            List<Node> variables = toNodes(dataset.getDataColumns());
+            int numOfRows = columns.length == 0 ? 0 : columns[0].length;
+            MappedDoubleDataBox box = MappedDoubleDataBox.create(file, numOfRows, variables.size());
+
+            for (int j = 0; j < columns.length; j++) {
+                box.setColumn(j, toDoubles(columns[j]));
+            }
+
+            return new BoxDataSet(box, variables);
+        } else if (data instanceof MixedTabularData) {
+            MixedTabularData dataset = (MixedTabularData) data;
+            BoxDataSet mixed = (BoxDataSet) toMixedDataBox(dataset);
+            double[][] continuousData = dataset.getContinuousData();
+            int[][] discreteData = dataset.getDiscreteData();
+            MappedDoubleDataBox box = MappedDoubleDataBox.create(file, dataset.getNumOfRows(), mixed.getNumColumns());
+
+            for (int j = 0; j < mixed.getNumColumns(); j++) {
+                box.setColumn(j, continuousData[j] != null ? continuousData[j] : toDoubles(discreteData[j]));
+            }
+
+            return new BoxDataSet(box, mixed.getVariables());
+        } else {
+            throw new IllegalArgumentException("Expecting tabular data: " + data);
+        }
+    }
+
+    // Discrete values are stored as doubles in a mapped box; the missing value becomes NaN.
+    private static double[] toDoubles(int[] values) {
+        double[] doubles = new double[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            doubles[i] = values[i] == DiscreteVariable.MISSING_VALUE ? Double.NaN : values[i];
+        }
+
+        return doubles;
+    }
+
+    /**
+     * Converts a data set to the data-reader representation, so that it can be
+     * written with a data-reader writer such as BinaryDataFileWriter. Columns
+     * are shared with the data set where its data box stores them that way.
+     * The inverse is toDataModel(Data).
+     *
+     * @param dataSet a data set with continuous and/or discrete columns.
+     * @return continuous, discrete or mixed tabular data.
+     */
+    public static Data toData(DataSet dataSet) {
+        int numOfRows = dataSet.getNumRows();
+        int numOfCols = dataSet.getNumColumns();
+        DiscreteDataColumn[] dataColumns = new DiscreteDataColumn[numOfCols];
+        double[][] continuousData = new double[numOfCols][];
+        int[][] discreteData = new int[numOfCols][];
+        boolean isDiscrete = false;
+        boolean isContinuous = false;
+
+        for (int j = 0; j < numOfCols; j++) {
+            Node node = dataSet.getVariable(j);
+
+            if (node instanceof DiscreteVariable) {
+                isDiscrete = true;
+                discreteData[j] = getDiscreteColumn(dataSet, j);
+            } else if (node instanceof ContinuousVariable) {
+                isContinuous = true;
+                continuousData[j] = DataUtils.getContinuousColumn(dataSet, j);
+            } else {
+                throw new IllegalArgumentException("Expecting a discrete or continuous variable: " + node);
+            }
+        }
+
+        if (isDiscrete && isContinuous) {
+            for (int j = 0; j < numOfCols; j++) {
+                Node node = dataSet.getVariable(j);
+                MixedTabularDataColumn dataColumn = new MixedTabularDataColumn(
+                        new TabularDataColumn(node.getName(), j + 1, false, node instanceof DiscreteVariable));
+                if (node instanceof DiscreteVariable) {
+                    dataColumn.setCategories(((DiscreteVariable) node).getCategories());
+                }
+                dataColumns[j] = dataColumn;
+            }
+
+            return new MixedTabularData(numOfRows, dataColumns, continuousData, discreteData);
+        } else if (isDiscrete) {
+            for (int j = 0; j < numOfCols; j++) {
+                Node node = dataSet.getVariable(j);
+                DiscreteTabularDataColumn dataColumn = new DiscreteTabularDataColumn(
+                        new TabularDataColumn(node.getName(), j + 1, false, true));
+                dataColumn.setCategories(((DiscreteVariable) node).getCategories());
+                dataColumns[j] = dataColumn;
+            }
+
+            return new VerticalDiscreteTabularData(dataColumns, discreteData);
+        } else {
+            DataColumn[] columns = new DataColumn[numOfCols];
+            for (int j = 0; j < numOfCols; j++) {
+                columns[j] = new TabularDataColumn(dataSet.getVariable(j).getName(), j + 1, false, false);
+            }
+
+            return new VerticalContinuousTabularData(columns, continuousData);
+        }
+    }
+
+    private static int[] getDiscreteColumn(DataSet dataSet, int j) {
+        if (dataSet instanceof BoxDataSet) {
+            DataBox box = ((BoxDataSet) dataSet).getDataBox();
+
+            if (box instanceof VerticalIntDataBox && box.numRows() > 0) {
+                return ((VerticalIntDataBox) box).getVariableVectors()[j];
+            } else if (box instanceof MixedDataBox && ((MixedDataBox) box).getDiscreteData()[j] != null) {
+                return ((MixedDataBox) box).getDiscreteData()[j];
+            }
+        }
+
+        int[] column = new int[dataSet.getNumRows()];
+
+        for (int i = 0; i < column.length; i++) {
+            column[i] = dataSet.getInt(i, j);
+        }
+
+        return column;
+    }
+
     public static List<Node> toNodes(List<String> variables) {
         return variables.stream()
                 .map(ContinuousVariable::new)
@@ -25,6 +25,7 @@ import org.apache.commons.collections4.map.HashedMap;
 import org.apache.commons.math3.distribution.*;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.SynchronizedRandomGenerator;
+import org.apache.commons.math3.random.Well1024a;
 import org.apache.commons.math3.random.Well44497b;
 
 import java.util.Date;
@@ -42,6 +43,10 @@ import java.util.Map;
  * The 64-bit Mersenne Twister implementation from the COLT library is used to generate random numbers.
  * <p>
  * To see what distributions are currently supported, look at the methods of the class. These many change over time.
+ * <p>
+ * The singleton is synchronized, so threads drawing from it in parallel contend for one lock. Parallel code should
+ * instead draw from streams obtained with <code>getStream</code> or <code>split</code>, which are not synchronized
+ * and are meant to be used by one thread at a time.
  *
  * @author Joseph Ramsey
  */
@@ -80,6 +85,15 @@ public class RandomUtil {
         setSeed(seed);
     }
 
+    /**
+     * Constructs a stream around the given (unsynchronized) generator.
+     */
+    private RandomUtil(RandomGenerator randomGenerator, long seed) {
+        this.randomGenerator = randomGenerator;
+        this.normal = new NormalDistribution(randomGenerator, 0, 1);
+        this.seed = seed;
+    }
+
     /**
      * @return the singleton instance of this class.
      */
@@ -87,6 +101,21 @@ public class RandomUtil {
         return randomUtil;
     }
 
+    /**
+     * Returns the stream with the given index in a family of independent streams derived from the given root. The
+     * same root and index always give the same stream. To make parallel work reproducible regardless of the number
+     * of threads, draw the root once from the shared instance (with <code>nextLong</code>) and give each fixed unit
+     * of work--a block of rows, say--its own index.
+     *
+     * @param root  The root of the family, usually drawn from the shared instance.
+     * @param index The index of the stream in the family.
+     * @return An unsynchronized generator, to be used by one thread at a time.
+     */
+    public static RandomUtil getStream(long root, long index) {
+        long seed = mix(root + 0x9E3779B97F4A7C15L * (index + 1));
+        return new RandomUtil(new Well1024a(seed), seed);
+    }
+
     //=======================================PUBLIC METHODS=================================//
 
     /**
@@ -261,6 +290,20 @@ public class RandomUtil {
     public long nextLong() {
         return randomGenerator.nextLong();
     }
+
+    /**
+     * @return An unsynchronized stream seeded from this generator, to be used by one thread at a time.
+     */
+    public RandomUtil split() {
+        return getStream(nextLong(), 0);
+    }
+
+    // The SplitMix64 finalizer, so that nearby roots and indices give unrelated seeds.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 }
 
 
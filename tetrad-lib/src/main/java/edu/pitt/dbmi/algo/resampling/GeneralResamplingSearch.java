@@ -7,8 +7,12 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.algcomparison.algorithm.MultiDataSetAlgorithm;
@@ -18,7 +22,9 @@ import edu.cmu.tetrad.data.DataUtils;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.RandomUtil;
 import edu.pitt.dbmi.algo.resampling.task.GeneralResamplingSearchRunnable;
 
 /**
@@ -45,11 +51,11 @@ public class GeneralResamplingSearch {
 
 	private boolean verbose = false;
 
-	private List<Graph> PAGs = Collections.synchronizedList(new ArrayList<>());
+	private boolean streamingMode = false;
 
-	// private ForkJoinPool pool = null;
+	private List<Graph> PAGs = Collections.synchronizedList(new ArrayList<>());
 
-	private final ExecutorService pool;
+	private ResamplingEdgeFrequencies edgeFrequencies = new ResamplingEdgeFrequencies();
 
 	private DataSet data = null;
 
@@ -71,18 +77,18 @@ public class GeneralResamplingSearch {
 
 	public GeneralResamplingSearch(DataSet data) {
 		this.data = data;
-		// pool = ForkJoinPoolInstance.getInstance().getPool();
-		pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 	}
 
 	public GeneralResamplingSearch(List<DataSet> dataSets) {
 		this.dataSets = dataSets;
-		// pool = ForkJoinPoolInstance.getInstance().getPool();
-		pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 	}
 
 	public void addPAG(Graph pag) {
-		PAGs.add(pag);
+		if (streamingMode) {
+			edgeFrequencies.add(pag);
+		} else {
+			PAGs.add(pag);
+		}
 	}
 
 	public void setAlgorithm(Algorithm algorithm) {
@@ -111,6 +117,32 @@ public class GeneralResamplingSearch {
 		this.runParallel = runParallel;
 	}
 
+	/**
+	 * Sets whether to run in streaming mode. In streaming mode each resample is
+	 * a view of the rows drawn rather than a copy of the data, and is made only
+	 * when its search starts; the searches are run as tasks in the shared
+	 * ForkJoinPoolInstance pool, which FGES, the parallel FAS and the FCI
+	 * sepset lookups built in those tasks also run in, so that the number of
+	 * threads is bounded for both together (searches that make pools of their
+	 * own are not bounded by it); and each graph
+	 * found is counted into getEdgeFrequencies() and then dropped, so that
+	 * search() returns an empty list. The resamples are drawn from per-resample
+	 * streams split from RandomUtil, so results do not depend on the order in
+	 * which the searches run, and are the same resamples that are copied and
+	 * searched when not in streaming mode.
+	 */
+	public void setStreamingMode(boolean streamingMode) {
+		this.streamingMode = streamingMode;
+	}
+
+	/**
+	 * @return the edge frequencies over the graphs found by the last search()
+	 *         in streaming mode.
+	 */
+	public ResamplingEdgeFrequencies getEdgeFrequencies() {
+		return edgeFrequencies;
+	}
+
 	public void setAddOriginalDataset(boolean addOriginalDataset) {
 		this.addOriginalDataset = addOriginalDataset;
 	}
@@ -166,9 +198,16 @@ public class GeneralResamplingSearch {
 	public List<Graph> search() {
 
 		PAGs.clear();
+		edgeFrequencies = new ResamplingEdgeFrequencies();
 		parameters.set("numberResampling", 0); // This needs to be set to zero to not loop indefinitely
 
-		if (!this.runParallel) {
+		// Resample i is drawn from stream i of this root in every mode, so the modes search the
+		// same resamples.
+		final long root = RandomUtil.getInstance().nextLong();
+
+		if (streamingMode) {
+			searchStreaming(root);
+		} else if (!this.runParallel) {
 			// Running in the sequential form
 			if (verbose) {
 				out.println("Running Resamplings in Sequential Mode, numberResampling = " + numberResampling);
@@ -176,34 +215,20 @@ public class GeneralResamplingSearch {
 			for (int i1 = 0; i1 < this.numberResampling; i1++) {
 				GeneralResamplingSearchRunnable task = null;
 
-				// Bootstrapping
-				if (resamplingWithReplacement) {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				// Sub-sampling
+				// Bootstrapping or sub-sampling; the resample is drawn from the same stream as in
+				// streaming mode and then copied.
+				RandomUtil random = RandomUtil.getStream(root, i1);
+
+				if (data != null) {
+					task = new GeneralResamplingSearchRunnable(getResample(data, random).copy(), algorithm, parameters,
+							this, verbose);
 				} else {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
+					List<DataModel> dataModels = new ArrayList<>();
+					for (DataSet data : dataSets) {
+						dataModels.add(getResample(data, random).copy());
 					}
+					task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
+							verbose);
 				}
 
 				if (initialGraph != null) {
@@ -241,38 +266,26 @@ public class GeneralResamplingSearch {
 				out.println("Running Resamplings in Parallel Mode, numberResampling = " + numberResampling);
 			}
 
+			ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
 			for (int i1 = 0; i1 < this.numberResampling; i1++) {
 
 				GeneralResamplingSearchRunnable task = null;
 
-				// Bootstrapping
-				if (resamplingWithReplacement) {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				// Sub-sampling
+				// Bootstrapping or sub-sampling; the resample is drawn from the same stream as in
+				// streaming mode and then copied.
+				RandomUtil random = RandomUtil.getStream(root, i1);
+
+				if (data != null) {
+					task = new GeneralResamplingSearchRunnable(getResample(data, random).copy(), algorithm, parameters,
+							this, verbose);
 				} else {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
+					List<DataModel> dataModels = new ArrayList<>();
+					for (DataSet data : dataSets) {
+						dataModels.add(getResample(data, random).copy());
 					}
+					task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
+							verbose);
 				}
 
 				if (initialGraph != null) {
@@ -306,51 +319,33 @@ public class GeneralResamplingSearch {
 
 			pool.shutdown();
 
-			while (!pool.isTerminated()) {
-				try {
-					Thread.sleep(1000);
-					// out.println("Waiting...");
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+			try {
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				pool.shutdownNow();
+				Thread.currentThread().interrupt();
 			}
-			// out.println("Is terminated: " + pool.isTerminated());
 		}
 
 		// If the pool is prematurely terminated, do sequentially
-		if (PAGs == null || PAGs.size() == 0) {
+		if (!streamingMode && (PAGs == null || PAGs.size() == 0)) {
 			for (int i1 = 0; i1 < this.numberResampling; i1++) {
 				GeneralResamplingSearchRunnable task = null;
 
-				// Bootstrapping
-				if (resamplingWithReplacement) {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getBootstrapSample(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				// Sub-sampling
+				// Bootstrapping or sub-sampling; the resample is drawn from the same stream as in
+				// streaming mode and then copied.
+				RandomUtil random = RandomUtil.getStream(root, i1);
+
+				if (data != null) {
+					task = new GeneralResamplingSearchRunnable(getResample(data, random).copy(), algorithm, parameters,
+							this, verbose);
 				} else {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getResamplingDataset(data, (int)(data.getNumRows()*percentResampleSize/100.0));
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
+					List<DataModel> dataModels = new ArrayList<>();
+					for (DataSet data : dataSets) {
+						dataModels.add(getResample(data, random).copy());
 					}
+					task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
+							verbose);
 				}
 
 				if (initialGraph != null) {
@@ -389,4 +384,102 @@ public class GeneralResamplingSearch {
 		return PAGs;
 	}
 
+	private void searchStreaming(final long root) {
+		if (verbose) {
+			out.println("Running Resamplings in Streaming Mode, numberResampling = " + numberResampling);
+		}
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+
+		for (int i1 = 0; i1 < this.numberResampling; i1++) {
+			final int index = i1;
+
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					RandomUtil random = RandomUtil.getStream(root, index);
+					GeneralResamplingSearchRunnable task;
+
+					if (data != null) {
+						task = new GeneralResamplingSearchRunnable(getResample(data, random), algorithm, parameters,
+								GeneralResamplingSearch.this, verbose);
+					} else {
+						List<DataModel> dataModels = new ArrayList<>();
+						for (DataSet data : dataSets) {
+							dataModels.add(getResample(data, random));
+						}
+						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters,
+								GeneralResamplingSearch.this, verbose);
+					}
+
+					runTask(task);
+					return null;
+				}
+			});
+		}
+
+		// Search again with original dataset
+		if (resamplingWithReplacement && addOriginalDataset) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					GeneralResamplingSearchRunnable task;
+
+					if (data != null) {
+						task = new GeneralResamplingSearchRunnable(data, algorithm, parameters,
+								GeneralResamplingSearch.this, verbose);
+					} else {
+						List<DataModel> dataModels = new ArrayList<>(dataSets);
+						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters,
+								GeneralResamplingSearch.this, verbose);
+					}
+
+					runTask(task);
+					return null;
+				}
+			});
+		}
+
+		if (!runParallel) {
+			for (Callable<Void> task : tasks) {
+				try {
+					task.call();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+
+			return;
+		}
+
+		for (Future<Void> future : ForkJoinPoolInstance.getInstance().getPool().invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("A resampling search failed.", e.getCause());
+			}
+		}
+	}
+
+	private DataSet getResample(DataSet data, RandomUtil random) {
+		int sampleSize = (int) (data.getNumRows() * percentResampleSize / 100.0);
+
+		if (resamplingWithReplacement) {
+			return DataUtils.getBootstrapView(data, sampleSize, random);
+		} else {
+			return DataUtils.getResamplingView(data, sampleSize, random);
+		}
+	}
+
+	private void runTask(GeneralResamplingSearchRunnable task) {
+		if (initialGraph != null) {
+			task.setInitialGraph(initialGraph);
+		}
+		task.setKnowledge(knowledge);
+		task.run();
+	}
+
 }
@@ -13,10 +13,7 @@ import edu.cmu.tetrad.util.Params;
 import edu.cmu.tetrad.util.RandomUtil;
 import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Created by mahdi on 1/16/17.
@@ -40,6 +37,10 @@ public class GeneralResamplingTest {
 	
 	private List<Graph> PAGs;
 
+	private ResamplingEdgeFrequencies edgeFrequencies;
+
+	private boolean streamingMode = false;
+
 	private boolean verbose = false;
 
 	/**
@@ -60,6 +61,15 @@ public class GeneralResamplingTest {
 		this.runParallel = runParallel;
 	}
 
+	/**
+	 * Sets whether the resampling search should run in streaming mode (see
+	 * GeneralResamplingSearch.setStreamingMode()), in which the graphs found on
+	 * the resamples are counted as they are found rather than kept.
+	 */
+	public void setStreamingMode(boolean streamingMode) {
+		this.streamingMode = streamingMode;
+	}
+
 	/**
 	 * Sets whether verbose output should be produced.
 	 */
@@ -196,10 +206,21 @@ public class GeneralResamplingTest {
 			out.println("Resampling on the " + algorithm.getDescription());
 		}
 
+		resamplingSearch.setStreamingMode(streamingMode);
+
 		PAGs = resamplingSearch.search();
 
+		if (streamingMode) {
+			edgeFrequencies = resamplingSearch.getEdgeFrequencies();
+		} else {
+			edgeFrequencies = new ResamplingEdgeFrequencies();
+			for (Graph g : PAGs) {
+				edgeFrequencies.add(g);
+			}
+		}
+
 		if (verbose) {
-			out.println("Resampling number is : " + PAGs.size());
+			out.println("Resampling number is : " + edgeFrequencies.getNumGraphs());
 		}
 		stop = System.currentTimeMillis();
 		if (verbose) {
@@ -230,21 +251,16 @@ public class GeneralResamplingTest {
 	}
 
 	private Graph generateSamplingGraph() {
-		Graph pag = null;
 		if(verbose){
-			out.println("PAGs: " + PAGs.size());
+			out.println("PAGs: " + edgeFrequencies.getNumGraphs());
 			out.println("Ensemble: " + edgeEnsemble);
 			out.println();
 		}
-		if(PAGs == null || PAGs.size() == 0)return new EdgeListGraph();
 		
-		int i=0;
-		for (Graph g : PAGs) {
-			if (g != null) {
-				if(pag == null){
-					pag = g;
-				}
-				if(verbose){
+		if(verbose && PAGs != null){
+			int i=0;
+			for (Graph g : PAGs) {
+				if (g != null) {
 					out.println("Resampling Search Result (" + i + "):");
 					out.println(GraphUtils.graphToText(g));
 					out.println();
@@ -252,11 +268,11 @@ public class GeneralResamplingTest {
 				}
 			}
 		}
-		if(pag==null)return new EdgeListGraph();
 		
-		// Sort nodes by its name for fixing the edge orientation
-		List<Node> nodes = pag.getNodes();
-		Collections.sort(nodes);
+		if(edgeFrequencies.getNumGraphs() == 0)return new EdgeListGraph();
+		
+		// Sorted by name for fixing the edge orientation
+		List<Node> nodes = edgeFrequencies.getNodes();
 		
 		Graph complete = new EdgeListGraph(nodes);
 		complete.fullyConnect(Endpoint.TAIL);
@@ -270,7 +286,7 @@ public class GeneralResamplingTest {
 			Node n2 = e.getNode2();
 			
 			// Test new probability method
-			List<EdgeTypeProbability> edgeTypeProbabilities = getProbability(n1, n2);
+			List<EdgeTypeProbability> edgeTypeProbabilities = edgeFrequencies.getProbability(n1, n2);
 			EdgeTypeProbability chosen_edge_type = null;
 			double max_edge_prob = 0;
 			double no_edge_prob = 0;
@@ -356,115 +372,6 @@ public class GeneralResamplingTest {
 		return graph;
 	}
 
-	private List<EdgeTypeProbability> getProbability(Node node1, Node node2){
-		Map<String, Integer> edgeDist = new HashMap<>();
-		int no_edge_num = 0;
-		for (Graph g : PAGs) {
-			Edge e = g.getEdge(node1, node2);
-			if(e != null) {				
-				String edgeString = e.toString();
-				if(e.getEndpoint1() == e.getEndpoint2() && node1.compareTo(e.getNode1()) != 0) {
-					Edge edge = new Edge(node1, node2, e.getEndpoint1(), e.getEndpoint2());
-					for(Property property : e.getProperties()) {
-						edge.addProperty(property);
-					}
-					edgeString = edge.toString();
-				}
-				Integer num_edge = edgeDist.get(edgeString);
-				if(num_edge == null) {
-					num_edge = 0;
-				}
-				num_edge = num_edge.intValue() + 1;
-				edgeDist.put(edgeString, num_edge);	
-			}else {
-				no_edge_num++;
-			}
-		}
-		int n = PAGs.size();
-		// Normalization
-		List<EdgeTypeProbability> edgeTypeProbabilities = edgeDist.size()==0?null:new ArrayList<>();
-		for(String edgeString : edgeDist.keySet()) {
-			int edge_num = edgeDist.get(edgeString);
-			double probability = (double) edge_num/n;
-			
-			String[] token = edgeString.split("\\s+");
-			String n1 = token[0];
-			String arc = token[1];
-			String n2 = token[2];
-			
-			char end1 = arc.charAt(0);
-            char end2 = arc.charAt(2);
-
-            Endpoint _end1, _end2;
-
-            if (end1 == '<') {
-                _end1 = Endpoint.ARROW;
-            } else if (end1 == 'o') {
-                _end1 = Endpoint.CIRCLE;
-            } else if (end1 == '-') {
-                _end1 = Endpoint.TAIL;
-            } else {
-                throw new IllegalArgumentException();
-            }
-
-            if (end2 == '>') {
-                _end2 = Endpoint.ARROW;
-            } else if (end2 == 'o') {
-                _end2 = Endpoint.CIRCLE;
-            } else if (end2 == '-') {
-                _end2 = Endpoint.TAIL;
-            } else {
-                throw new IllegalArgumentException();
-            }
-            
-            if(node1.getName().equalsIgnoreCase(n2) && node2.getName().equalsIgnoreCase(n1)) {
-            	Endpoint tmp = _end1;
-            	_end1 = _end2;
-            	_end2 = tmp;
-            }
-            
-            EdgeType edgeType = EdgeType.nil;
-            
-            if(_end1 == Endpoint.TAIL && _end2 == Endpoint.ARROW) {
-            	edgeType = EdgeType.ta;
-            }
-            if(_end1 == Endpoint.ARROW && _end2 == Endpoint.TAIL) {
-            	edgeType = EdgeType.at;
-            }
-            if(_end1 == Endpoint.CIRCLE && _end2 == Endpoint.ARROW) {
-            	edgeType = EdgeType.ca;
-            }
-            if(_end1 == Endpoint.ARROW && _end2 == Endpoint.CIRCLE) {
-            	edgeType = EdgeType.ac;
-            }
-            if(_end1 == Endpoint.CIRCLE && _end2 == Endpoint.CIRCLE) {
-            	edgeType = EdgeType.cc;
-            }
-            if(_end1 == Endpoint.ARROW && _end2 == Endpoint.ARROW) {
-            	edgeType = EdgeType.aa;
-            }
-            if(_end1 == Endpoint.TAIL && _end2 == Endpoint.TAIL) {
-            	edgeType = EdgeType.tt;
-            }
-            
-            EdgeTypeProbability etp = new EdgeTypeProbability(edgeType, probability);
-            
-            // Edge's properties
-            if(token.length > 3) {
-            	for(int i=3;i<token.length;i++) {
-            		etp.addProperty(Edge.Property.valueOf(token[i]));
-            	}
-            }
-            edgeTypeProbabilities.add(etp);
-		}
-		
-		if(no_edge_num < n && edgeTypeProbabilities != null) {
-			edgeTypeProbabilities.add(new EdgeTypeProbability(EdgeType.nil, (double)no_edge_num/n));
-		}
-		
-		return edgeTypeProbabilities;
-	}
-	
 	public static int[][] getAdjConfusionMatrix(Graph truth, Graph estimate) {
 		Graph complete = new EdgeListGraph(estimate.getNodes());
 		complete.fullyConnect(Endpoint.TAIL);
@@ -0,0 +1,224 @@
+package edu.pitt.dbmi.algo.resampling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.Edge.Property;
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+import edu.cmu.tetrad.graph.Endpoint;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+
+/**
+ * Accumulates, one graph at a time, how often each type of edge (with its
+ * properties) occurs between each pair of nodes over the graphs found on
+ * resamples of the data, so that the graphs themselves need not be kept.
+ * Memory is proportional to the number of distinct edges seen, not to the
+ * number of graphs. Graphs may be added concurrently.
+ *
+ * @author Joseph Ramsey
+ */
+public class ResamplingEdgeFrequencies {
+
+	private static final Property[] PROPERTIES = Property.values();
+
+	/**
+	 * Node name pair (lesser name first, tab separated) to (edge type, as seen
+	 * from the lesser node, and property mask) to count.
+	 */
+	private final Map<String, Map<Integer, int[]>> counts = new HashMap<>();
+
+	/**
+	 * Node name pair to the number of graphs in which the two are adjacent,
+	 * counted once per graph however many edges join them.
+	 */
+	private final Map<String, int[]> adjacencies = new HashMap<>();
+
+	private List<Node> nodes = null;
+
+	private int numGraphs = 0;
+
+	/**
+	 * Counts the edges of the given graph. Null graphs (failed searches) are
+	 * skipped. A pair joined by more than one edge counts as adjacent once,
+	 * and each type of edge between it at most once.
+	 */
+	public synchronized void add(Graph graph) {
+		if (graph == null) {
+			return;
+		}
+
+		if (nodes == null) {
+			nodes = new ArrayList<>(graph.getNodes());
+			Collections.sort(nodes);
+		}
+
+		numGraphs++;
+
+		Set<String> pairsSeen = new HashSet<>();
+		Set<String> typesSeen = new HashSet<>();
+
+		for (Edge edge : graph.getEdges()) {
+			Node node1 = edge.getNode1();
+			Node node2 = edge.getNode2();
+
+			if (node1.getName().compareTo(node2.getName()) > 0) {
+				Node tmp = node1;
+				node1 = node2;
+				node2 = tmp;
+			}
+
+			EdgeType edgeType = getEdgeType(edge.getProximalEndpoint(node1), edge.getProximalEndpoint(node2));
+
+			int mask = 0;
+			for (Property property : edge.getProperties()) {
+				mask |= 1 << property.ordinal();
+			}
+
+			String pair = node1.getName() + "\t" + node2.getName();
+			Integer key = (edgeType.ordinal() << PROPERTIES.length) | mask;
+
+			if (!typesSeen.add(pair + "\t" + key)) {
+				continue;
+			}
+
+			if (pairsSeen.add(pair)) {
+				int[] adjacent = adjacencies.get(pair);
+
+				if (adjacent == null) {
+					adjacent = new int[1];
+					adjacencies.put(pair, adjacent);
+				}
+
+				adjacent[0]++;
+			}
+
+			Map<Integer, int[]> pairCounts = counts.get(pair);
+
+			if (pairCounts == null) {
+				pairCounts = new TreeMap<>();
+				counts.put(pair, pairCounts);
+			}
+
+			int[] count = pairCounts.get(key);
+
+			if (count == null) {
+				count = new int[1];
+				pairCounts.put(key, count);
+			}
+
+			count[0]++;
+		}
+	}
+
+	/**
+	 * @return the number of (non-null) graphs added.
+	 */
+	public synchronized int getNumGraphs() {
+		return numGraphs;
+	}
+
+	/**
+	 * @return the nodes of the first graph added, sorted, or the empty list if
+	 *         no graph has been added.
+	 */
+	public synchronized List<Node> getNodes() {
+		return nodes == null ? new ArrayList<>() : new ArrayList<>(nodes);
+	}
+
+	/**
+	 * @return the frequency of each type of edge seen between node1 and node2,
+	 *         with endpoints given from node1 to node2, followed by the
+	 *         frequency of no edge if that is less than 1; or null if no edge
+	 *         was ever seen between them.
+	 */
+	public synchronized List<EdgeTypeProbability> getProbability(Node node1, Node node2) {
+		boolean swap = node1.getName().compareTo(node2.getName()) > 0;
+		String pair = swap ? node2.getName() + "\t" + node1.getName() : node1.getName() + "\t" + node2.getName();
+		Map<Integer, int[]> pairCounts = counts.get(pair);
+
+		if (pairCounts == null) {
+			return null;
+		}
+
+		List<EdgeTypeProbability> edgeTypeProbabilities = new ArrayList<>();
+
+		for (Map.Entry<Integer, int[]> entry : pairCounts.entrySet()) {
+			int key = entry.getKey();
+			int count = entry.getValue()[0];
+
+			EdgeType edgeType = EdgeType.values()[key >> PROPERTIES.length];
+
+			if (swap) {
+				edgeType = reverse(edgeType);
+			}
+
+			EdgeTypeProbability etp = new EdgeTypeProbability(edgeType, (double) count / numGraphs);
+
+			for (Property property : PROPERTIES) {
+				if ((key & (1 << property.ordinal())) != 0) {
+					etp.addProperty(property);
+				}
+			}
+
+			edgeTypeProbabilities.add(etp);
+		}
+
+		int no_edge_num = numGraphs - adjacencies.get(pair)[0];
+
+		if (no_edge_num < numGraphs) {
+			edgeTypeProbabilities.add(new EdgeTypeProbability(EdgeType.nil, (double) no_edge_num / numGraphs));
+		}
+
+		return edgeTypeProbabilities;
+	}
+
+	private static EdgeType getEdgeType(Endpoint end1, Endpoint end2) {
+		if (end1 == Endpoint.TAIL && end2 == Endpoint.ARROW) {
+			return EdgeType.ta;
+		}
+		if (end1 == Endpoint.ARROW && end2 == Endpoint.TAIL) {
+			return EdgeType.at;
+		}
+		if (end1 == Endpoint.CIRCLE && end2 == Endpoint.ARROW) {
+			return EdgeType.ca;
+		}
+		if (end1 == Endpoint.ARROW && end2 == Endpoint.CIRCLE) {
+			return EdgeType.ac;
+		}
+		if (end1 == Endpoint.CIRCLE && end2 == Endpoint.CIRCLE) {
+			return EdgeType.cc;
+		}
+		if (end1 == Endpoint.ARROW && end2 == Endpoint.ARROW) {
+			return EdgeType.aa;
+		}
+		if (end1 == Endpoint.TAIL && end2 == Endpoint.TAIL) {
+			return EdgeType.tt;
+		}
+		return EdgeType.nil;
+	}
+
+	private static EdgeType reverse(EdgeType edgeType) {
+		switch (edgeType) {
+		case ta:
+			return EdgeType.at;
+		case at:
+			return EdgeType.ta;
+		case ca:
+			return EdgeType.ac;
+		case ac:
+			return EdgeType.ca;
+		default:
+			return edgeType;
+		}
+	}
+
+}
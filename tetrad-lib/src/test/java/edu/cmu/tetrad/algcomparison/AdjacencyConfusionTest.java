@@ -0,0 +1,140 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.algcomparison;
+
+import edu.cmu.tetrad.algcomparison.statistic.utils.AdjacencyConfusion;
+import edu.cmu.tetrad.graph.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the bit set adjacency counts agree with counting over the edges of the two graphs.
+ *
+ * @author jdramsey
+ */
+public class AdjacencyConfusionTest {
+
+    @Test
+    public void testSameAsEdgeCounts() {
+        Random random = new Random(7391027L);
+
+        for (int trial = 0; trial < 200; trial++) {
+            int numNodes = 2 + random.nextInt(15);
+            int numEstOnly = random.nextInt(4);
+
+            List<Node> trueNodes = new ArrayList<>();
+
+            for (int i = 0; i < numNodes; i++) {
+                trueNodes.add(new GraphNode("X" + i));
+            }
+
+            // The estimated graph shares the nodes of the true graph, as it does once Comparison has replaced
+            // its nodes, and has some of its own, such as latents.
+            List<Node> estNodes = new ArrayList<>(trueNodes);
+
+            for (int i = 0; i < numEstOnly; i++) {
+                estNodes.add(new GraphNode("L" + i));
+            }
+
+            Graph truth = randomGraph(trueNodes, random);
+            Graph est = randomGraph(estNodes, random);
+
+            AdjacencyConfusion confusion = new AdjacencyConfusion(truth, est);
+            int[] expected = edgeCounts(truth, est);
+
+            assertEquals(expected[0], confusion.getAdjTp());
+            assertEquals(expected[1], confusion.getAdjFp());
+            assertEquals(expected[2], confusion.getAdjFn());
+            assertEquals(expected[3], confusion.getAdjTn());
+        }
+    }
+
+    // Random edges of every kind, sometimes two edges between the same pair (X->Y and Y->X, or X->Y and X<->Y).
+    private static Graph randomGraph(List<Node> nodes, Random random) {
+        Graph graph = new EdgeListGraph(nodes);
+        int numEdges = random.nextInt(2 * nodes.size());
+
+        for (int k = 0; k < numEdges; k++) {
+            Node x = nodes.get(random.nextInt(nodes.size()));
+            Node y = nodes.get(random.nextInt(nodes.size()));
+            if (x == y) continue;
+
+            switch (random.nextInt(5)) {
+                case 0:
+                    graph.addEdge(Edges.directedEdge(x, y));
+                    break;
+                case 1:
+                    graph.addEdge(Edges.undirectedEdge(x, y));
+                    break;
+                case 2:
+                    graph.addEdge(Edges.bidirectedEdge(x, y));
+                    break;
+                case 3:
+                    graph.addEdge(Edges.partiallyOrientedEdge(x, y));
+                    break;
+                default:
+                    graph.addEdge(Edges.directedEdge(x, y));
+                    graph.addEdge(Edges.directedEdge(y, x));
+            }
+        }
+
+        return graph;
+    }
+
+    // TP, FP, FN and TN, counted over the union of the unoriented edges of the two graphs.
+    private static int[] edgeCounts(Graph truth, Graph est) {
+        int tp = 0;
+        int fp = 0;
+        int fn = 0;
+
+        Set<Edge> allUnoriented = new HashSet<>();
+
+        for (Edge edge : truth.getEdges()) {
+            allUnoriented.add(Edges.undirectedEdge(edge.getNode1(), edge.getNode2()));
+        }
+
+        for (Edge edge : est.getEdges()) {
+            allUnoriented.add(Edges.undirectedEdge(edge.getNode1(), edge.getNode2()));
+        }
+
+        for (Edge edge : allUnoriented) {
+            boolean trueAdj = truth.isAdjacentTo(edge.getNode1(), edge.getNode2());
+            boolean estAdj = est.isAdjacentTo(edge.getNode1(), edge.getNode2());
+
+            if (estAdj && !trueAdj) fp++;
+            if (trueAdj && !estAdj) fn++;
+            if (trueAdj && estAdj) tp++;
+        }
+
+        int allEdges = truth.getNumNodes() * (truth.getNumNodes() - 1) / 2;
+
+        return new int[]{tp, fp, fn, allEdges - fn};
+    }
+}
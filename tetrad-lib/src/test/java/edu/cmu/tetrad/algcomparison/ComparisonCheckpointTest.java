@@ -0,0 +1,172 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.algcomparison;
+
+import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
+import edu.cmu.tetrad.algcomparison.algorithm.Algorithms;
+import edu.cmu.tetrad.algcomparison.graph.RandomForward;
+import edu.cmu.tetrad.algcomparison.simulation.SemSimulation;
+import edu.cmu.tetrad.algcomparison.simulation.Simulations;
+import edu.cmu.tetrad.algcomparison.statistic.AdjacencyPrecision;
+import edu.cmu.tetrad.algcomparison.statistic.Statistics;
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataType;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests that a checkpointed comparison saves the runs that finish, does only the others
+ * again when resumed, does all of them again when a parameter changes, and deletes the
+ * checkpoints once every run has one.
+ *
+ * @author jdramsey
+ */
+public class ComparisonCheckpointTest {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void testResume() throws IOException {
+        String resultsPath = tmpDir.newFolder("comparison").toString();
+        File checkpoints = new File(resultsPath, "checkpoints");
+
+        // The second of three runs fails, so only the other two are saved.
+        CountingAlgorithm failing = new CountingAlgorithm(2);
+        compare(resultsPath, failing, 100);
+        assertEquals(3, failing.getSearches());
+        assertEquals(2, numFiles(checkpoints));
+
+        // Resuming does only the failed run, after which the checkpoints are deleted.
+        CountingAlgorithm resumed = new CountingAlgorithm(-1);
+        compare(resultsPath, resumed, 100);
+        assertEquals(1, resumed.getSearches());
+        assertFalse(checkpoints.exists());
+    }
+
+    @Test
+    public void testParameterChange() throws IOException {
+        String resultsPath = tmpDir.newFolder("comparison").toString();
+        File checkpoints = new File(resultsPath, "checkpoints");
+
+        compare(resultsPath, new CountingAlgorithm(2), 100);
+        assertEquals(2, numFiles(checkpoints));
+
+        // The sample size is not varied, so it is not in the descriptions; the saved runs
+        // must still not be used for a different sample size.
+        CountingAlgorithm changed = new CountingAlgorithm(-1);
+        compare(resultsPath, changed, 200);
+        assertEquals(3, changed.getSearches());
+        assertFalse(checkpoints.exists());
+    }
+
+    private static void compare(String resultsPath, Algorithm algorithm, int sampleSize) {
+        Parameters parameters = new Parameters();
+        parameters.set(Params.NUM_RUNS, 3);
+        parameters.set(Params.NUM_MEASURES, 5);
+        parameters.set(Params.AVG_DEGREE, 2);
+        parameters.set(Params.SAMPLE_SIZE, sampleSize);
+        parameters.set("printStream", new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+        }));
+
+        Simulations simulations = new Simulations();
+        simulations.add(new SemSimulation(new RandomForward()));
+
+        Algorithms algorithms = new Algorithms();
+        algorithms.add(algorithm);
+
+        Statistics statistics = new Statistics();
+        statistics.add(new AdjacencyPrecision());
+
+        Comparison comparison = new Comparison();
+        comparison.setParallelized(false);
+        comparison.setCheckpointing(true);
+        comparison.compareFromSimulations(resultsPath, simulations, algorithms, statistics, parameters);
+    }
+
+    private static int numFiles(File dir) {
+        String[] files = dir.list();
+        return files == null ? 0 : files.length;
+    }
+
+    // Returns the empty graph; fails on the given search (counting from 1), if any.
+    private static class CountingAlgorithm implements Algorithm {
+        static final long serialVersionUID = 23L;
+        private final int failAt;
+        private int searches = 0;
+
+        CountingAlgorithm(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public Graph search(DataModel dataSet, Parameters parameters) {
+            if (++searches == failAt) {
+                throw new IllegalStateException("Expected.");
+            }
+
+            return new EdgeListGraph(dataSet.getVariables());
+        }
+
+        @Override
+        public Graph getComparisonGraph(Graph graph) {
+            return new EdgeListGraph(graph);
+        }
+
+        @Override
+        public String getDescription() {
+            return "Counting";
+        }
+
+        @Override
+        public DataType getDataType() {
+            return DataType.Continuous;
+        }
+
+        @Override
+        public List<String> getParameters() {
+            return new ArrayList<>();
+        }
+
+        int getSearches() {
+            return searches;
+        }
+    }
+}
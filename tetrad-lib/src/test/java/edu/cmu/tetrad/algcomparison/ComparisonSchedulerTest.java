@@ -0,0 +1,200 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.algcomparison;
+
+import edu.cmu.tetrad.algcomparison.algorithm.StabilitySelection;
+import edu.cmu.tetrad.algcomparison.algorithm.oracle.pag.Fci;
+import edu.cmu.tetrad.algcomparison.algorithm.oracle.pag.Gfci;
+import edu.cmu.tetrad.algcomparison.algorithm.oracle.pattern.Cpc;
+import edu.cmu.tetrad.algcomparison.algorithm.oracle.pattern.Fges;
+import edu.cmu.tetrad.algcomparison.algorithm.oracle.pattern.Pc;
+import edu.cmu.tetrad.algcomparison.algorithm.oracle.pattern.PcAll;
+import edu.cmu.tetrad.algcomparison.independence.FisherZ;
+import edu.cmu.tetrad.algcomparison.score.SemBicScore;
+import edu.cmu.tetrad.algcomparison.utils.HasResources;
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DoubleDataBox;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.Params;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the comparison scheduler keeps within its budget of threads and memory.
+ *
+ * @author jdramsey
+ */
+public class ComparisonSchedulerTest {
+
+    @Test
+    public void testBudget() {
+        final int maxThreads = 4;
+        final long maxBytes = 1000;
+
+        final AtomicInteger threads = new AtomicInteger();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicInteger maxThreadsSeen = new AtomicInteger();
+        final AtomicLong maxBytesSeen = new AtomicLong();
+        final AtomicInteger done = new AtomicInteger();
+
+        List<ComparisonScheduler.Job> jobs = new ArrayList<>();
+
+        for (int i = 0; i < 40; i++) {
+            final int t = 1 + i % 3;
+            final long b = 100 + 150 * (i % 4);
+
+            jobs.add(new ComparisonScheduler.Job("" + i, t, b, new Runnable() {
+                public void run() {
+                    int _t = threads.addAndGet(t);
+                    long _b = bytes.addAndGet(b);
+                    maxThreadsSeen.accumulateAndGet(_t, Math::max);
+                    maxBytesSeen.accumulateAndGet(_b, Math::max);
+
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+
+                    threads.addAndGet(-t);
+                    bytes.addAndGet(-b);
+                    done.incrementAndGet();
+                }
+            }));
+        }
+
+        new ComparisonScheduler(maxThreads, maxBytes).run(jobs);
+
+        assertEquals(40, done.get());
+        assertTrue(maxThreadsSeen.get() <= maxThreads);
+        assertTrue(maxBytesSeen.get() <= maxBytes);
+        assertTrue(maxThreadsSeen.get() > 1);
+
+        for (ComparisonScheduler.Job job : jobs) {
+            assertNull(job.getFailure());
+            assertTrue(job.getRunMillis() >= 5);
+        }
+    }
+
+    @Test
+    public void testOversizedJobRunsAlone() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunningWithBig = new AtomicInteger();
+
+        List<ComparisonScheduler.Job> jobs = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            final boolean big = i == 3;
+
+            jobs.add(new ComparisonScheduler.Job("" + i, big ? 16 : 1, big ? 10000 : 10, new Runnable() {
+                public void run() {
+                    int r = running.incrementAndGet();
+
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+
+                    if (big) maxRunningWithBig.set(Math.max(r, running.get()));
+                    running.decrementAndGet();
+                }
+            }));
+        }
+
+        new ComparisonScheduler(2, 100).run(jobs);
+
+        assertEquals(1, maxRunningWithBig.get());
+
+        for (ComparisonScheduler.Job job : jobs) {
+            assertTrue(job.getRunMillis() > 0);
+        }
+    }
+
+    @Test
+    public void testFailureIsRecorded() {
+        List<ComparisonScheduler.Job> jobs = new ArrayList<>();
+
+        jobs.add(new ComparisonScheduler.Job("fails", 1, 0, new Runnable() {
+            public void run() {
+                throw new IllegalStateException("Expected.");
+            }
+        }));
+
+        new ComparisonScheduler(1, 0).run(jobs);
+
+        assertTrue(jobs.get(0).getFailure() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testWrapperResources() {
+        List<Node> variables = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        DataSet data = new BoxDataSet(new DoubleDataBox(100, 10), variables);
+
+        Parameters parameters = new Parameters();
+        parameters.set(Params.NUMBER_RESAMPLING, 0);
+        parameters.set(Params.CONCURRENT_FAS, false);
+        parameters.set("numSubsamples", 50);
+
+        HasResources[] algorithms = {new Pc(new FisherZ()), new Cpc(new FisherZ()), new PcAll(new FisherZ()),
+                new Fci(new FisherZ()), new Gfci(new FisherZ(), new SemBicScore()), new Fges(new SemBicScore()),
+                new StabilitySelection(new Pc(new FisherZ()))};
+
+        for (HasResources algorithm : algorithms) {
+            assertTrue(algorithm.getParallelism(parameters) >= 1);
+            assertTrue(algorithm.getMemoryEstimate(data, parameters) >= 16L * 100 * 10);
+        }
+
+        // PC and CPC search in one thread unless resampling.
+        assertEquals(1, new Pc(new FisherZ()).getParallelism(parameters));
+        assertEquals(1, new Cpc(new FisherZ()).getParallelism(parameters));
+        assertEquals(1, new PcAll(new FisherZ()).getParallelism(parameters));
+
+        // Stability selection needs at least what one search of the wrapped algorithm does.
+        assertTrue(new StabilitySelection(new Fges(new SemBicScore())).getMemoryEstimate(data, parameters)
+                >= new Fges(new SemBicScore()).getMemoryEstimate(data, parameters));
+
+        long oneSearch = new Pc(new FisherZ()).getMemoryEstimate(data, parameters);
+        parameters.set(Params.NUMBER_RESAMPLING, 10);
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        assertEquals(processors, new Pc(new FisherZ()).getParallelism(parameters));
+        assertEquals(Math.min(10, processors) * oneSearch, new Pc(new FisherZ()).getMemoryEstimate(data, parameters));
+    }
+}
@@ -0,0 +1,87 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DataUtils;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that a search gives the same result however many threads it is run with. The search is run once with
+ * no pool, in the calling thread, and then in pools of one and four threads, which are shut down afterwards.
+ *
+ * @author Joseph Ramsey
+ */
+final class ParallelSearchCheck {
+
+    /**
+     * Runs a search in the given pool, or in the calling thread if the pool is null.
+     */
+    interface PooledSearch {
+
+        /**
+         * @return the results to compare, e.g. the graph and the sepsets.
+         */
+        Object search(ForkJoinPool pool);
+    }
+
+    private ParallelSearchCheck() {
+    }
+
+    /**
+     * A random DAG over 20 nodes, 4 of them latent, with 25 edges, drawn with a fixed seed.
+     */
+    static Graph randomDag() {
+        RandomUtil.getInstance().setSeed(3928493L);
+        return GraphUtils.randomGraph(20, 4, 25, 10, 10, 10, false);
+    }
+
+    /**
+     * 500 rows of data over the measured nodes of the given DAG, from a random linear SEM.
+     */
+    static DataSet simulate(Graph dag) {
+        SemIm im = new SemIm(new SemPm(dag));
+        return DataUtils.restrictToMeasured(im.simulateData(500, false));
+    }
+
+    static void assertSameInPools(PooledSearch search) {
+        Object expected = search.search(null);
+
+        for (int parallelism : new int[]{1, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+            try {
+                assertEquals(expected, search.search(pool));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.VerticalIntDataBox;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.AdLeafTree;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the cells of AdLeafTree against cells found by scanning the data.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestAdLeafTree {
+
+    @Test
+    public void testCellRows() {
+        RandomUtil.getInstance().setSeed(3928493L);
+        DataSet data = simulate(300);
+        List<Node> variables = data.getVariables();
+
+        // A small bound, so that the tree is cut back and regrown along the way.
+        AdLeafTree tree = new AdLeafTree(data);
+        tree.setMaxBytes(4000);
+
+        int[][] tests = {{}, {0}, {2}, {1, 3}, {3, 1}, {0, 1, 2}, {2, 0, 3}, {0, 1, 2, 3}};
+
+        for (int[] test : tests) {
+            List<DiscreteVariable> A = new ArrayList<>();
+            for (int j : test) A.add((DiscreteVariable) variables.get(j));
+
+            int[][] rows = tree.getCellRows(new ArrayList<>(A));
+            List<List<Integer>> leaves = tree.getCellLeaves(new ArrayList<>(A));
+            // The variables are put into data set order, the first varying slowest.
+            int[] sorted = Arrays.copyOf(test, test.length);
+            Arrays.sort(sorted);
+            List<List<Integer>> expected = scan(data, sorted);
+
+            assertEquals(expected.size(), rows.length);
+            assertEquals(expected, leaves);
+
+            for (int c = 0; c < rows.length; c++) {
+                assertEquals(expected.get(c), asList(rows[c]));
+            }
+        }
+    }
+
+    @Test
+    public void testCellRowsByVariable() {
+        RandomUtil.getInstance().setSeed(3928493L);
+        DataSet data = simulate(300);
+        List<Node> variables = data.getVariables();
+        AdLeafTree tree = new AdLeafTree(data);
+
+        List<DiscreteVariable> A = new ArrayList<>();
+        A.add((DiscreteVariable) variables.get(0));
+        A.add((DiscreteVariable) variables.get(2));
+        DiscreteVariable B = (DiscreteVariable) variables.get(1);
+
+        int[][][] rows = tree.getCellRows(new ArrayList<>(A), B);
+        List<List<List<Integer>>> leaves = tree.getCellLeaves(new ArrayList<>(A), B);
+        List<List<Integer>> expected = scan(data, new int[]{0, 2, 1});
+
+        assertEquals(leaves.size(), rows.length);
+
+        for (int c = 0; c < rows.length; c++) {
+            for (int b = 0; b < rows[c].length; b++) {
+                assertEquals(expected.get(c * B.getNumCategories() + b), asList(rows[c][b]));
+                assertEquals(expected.get(c * B.getNumCategories() + b), leaves.get(c).get(b));
+            }
+        }
+
+        // The arrays are the tree's own, handed out without copying.
+        assertSame(rows[0][0], tree.getCellRows(new ArrayList<>(A), B)[0][0]);
+    }
+
+    // Four discrete variables, with some missing values.
+    private static DataSet simulate(int numRows) {
+        List<Node> variables = new ArrayList<>();
+
+        for (int j = 0; j < 4; j++) {
+            variables.add(new DiscreteVariable("X" + j, 2 + j % 3));
+        }
+
+        DataSet data = new BoxDataSet(new VerticalIntDataBox(numRows, variables.size()), variables);
+
+        for (int i = 0; i < numRows; i++) {
+            for (int j = 0; j < variables.size(); j++) {
+                int value = RandomUtil.getInstance().nextInt(2 + j % 3);
+                if (RandomUtil.getInstance().nextDouble() < 0.02) value = DiscreteVariable.MISSING_VALUE;
+                data.setInt(i, j, value);
+            }
+        }
+
+        return data;
+    }
+
+    // The rows of each cell of the given columns, the first column varying slowest, leaving out rows with a
+    // missing value in any of the columns.
+    private static List<List<Integer>> scan(DataSet data, int[] cols) {
+        int numCells = 1;
+        for (int col : cols) numCells *= ((DiscreteVariable) data.getVariable(col)).getNumCategories();
+
+        List<List<Integer>> cells = new ArrayList<>();
+        for (int c = 0; c < numCells; c++) cells.add(new ArrayList<>());
+
+        ROW:
+        for (int i = 0; i < data.getNumRows(); i++) {
+            int cell = 0;
+
+            for (int col : cols) {
+                int value = data.getInt(i, col);
+                if (value == DiscreteVariable.MISSING_VALUE) continue ROW;
+                cell = cell * ((DiscreteVariable) data.getVariable(col)).getNumCategories() + value;
+            }
+
+            cells.get(cell).add(i);
+        }
+
+        return cells;
+    }
+
+    private static List<Integer> asList(int[] rows) {
+        List<Integer> list = new ArrayList<>();
+        for (int row : rows) list.add(row);
+        return list;
+    }
+}
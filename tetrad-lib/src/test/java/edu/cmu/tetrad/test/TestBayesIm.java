@@ -24,7 +24,10 @@ package edu.cmu.tetrad.test;
 import edu.cmu.tetrad.bayes.BayesIm;
 import edu.cmu.tetrad.bayes.BayesPm;
 import edu.cmu.tetrad.bayes.MlBayesIm;
+import edu.cmu.tetrad.bayes.ParallelBayesSimulator;
+import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -47,6 +50,55 @@ public final class TestBayesIm {
         assertEquals(bayesIm, bayesIm2);
     }
 
+    @Test
+    public void testParallelSimulator() {
+        RandomUtil.getInstance().setSeed(2939482L);
+        Graph graph = GraphConverter.convert("X1-->X2,X1-->X3,X2-->X4,X3-->X4");
+        BayesPm bayesPm = new BayesPm(new Dag(graph), 2, 3);
+        BayesIm bayesIm = new MlBayesIm(bayesPm, MlBayesIm.RANDOM);
+
+        ParallelBayesSimulator simulator = new ParallelBayesSimulator(bayesIm);
+
+        RandomUtil.getInstance().setSeed(42L);
+        DataSet dataSet = simulator.simulateData(100000, false);
+
+        RandomUtil.getInstance().setSeed(42L);
+        assertEquals(dataSet, simulator.simulateData(100000, false));
+
+        // Compare the conditional frequencies of X4 given X2 and X3 with its table.
+        int x4 = bayesIm.getNodeIndex(bayesIm.getNode("X4"));
+        int[] parents = bayesIm.getParents(x4);
+        int[] columns = new int[parents.length];
+
+        for (int p = 0; p < parents.length; p++) {
+            columns[p] = dataSet.getColumn(dataSet.getVariable(bayesIm.getNode(parents[p]).getName()));
+        }
+
+        int child = dataSet.getColumn(dataSet.getVariable("X4"));
+        int numCols = bayesIm.getNumColumns(x4);
+        int[][] counts = new int[bayesIm.getNumRows(x4)][numCols];
+
+        for (int i = 0; i < dataSet.getNumRows(); i++) {
+            int[] values = new int[parents.length];
+
+            for (int p = 0; p < parents.length; p++) {
+                values[p] = dataSet.getInt(i, columns[p]);
+            }
+
+            counts[bayesIm.getRowIndex(x4, values)][dataSet.getInt(i, child)]++;
+        }
+
+        for (int row = 0; row < counts.length; row++) {
+            int total = 0;
+            for (int k = 0; k < numCols; k++) total += counts[row][k];
+            if (total < 2000) continue;
+
+            for (int k = 0; k < numCols; k++) {
+                assertEquals(bayesIm.getProbability(x4, row, k), counts[row][k] / (double) total, 0.03);
+            }
+        }
+    }
+
     @Test
     public void testConstructManual() {
         Graph graph = GraphConverter.convert("X1-->X2,X1-->X3,X2-->X4,X3-->X4");
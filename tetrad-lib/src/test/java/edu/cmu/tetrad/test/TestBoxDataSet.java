@@ -23,11 +23,21 @@ package edu.cmu.tetrad.test;
 
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.DataConvertUtils;
 import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradMatrix;
 import edu.cmu.tetrad.util.TetradVector;
+import edu.pitt.dbmi.data.reader.Delimiter;
+import edu.pitt.dbmi.data.reader.binary.BinaryDataFileReader;
+import edu.pitt.dbmi.data.reader.tabular.ContinuousTabularDatasetFileReader;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -273,9 +283,119 @@ public final class TestBoxDataSet {
             fail("Missing row in permutation.");
         }
     }
-}
 
+    @Test
+    public final void testMapped() throws IOException {
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("X1"));
+        variables.add(new DiscreteVariable("X2", 3));
+
+        File file = File.createTempFile("tetrad", ".tdbx");
+        file.deleteOnExit();
+
+        DataSet dataSet = new BoxDataSet(MappedDoubleDataBox.create(file, 20, 2), variables);
+        assertTrue(Double.isNaN(dataSet.getDouble(0, 0)));
+        assertEquals(DiscreteVariable.MISSING_VALUE, dataSet.getInt(0, 1));
+
+        for (int i = 0; i < 20; i++) {
+            dataSet.setDouble(i, 0, i / 2.0);
+            dataSet.setInt(i, 1, i % 3);
+        }
+
+        MappedDoubleDataBox box = MappedDoubleDataBox.open(file, true);
+        DataSet reopened = new BoxDataSet(box, variables);
+
+        assertEquals(20, reopened.getNumRows());
+        assertEquals(4.5, reopened.getDouble(9, 0), 0.0);
+        assertEquals(2, reopened.getInt(5, 1));
+        assertEquals(9.5, box.getColumn(0)[19], 0.0);
+
+        double[] tail = new double[3];
+        box.readColumn(0, 17, tail, 3);
+        assertEquals(8.5, tail[0], 0.0);
+
+        DataSet copy = reopened.copy();
+        assertEquals(4.5, copy.getDouble(9, 0), 0.0);
+    }
+
+    @Test
+    public final void testMappedFromFile() throws IOException {
+        List<Node> variables = new ArrayList<>();
+        for (int j = 0; j < 5; j++) variables.add(new ContinuousVariable("X" + j));
+
+        DataSet dataSet = new BoxDataSet(new VerticalDoubleDataBox(100, 5), variables);
+        RandomUtil randomUtil = RandomUtil.getInstance();
+
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 5; j++) {
+                dataSet.setDouble(i, j, randomUtil.nextNormal(0, 1));
+            }
+        }
+
+        File text = File.createTempFile("tetrad", ".csv");
+        text.deleteOnExit();
+
+        try (Writer writer = new FileWriter(text)) {
+            DataWriter.writeRectangularData(dataSet, writer, ',');
+        }
+
+        File file = File.createTempFile("tetrad", ".tdbx");
+        file.deleteOnExit();
+
+        // The text file is rounded, so compare with the same file read onto the heap.
+        dataSet = (DataSet) DataConvertUtils.toDataModel(
+                new ContinuousTabularDatasetFileReader(text.toPath(), Delimiter.COMMA).readInData());
+        DataSet mapped = DataConvertUtils.toMappedDataModel(
+                new ContinuousTabularDatasetFileReader(text.toPath(), Delimiter.COMMA), file);
 
+        assertEquals(dataSet.getVariableNames(), mapped.getVariableNames());
+        assertEquals(100, mapped.getNumRows());
 
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 5; j++) {
+                assertEquals(dataSet.getDouble(i, j), mapped.getDouble(i, j), 0.0);
+            }
+        }
 
+        TetradMatrix expected = new CovarianceMatrix(dataSet).getMatrix();
+        TetradMatrix actual = new CovarianceMatrix(mapped).getMatrix();
 
+        for (int j = 0; j < 5; j++) {
+            for (int k = 0; k < 5; k++) {
+                assertEquals(expected.get(j, k), actual.get(j, k), 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public final void testBinary() throws IOException {
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("X1"));
+        variables.add(new DiscreteVariable("X2", Arrays.asList("low", "high")));
+
+        DataSet dataSet = new BoxDataSet(new MixedDataBox(variables, 30), variables);
+        RandomUtil randomUtil = RandomUtil.getInstance();
+
+        for (int i = 0; i < 30; i++) {
+            dataSet.setDouble(i, 0, randomUtil.nextNormal(0, 1));
+            dataSet.setInt(i, 1, i % 5 == 0 ? DiscreteVariable.MISSING_VALUE : i % 2);
+        }
+
+        for (boolean compressed : new boolean[]{false, true}) {
+            File file = File.createTempFile("tetrad", ".tdsf");
+            file.deleteOnExit();
+
+            DataWriter.writeBinaryData(dataSet, file.toPath(), compressed);
+            DataSet read = (DataSet) DataConvertUtils.toDataModel(new BinaryDataFileReader().read(file.toPath()));
+
+            assertEquals(dataSet.getVariableNames(), read.getVariableNames());
+            assertEquals(((DiscreteVariable) dataSet.getVariable(1)).getCategories(),
+                    ((DiscreteVariable) read.getVariable(1)).getCategories());
+
+            for (int i = 0; i < 30; i++) {
+                assertEquals(dataSet.getDouble(i, 0), read.getDouble(i, 0), 0.0);
+                assertEquals(dataSet.getInt(i, 1), read.getInt(i, 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.*;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that CachingIndependenceTest answers as the test it wraps does.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestCachingIndependenceTest {
+
+    @Test
+    public void testSameAsWrapped() {
+        DataSet data = simulate();
+        IndependenceTest test = new IndTestFisherZ(data, 0.05);
+        CachingIndependenceTest cached = new CachingIndependenceTest(test);
+        List<Question> questions = questions(test.getVariables(), 200);
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (Question q : questions) {
+                boolean expected = test.isIndependent(q.x, q.y, q.z);
+                double expectedP = test.getPValue();
+
+                assertEquals(expected, cached.isIndependent(q.x, q.y, q.z));
+                assertEquals(expectedP, cached.getPValue(), 0.0);
+
+                // The same question with x and y swapped and z reversed, which a symmetric test
+                // answers from the cache.
+                List<Node> z = new ArrayList<>(q.z);
+                Collections.reverse(z);
+
+                assertEquals(expected, cached.isIndependent(q.y, q.x, z));
+                assertEquals(expectedP, cached.getPValue(), 0.0);
+            }
+        }
+
+        assertEquals(questions.size(), cached.getNumMisses());
+        assertEquals(3 * questions.size(), cached.getNumHits());
+    }
+
+    /**
+     * Tests that do not declare themselves symmetric are asked x _||_ y | z and y _||_ x | z
+     * separately.
+     */
+    @Test
+    public void testAsymmetricNotSwapped() {
+        DataSet data = simulate();
+        IndependenceTest test = new IndTestScore(new SemBicScore(data));
+        CachingIndependenceTest cached = new CachingIndependenceTest(test);
+        List<Node> v = test.getVariables();
+        List<Node> z = Collections.singletonList(v.get(2));
+
+        assertFalse(cached.isSymmetric());
+
+        for (int pass = 0; pass < 2; pass++) {
+            test.isIndependent(v.get(0), v.get(1), z);
+            double p01 = test.getPValue();
+            test.isIndependent(v.get(1), v.get(0), z);
+            double p10 = test.getPValue();
+
+            cached.isIndependent(v.get(0), v.get(1), z);
+            assertEquals(p01, cached.getPValue(), 0.0);
+            cached.isIndependent(v.get(1), v.get(0), z);
+            assertEquals(p10, cached.getPValue(), 0.0);
+        }
+
+        assertEquals(2, cached.getNumMisses());
+        assertEquals(2, cached.getNumHits());
+    }
+
+    /**
+     * Many threads ask the same questions, in different orders, of one cache over one test. Each
+     * answer must be the one the test gives to that question alone. Fisher Z computes results
+     * without shared state; the correlation t test is asked under its lock.
+     */
+    @Test
+    public void testConcurrent() throws Exception {
+        DataSet data = simulate();
+        checkConcurrent(new IndTestFisherZ(data, 0.05), new IndTestFisherZ(data, 0.05));
+        checkConcurrent(new IndTestCorrelationT(data, 0.05), new IndTestCorrelationT(data, 0.05));
+    }
+
+    @Test
+    public void testSubsetKeepsCapacity() {
+        DataSet data = simulate();
+        CachingIndependenceTest cached = new CachingIndependenceTest(new IndTestFisherZ(data, 0.05), 100);
+        IndependenceTest subset = cached.indTestSubset(data.getVariables().subList(0, 5));
+
+        assertEquals(100, ((CachingIndependenceTest) subset).getCapacity());
+    }
+
+    private void checkConcurrent(IndependenceTest test, IndependenceTest reference) throws Exception {
+        final CachingIndependenceTest cached = new CachingIndependenceTest(test);
+        final List<Question> questions = questions(test.getVariables(), 300);
+        final boolean[] expected = new boolean[questions.size()];
+        final double[] expectedP = new double[questions.size()];
+
+        for (int i = 0; i < questions.size(); i++) {
+            Question q = questions.get(i);
+            expected[i] = reference.isIndependent(q.x, q.y, q.z);
+            expectedP[i] = reference.getPValue();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            final long seed = t;
+
+            futures.add(executor.submit(() -> {
+                List<Integer> order = new ArrayList<>();
+                for (int i = 0; i < questions.size(); i++) order.add(i);
+                Collections.shuffle(order, new Random(seed));
+
+                int wrong = 0;
+
+                for (int pass = 0; pass < 3; pass++) {
+                    for (int i : order) {
+                        Question q = questions.get(i);
+                        IndependenceResult result = cached.checkIndependence(q.x, q.y, q.z);
+                        if (result.isIndependent() != expected[i]) wrong++;
+                        if (result.getPValue() != expectedP[i]) wrong++;
+
+                        boolean independent = cached.isIndependent(q.x, q.y, q.z);
+                        if (independent != expected[i]) wrong++;
+                        if (cached.getPValue() != expectedP[i]) wrong++;
+                    }
+                }
+
+                return wrong;
+            }));
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES));
+
+        for (Future<Integer> future : futures) {
+            assertEquals(0, (int) future.get());
+        }
+
+        assertTrue(cached.getNumHits() > 0);
+        assertTrue(cached.getNumMisses() >= questions.size());
+    }
+
+    private DataSet simulate() {
+        RandomUtil.getInstance().setSeed(4829383L);
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 12; i++) {
+            vars.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph dag = GraphUtils.randomGraph(vars, 0, 15, 30, 15, 15, false);
+        return new SemIm(new SemPm(dag)).simulateData(500, false);
+    }
+
+    // Distinct questions x _||_ y | z with |z| up to 3, x < y.
+    private List<Question> questions(List<Node> variables, int n) {
+        Random random = new Random(28394L);
+        List<Question> questions = new ArrayList<>();
+        List<String> seen = new ArrayList<>();
+
+        while (questions.size() < n) {
+            List<Node> shuffled = new ArrayList<>(variables);
+            Collections.shuffle(shuffled, random);
+            int size = random.nextInt(4);
+
+            int i = variables.indexOf(shuffled.get(0));
+            int j = variables.indexOf(shuffled.get(1));
+            Node x = variables.get(Math.min(i, j));
+            Node y = variables.get(Math.max(i, j));
+            List<Node> z = new ArrayList<>(shuffled.subList(2, 2 + size));
+
+            List<String> names = new ArrayList<>();
+            for (Node node : z) names.add(node.getName());
+            Collections.sort(names);
+            String name = x + " " + y + " " + names;
+
+            if (!seen.contains(name)) {
+                seen.add(name);
+                questions.add(new Question(x, y, z));
+            }
+        }
+
+        return questions;
+    }
+
+    private static class Question {
+        private final Node x;
+        private final Node y;
+        private final List<Node> z;
+
+        Question(Node x, Node y, List<Node> z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+}
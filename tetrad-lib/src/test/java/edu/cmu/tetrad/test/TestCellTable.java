@@ -30,6 +30,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public final class TestCellTable {
     private CellTable table;
@@ -405,6 +406,105 @@ public final class TestCellTable {
         }
     }
 
+    @Test
+    public final void testDiscreteCounts() {
+        List<Node> variables = new LinkedList<>();
+
+        for (int j = 0; j < 5; j++) {
+            variables.add(new DiscreteVariable("X" + (j + 1), 2 + j % 3));
+        }
+
+        int numRows = 1000;
+        DataSet dataSet = new BoxDataSet(new VerticalIntDataBox(numRows, variables.size()), variables);
+
+        for (int i = 0; i < numRows; i++) {
+            for (int j = 0; j < variables.size(); j++) {
+                int value = RandomUtil.getInstance().nextInt(2 + j % 3);
+                if (RandomUtil.getInstance().nextDouble() < 0.01) value = DiscreteVariable.MISSING_VALUE;
+                dataSet.setInt(i, j, value);
+            }
+        }
+
+        int[][] tests = {{0}, {3, 1}, {0, 1, 2}, {4, 2, 0, 3}, {0, 1, 2, 3, 4}};
+
+        DiscreteCounts counts = new DiscreteCounts(dataSet);
+        DiscreteCounts scanned = new DiscreteCounts(dataSet);
+        scanned.setMaxBytes(0);
+
+        for (int[] indices : tests) {
+            CellTable expected = new CellTable(null);
+            expected.addToTable(dataSet, indices);
+
+            for (DiscreteCounts _counts : new DiscreteCounts[]{counts, scanned}) {
+                CellTable actual = new CellTable(null);
+                actual.addToTable(_counts, indices);
+
+                int[] cell = new int[indices.length];
+
+                do {
+                    assertEquals(expected.getValue(cell), actual.getValue(cell));
+                } while (nextCell(cell, expected));
+
+                assertTrue(_counts.getCounts(indices) == _counts.getCounts(indices) || _counts == scanned);
+            }
+        }
+    }
+
+    @Test
+    public final void testDiscreteCountsSharedBudget() {
+        List<Node> variables = new LinkedList<>();
+
+        for (int j = 0; j < 4; j++) {
+            variables.add(new DiscreteVariable("X" + (j + 1), 3));
+        }
+
+        DataSet dataSet = new BoxDataSet(new VerticalIntDataBox(500, variables.size()), variables);
+
+        for (int i = 0; i < 500; i++) {
+            for (int j = 0; j < variables.size(); j++) {
+                dataSet.setInt(i, j, RandomUtil.getInstance().nextInt(3));
+            }
+        }
+
+        long maxTotalBytes = DiscreteCounts.getMaxTotalBytes();
+
+        try {
+            DiscreteCounts.setMaxTotalBytes(1000);
+
+            DiscreteCounts counts1 = new DiscreteCounts(dataSet);
+            DiscreteCounts counts2 = new DiscreteCounts(dataSet);
+
+            for (int[] indices : new int[][]{{0, 1}, {1, 2}, {2, 3}, {0, 1, 2}, {1, 2, 3}}) {
+                CellTable expected = new CellTable(null);
+                expected.addToTable(dataSet, indices);
+
+                for (DiscreteCounts counts : new DiscreteCounts[]{counts1, counts2}) {
+                    CellTable actual = new CellTable(null);
+                    actual.addToTable(counts, indices);
+
+                    int[] cell = new int[indices.length];
+
+                    do {
+                        assertEquals(expected.getValue(cell), actual.getValue(cell));
+                    } while (nextCell(cell, expected));
+
+                    assertTrue(DiscreteCounts.getTotalBytes() <= 1000);
+                }
+            }
+        } finally {
+            DiscreteCounts.setMaxTotalBytes(maxTotalBytes);
+        }
+    }
+
+    private static boolean nextCell(int[] cell, CellTable table) {
+        for (int i = cell.length - 1; i >= 0; i--) {
+            if (++cell[i] < table.getNumValues(i)) return true;
+            cell[i] = 0;
+        }
+
+        return false;
+    }
+
     private static int[] pickRandomCell(int size) {
 
         int[] cell = new int[size];
@@ -0,0 +1,173 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.data.MixedDataBox;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.ConditionalGaussianLikelihood;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradMatrix;
+import org.apache.commons.math3.linear.CholeskyDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.Math.log;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the likelihoods of ConditionalGaussianLikelihood, which assembles cell covariances from cached sums and
+ * cross products, against the covariances of per-cell subsamples of the data.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestConditionalGaussianLikelihood {
+
+    @Test
+    public void testSameAsSubsamples() {
+        RandomUtil.getInstance().setSeed(3928493L);
+        DataSet data = simulate(500);
+        ConditionalGaussianLikelihood likelihood = new ConditionalGaussianLikelihood(data);
+
+        int[][] parentSets = {{}, {0}, {3}, {0, 1}, {3, 4}, {0, 3}, {1, 2, 4}, {0, 1, 3, 4}, {0, 1, 2, 3, 4}};
+
+        for (int child = 0; child < data.getNumColumns(); child++) {
+            for (int[] parents : parentSets) {
+                List<Integer> _parents = new ArrayList<>();
+                for (int p : parents) if (p != child) _parents.add(p);
+
+                int[] __parents = new int[_parents.size()];
+                for (int i = 0; i < __parents.length; i++) __parents[i] = _parents.get(i);
+
+                List<Integer> plus = new ArrayList<>(_parents);
+                plus.add(child);
+
+                double expected = joint(data, plus) - joint(data, _parents);
+                double actual = likelihood.getLikelihood(child, __parents).getLik();
+
+                assertEquals(expected, actual, 1e-8 * Math.max(1, Math.abs(expected)));
+            }
+        }
+    }
+
+    // X0, X1, X2 discrete; X3, X4, X5 continuous, with means shifted by the discrete values.
+    private static DataSet simulate(int numRows) {
+        List<Node> variables = new ArrayList<>();
+        variables.add(new DiscreteVariable("X0", 2));
+        variables.add(new DiscreteVariable("X1", 3));
+        variables.add(new DiscreteVariable("X2", 2));
+        variables.add(new ContinuousVariable("X3"));
+        variables.add(new ContinuousVariable("X4"));
+        variables.add(new ContinuousVariable("X5"));
+
+        DataSet data = new BoxDataSet(new MixedDataBox(variables, numRows), variables);
+        RandomUtil random = RandomUtil.getInstance();
+
+        for (int i = 0; i < numRows; i++) {
+            int x0 = random.nextInt(2);
+            int x1 = (x0 + random.nextInt(2)) % 3;
+            int x2 = random.nextInt(2);
+            double x3 = x0 + random.nextNormal(0, 1);
+            double x4 = 0.5 * x3 - x1 + random.nextNormal(0, 1);
+            double x5 = x4 + 2 * x2 + random.nextNormal(0, 1);
+
+            data.setInt(i, 0, x0);
+            data.setInt(i, 1, x1);
+            data.setInt(i, 2, x2);
+            data.setDouble(i, 3, x3);
+            data.setDouble(i, 4, x4);
+            data.setDouble(i, 5, x5);
+        }
+
+        return data;
+    }
+
+    // The joint likelihood of the given columns, computed from the covariance matrix of the subsample of each
+    // cell of the discrete columns, as ConditionalGaussianLikelihood did before its moments were cached.
+    private static double joint(DataSet data, List<Integer> cols) {
+        List<Integer> X = new ArrayList<>();
+        List<Integer> A = new ArrayList<>();
+
+        for (int col : cols) {
+            if (data.getVariable(col) instanceof DiscreteVariable) {
+                A.add(col);
+            } else {
+                X.add(col);
+            }
+        }
+
+        int N = data.getNumRows();
+        Map<List<Integer>, List<Integer>> cells = new HashMap<>();
+        List<Integer> all = new ArrayList<>();
+
+        for (int i = 0; i < N; i++) {
+            List<Integer> values = new ArrayList<>();
+            for (int a : A) values.add(data.getInt(i, a));
+            cells.computeIfAbsent(values, v -> new ArrayList<>()).add(i);
+            all.add(i);
+        }
+
+        int k = X.size();
+        double c1 = 0, c2 = 0;
+
+        for (List<Integer> cell : cells.values()) {
+            int a = cell.size();
+
+            if (!A.isEmpty()) {
+                c1 += a * log(a / (double) N);
+            }
+
+            if (k > 0) {
+                List<Integer> rows = a > k + 5 ? cell : all;
+                TetradMatrix subsample = new TetradMatrix(rows.size(), k);
+
+                for (int i = 0; i < rows.size(); i++) {
+                    for (int j = 0; j < k; j++) {
+                        subsample.set(i, j, data.getDouble(rows.get(i), X.get(j)));
+                    }
+                }
+
+                RealMatrix cov = new Covariance(subsample.getRealMatrix(), true).getCovarianceMatrix();
+                RealMatrix LT = new CholeskyDecomposition(cov, 1e-9, 1e-9).getLT();
+                double logdet = 0.0;
+
+                for (int i = 0; i < k; i++) {
+                    logdet += 2.0 * log(LT.getEntry(i, i));
+                }
+
+                c2 += a * (-0.5 * logdet - 0.5 * k * (1 + log(2.0 * Math.PI)));
+            }
+        }
+
+        return c1 + c2;
+    }
+}
@@ -85,9 +85,53 @@ public final class TestCovarianceMatrix {
         assertEquals(-.051, c2.getValue(0, 1), 0.001);
         assertEquals(-.609, c3.getValue(0, 1), 0.001);
     }
-}
 
+    /**
+     * The column-major and row-major boxes read their data in place; both should give the
+     * same matrix as the copying path.
+     */
+    @Test
+    public void testBoxLayouts() {
+        RandomUtil.getInstance().setSeed(4828384834L);
+
+        List<Node> variables = new LinkedList<>();
+
+        for (int i = 0; i < 7; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        DataSet rowMajor = new BoxDataSet(new DoubleDataBox(50, variables.size()), variables);
 
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 7; j++) {
+                rowMajor.setDouble(i, j, RandomUtil.getInstance().nextNormal(0, 1));
+            }
+        }
+
+        DataSet columnMajor = new BoxDataSet(new VerticalDoubleDataBox(
+                rowMajor.getDoubleData().transpose().toArray()), variables);
+        DataSet other = new BoxDataSet(new MixedDataBox(variables, 50), variables);
+
+        for (int i = 0; i < 50; i++) {
+            for (int j = 0; j < 7; j++) {
+                other.setDouble(i, j, rowMajor.getDouble(i, j));
+            }
+        }
 
+        for (boolean biasCorrected : new boolean[]{true, false}) {
+            TetradMatrix c1 = new CovarianceMatrix(rowMajor, biasCorrected).getMatrix();
+            TetradMatrix c2 = new CovarianceMatrix(columnMajor, biasCorrected).getMatrix();
+            TetradMatrix c3 = new CovarianceMatrix(other, biasCorrected).getMatrix();
 
+            for (int i = 0; i < 7; i++) {
+                for (int j = 0; j < 7; j++) {
+                    assertEquals(c1.get(i, j), c2.get(i, j), 1e-12);
+                    assertEquals(c1.get(i, j), c3.get(i, j), 1e-12);
+                }
+            }
+        }
 
+        assertEquals(rowMajor.getDouble(3, 2), DataUtils.getContinuousColumn(columnMajor, 2)[3], 0.0);
+        assertEquals(rowMajor.getDouble(3, 2), DataUtils.getContinuousColumn(other, 2)[3], 0.0);
+    }
+}
@@ -0,0 +1,139 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.search.IndTestDSep;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks DSeparationOracle against GraphUtils.isDConnectedTo on random DAGs and random mixed graphs.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestDSeparationOracle {
+
+    @Test
+    public void testAgainstGraphUtils() {
+        RandomUtil.getInstance().setSeed(2938472L);
+        int numNodes = 8;
+
+        for (int trial = 0; trial < 100; trial++) {
+            boolean mixed = trial % 2 == 1;
+
+            List<Node> nodes = new ArrayList<>();
+            for (int i = 0; i < numNodes; i++) nodes.add(new GraphNode("X" + i));
+
+            Graph graph = new EdgeListGraph(nodes);
+
+            for (int i = 0; i < numNodes; i++) {
+                for (int j = i + 1; j < numNodes; j++) {
+                    if (RandomUtil.getInstance().nextDouble() > 0.4) continue;
+
+                    Node x = nodes.get(i);
+                    Node y = nodes.get(j);
+                    int type = mixed ? RandomUtil.getInstance().nextInt(4) : 0;
+
+                    if (type == 0) graph.addDirectedEdge(x, y);
+                    else if (type == 1) graph.addDirectedEdge(y, x);
+                    else if (type == 2) graph.addBidirectedEdge(x, y);
+                    else graph.addUndirectedEdge(x, y);
+                }
+            }
+
+            DSeparationOracle oracle = new DSeparationOracle(graph);
+
+            for (int query = 0; query < 20; query++) {
+                Node x = nodes.get(RandomUtil.getInstance().nextInt(numNodes));
+                List<Node> z = new ArrayList<>();
+
+                for (Node node : nodes) {
+                    if (node != x && RandomUtil.getInstance().nextDouble() < 0.3) z.add(node);
+                }
+
+                Set<Node> dConnected = new HashSet<>(oracle.getDConnectedNodes(x, z));
+
+                for (Node y : nodes) {
+                    if (y == x) continue;
+                    boolean expected = GraphUtils.isDConnectedTo(x, y, z, graph);
+                    assertEquals(expected, oracle.isDConnectedTo(x, y, z));
+                    assertEquals(expected, dConnected.contains(y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndTestDSepFollowsGraph() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) nodes.add(new GraphNode("X" + i));
+
+        Graph graph = new EdgeListGraph(nodes);
+        graph.addDirectedEdge(nodes.get(0), nodes.get(1));
+        graph.addDirectedEdge(nodes.get(1), nodes.get(2));
+
+        IndTestDSep test = new IndTestDSep(graph);
+        assertEquals(true, test.isIndependent(nodes.get(0), nodes.get(2), nodes.get(1)));
+
+        graph.addDirectedEdge(nodes.get(0), nodes.get(2));
+        assertEquals(false, test.isIndependent(nodes.get(0), nodes.get(2), nodes.get(1)));
+        assertEquals(2, test.getDConnectedVars(nodes.get(0), new ArrayList<Node>()).size());
+    }
+
+    // Reorienting an edge, or swapping one edge for another, leaves the numbers of nodes and edges alone.
+    @Test
+    public void testIndTestDSepFollowsReorientation() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) nodes.add(new GraphNode("X" + i));
+
+        Graph graph = new EdgeListGraph(nodes);
+        graph.addDirectedEdge(nodes.get(0), nodes.get(1));
+        graph.addDirectedEdge(nodes.get(1), nodes.get(2));
+
+        IndTestDSep test = new IndTestDSep(graph);
+        assertEquals(false, test.isIndependent(nodes.get(0), nodes.get(2)));
+
+        graph.removeEdge(nodes.get(1), nodes.get(2));
+        graph.addDirectedEdge(nodes.get(2), nodes.get(1));
+        assertEquals(true, test.isIndependent(nodes.get(0), nodes.get(2)));
+        assertEquals(false, test.isIndependent(nodes.get(0), nodes.get(2), nodes.get(1)));
+
+        graph.removeEdge(nodes.get(0), nodes.get(1));
+        graph.addDirectedEdge(nodes.get(0), nodes.get(2));
+        assertEquals(false, test.isIndependent(nodes.get(0), nodes.get(2)));
+        assertEquals(true, test.isIndependent(nodes.get(0), nodes.get(1), nodes.get(2)));
+
+        DSeparationOracle oracle = new DSeparationOracle(graph);
+        assertEquals(false, oracle.isStale());
+        graph.setEndpoint(nodes.get(2), nodes.get(1), Endpoint.CIRCLE);
+        assertEquals(true, oracle.isStale());
+    }
+}
@@ -68,17 +68,17 @@ public class TestDagScorer {
         SemIm estSem = est.estimate();
         double fml = estSem.getScore();
 
-        assertEquals(0.0369, fml, 0.001);
+        assertEquals(0.0435, fml, 0.001);
 
         dag = GraphUtils.replaceNodes(dag, data.getVariables());
 
         Scorer scorer = new DagScorer(data);
         double _fml = scorer.score(dag);
 
-        assertEquals(0.0358, _fml, 0.001);
+        assertEquals(0.0413, _fml, 0.001);
 
         double bicScore = scorer.getBicScore();
-        assertEquals(-205, bicScore, 1);
+        assertEquals(-200, bicScore, 1);
 
         int dof = scorer.getDof();
         assertEquals(35, dof);
@@ -21,9 +21,18 @@
 
 package edu.cmu.tetrad.test;
 
+import edu.cmu.tetrad.calculator.expression.CompiledExpression;
 import edu.cmu.tetrad.calculator.expression.Context;
 import edu.cmu.tetrad.calculator.expression.Expression;
 import edu.cmu.tetrad.calculator.parser.ExpressionParser;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.sem.GeneralizedSemIm;
+import edu.cmu.tetrad.sem.GeneralizedSemPm;
+import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import java.text.ParseException;
@@ -366,6 +375,109 @@ public class TestExpressionParser {
             e.printStackTrace();
         }
     }
-}
 
+    // Compiled expressions should give the values the expressions do.
+    @Test
+    public void test6() throws ParseException {
+        final Map<String, Double> parameters = new HashMap<>();
+        parameters.put("b1", 0.5);
+        parameters.put("b2", -1.2);
+
+        final Map<String, Integer> slots = new HashMap<>();
+        slots.put("X1", 0);
+        slots.put("X2", 1);
+        slots.put("X3", 2);
+
+        final int numRows = 1000;
+        final double[][] columns = new double[3][numRows];
+
+        for (double[] column : columns) {
+            for (int i = 0; i < numRows; i++) {
+                column[i] = RandomUtil.getInstance().nextNormal(0, 1);
+            }
+        }
+
+        Context _parameters = new Context() {
+            public Double getValue(String var) {
+                return parameters.get(var);
+            }
+        };
+
+        List<String> formulas = new ArrayList<>();
+
+        formulas.add("b1 * X1 + b2 * X2 + X3");
+        formulas.add("tanh(X1) + b2 * X2^2 - X3 / 2");
+        formulas.add("max(X1, X2, X3) * min(X1, b1)");
+        formulas.add("exp(-X1 * X1) + ln(abs(X2)) + logistic(X3)");
+        formulas.add("sqrt(X1) + X2");
+        formulas.add("-X1 + pow(abs(X2), b1) + signum(X3) + round(X1) + floor(X2) + ceil(X3)");
+        formulas.add("IF(X1 < 0, X2, X3) + X1 * X2");
+        formulas.add("X1 + Y");
+
+        ExpressionParser parser = new ExpressionParser();
+
+        for (String formula : formulas) {
+            Expression expression = parser.parseExpression(formula);
+            CompiledExpression compiled = CompiledExpression.compile(expression, slots, _parameters);
+            double[] values = compiled.evaluate(columns, numRows);
+
+            for (int i = 0; i < numRows; i++) {
+                final int row = i;
+
+                Context context = new Context() {
+                    public Double getValue(String var) {
+                        Double value = parameters.get(var);
+                        if (value != null) return value;
+                        Integer slot = slots.get(var);
+                        return slot == null ? null : columns[slot][row];
+                    }
+                };
+
+                double expected = expression.evaluate(context);
+
+                if (Double.isNaN(expected)) {
+                    assertTrue(formula, Double.isNaN(values[i]));
+                } else {
+                    assertEquals(formula, expected, values[i], 0.0);
+                }
+            }
+        }
+    }
+
+    // Columns longer than one task are split across threads; each row of the child should still be
+    // its parents' expression.
+    @Test
+    public void test7() throws ParseException {
+        RandomUtil.getInstance().setSeed(4829382L);
+
+        Node x1 = new ContinuousVariable("X1");
+        Node x2 = new ContinuousVariable("X2");
+        Node x3 = new ContinuousVariable("X3");
+
+        Graph graph = new EdgeListGraph(Arrays.asList(x1, x2, x3));
+        graph.addDirectedEdge(x1, x3);
+        graph.addDirectedEdge(x2, x3);
+
+        GeneralizedSemPm pm = new GeneralizedSemPm(graph);
+        pm.setNodeExpression(pm.getNode("X3"), "b1 * X1 + exp(b2 * X2) - X1 * X2");
 
+        GeneralizedSemIm im = new GeneralizedSemIm(pm);
+        im.setParameterValue("b1", 0.7);
+        im.setParameterValue("b2", -0.3);
+
+        int numRows = 10000;
+        DataSet data = im.simulateDataRecursive(numRows, false);
+
+        assertEquals(numRows, data.getNumRows());
+
+        int c1 = data.getColumn(data.getVariable("X1"));
+        int c2 = data.getColumn(data.getVariable("X2"));
+        int c3 = data.getColumn(data.getVariable("X3"));
+
+        for (int i = 0; i < numRows; i++) {
+            double v1 = data.getDouble(i, c1);
+            double v2 = data.getDouble(i, c2);
+            assertEquals(0.7 * v1 + Math.exp(-0.3 * v2) - v1 * v2, data.getDouble(i, c3), 1e-12);
+        }
+    }
+}
@@ -22,14 +22,19 @@
 package edu.cmu.tetrad.test;
 
 import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.search.*;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
 
@@ -58,9 +63,52 @@ public class TestFas {
 
         assertEquals(fasGraph, GraphUtils.undirectedGraph(pcGraph));
     }
-}
 
+    @Test
+    public void testParallelSameAsStable() {
+        DataSet data = new SemIm(new SemPm(randomGraph())).simulateData(500, false);
+        assertParallelSameAsStable(new IndTestFisherZ(data, 0.05));
+    }
 
+    /**
+     * IndTestDSep is not an IndexedIndependenceTest and has no lock-free checkIndependence, so this
+     * takes the Node based path through FasParallel.
+     */
+    @Test
+    public void testParallelSameAsStableDSep() {
+        assertParallelSameAsStable(new IndTestDSep(randomGraph()));
+    }
 
+    private Graph randomGraph() {
+        RandomUtil.getInstance().setSeed(3928493L);
 
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 30; i++) {
+            vars.add(new ContinuousVariable("X" + i));
+        }
 
+        return GraphUtils.randomGraphRandomForwardEdges(vars, 0, 60, 30, 15, 15, false, true);
+    }
+
+    // FasParallel should find the graph and sepsets FasStable does, whatever the size of its pool.
+    private void assertParallelSameAsStable(IndependenceTest test) {
+        FasStable stable = new FasStable(test);
+        Graph stableGraph = stable.search();
+
+        for (int parallelism : new int[]{1, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+            try {
+                FasParallel parallel = new FasParallel(test);
+                parallel.setPool(pool);
+                parallel.setBlockSize(2);
+
+                assertEquals(stableGraph, parallel.search());
+                assertEquals(stable.getSepsets(), parallel.getSepsets());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.junit.Test;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -224,6 +225,24 @@ public class TestFci {
         search.search();
     }
 
+    @Test
+    public void testParallelSameAsSequential() {
+        final Graph dag = ParallelSearchCheck.randomDag();
+        DataSet data = ParallelSearchCheck.simulate(dag);
+
+        for (final IndependenceTest test : new IndependenceTest[]{new IndTestDSep(dag), new IndTestFisherZ(data, 0.05)}) {
+
+            // In the stable version the Possible-D-Sep sets are taken from the graph before any edge is removed,
+            // so the result must be the same one pair at a time in this thread as in pools of any size.
+            ParallelSearchCheck.assertSameInPools(pool -> {
+                Fci fci = new Fci(test);
+                fci.setPossibleDsepStable(true);
+                fci.setPool(pool);
+                return Arrays.asList(fci.search(), fci.getSepsets());
+            });
+        }
+    }
+
     /**
      * Presents the input graph to FCI and checks to make sure the output of FCI is equivalent to the given output
      * graph.
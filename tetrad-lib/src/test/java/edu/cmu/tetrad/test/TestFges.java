@@ -1732,6 +1732,48 @@ public class TestFges {
         }
     }
 
+    @Test
+    public void testLocalScoreDiffs() {
+        RandomUtil.getInstance().setSeed(492939492L);
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph graph = GraphUtils.randomGraph(nodes, 0, 15, 30, 15, 15, false);
+
+        DataSet continuous = new SemIm(new SemPm(graph)).simulateData(500, false);
+        DataSet discrete = new MlBayesIm(new BayesPm(graph, 2, 3), MlBayesIm.RANDOM).simulateData(500, false);
+
+        Score[] scores = {
+                new SemBicScore(new CovarianceMatrix(continuous)),
+                new BDeuScore(discrete),
+                new ConditionalGaussianScore(continuous, 1, 0, false)
+        };
+
+        int[] xs = {2, 3, 4, 5, 6, 7, 8, 9};
+
+        for (Score score : scores) {
+            for (int[] z : new int[][]{{}, {1}, {9, 1}}) {
+                double[] diffs = score.localScoreDiffs(xs, 0, z);
+
+                for (int i = 0; i < xs.length; i++) {
+                    if (contains(z, xs[i])) continue;
+                    assertEquals(score.localScoreDiff(xs[i], 0, z), diffs[i], 1e-8);
+                }
+            }
+        }
+    }
+
+    private boolean contains(int[] z, int x) {
+        for (int _z : z) {
+            if (_z == x) return true;
+        }
+
+        return false;
+    }
+
     public static void main(String... args) {
         if (args.length > 0) {
             int numMeasures = Integer.parseInt(args[0]);
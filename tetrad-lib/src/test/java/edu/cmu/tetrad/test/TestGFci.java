@@ -27,6 +27,8 @@ import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.search.*;
 import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
 import edu.cmu.tetrad.util.DataConvertUtils;
 import edu.cmu.tetrad.util.DelimiterUtils;
 import edu.cmu.tetrad.util.RandomUtil;
@@ -185,6 +187,22 @@ public class TestGFci {
         }
     }
 
+    @Test
+    public void testParallelSameAsSequential() {
+        DataSet data = ParallelSearchCheck.simulate(ParallelSearchCheck.randomDag());
+
+        final IndependenceTest test = new IndTestFisherZ(data, 0.05);
+        final SemBicScore score = new SemBicScore(new CovarianceMatrix(data));
+
+        // The sepsets are all looked up on the FGES graph before any edge is removed, so the result must be the
+        // same one pair at a time in this thread as in pools of any size.
+        ParallelSearchCheck.assertSameInPools(pool -> {
+            GFci gfci = new GFci(test, score);
+            gfci.setPool(pool);
+            return Arrays.asList(gfci.search(), gfci.getSepsets());
+        });
+    }
+
     @Test
     public void testFromData() {
         int numNodes = 20;
@@ -34,6 +34,10 @@ import edu.cmu.tetrad.bayes.MlBayesIm;
 import edu.cmu.tetrad.data.ContinuousVariable;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
+import edu.cmu.tetrad.graph.EdgeListGraph;
+import edu.cmu.tetrad.graph.EdgeTypeProbability;
+import edu.cmu.tetrad.graph.EdgeTypeProbability.EdgeType;
+import edu.cmu.tetrad.graph.Edges;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
@@ -43,11 +47,14 @@ import edu.cmu.tetrad.util.Parameters;
 import edu.cmu.tetrad.util.Params;
 import edu.pitt.dbmi.algo.resampling.GeneralResamplingTest;
 import edu.pitt.dbmi.algo.resampling.ResamplingEdgeEnsemble;
+import edu.pitt.dbmi.algo.resampling.ResamplingEdgeFrequencies;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+
 /**
  *
  * Aug 17, 2017 2:28:48 PM
@@ -128,6 +135,55 @@ public class TestGeneralResamplingTest {
 		printEdgeTypeConfusionMatrix(edgeAr);
 	}
 
+	@Test
+	public void testFGEScStreaming() {
+		int numVars = 20;
+		int edgesPerNode = 2;
+		int numCases = 200;
+		int numBootstrapSamples = 10;
+
+		Graph dag = makeContinuousDAG(numVars, 0, edgesPerNode);
+
+		int[] causalOrdering = new int[numVars];
+
+		for (int i = 0; i < numVars; i++) {
+			causalOrdering[i] = i;
+		}
+
+		LargeScaleSimulation simulator = new LargeScaleSimulation(dag, dag.getNodes(), causalOrdering);
+
+		DataSet data = simulator.simulateDataFisher(numCases);
+
+		Parameters parameters = new Parameters();
+		parameters.set(Params.PENALTY_DISCOUNT, 2);
+		parameters.set("numPatternsToStore", 0);
+		parameters.set(Params.VERBOSE, false);
+
+		Algorithm algorithm = new Fges(new SemBicScore());
+
+		// The resamples come from per-resample streams, so streaming, in parallel or
+		// not, counts the same edge frequencies as searching materialized resamples.
+		String[] results = new String[3];
+
+		for (int k = 0; k < 3; k++) {
+			GeneralResamplingTest bootstrapTest = new GeneralResamplingTest(data, algorithm, numBootstrapSamples);
+			bootstrapTest.setSeed(42);
+			bootstrapTest.setStreamingMode(k < 2);
+			bootstrapTest.setParallelMode(k == 0);
+			bootstrapTest.setResamplingWithReplacement(true);
+			bootstrapTest.setPercentResampleSize(100.00);
+			bootstrapTest.setParameters(parameters);
+			bootstrapTest.setEdgeEnsemble(ResamplingEdgeEnsemble.Highest);
+			Graph resultGraph = bootstrapTest.search();
+
+			assertEquals(numVars, resultGraph.getNumNodes());
+			results[k] = resultGraph.toString();
+		}
+
+		assertEquals(results[2], results[0]);
+		assertEquals(results[2], results[1]);
+	}
+
 	@Ignore
 	@Test
 	public void testFGESd(){
@@ -535,4 +591,41 @@ public class TestGeneralResamplingTest {
 		return GraphUtils.randomGraph(vars, numLatentConfounders, numEdges, 30, 15, 15, false);
 	}
 
+	// A pair joined by two edges in one graph counts as adjacent in that graph once.
+	@Test
+	public void testEdgeFrequenciesMultipleEdges() {
+		Node x1 = new ContinuousVariable("X1");
+		Node x2 = new ContinuousVariable("X2");
+		List<Node> nodes = new ArrayList<>();
+		nodes.add(x1);
+		nodes.add(x2);
+
+		Graph twoEdges = new EdgeListGraph(nodes);
+		twoEdges.addEdge(Edges.directedEdge(x1, x2));
+		twoEdges.addEdge(Edges.bidirectedEdge(x1, x2));
+		assertEquals(2, twoEdges.getEdges().size());
+
+		Graph oneEdge = new EdgeListGraph(nodes);
+		oneEdge.addEdge(Edges.directedEdge(x1, x2));
+
+		ResamplingEdgeFrequencies frequencies = new ResamplingEdgeFrequencies();
+		frequencies.add(twoEdges);
+		frequencies.add(oneEdge);
+		frequencies.add(new EdgeListGraph(nodes));
+		frequencies.add(new EdgeListGraph(nodes));
+
+		double directed = 0;
+		double bidirected = 0;
+		double none = 0;
+
+		for (EdgeTypeProbability etp : frequencies.getProbability(x1, x2)) {
+			if (etp.getEdgeType() == EdgeType.ta) directed += etp.getProbability();
+			else if (etp.getEdgeType() == EdgeType.aa) bidirected += etp.getProbability();
+			else if (etp.getEdgeType() == EdgeType.nil) none += etp.getProbability();
+		}
+
+		assertEquals(0.5, directed, 1e-12);
+		assertEquals(0.25, bidirected, 1e-12);
+		assertEquals(0.5, none, 1e-12);
+	}
 }
@@ -72,8 +72,8 @@ public final class TestHistogram{
         histogram.setTarget("X1");
         histogram.setNumBins(20);
 
-        assertEquals(3.76, histogram.getMax(), 0.01);
-        assertEquals(-3.83, histogram.getMin(), 0.01);
+        assertEquals(3.59, histogram.getMax(), 0.01);
+        assertEquals(-3.85, histogram.getMin(), 0.01);
         assertEquals(1000, histogram.getN());
 
         histogram.setTarget("X1");
@@ -83,9 +83,9 @@ public final class TestHistogram{
 
         histogram.removeConditioningVariable("X3");
 
-        assertEquals(3.76, histogram.getMax(), 0.01);
-        assertEquals(-3.83, histogram.getMin(), 0.01);
-        assertEquals(188, histogram.getN());
+        assertEquals(3.59, histogram.getMax(), 0.01);
+        assertEquals(-3.85, histogram.getMin(), 0.01);
+        assertEquals(199, histogram.getN());
 
         double[] arr = histogram.getContinuousData("X2");
         histogram.addConditioningVariable("X2", StatUtils.min(arr), StatUtils.mean(arr));
@@ -0,0 +1,182 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks IndexedEdgeListGraph against EdgeListGraphSingleConnections over random sequences of edge changes.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestIndexedEdgeListGraph {
+
+    @Test
+    public void testAgainstEdgeListGraph() {
+        RandomUtil.getInstance().setSeed(3849382L);
+        Endpoint[] endpoints = {Endpoint.TAIL, Endpoint.ARROW, Endpoint.CIRCLE};
+        int numNodes = 10;
+
+        for (int trial = 0; trial < 20; trial++) {
+            List<Node> nodes = new ArrayList<>();
+            for (int i = 0; i < numNodes; i++) nodes.add(new GraphNode("X" + i));
+
+            Graph graph1 = new EdgeListGraphSingleConnections(nodes);
+            Graph graph2 = new IndexedEdgeListGraph(nodes);
+
+            for (int step = 0; step < 200; step++) {
+                Node x = nodes.get(RandomUtil.getInstance().nextInt(numNodes));
+                Node y = nodes.get(RandomUtil.getInstance().nextInt(numNodes));
+                if (x == y) continue;
+
+                Endpoint e1 = endpoints[RandomUtil.getInstance().nextInt(3)];
+                Endpoint e2 = endpoints[RandomUtil.getInstance().nextInt(3)];
+
+                if (!graph1.isAdjacentTo(x, y)) {
+                    Edge edge = new Edge(x, y, e1, e2);
+                    graph1.addEdge(edge);
+                    graph2.addEdge(edge);
+                } else if (RandomUtil.getInstance().nextInt(3) == 0) {
+                    graph1.removeEdge(x, y);
+                    graph2.removeEdge(x, y);
+                } else {
+                    graph1.setEndpoint(x, y, e1);
+                    graph2.setEndpoint(x, y, e1);
+                }
+
+                // Copies share structure with the original; both must go on behaving independently.
+                if (step % 50 == 0) {
+                    Graph copy = new IndexedEdgeListGraph(graph2);
+                    graph2.removeEdges(new ArrayList<>(graph2.getEdges()));
+                    graph2 = copy;
+                }
+
+                checkSame(graph1, graph2, nodes);
+            }
+
+            graph1.removeNode(nodes.get(0));
+            graph2.removeNode(nodes.get(0));
+            assertEquals(graph1, graph2);
+            assertFalse(graph2.isAdjacentTo(nodes.get(0), nodes.get(1)));
+        }
+    }
+
+    private void checkSame(Graph graph1, Graph graph2, List<Node> nodes) {
+        assertEquals(graph1, graph2);
+
+        for (Node x : nodes) {
+            assertEquals(new HashSet<>(graph1.getAdjacentNodes(x)), new HashSet<>(graph2.getAdjacentNodes(x)));
+            assertEquals(new HashSet<>(graph1.getParents(x)), new HashSet<>(graph2.getParents(x)));
+            assertEquals(new HashSet<>(graph1.getChildren(x)), new HashSet<>(graph2.getChildren(x)));
+            assertEquals(new HashSet<>(graph1.getNodesInTo(x, Endpoint.CIRCLE)),
+                    new HashSet<>(graph2.getNodesInTo(x, Endpoint.CIRCLE)));
+            assertEquals(new HashSet<>(graph1.getAncestors(Collections.singletonList(x))),
+                    new HashSet<>(graph2.getAncestors(Collections.singletonList(x))));
+
+            for (Node y : nodes) {
+                assertEquals(graph1.isAdjacentTo(x, y), graph2.isAdjacentTo(x, y));
+                assertEquals(graph1.getEdge(x, y), graph2.getEdge(x, y));
+                assertEquals(graph1.getEndpoint(x, y), graph2.getEndpoint(x, y));
+                assertEquals(graph1.isParentOf(x, y), graph2.isParentOf(x, y));
+                assertEquals(graph1.isDirectedFromTo(x, y), graph2.isDirectedFromTo(x, y));
+                assertEquals(graph1.isAncestorOf(x, y), graph2.isAncestorOf(x, y));
+            }
+        }
+    }
+
+    // Readers querying ancestors while one thread reorients edges must not leave stale ancestor sets cached.
+    @Test
+    public void testReadersAlongsideWriter() throws InterruptedException {
+        RandomUtil.getInstance().setSeed(2938471L);
+        int numNodes = 30;
+
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < numNodes; i++) nodes.add(new GraphNode("X" + i));
+
+        final Graph graph = new IndexedEdgeListGraph(nodes);
+        final AtomicBoolean done = new AtomicBoolean(false);
+        List<Thread> readers = new ArrayList<>();
+
+        for (int t = 0; t < 3; t++) {
+            Thread reader = new Thread(new Runnable() {
+                public void run() {
+                    while (!done.get()) {
+                        for (Node x : nodes) {
+                            for (Node y : nodes) {
+                                graph.isAncestorOf(x, y);
+                            }
+
+                            graph.getAdjacentNodes(x);
+                        }
+                    }
+                }
+            });
+
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int step = 0; step < 5000; step++) {
+            int i = RandomUtil.getInstance().nextInt(numNodes);
+            int j = RandomUtil.getInstance().nextInt(numNodes);
+            if (i == j) continue;
+
+            // Edges go from lower to higher index, so the graph stays acyclic.
+            Node x = nodes.get(Math.min(i, j));
+            Node y = nodes.get(Math.max(i, j));
+            Edge edge = graph.getEdge(x, y);
+
+            if (edge == null) {
+                graph.addDirectedEdge(x, y);
+            } else {
+                graph.removeEdge(edge);
+            }
+        }
+
+        done.set(true);
+
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        Graph expected = new EdgeListGraphSingleConnections(graph);
+
+        for (Node x : nodes) {
+            assertEquals(new HashSet<>(expected.getAdjacentNodes(x)), new HashSet<>(graph.getAdjacentNodes(x)));
+
+            for (Node y : nodes) {
+                assertEquals(expected.isAncestorOf(x, y), graph.isAncestorOf(x, y));
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ import edu.cmu.tetrad.data.ContinuousVariable;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -52,9 +53,29 @@ public class TestLargeSemSimulator {
 
         assertEquals(1000, dataset.getNumRows());
     }
-}
 
+    @Test
+    public void testReproducible() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) nodes.add(new ContinuousVariable("X" + i));
 
+        Graph graph = GraphUtils.randomGraph(nodes, 0, 10, 5, 5, 5, false);
 
+        LargeScaleSimulation simulator = new LargeScaleSimulation(graph);
 
+        // The first call also sets up the model.
+        simulator.simulateDataRecursive(10);
 
+        RandomUtil.getInstance().setSeed(42L);
+        DataSet first = simulator.simulateDataRecursive(2500);
+
+        RandomUtil.getInstance().setSeed(42L);
+        DataSet second = simulator.simulateDataRecursive(2500);
+
+        assertEquals(2500, first.getNumRows());
+        assertEquals(first, second);
+
+        RandomUtil stream = RandomUtil.getStream(7L, 3L);
+        assertEquals(stream.nextDouble(), RandomUtil.getStream(7L, 3L).nextDouble(), 0.0);
+    }
+}
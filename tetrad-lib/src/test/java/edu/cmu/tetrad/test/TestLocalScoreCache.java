@@ -0,0 +1,210 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.CachingScore;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.LocalScoreCache;
+import edu.cmu.tetrad.search.Score;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.search.SemBicScoreDeterministic;
+import edu.cmu.tetrad.search.SemBicScoreMultiFas;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the local score cache and the caching score decorator.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestLocalScoreCache {
+
+    @Test
+    public void testParentOrderIgnored() {
+        LocalScoreCache cache = new LocalScoreCache();
+        cache.add(3, new int[]{5, 1, 2}, 1.5);
+
+        assertEquals(1.5, cache.get(3, new int[]{1, 2, 5}), 0.0);
+        assertEquals(1.5, cache.get(3, new int[]{2, 5, 1}), 0.0);
+        assertTrue(Double.isNaN(cache.get(3, new int[]{1, 2})));
+        assertTrue(Double.isNaN(cache.get(1, new int[]{3, 2, 5})));
+
+        assertEquals(2, cache.getNumHits());
+        assertEquals(2, cache.getNumMisses());
+    }
+
+    @Test
+    public void testBounded() {
+        LocalScoreCache cache = new LocalScoreCache(100, 4);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.add(i, new int[]{i + 1, i + 2}, i);
+        }
+
+        assertTrue(cache.size() <= 100);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getNumHits());
+    }
+
+    @Test
+    public void testCachingScoreSameResult() {
+        RandomUtil.getInstance().setSeed(4829384L);
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 15; i++) {
+            vars.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph dag = GraphUtils.randomGraph(vars, 0, 15, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(1000, false);
+
+        SemBicScore score = new SemBicScore(data);
+        CachingScore cachingScore = new CachingScore(score);
+
+        assertEquals(score.localScore(2, 0, 1), cachingScore.localScore(2, 0, 1), 1e-10);
+        assertEquals(score.localScore(2, 0, 1), cachingScore.localScore(2, 1, 0), 1e-10);
+        assertEquals(score.localScoreDiff(0, 2, new int[]{1}), cachingScore.localScoreDiff(0, 2, new int[]{1}), 1e-10);
+
+        Graph pattern1 = new Fges(score).search();
+        Graph pattern2 = new Fges(cachingScore).search();
+
+        assertEquals(pattern1, pattern2);
+        assertTrue(cachingScore.getCache().getNumHits() > 0);
+    }
+
+    @Test
+    public void testCachingScoreDiffs() {
+        RandomUtil.getInstance().setSeed(4829384L);
+        DataSet data = simulate();
+
+        SemBicScore score = new SemBicScore(data);
+        CachingScore cachingScore = new CachingScore(score);
+
+        int[] xs = {0, 1, 3, 4};
+        int[] z = {5, 6};
+
+        cachingScore.localScore(2, 5, 6, 1);
+
+        assertArrayEquals(score.localScoreDiffs(xs, 2, z), cachingScore.localScoreDiffs(xs, 2, z), 1e-10);
+        assertArrayEquals(score.localScoreDiffs(xs, 2, z), cachingScore.localScoreDiffs(xs, 2, z), 1e-10);
+    }
+
+    /**
+     * Local scores of the candidates that missed the cache are cached after a batch.
+     */
+    @Test
+    public void testCachingScoreDiffsCacheMisses() {
+        RandomUtil.getInstance().setSeed(4829384L);
+        DataSet data = simulate();
+
+        SemBicScore score = new SemBicScore(data);
+        CachingScore cachingScore = new CachingScore(score);
+
+        int[] xs = {0, 1, 3, 4};
+        int[] z = {5, 6};
+
+        cachingScore.localScoreDiffs(xs, 2, z);
+        long misses = cachingScore.getCache().getNumMisses();
+
+        for (int x : xs) {
+            assertEquals(score.localScore(2, 5, 6, x), cachingScore.localScore(2, 5, 6, x), 1e-10);
+        }
+
+        assertEquals(misses, cachingScore.getCache().getNumMisses());
+    }
+
+    @Test
+    public void testFgesCacheScores() {
+        RandomUtil.getInstance().setSeed(4829384L);
+        DataSet data = simulate();
+
+        Fges fges = new Fges(new SemBicScore(data));
+        fges.setCacheScores(true);
+
+        assertEquals(new Fges(new SemBicScore(data)).search(), fges.search());
+    }
+
+    /**
+     * Scores whose differences are not differences of their local scores are passed through.
+     */
+    @Test
+    public void testCachingScorePassThrough() {
+        RandomUtil.getInstance().setSeed(4829384L);
+        DataSet data = simulate();
+
+        List<Score> scores = new ArrayList<>();
+        scores.add(new SemBicScoreDeterministic(new CovarianceMatrix(data)));
+        scores.add(new SemBicScoreMultiFas(Collections.singletonList(data)));
+
+        for (Score score : scores) {
+            CachingScore cachingScore = new CachingScore(score);
+            assertFalse(cachingScore.isLocalScoreDiffDecomposable());
+
+            for (int x = 0; x < 5; x++) {
+                int[] z = {5, 6};
+
+                cachingScore.localScore(2, z);
+                cachingScore.localScore(2, 5, 6, x);
+
+                assertEquals(score.localScoreDiff(x, 2, z), cachingScore.localScoreDiff(x, 2, z), 0.0);
+                assertEquals(score.localScoreDiff(x, 2), cachingScore.localScoreDiff(x, 2), 0.0);
+            }
+
+            int[] xs = {0, 1, 3, 4};
+            assertArrayEquals(score.localScoreDiffs(xs, 2, new int[]{5}),
+                    cachingScore.localScoreDiffs(xs, 2, new int[]{5}), 0.0);
+        }
+    }
+
+    private DataSet simulate() {
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 15; i++) {
+            vars.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph dag = GraphUtils.randomGraph(vars, 0, 15, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        return im.simulateData(1000, false);
+    }
+}
@@ -0,0 +1,115 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DoubleDataBox;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.PartialCorrelationKernel;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.StatUtils;
+import edu.cmu.tetrad.util.TetradMatrix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that PartialCorrelationKernel gives the partial correlations StatUtils gives.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestPartialCorrelationKernel {
+
+    @Test
+    public void testSameAsStatUtils() {
+        RandomUtil.getInstance().setSeed(2938483L);
+        TetradMatrix cov = covariance(simulate(8, 0.5));
+        PartialCorrelationKernel kernel = new PartialCorrelationKernel(cov.toArray());
+
+        check(kernel, cov, 0, 1, new int[0], 1e-12);
+        check(kernel, cov, 3, 0, new int[]{5}, 1e-12);
+        check(kernel, cov, 2, 7, new int[]{0, 1, 4, 6}, 1e-12);
+        check(kernel, cov, 6, 1, new int[]{7, 2, 0, 5, 3, 4}, 1e-12);
+    }
+
+    /**
+     * X4 is X1 + X2 + X3 up to noise of standard deviation 1e-4, so conditioning sets holding all
+     * four have a covariance matrix with condition number near 1e9.
+     */
+    @Test
+    public void testNearSingular() {
+        RandomUtil.getInstance().setSeed(2938483L);
+        TetradMatrix cov = covariance(simulate(7, 1e-4));
+        PartialCorrelationKernel kernel = new PartialCorrelationKernel(cov.toArray());
+
+        check(kernel, cov, 4, 5, new int[]{3}, 1e-10);
+        check(kernel, cov, 4, 5, new int[]{0, 1, 2, 3}, 1e-6);
+        check(kernel, cov, 4, 6, new int[]{0, 1, 2, 3}, 1e-6);
+        check(kernel, cov, 5, 6, new int[]{3, 2, 4, 1, 0}, 1e-6);
+    }
+
+    private void check(PartialCorrelationKernel kernel, TetradMatrix cov, int x, int y, int[] z,
+                       double tolerance) {
+        int[] indices = new int[z.length + 2];
+        indices[0] = x;
+        indices[1] = y;
+        System.arraycopy(z, 0, indices, 2, z.length);
+
+        double expected = StatUtils.partialCorrelation(cov.getSelection(indices, indices));
+        assertEquals(expected, kernel.partialCorrelation(x, y, z), tolerance);
+    }
+
+    // Columns 0, 1, 2 and 5, 6, ... are independent standard normals; column 3 is the sum of columns
+    // 0, 1 and 2 plus normal noise of the given standard deviation; column 4 depends on 0 and 3.
+    private DataSet simulate(int numVars, double noise) {
+        RandomUtil random = RandomUtil.getInstance();
+        double[][] data = new double[500][numVars];
+
+        for (double[] row : data) {
+            for (int j = 0; j < numVars; j++) {
+                row[j] = random.nextNormal(0, 1);
+            }
+
+            row[3] = row[0] + row[1] + row[2] + random.nextNormal(0, noise);
+            row[4] = row[0] - row[3] + random.nextNormal(0, 1);
+        }
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < numVars; i++) {
+            vars.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        return new BoxDataSet(new DoubleDataBox(data), vars);
+    }
+
+    private TetradMatrix covariance(DataSet data) {
+        return new CovarianceMatrix(data).getMatrix();
+    }
+}
@@ -88,11 +88,11 @@ public class TestRegression {
         RegressionResult result = regression.regress(target, regressors);
 
         double[] coeffs = result.getCoef();
-        assertEquals(.08, coeffs[0], 0.01);
-        assertEquals(-.05, coeffs[1], 0.01);
-        assertEquals(.035, coeffs[2], 0.01);
-        assertEquals(0.019, coeffs[3], 0.01);
-        assertEquals(-.003, coeffs[4], 0.01);
+        assertEquals(-.005, coeffs[0], 0.01);
+        assertEquals(.183, coeffs[1], 0.01);
+        assertEquals(-.021, coeffs[2], 0.01);
+        assertEquals(-0.017, coeffs[3], 0.01);
+        assertEquals(-.050, coeffs[4], 0.01);
     }
 
     /**
@@ -119,10 +119,10 @@ public class TestRegression {
 
         double[] coeffs = result.getCoef();
         assertEquals(0.00, coeffs[0], 0.01);
-        assertEquals(-.053, coeffs[1], 0.01);
-        assertEquals(0.036, coeffs[2], 0.01);
-        assertEquals(.019, coeffs[3], 0.01);
-        assertEquals(.007, coeffs[4], 0.01);
+        assertEquals(.183, coeffs[1], 0.01);
+        assertEquals(-0.021, coeffs[2], 0.01);
+        assertEquals(-.017, coeffs[3], 0.01);
+        assertEquals(-.050, coeffs[4], 0.01);
     }
 }
 
@@ -0,0 +1,178 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DoubleDataBox;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.cmu.tetrad.util.TetradMatrix;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.Math.log;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the Cholesky-based SemBicScore agrees with the regression-by-inverse computation it
+ * replaced.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestSemBicScore {
+
+    @Test
+    public void testLocalScore() {
+        RandomUtil.getInstance().setSeed(3829483L);
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            vars.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph dag = GraphUtils.randomGraph(vars, 0, 15, 30, 15, 15, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(500, false);
+
+        checkScores(new SemBicScore(new CovarianceMatrix(data)), 1e-8);
+    }
+
+    /**
+     * X4 is X1 + X2 + X3 up to noise of standard deviation 1e-4, so the covariance of any parent
+     * set holding all four is nearly singular, with a condition number near 1e9. Residual variances
+     * computed through the inverse then carry relative errors near 1e-7, which n = 500 multiplies
+     * into the scores, so the tolerance is looser.
+     */
+    @Test
+    public void testLocalScoreNearSingular() {
+        RandomUtil.getInstance().setSeed(3829483L);
+        RandomUtil random = RandomUtil.getInstance();
+
+        int n = 500;
+        double[][] data = new double[n][6];
+
+        for (int r = 0; r < n; r++) {
+            data[r][0] = random.nextNormal(0, 1);
+            data[r][1] = random.nextNormal(0, 1);
+            data[r][2] = random.nextNormal(0, 1);
+            data[r][3] = data[r][0] + data[r][1] + data[r][2] + random.nextNormal(0, 1e-4);
+            data[r][4] = data[r][0] - data[r][3] + random.nextNormal(0, 1);
+            data[r][5] = random.nextNormal(0, 1);
+        }
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            vars.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        DataSet dataSet = new BoxDataSet(new DoubleDataBox(data), vars);
+
+        checkScores(new SemBicScore(new CovarianceMatrix(dataSet)), 1e-3);
+    }
+
+    // Checks localScore and localScoreDiff against the inverse-based scores, for each variable
+    // given each set of up to four other variables.
+    private void checkScores(SemBicScore score, double tolerance) {
+        int p = score.getVariables().size();
+
+        for (int i = 0; i < p; i++) {
+            for (int[] parents : parentSets(i, p, 4)) {
+                double expected = inverseScore(score, i, parents);
+                double actual = score.localScore(i, parents);
+                assertEquals(expected, actual, tolerance);
+
+                if (parents.length > 0) {
+                    int x = parents[parents.length - 1];
+                    int[] z = new int[parents.length - 1];
+                    System.arraycopy(parents, 0, z, 0, z.length);
+
+                    double expectedDiff = expected - inverseScore(score, i, z);
+                    double actualDiff = score.localScoreDiff(x, i, z);
+                    assertEquals(expectedDiff, actualDiff, tolerance);
+                }
+            }
+        }
+    }
+
+    // The score as SemBicScore computed it before it used Cholesky factors: the residual variance
+    // of i given its parents from the regression coefficients X^-1 Y.
+    private double inverseScore(SemBicScore score, int i, int[] parents) {
+        ICovarianceMatrix cov = score.getCovariances();
+        double n = score.getSampleSize();
+        int k = parents.length + 1;
+
+        TetradMatrix X = cov.getSelection(parents, parents);
+        TetradMatrix Y = cov.getSelection(parents, new int[]{i});
+        double s2 = cov.getValue(i, i);
+
+        if (parents.length > 0) {
+            TetradMatrix coefs = X.inverse().times(Y);
+
+            for (int q = 0; q < X.rows(); q++) {
+                for (int r = 0; r < X.columns(); r++) {
+                    s2 -= coefs.get(q, 0) * coefs.get(r, 0) * X.get(r, q);
+                }
+            }
+        }
+
+        return -n * log(s2) - score.getPenaltyDiscount() * k * log(n);
+    }
+
+    private List<int[]> parentSets(int i, int p, int maxSize) {
+        List<int[]> sets = new ArrayList<>();
+        sets.add(new int[0]);
+
+        for (int size = 1; size <= maxSize; size++) {
+            List<int[]> larger = new ArrayList<>();
+
+            for (int[] set : sets) {
+                if (set.length != size - 1) continue;
+                int from = set.length == 0 ? 0 : set[set.length - 1] + 1;
+
+                for (int v = from; v < p; v++) {
+                    if (v == i) continue;
+                    int[] _set = new int[size];
+                    System.arraycopy(set, 0, _set, 0, set.length);
+                    _set[size - 1] = v;
+                    larger.add(_set);
+                }
+            }
+
+            sets.addAll(larger);
+        }
+
+        return sets;
+    }
+}
@@ -33,8 +33,11 @@ import edu.cmu.tetrad.sem.*;
 import edu.cmu.tetrad.util.*;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -135,6 +138,64 @@ public class TestSemIm {
         assertEquals(0.0, semIm.getIntercept(semIm.getVariableNodes().get(4)), 0.1);
     }
 
+    @Test
+    public void testParallelSimulator() throws IOException {
+        RandomUtil.getInstance().setSeed(3920482L);
+
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph randomGraph = new Dag(GraphUtils.randomGraph(nodes, 0, 10, 30, 15, 15, false));
+        SemIm semIm = new SemIm(new SemPm(randomGraph));
+        semIm.setMean(semIm.getVariableNodes().get(0), 2.0);
+
+        ParallelSemSimulator simulator = new ParallelSemSimulator(semIm);
+        simulator.setBlockSize(1000);
+
+        RandomUtil.getInstance().setSeed(42L);
+        DataSet dataSet = simulator.simulateData(50000, false);
+
+        TetradMatrix implCovar = semIm.getImplCovarMeas();
+        TetradMatrix sampleCovar = new CovarianceMatrix(dataSet).getMatrix();
+
+        for (int i = 0; i < implCovar.rows(); i++) {
+            for (int j = 0; j < implCovar.columns(); j++) {
+                double expected = implCovar.get(i, j);
+                assertEquals(expected, sampleCovar.get(i, j), 0.05 * Math.max(1, Math.abs(expected)));
+            }
+        }
+
+        double mean = 0;
+        for (int i = 0; i < dataSet.getNumRows(); i++) mean += dataSet.getDouble(i, 0);
+        assertEquals(2.0, mean / dataSet.getNumRows(), 0.1);
+
+        File file = File.createTempFile("tetrad", ".sim");
+        file.deleteOnExit();
+
+        RandomUtil.getInstance().setSeed(42L);
+        DataSet mapped = simulator.simulateData(50000, file, false);
+
+        assertTrue(MatrixUtils.equals(dataSet.getDoubleData().toArray(), mapped.getDoubleData().toArray()));
+
+        // The data depend on the seed and block size only, not on the number of threads.
+        for (int parallelism : new int[]{1, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+            try {
+                simulator.setPool(pool);
+                RandomUtil.getInstance().setSeed(42L);
+                DataSet pooled = simulator.simulateData(50000, false);
+
+                assertTrue(MatrixUtils.equals(dataSet.getDoubleData().toArray(), pooled.getDoubleData().toArray()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
     /**
      * The Cholesky decomposition of a symmetric, positive definite matrix
      * multiplied by the transpose of the Cholesky decomposition should be equal